@@ -0,0 +1,193 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.benchmark;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.Random;
+
+import org.cpsolver.ifs.util.ToolBox;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.hibernate.Session;
+import org.unitime.banner.dataexchange.BannerMessageBatch;
+import org.unitime.banner.dataexchange.SendBannerMessage;
+import org.unitime.banner.model.QueueOut;
+import org.unitime.banner.model.dao.QueueOutDAO;
+import org.unitime.banner.queueprocessor.BannerCaller;
+import org.unitime.banner.queueprocessor.ProcessQueue;
+import org.unitime.banner.queueprocessor.QueueWorkerPool;
+import org.unitime.banner.queueprocessor.metrics.LatencyHistogram;
+import org.unitime.banner.queueprocessor.metrics.QueueMetrics;
+import org.unitime.banner.queueprocessor.simulator.BannerSimulator;
+import org.unitime.banner.queueprocessor.simulator.BannerSimulatorTransport;
+import org.unitime.banner.util.BannerMessageIdGenerator;
+import org.unitime.commons.hibernate.util.HibernateUtil;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Load test of the queue processor against the {@link BannerSimulator}: posts the given number of synthetic SCHEDULE packets
+ * (each with the given number of sections) into the integration queue, processes them (sequentially, or using the given number of workers),
+ * and reports the throughput and the latencies of the processing stages. The UniTime database is used as usual (the packets, their responses,
+ * and the response messages are stored in the queue tables, under the given term code), Banner is not called.<br>
+ * Usage: java -Dbanner.transport.class=org.unitime.banner.queueprocessor.simulator.BannerSimulatorTransport
+ * org.unitime.banner.benchmark.BannerLoadTest [packets] [sections per packet] [workers] [term code], see the benchmark-load target.
+ */
+public class BannerLoadTest {
+	
+	public static void main(String[] args) throws Exception {
+		int packets = (args.length > 0 ? Integer.parseInt(args[0]) : 1000);
+		int sectionsPerPacket = (args.length > 1 ? Integer.parseInt(args[1]) : 10);
+		int workers = (args.length > 2 ? Integer.parseInt(args[2]) : Integer.parseInt(ApplicationProperties.getProperty("queueprocessor.workers", "4")));
+		String termCode = (args.length > 3 ? args[3] : "999910");
+		
+		if (!BannerSimulatorTransport.class.getName().equals(BannerCaller.getBannerTransportClass())) {
+			System.err.println("The load test can only run against the simulator, set banner.transport.class=" + BannerSimulatorTransport.class.getName());
+			System.exit(1);
+		}
+		
+		Properties logProps = new Properties();
+		logProps.setProperty("log4j.rootLogger", "info, LogFile");
+		logProps.setProperty("log4j.appender.LogFile","org.apache.log4j.FileAppender");
+		logProps.setProperty("log4j.appender.LogFile.File", ApplicationProperties.getProperty("queueprocessor.logfilename", "loadtest.log"));
+		logProps.setProperty("log4j.appender.LogFile.layout","org.apache.log4j.PatternLayout");
+		logProps.setProperty("log4j.appender.LogFile.layout.ConversionPattern","%d{dd-MMM-yy HH:mm:ss.SSS} [%t] %-5p %c{2}> %m%n");
+		ToolBox.configureLogging("logs",logProps);
+		
+		HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
+		
+		Date start = new Date(System.currentTimeMillis() - 1000);
+		System.out.println("Posting " + packets + " packets with " + sectionsPerPacket + " sections each (term " + termCode + ") ...");
+		long t0 = System.currentTimeMillis();
+		post(packets, sectionsPerPacket, termCode);
+		long t1 = System.currentTimeMillis();
+		System.out.println("  posted in " + (t1 - t0) + " ms (" + rate(packets, t1 - t0) + " packets/s)");
+		
+		QueueMetrics.getInstance().reset();
+		System.out.println("Processing with " + (workers > 1 ? workers + " workers" : "a single thread") + " ...");
+		QueueWorkerPool pool = null;
+		ProcessQueue processQueue = null;
+		if (workers > 1) {
+			pool = new QueueWorkerPool(workers,
+					Integer.parseInt(ApplicationProperties.getProperty("queueprocessor.maxattempts", "5")),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.retryinterval", "10")),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.errorsleepinterval", "300")),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.leasetime", "1800")));
+		} else {
+			processQueue = new ProcessQueue();
+		}
+		long lastReport = t1;
+		int remaining = count(start, QueueOut.STATUS_POSTED, QueueOut.STATUS_PROCESSING);
+		while (remaining > 0) {
+			if (pool != null) {
+				pool.process();
+				Thread.sleep(100);
+			} else {
+				processQueue.process();
+			}
+			remaining = count(start, QueueOut.STATUS_POSTED, QueueOut.STATUS_PROCESSING);
+			if (System.currentTimeMillis() - lastReport >= 5000) {
+				lastReport = System.currentTimeMillis();
+				System.out.println("  " + remaining + " packets remaining, " + QueueMetrics.getInstance().getCounter(QueueMetrics.COUNTER_PROCESSED).get() + " processed");
+			}
+		}
+		if (pool != null) pool.shutdown();
+		long t2 = System.currentTimeMillis();
+		
+		int processed = count(start, QueueOut.STATUS_PROCESSED);
+		int failed = count(start, QueueOut.STATUS_FAILED);
+		System.out.println("Processed " + processed + " packets (" + failed + " failed) in " + (t2 - t1) + " ms");
+		System.out.println("  throughput: " + rate(processed, t2 - t1) + " packets/s, " + rate((long)processed * sectionsPerPacket, t2 - t1) + " sections/s");
+		System.out.println("  simulator: " + BannerSimulator.getInstance());
+		System.out.println("  stage latencies (count, mean / p50 / p99 / max in ms):");
+		for (String stage: QueueMetrics.STAGES) {
+			LatencyHistogram h = QueueMetrics.getInstance().getHistogram(stage);
+			if (h.getCount() == 0) continue;
+			System.out.println("    " + stage + ": " + h.getCount() + ", " + ms(Math.round(h.getMean())) + " / " + ms(h.getPercentile(0.5)) + " / " + ms(h.getPercentile(0.99)) + " / " + ms(h.getMax()));
+		}
+		
+		HibernateUtil.closeHibernate();
+	}
+	
+	/**
+	 * Post synthetic SCHEDULE packets in one batch (see {@link BannerMessageBatch}); CRNs 10000 .. 99999 are used
+	 * and reused when there are more sections, so that later packets update the sections of the earlier ones
+	 */
+	protected static void post(int packets, int sectionsPerPacket, String termCode) {
+		Random random = new Random(packets);
+		BannerMessageBatch.begin();
+		try {
+			for (int p = 0; p < packets; p++) {
+				BannerMessageBatch batch = BannerMessageBatch.getCurrent();
+				Long packetId = (batch != null ? batch.nextMessageId() : BannerMessageIdGenerator.generateBlock(1).get(0));
+				Document document = DocumentHelper.createDocument();
+				Element root = document.addElement("SCHEDULE");
+				root.addAttribute("PACKET_ID", packetId.toString());
+				root.addAttribute("TERM_CODE", termCode);
+				root.addAttribute("ORIGIN", "UniTime");
+				root.addAttribute("ACTION", "UPDATE");
+				root.addAttribute("IS_TRANSACTION", "Y");
+				root.addAttribute("MODE", "UPDATE");
+				root.addAttribute("DATE_FORMAT", "MM/DD/YYYY");
+				for (int s = 0; s < sectionsPerPacket; s++) {
+					int index = (p * sectionsPerPacket + s) % 90000;
+					Element section = root.addElement("SECTION");
+					section.addAttribute("ACTION", "UPDATE");
+					section.addAttribute("EXTERNAL_ID", String.valueOf(index));
+					section.addAttribute("CRN", String.valueOf(10000 + index));
+					section.addAttribute("SUBJ_CODE", "SIM");
+					section.addAttribute("CRSE_NUMB", String.valueOf(10000 + index / 10));
+					section.addAttribute("ID", String.format("%03d", index % 10));
+					section.addAttribute("TITLE", "Simulated Course " + (index / 10));
+					section.addAttribute("SCHD_CODE", "LEC");
+					section.addAttribute("MAX_ENRL", String.valueOf(10 + random.nextInt(100)));
+					section.addAttribute("CREDIT_HRS", "3");
+				}
+				SendBannerMessage.writeOutMessage(document);
+			}
+		} finally {
+			BannerMessageBatch.end();
+		}
+	}
+	
+	/**
+	 * Number of packets posted since the given date with one of the given statuses
+	 */
+	protected static int count(Date since, String... statuses) {
+		Session hibSession = QueueOutDAO.getInstance().createNewSession();
+		try {
+			return ((Number)hibSession.createQuery(
+					"select count(qo) from QueueOut qo where qo.postDate >= :since and qo.status in (:statuses)")
+					.setTimestamp("since", since).setParameterList("statuses", statuses).uniqueResult()).intValue();
+		} finally {
+			hibSession.close();
+		}
+	}
+	
+	private static String rate(long count, long millis) {
+		return millis <= 0 ? "-" : String.format("%.1f", 1000.0 * count / millis);
+	}
+	
+	private static String ms(long micros) {
+		return String.format("%.1f", micros / 1000.0);
+	}
+}
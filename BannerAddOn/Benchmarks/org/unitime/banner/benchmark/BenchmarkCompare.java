@@ -0,0 +1,113 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.benchmark;
+
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares two JMH result files (written by the benchmark target with -rf json) benchmark by benchmark.
+ * Usage: BenchmarkCompare baseline.json current.json [threshold], where the threshold is the allowed slow down
+ * in percent (defaults to 10). Exits with 1 when any benchmark got slower by more than the threshold.
+ */
+public class BenchmarkCompare {
+	
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkCompare baseline.json current.json [threshold]");
+			System.exit(2);
+		}
+		double threshold = (args.length > 2 ? Double.parseDouble(args[2]) : 10.0);
+		Map<String, Score> baseline = load(args[0]);
+		Map<String, Score> current = load(args[1]);
+		
+		int regressions = 0;
+		for (Map.Entry<String, Score> e: current.entrySet()) {
+			Score before = baseline.get(e.getKey());
+			Score after = e.getValue();
+			if (before == null) {
+				System.out.println(String.format("%-70s %12s %12.3f %-8s (new)", e.getKey(), "", after.getScore(), after.getUnit()));
+				continue;
+			}
+			double change = 100.0 * (after.getScore() - before.getScore()) / before.getScore();
+			// positive slow down means worse, for both the throughput and the time based modes
+			double slowDown = (after.isHigherBetter() ? -change : change);
+			boolean regression = slowDown > threshold;
+			if (regression) regressions ++;
+			System.out.println(String.format("%-70s %12.3f %12.3f %-8s %+7.1f%%%s", e.getKey(), before.getScore(), after.getScore(), after.getUnit(), change, regression ? " REGRESSION" : ""));
+		}
+		for (String name: baseline.keySet())
+			if (!current.containsKey(name))
+				System.out.println(String.format("%-70s (removed)", name));
+		
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) slower by more than " + threshold + "%.");
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Primary scores of the given JMH result file, keyed by the benchmark name and its parameters
+	 */
+	protected static Map<String, Score> load(String file) throws Exception {
+		Map<String, Score> scores = new TreeMap<String, Score>();
+		Reader reader = new FileReader(file);
+		try {
+			JsonArray results = new JsonParser().parse(reader).getAsJsonArray();
+			for (JsonElement element: results) {
+				JsonObject result = element.getAsJsonObject();
+				String name = result.get("benchmark").getAsString();
+				String mode = result.get("mode").getAsString();
+				Map<String, String> params = new LinkedHashMap<String, String>();
+				if (result.has("params"))
+					for (Map.Entry<String, JsonElement> p: result.getAsJsonObject("params").entrySet())
+						params.put(p.getKey(), p.getValue().getAsString());
+				JsonObject metric = result.getAsJsonObject("primaryMetric");
+				scores.put(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1) + (params.isEmpty() ? "" : params.toString()) + " [" + mode + "]",
+						new Score(metric.get("score").getAsDouble(), metric.get("scoreUnit").getAsString(), "thrpt".equals(mode)));
+			}
+		} finally {
+			reader.close();
+		}
+		return scores;
+	}
+	
+	protected static class Score {
+		private double iScore;
+		private String iUnit;
+		private boolean iHigherBetter;
+		
+		public Score(double score, String unit, boolean higherBetter) {
+			iScore = score; iUnit = unit; iHigherBetter = higherBetter;
+		}
+		
+		public double getScore() { return iScore; }
+		public String getUnit() { return iUnit; }
+		public boolean isHigherBetter() { return iHigherBetter; }
+	}
+}
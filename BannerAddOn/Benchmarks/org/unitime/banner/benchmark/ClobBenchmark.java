@@ -0,0 +1,79 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.benchmark;
+
+import java.sql.Clob;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.unitime.banner.queueprocessor.util.ClobTools;
+import org.unitime.banner.queueprocessor.util.XmlStreamCodec;
+
+/**
+ * Encoding of a SCHEDULE packet into a CLOB and decoding it back, as a whole document ({@link ClobTools})
+ * and one SECTION element at a time ({@link XmlStreamCodec}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClobBenchmark {
+	@Param({ "100", "1000", "5000" })
+	public int sections;
+	
+	private Document iPacket;
+	private Clob iClob;
+	
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkFixtures fixtures = new BenchmarkFixtures();
+		iPacket = fixtures.createPacket(1l, fixtures.createMergedMeetings(sections, 4));
+		iClob = ClobTools.documentToCLOB(iPacket);
+	}
+	
+	@Benchmark
+	public Clob encode() throws Exception {
+		return ClobTools.documentToCLOB(iPacket);
+	}
+	
+	@Benchmark
+	public Document decode() throws Exception {
+		return ClobTools.clobToDocument(iClob);
+	}
+	
+	@Benchmark
+	public Element decodeStreaming(final Blackhole bh) throws Exception {
+		return XmlStreamCodec.readElements(iClob, "SECTION", new XmlStreamCodec.ElementHandler() {
+			@Override
+			public void handle(Element element) throws Exception {
+				bh.consume(element);
+			}
+		});
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.benchmark;
+
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.Clob;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.unitime.banner.benchmark.ResponseBenchmark.ResponseParser;
+import org.unitime.banner.queueprocessor.util.ClobTools;
+import org.unitime.banner.queueprocessor.util.XmlStreamCodec;
+import org.unitime.banner.util.MeetingElement;
+
+/**
+ * Memory comparison of the document and the streaming paths of {@link ClobTools} and {@link XmlStreamCodec} on a synthetic
+ * packet with 50000 sections (or the number of sections given as the first argument) and on its response.
+ * The encode paths create the packet section by section (as the audit does) and write it out, either as a document
+ * or through the {@link XmlStreamCodec.PacketWriter} (as the streamed audit does). The output is discarded, standing in for
+ * a database CLOB (whose content is not kept on the Java heap).
+ * For each path, the following is measured:
+ * <ul>
+ * <li>retained ... heap that is still in use after a full garbage collection while the result of the path is held,
+ *   i.e., the document tree for the document paths, only the root element for the streaming paths
+ * <li>peak ... highest heap usage sampled (every millisecond) while the path runs, above the usage before it started (includes garbage)
+ * <li>allocated ... bytes allocated by the thread running the path (HotSpot only)
+ * </ul>
+ * Run it with a fixed heap (e.g., -Xms2g -Xmx2g) so that the heap is not resized during the measurement, see the benchmark-memory target.
+ */
+public class MemoryBenchmark {
+	private static final MemoryMXBean sMemory = ManagementFactory.getMemoryMXBean();
+	private static Object sResult;
+	
+	public static void main(String[] args) throws Exception {
+		final int sections = (args.length > 0 ? Integer.parseInt(args[0]) : 50000);
+		final BenchmarkFixtures fixtures = new BenchmarkFixtures();
+		Document packet = fixtures.createPacket(1l, fixtures.createMergedMeetings(sections, 4));
+		final Clob packetClob = ClobTools.documentToCLOB(packet);
+		final Clob responseClob = ClobTools.documentToCLOB(BenchmarkFixtures.createResponse(packet));
+		packet = null;
+		final ResponseParser parser = new ResponseParser();
+		
+		System.out.println(String.format("%-30s %14s %14s %14s", "Path (" + sections + " sections)", "retained [MB]", "peak [MB]", "allocated [MB]"));
+		
+		measure("encode", new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				// the packet document is held while it is written into the CLOB
+				Random random = new Random(BenchmarkFixtures.SEED);
+				Document document = DocumentHelper.createDocument();
+				Element root = fixtures.createPacketRoot(document, 1l);
+				for (int s = 0; s < sections; s++)
+					fixtures.addSection(root, s, MeetingElement.mergeMeetings(fixtures.createMeetings(s, 4)), random);
+				for (int s = 0; s + 1 < sections; s += 10)
+					fixtures.addCrossList(root, s);
+				XMLWriter writer = new XMLWriter(new DiscardingWriter(), OutputFormat.createCompactFormat());
+				writer.write(document);
+				writer.flush(); writer.close();
+				return document;
+			}
+		});
+		measure("encodeStreaming", new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				Random random = new Random(BenchmarkFixtures.SEED);
+				Element root = fixtures.createPacketRoot(DocumentHelper.createDocument(), 1l);
+				XmlStreamCodec.PacketWriter writer = new XmlStreamCodec.PacketWriter(new DiscardingWriter(), root);
+				for (int s = 0; s < sections; s++) {
+					fixtures.addSection(root, s, MeetingElement.mergeMeetings(fixtures.createMeetings(s, 4)), random);
+					writer.writeContent(root);
+				}
+				for (int s = 0; s + 1 < sections; s += 10) {
+					fixtures.addCrossList(root, s);
+					writer.writeContent(root);
+				}
+				writer.close();
+				return root;
+			}
+		});
+		measure("decode", new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return ClobTools.clobToDocument(packetClob);
+			}
+		});
+		measure("decodeStreaming", new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return XmlStreamCodec.readElements(packetClob, "SECTION", new XmlStreamCodec.ElementHandler() {
+					@Override
+					public void handle(Element element) throws Exception {}
+				});
+			}
+		});
+		measure("parseResponse", new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				// the response document is held while its messages are processed
+				Document document = ClobTools.clobToDocument(responseClob);
+				for (Iterator<?> i = document.getRootElement().elementIterator("MESSAGE"); i.hasNext();)
+					parser.parse((Element)i.next());
+				return document;
+			}
+		});
+		measure("parseResponseStreaming", new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return XmlStreamCodec.readElements(responseClob, "MESSAGE", new XmlStreamCodec.ElementHandler() {
+					@Override
+					public void handle(Element element) throws Exception {
+						parser.parse(element);
+					}
+				});
+			}
+		});
+	}
+	
+	protected static long used() {
+		return sMemory.getHeapMemoryUsage().getUsed();
+	}
+	
+	protected static void gc() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+	}
+	
+	protected static long allocated() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1l;
+	}
+	
+	protected static void measure(String name, Callable<Object> path) throws Exception {
+		// warm up (class loading, JIT)
+		sResult = path.call();
+		sResult = null;
+		gc();
+		
+		final long base = used();
+		final long[] peak = new long[] { base };
+		final boolean[] done = new boolean[] { false };
+		Thread sampler = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					synchronized (done) {
+						if (done[0]) return;
+					}
+					long u = used();
+					synchronized (peak) {
+						if (u > peak[0]) peak[0] = u;
+					}
+					try {
+						Thread.sleep(1);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		});
+		sampler.setDaemon(true);
+		sampler.start();
+		long a0 = allocated();
+		sResult = path.call();
+		long a1 = allocated();
+		synchronized (done) { done[0] = true; }
+		sampler.join();
+		
+		gc();
+		long retained = used() - base;
+		sResult = null;
+		
+		double mb = 1024.0 * 1024.0;
+		System.out.println(String.format("%-30s %14.1f %14.1f %14s", name, retained / mb, (peak[0] - base) / mb,
+				a0 < 0 ? "n/a" : String.format("%.1f", (a1 - a0) / mb)));
+	}
+	
+	/**
+	 * Writer that only counts the characters written into it
+	 */
+	protected static class DiscardingWriter extends Writer {
+		private long iLength = 0;
+		
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			iLength += len;
+		}
+		
+		@Override
+		public void flush() {}
+		
+		@Override
+		public void close() {}
+		
+		public long getLength() { return iLength; }
+	}
+}
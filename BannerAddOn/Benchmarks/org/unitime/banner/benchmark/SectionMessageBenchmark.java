@@ -0,0 +1,98 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.unitime.banner.dataexchange.BannerMessage;
+import org.unitime.banner.dataexchange.BannerMessage.BannerMessageAction;
+import org.unitime.banner.model.BannerSection;
+import org.unitime.banner.model.dao.BannerSectionDAO;
+import org.unitime.banner.util.BannerSectionBatchLoader;
+import org.unitime.commons.hibernate.util.HibernateUtil;
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.model.Session;
+import org.unitime.timetable.model.dao.SessionDAO;
+
+/**
+ * Building of a SCHEDULE packet by {@link BannerMessage#addBannerSectionToMessage(BannerSection, BannerMessageAction, org.hibernate.Session)},
+ * in the same way as the section audit does it (the classes of the sections are loaded by the {@link BannerSectionBatchLoader} first).
+ * The sections are taken from the academic session with the most Banner sections.<br>
+ * Unlike the other benchmarks, this one needs a UniTime database with Banner sections, configured in the same way
+ * as for the other command line tools (e.g., -Dtmtbl.custom.properties=...). It is excluded by bench.exclude, run it with
+ * -Dbench.include=SectionMessageBenchmark -Dbench.exclude=none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SectionMessageBenchmark {
+	@Param({ "100", "1000" })
+	public int sections;
+	
+	private org.hibernate.Session iHibSession;
+	private Transaction iTx;
+	private Session iSession;
+	private List<BannerSection> iSections;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
+		iHibSession = BannerSectionDAO.getInstance().createNewSession();
+		iTx = iHibSession.beginTransaction();
+		List<Object[]> sessions = (List<Object[]>)iHibSession.createQuery(
+				"select bs.session.uniqueId, count(bs) from BannerSection bs group by bs.session.uniqueId order by count(bs) desc").setMaxResults(1).list();
+		if (sessions.isEmpty()) throw new IllegalStateException("There are no Banner sections in the database.");
+		iSession = SessionDAO.getInstance().get((Long)sessions.get(0)[0], iHibSession);
+		iSections = (List<BannerSection>)iHibSession.createQuery(
+				"from BannerSection bs where bs.session.uniqueId = :sessionId order by bs.uniqueId")
+				.setLong("sessionId", iSession.getUniqueId()).setMaxResults(sections).list();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		if (iTx != null && iTx.isActive()) iTx.rollback();
+		iHibSession.close();
+		HibernateUtil.closeHibernate();
+	}
+	
+	@Benchmark
+	public Document auditPacket() {
+		Document document = DocumentHelper.createDocument();
+		BannerMessage message = new BannerMessage(iSession, BannerMessageAction.AUDIT, false, iHibSession, document);
+		new BannerSectionBatchLoader(iHibSession).load(iSections);
+		for (BannerSection bs: iSections)
+			message.addBannerSectionToMessage(bs, BannerMessageAction.AUDIT, iHibSession);
+		return document;
+	}
+}
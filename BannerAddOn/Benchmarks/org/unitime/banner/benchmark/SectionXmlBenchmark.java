@@ -0,0 +1,92 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.unitime.banner.util.MeetingElement;
+import org.unitime.banner.util.MessageDateFormat;
+
+/**
+ * Building of the MEETING elements of the SECTION elements of a SCHEDULE packet (using the merged meetings, as in
+ * {@link org.unitime.banner.dataexchange.BannerMessage}), and formatting of the meeting dates.<br>
+ * The rest of the SECTION element needs the Banner sections in the database, see {@link SectionMessageBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SectionXmlBenchmark {
+	@Param({ "10", "100", "1000" })
+	public int sections;
+	
+	private BenchmarkFixtures iFixtures;
+	private List<TreeSet<MeetingElement>> iMeetings;
+	private Date[] iDates;
+	
+	@Setup
+	public void setup() {
+		iFixtures = new BenchmarkFixtures();
+		iMeetings = iFixtures.createMergedMeetings(sections, 4);
+		iDates = new Date[2 * sections];
+		for (int i = 0; i < iDates.length; i++)
+			iDates[i] = BenchmarkFixtures.date(2026, Calendar.AUGUST, 24 + (i % 120));
+	}
+	
+	@Benchmark
+	public Document buildMeetings() {
+		Document document = DocumentHelper.createDocument();
+		Element root = document.addElement("SCHEDULE");
+		for (TreeSet<MeetingElement> meetings: iMeetings) {
+			Element sectionElement = root.addElement("SECTION");
+			for (MeetingElement me: meetings)
+				me.addMeetingElements(sectionElement);
+		}
+		return document;
+	}
+	
+	@Benchmark
+	public void formatDates(Blackhole bh) {
+		for (Date date: iDates)
+			bh.consume(MessageDateFormat.formatDate(date));
+	}
+	
+	@Benchmark
+	public void formatDatesSimpleDateFormat(Blackhole bh) {
+		for (Date date: iDates)
+			bh.consume(new SimpleDateFormat("MM/dd/yyyy").format(date));
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.unitime.banner.model.BannerSession;
+import org.unitime.banner.model.dao.BannerSessionDAO;
+import org.unitime.banner.onlinesectioning.BannerTermCache;
+import org.unitime.commons.hibernate.util.HibernateUtil;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Banner term lookup of {@link org.unitime.banner.onlinesectioning.BannerTermProvider}, using the {@link BannerTermCache}
+ * and using a new hibernate session for each lookup (as when banner.termCache.enabled is false).<br>
+ * Unlike the other benchmarks, this one needs a UniTime database with at least one Banner session, configured in the same way
+ * as for the other command line tools (e.g., -Dtmtbl.custom.properties=...). It is excluded by bench.exclude, run it with
+ * -Dbench.include=TermCacheBenchmark -Dbench.exclude=none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TermCacheBenchmark {
+	private Long[] iSessionIds;
+	private int iNext = 0;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
+		org.hibernate.Session hibSession = BannerSessionDAO.getInstance().createNewSession();
+		try {
+			List<Long> ids = (List<Long>)hibSession.createQuery("select bs.session.uniqueId from BannerSession bs").list();
+			if (ids.isEmpty()) throw new IllegalStateException("There are no Banner sessions in the database.");
+			iSessionIds = ids.toArray(new Long[ids.size()]);
+		} finally {
+			hibSession.close();
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		HibernateUtil.closeHibernate();
+	}
+	
+	private Long nextSessionId() {
+		iNext = (iNext + 1) % iSessionIds.length;
+		return iSessionIds[iNext];
+	}
+	
+	@Benchmark
+	public String cached() {
+		BannerTermCache.Term term = BannerTermCache.getTerm(nextSessionId());
+		return (term == null ? null : term.getTermCode());
+	}
+	
+	@Benchmark
+	public String uncached() {
+		org.hibernate.Session hibSession = BannerSessionDAO.getInstance().createNewSession();
+		try {
+			BannerSession bs = BannerSession.findBannerSessionForSession(nextSessionId(), hibSession);
+			return (bs == null ? null : bs.getBannerTermCode());
+		} finally {
+			hibSession.close();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+create table banner_audit_chunk (
+		uniqueid decimal(20,0) primary key not null,
+		run_id decimal(20,0) not null,
+		term_code varchar(20) not null,
+		chunk_nbr decimal(10,0) not null,
+		phase varchar(20) not null,
+		resume_key varchar(100) null,
+		resume_offset decimal(10,0) not null,
+		packet_id varchar(500) null,
+		queue_id decimal(20,0) null,
+		nr_elements decimal(10,0) not null,
+		created_date datetime not null
+	);
+
+create index idx_banner_audit_chunk_term on banner_audit_chunk(term_code, run_id, chunk_nbr);
+
+create index idx_banner_audit_chunk_packet on banner_audit_chunk(packet_id);
+
+update application_config set value='15' where name='tmtbl.db.banner.version';
+
+commit;
\ No newline at end of file
@@ -0,0 +1,32 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+alter table integrationqueueout add lease_owner varchar2(100 char);
+alter table integrationqueueout add lease_expiry timestamp;
+alter table integrationqueuein add lease_owner varchar2(100 char);
+alter table integrationqueuein add lease_expiry timestamp;
+
+create index idx_integrationqueueout_status on integrationqueueout(status, uniqueid);
+create index idx_integrationqueueout_lease on integrationqueueout(status, lease_expiry);
+create index idx_integrationqueuein_lease on integrationqueuein(status, lease_expiry);
+
+update application_config set value='14' where name='tmtbl.db.banner.version';
+
+commit;
\ No newline at end of file
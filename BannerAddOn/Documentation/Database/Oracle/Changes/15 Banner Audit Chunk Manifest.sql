@@ -0,0 +1,43 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+create table banner_audit_chunk (
+		uniqueid number(20,0) constraint nn_bac_uid not null,
+		run_id number(20,0) constraint nn_bac_run_id not null,
+		term_code varchar2(20 char) constraint nn_bac_term_code not null,
+		chunk_nbr number(10,0) constraint nn_bac_chunk_nbr not null,
+		phase varchar2(20 char) constraint nn_bac_phase not null,
+		resume_key varchar2(100 char),
+		resume_offset number(10,0) constraint nn_bac_resume_offset not null,
+		packet_id varchar2(500 char),
+		queue_id number(20,0),
+		nr_elements number(10,0) constraint nn_bac_nr_elements not null,
+		created_date timestamp constraint nn_bac_created_date not null
+	);
+
+alter table banner_audit_chunk add constraint pk_banner_audit_chunk primary key (uniqueid);
+
+create index idx_banner_audit_chunk_term on banner_audit_chunk(term_code, run_id, chunk_nbr);
+
+create index idx_banner_audit_chunk_packet on banner_audit_chunk(packet_id);
+
+update application_config set value='15' where name='tmtbl.db.banner.version';
+
+commit;
\ No newline at end of file
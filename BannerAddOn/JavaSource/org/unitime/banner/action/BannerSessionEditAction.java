@@ -37,6 +37,7 @@ import org.springframework.stereotype.Service;
 import org.unitime.banner.form.BannerSessionEditForm;
 import org.unitime.banner.model.BannerSession;
 import org.unitime.banner.model.dao.BannerSessionDAO;
+import org.unitime.banner.onlinesectioning.BannerTermCache;
 import org.unitime.timetable.model.ChangeLog;
 import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.security.SessionContext;
@@ -196,6 +197,7 @@ public class BannerSessionEditAction extends SpringAwareLookupDispatchAction {
                     null);
             
             tx.commit() ;
+            BannerTermCache.invalidate();
         } catch (Exception e) {
             if (tx!=null) tx.rollback();
             throw e;
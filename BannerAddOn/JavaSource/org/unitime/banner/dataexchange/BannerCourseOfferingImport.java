@@ -19,6 +19,7 @@
 */
 package org.unitime.banner.dataexchange;
 
+import java.util.Collections;
 import java.util.Iterator;
 
 import org.dom4j.Element;
@@ -32,6 +33,7 @@ import org.unitime.banner.model.BannerSectionToClass;
 import org.unitime.banner.model.BannerSession;
 import org.unitime.banner.model.dao.BannerConfigDAO;
 import org.unitime.banner.model.dao.BannerSectionDAO;
+import org.unitime.banner.util.BannerCrnIndex;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.dataexchange.BaseCourseOfferingImport;
 import org.unitime.timetable.model.Class_;
@@ -275,6 +277,7 @@ public class BannerCourseOfferingImport extends BaseCourseOfferingImport {
 					bs.setCrn(crn);
 					changed = true;
 					addNote("Class: " + classLabelString(clazz) + "banner crn changed.");
+					BannerCrnIndex.update(Collections.singletonList(bs), getHibSession());
 				}
 				if (bs.getSectionIndex() == null || !bs.getSectionIndex().equals(sectionId)){
 					bs.setSectionIndex(sectionId);
@@ -19,14 +19,15 @@
 */
 package org.unitime.banner.dataexchange;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
@@ -39,7 +40,10 @@ import org.unitime.banner.model.BannerSection;
 import org.unitime.banner.model.BannerSectionToClass;
 import org.unitime.banner.model.BannerSession;
 import org.unitime.banner.util.BannerMessageIdGenerator;
+import org.unitime.banner.util.BannerSectionBatchLoader;
 import org.unitime.banner.util.DefaultExternalBannerSessionElementHelper;
+import org.unitime.banner.util.DatePatternCache;
+import org.unitime.banner.util.MessageDateFormat;
 import org.unitime.banner.util.MeetingElement;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.ApplicationProperties;
@@ -68,39 +72,31 @@ public class BannerMessage {
 	private CourseCreditUnitConfig courseCreditUnitConfig;
 	private Class_ clazz;
 	
-    private static SimpleDateFormat sDateFormat = new SimpleDateFormat("MM/dd/yyyy");
 	private static ExternalBannerSessionElementHelperInterface externalSessionElementHelper;
 
-	private HashMap<Long, TreeMap<Date, Date>> datePatternMap;
-	private static HashMap<Long, Long> sessionDefaultDatePatternMap;
+	private HashMap<Long, SortedMap<Date, Date>> datePatternMap;
 
 	
 	private void manageDatePatternMapCache(){
 		if(datePatternMap == null){
-			datePatternMap = new HashMap<Long, TreeMap<Date,Date>>();
-		}
-	}
-	
-	private static void manageDefaultDatePatternMapCache(){
-		if(sessionDefaultDatePatternMap == null){
-			sessionDefaultDatePatternMap = new HashMap<Long, Long>();
+			datePatternMap = new HashMap<Long, SortedMap<Date,Date>>();
 		}
 	}
 
 	
-	public TreeMap<Date, Date> findDatesFor(DatePattern datePattern){
+	public SortedMap<Date, Date> findDatesFor(DatePattern datePattern){
 		manageDatePatternMapCache();
 		if (!datePatternMap.containsKey(datePattern.getUniqueId())){
-			datePatternMap.put(datePattern.getUniqueId(), MeetingElement.datePatternDates(datePattern));
+			datePatternMap.put(datePattern.getUniqueId(), DatePatternCache.getDateRanges(datePattern).toMap());
 		}
 		return(datePatternMap.get(datePattern.getUniqueId()));
 	}
 	
-	public TreeMap<Date, Date> findDatesFor(Long datePatternId){
+	public SortedMap<Date, Date> findDatesFor(Long datePatternId){
 		manageDatePatternMapCache();
 		if (!datePatternMap.containsKey(datePatternId)){
 			DatePattern dp = DatePatternDAO.getInstance().get(datePatternId);
-			datePatternMap.put(datePatternId, MeetingElement.datePatternDates(dp));
+			datePatternMap.put(datePatternId, DatePatternCache.getDateRanges(dp).toMap());
 		}
 		return(datePatternMap.get(datePatternId));
 	}
@@ -109,25 +105,28 @@ public class BannerMessage {
 	public void updateDatesForDatePattern(DatePattern datePattern){
 		manageDatePatternMapCache();
 		if (!datePatternMap.containsKey(datePattern.getUniqueId())){
-			datePatternMap.put(datePattern.getUniqueId(), MeetingElement.datePatternDates(datePattern));
+			datePatternMap.put(datePattern.getUniqueId(), DatePatternCache.getDateRanges(datePattern).toMap());
 		}	
 	}
 
 	public Long findDefaultDatePatternFor(org.unitime.timetable.model.Session acadSession){		
-		manageDefaultDatePatternMapCache();
-		if (!sessionDefaultDatePatternMap.containsKey(acadSession.getUniqueId())){
+		Long defaultDatePatternId = DatePatternCache.getDefaultDatePatternId(acadSession.getUniqueId());
+		if (defaultDatePatternId == null){
 			Session hibSession = DatePatternDAO.getInstance().createNewSession();
-			DatePattern defaultDatePattern = (DatePattern)hibSession.createQuery("from DatePattern dp where dp.session.uniqueId = :sessionId and dp.session.defaultDatePattern.uniqueId = dp.uniqueId").setLong("sessionId", acadSession.getUniqueId().longValue()).uniqueResult();
-			sessionDefaultDatePatternMap.put(acadSession.getUniqueId(), defaultDatePattern.getUniqueId());
-			updateDatesForDatePattern(defaultDatePattern);
-			hibSession.close();
+			try {
+				DatePattern defaultDatePattern = (DatePattern)hibSession.createQuery("from DatePattern dp where dp.session.uniqueId = :sessionId and dp.session.defaultDatePattern.uniqueId = dp.uniqueId").setLong("sessionId", acadSession.getUniqueId().longValue()).uniqueResult();
+				defaultDatePatternId = defaultDatePattern.getUniqueId();
+				DatePatternCache.setDefaultDatePatternId(acadSession.getUniqueId(), defaultDatePatternId);
+				updateDatesForDatePattern(defaultDatePattern);
+			} finally {
+				hibSession.close();
+			}
 		}
-		return(sessionDefaultDatePatternMap.get(acadSession.getUniqueId()));
+		return(defaultDatePatternId);
 	}
 	
 	public static void updateDefaultDatePatternForSession(DatePattern datePattern){
-		manageDefaultDatePatternMapCache();
-		sessionDefaultDatePatternMap.put(datePattern.getSession().getUniqueId(), datePattern.getUniqueId());
+		DatePatternCache.setDefaultDatePatternId(datePattern.getSession().getUniqueId(), datePattern.getUniqueId());
 	}
 
 	
@@ -162,7 +161,7 @@ public class BannerMessage {
 		root.addAttribute("IS_TRANSACTION", (isTransaction?"Y":"N"));
 		root.addAttribute("MODE", (action.equals(BannerMessageAction.AUDIT)?action.toString():BannerMessageAction.UPDATE.toString()));
 		root.addAttribute("DATE_FORMAT", bannerDateFormatString);
-		root.addAttribute("CLASS_END_DATE", sDateFormat.format(acadSession.getClassesEndDateTime()));
+		root.addAttribute("CLASS_END_DATE", MessageDateFormat.formatDate(acadSession.getClassesEndDateTime()));
 
 	}
 
@@ -172,6 +171,9 @@ public class BannerMessage {
 		if (courseOffering == null){
 			return;
 		}
+		if (bannerSection.getBatchLoader() == null){
+			new BannerSectionBatchLoader(hibSession).load(Collections.singletonList(bannerSection));
+		}
 		if (bannerSection.getClasses(hibSession).isEmpty()){
 			clazz = null;
 		} else {
@@ -187,6 +189,9 @@ public class BannerMessage {
 	}
 
 	public void addBannerCrossListToMessage(BannerSection bannerSection, BannerMessageAction action, Session hibSession){
+		if (bannerSection.getBatchLoader() == null){
+			new BannerSectionBatchLoader(hibSession).load(Collections.singletonList(bannerSection));
+		}
 		createCrossListXmlForBanner(bannerSection, action, hibSession);
 	}
 
@@ -264,7 +269,7 @@ public class BannerMessage {
 
 	private void createMeetingElementsXml(BannerSection bannerSection, Session hibSession, Element sectionElement) {
 		Set<MeetingElement> initialMeetingElements = getInitialMeetingElements(bannerSection, hibSession);
-		TreeSet<MeetingElement> meetingElements = mergeMeetings(initialMeetingElements);
+		TreeSet<MeetingElement> meetingElements = MeetingElement.mergeMeetings(initialMeetingElements);
 		for(Iterator<MeetingElement> it = meetingElements.iterator(); it.hasNext();){
 			MeetingElement me = it.next();
 			me.addMeetingElements(sectionElement);
@@ -459,7 +464,12 @@ public class BannerMessage {
 			querySession = Class_DAO.getInstance().getSession();
 		}
 		if (bannerSection.isCrossListedSection(querySession)){
+			BannerSectionBatchLoader loader = bannerSection.getBatchLoader();
 			for (BannerSectionToClass bsc : bannerSection.getBannerSectionToClasses()){
+				if (loader != null && loader.isLoaded(bsc.getClassId())){
+					ts.addAll(loader.getCrnsFor(bsc.getClassId()));
+					continue;
+				}
 				for(Integer crn : (List<Integer>) querySession.createQuery("select distinct bsc.bannerSection.crn from BannerSectionToClass bsc where bsc.classId = :classId").setLong("classId", bsc.getClassId().longValue()).list()) {
 					if (crn != null) {
 						ts.add(crn);
@@ -497,32 +507,6 @@ public class BannerMessage {
 		}
 	}
 	
-	private TreeSet<MeetingElement> mergeMeetings(Set<MeetingElement> meetings){
-		TreeSet<MeetingElement> mergedMeetings = new TreeSet<MeetingElement>();
-		if(meetings.size() == 0){
-			mergedMeetings.addAll(meetings);
-		} else {
-			HashSet<MeetingElement> unmergedMeetings = new HashSet<MeetingElement>();
-			unmergedMeetings.addAll(meetings);
-			HashSet<MeetingElement> iterateSet = new HashSet<MeetingElement>();
-			iterateSet.addAll(meetings);
-			for(Iterator<MeetingElement> meetingIt = meetings.iterator(); meetingIt.hasNext();){
-				MeetingElement me = meetingIt.next();
-				iterateSet.remove(me);
-				if (unmergedMeetings.contains(me)){
-					for(Iterator<MeetingElement> checkMeetingIt = iterateSet.iterator(); checkMeetingIt.hasNext();){
-						MeetingElement checkMeeting = checkMeetingIt.next();
-						if (me.canBeMerged(checkMeeting)){
-							me.merge(checkMeeting);
-							unmergedMeetings.remove(checkMeeting);
-						}
-					}
-					mergedMeetings.add(me);
-				}
-			}
-		}
-		return(mergedMeetings);
-	}
 	public Long getMessageId() {
 		return messageId;
 	}
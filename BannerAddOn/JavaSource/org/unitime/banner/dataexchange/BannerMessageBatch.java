@@ -0,0 +1,167 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.dataexchange;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.unitime.banner.model.QueueOut;
+import org.unitime.banner.model.dao.QueueOutDAO;
+import org.unitime.banner.util.BannerMessageIdGenerator;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Outbound Banner packets produced by one unit of work (e.g., a solution commit or an offering change).
+ * While a batch is open on the current thread, {@link SendBannerMessage#writeOutMessage(Document)} only buffers
+ * the {@link QueueOut} records and {@link BannerMessageIdGenerator} hands out PACKET_IDs from pre-allocated blocks
+ * of banner.queue.batch.idBlockSize identifiers (defaults to 50). The buffered records are saved in a single
+ * transaction when the outermost batch is closed (or when the buffer reaches banner.queue.batch.maxSize packets),
+ * with the session flushed every banner.queue.batch.flushSize records so that the inserts can be JDBC-batched
+ * (hibernate.jdbc.batch_size). Batches can be nested, only the outermost {@link #end()} writes the packets.
+ * Set banner.queue.batch.enabled to false to write each packet in its own transaction.
+ */
+public class BannerMessageBatch {
+	protected static Log sLog = LogFactory.getLog(BannerMessageBatch.class);
+	private static ThreadLocal<BannerMessageBatch> sCurrent = new ThreadLocal<BannerMessageBatch>();
+	
+	private int iDepth = 0;
+	private List<QueueOut> iMessages = new ArrayList<QueueOut>();
+	private LinkedList<Long> iMessageIds = new LinkedList<Long>();
+	private int iIdBlockSize, iMaxSize, iFlushSize;
+	
+	private BannerMessageBatch() {
+		iIdBlockSize = Integer.parseInt(ApplicationProperties.getProperty("banner.queue.batch.idBlockSize", "50"));
+		iMaxSize = Integer.parseInt(ApplicationProperties.getProperty("banner.queue.batch.maxSize", "1000"));
+		iFlushSize = Integer.parseInt(ApplicationProperties.getProperty("banner.queue.batch.flushSize", "50"));
+	}
+	
+	public static boolean isEnabled() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("banner.queue.batch.enabled", "true"));
+	}
+	
+	/**
+	 * Open a batch on the current thread (or enter the one that is already open), each call must be followed by {@link #end()}
+	 */
+	public static void begin() {
+		BannerMessageBatch batch = sCurrent.get();
+		if (batch == null) {
+			if (!isEnabled()) return;
+			batch = new BannerMessageBatch();
+			sCurrent.set(batch);
+		}
+		batch.iDepth ++;
+	}
+	
+	/**
+	 * Leave the current batch, the outermost call writes out all the buffered packets
+	 */
+	public static void end() {
+		BannerMessageBatch batch = sCurrent.get();
+		if (batch == null) return;
+		if (--batch.iDepth > 0) return;
+		sCurrent.remove();
+		batch.flush();
+	}
+	
+	/**
+	 * Batch that is open on the current thread, null if there is none
+	 */
+	public static BannerMessageBatch getCurrent() {
+		return sCurrent.get();
+	}
+	
+	/**
+	 * Next PACKET_ID, taken from the pre-allocated block (a new block is allocated when the current one is used up;
+	 * identifiers that are left over at the end of the batch are not used)
+	 */
+	public Long nextMessageId() {
+		if (iMessageIds.isEmpty())
+			iMessageIds.addAll(BannerMessageIdGenerator.generateBlock(iIdBlockSize));
+		return iMessageIds.poll();
+	}
+	
+	/**
+	 * Buffer a packet, the buffer is written out when it reaches the maximal size
+	 */
+	public void add(QueueOut message) {
+		iMessages.add(message);
+		if (iMessages.size() >= iMaxSize)
+			flush();
+	}
+	
+	/**
+	 * Number of buffered packets
+	 */
+	public int size() {
+		return iMessages.size();
+	}
+	
+	protected void flush() {
+		if (iMessages.isEmpty()) return;
+		List<QueueOut> messages = iMessages;
+		iMessages = new ArrayList<QueueOut>();
+		long t0 = System.currentTimeMillis();
+		save(messages, iFlushSize);
+		if (sLog.isDebugEnabled())
+			sLog.debug(messages.size() + " packets saved in " + (System.currentTimeMillis() - t0) + " ms.");
+	}
+	
+	/**
+	 * Save the given packets in a single transaction of a new session, flushing the session every flushSize records
+	 */
+	public static void save(List<QueueOut> messages, int flushSize) {
+		Session hibSession = QueueOutDAO.getInstance().createNewSession();
+		hibSession.setCacheMode(CacheMode.IGNORE);
+		Transaction tx = null;
+		try {
+			tx = hibSession.beginTransaction();
+			int count = 0;
+			for (QueueOut message: messages) {
+				hibSession.save(message);
+				if (flushSize > 0 && ++count % flushSize == 0) {
+					hibSession.flush();
+					hibSession.clear();
+				}
+			}
+			tx.commit();
+		} catch (RuntimeException e) {
+			if (tx != null && tx.isActive()) tx.rollback();
+			throw e;
+		} finally {
+			hibSession.close();
+		}
+	}
+	
+	/**
+	 * Short description of a packet (PACKET_ID and the number of sections and cross-lists) that is logged instead of the whole XML
+	 */
+	public static String describe(Document document) {
+		Element root = document.getRootElement();
+		return "PACKET_ID=" + root.attributeValue("PACKET_ID") + ", " + root.elements("SECTION").size() + " sections, " + root.elements("CROSSLIST").size() + " cross-lists";
+	}
+}
@@ -19,16 +19,38 @@
 */
 package org.unitime.banner.dataexchange;
 
+import java.io.IOException;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 
 import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.ReturningWork;
+import org.hibernate.jdbc.Work;
 import org.unitime.banner.dataexchange.BannerMessage.BannerMessageAction;
+import org.unitime.banner.model.BannerAuditChunk;
 import org.unitime.banner.model.BannerSection;
 import org.unitime.banner.model.BannerSession;
+import org.unitime.banner.model.QueueOut;
+import org.unitime.banner.model.dao.QueueOutDAO;
+import org.unitime.banner.queueprocessor.util.XmlStreamCodec;
+import org.unitime.banner.util.BannerSectionBatchLoader;
+import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
 import org.unitime.timetable.dataexchange.BaseExport;
 import org.unitime.timetable.model.Session;
+import org.unitime.timetable.model.dao._RootDAO;
 
 
 /**
@@ -36,6 +58,16 @@ import org.unitime.timetable.model.Session;
  *
  */
 public class BannerSectionAuditExport extends BaseExport {
+	private Session iSession;
+	private String iSync;
+	private String iTermCode;
+	private int iMaxPacketSize;
+	private Long iRunId;
+	private int iChunkNumber;
+	private Document iPacket;
+	private BannerMessage iPacketMessage;
+	private XmlStreamCodec.PacketWriter iWriter;
+	private static int sBatchSize = 100;
 
 	/**
 	 * 
@@ -60,6 +92,7 @@ public class BannerSectionAuditExport extends BaseExport {
 	
 	}
 	
+	@SuppressWarnings("unchecked")
 	private void addAllBannerSections(BannerMessage bannerMessage, BannerMessageAction action, Session session){
 		BannerSession s = BannerSession.findBannerSessionForSession(session.getUniqueId(), getHibSession());
 		
@@ -76,12 +109,12 @@ public class BannerSectionAuditExport extends BaseExport {
 		Iterator subjectIt = getHibSession().createQuery(subjectQuery).setString("termCode", s.getBannerTermCode()).iterate();
 		while (subjectIt.hasNext()){
 			String subjectAbbv = (String) subjectIt.next();
-			Iterator it = getHibSession().createQuery(qs)
+			List<BannerSection> sections = getHibSession().createQuery(qs)
 			.setString("termCode", s.getBannerTermCode())
 			.setString("subjectAbbv", subjectAbbv)
-			.iterate();
-			while(it.hasNext()){
-				BannerSection bs = (BannerSection) it.next();
+			.list();
+			new BannerSectionBatchLoader(getHibSession()).load(sections);
+			for (BannerSection bs : sections){
 				bannerMessage.addBannerSectionToMessage(bs, action, getHibSession());
 				getHibSession().evict(bs);
 			}
@@ -90,6 +123,312 @@ public class BannerSectionAuditExport extends BaseExport {
 		}
 	}
 	
+	/**
+	 * Chunked audit. Instead of building one document for the whole term, the sections are streamed (subject area by subject area)
+	 * into packets of at most banner.audit.maxPacketSize (defaults to 500) SECTION or CROSSLIST elements, each packet with its own PACKET_ID.
+	 * Each packet is put into the integration queue together with a {@link BannerAuditChunk} manifest record, so that the audit responses
+	 * can be matched with the chunks and an interrupted audit can be resumed from the last completed chunk.
+	 * @param session academic session to audit
+	 * @param sync value of the SYNC attribute of the packets (TRUE or FALSE)
+	 * @param resume when true and the last audit of the term has not been completed, the audit continues after the last recorded chunk
+	 */
+	public void sendChunkedAudit(Session session, String sync, boolean resume) throws Exception {
+		iSession = session;
+		iSync = sync;
+		iMaxPacketSize = Integer.parseInt(ApplicationProperties.getProperty("banner.audit.maxPacketSize", "500"));
+		iPacket = null; iPacketMessage = null;
+		
+		beginTransaction();
+		iTermCode = BannerSession.findBannerSessionForSession(session.getUniqueId(), getHibSession()).getBannerTermCode();
+		
+		BannerAuditChunk last = (resume ? BannerAuditChunk.findLastChunk(iTermCode, getHibSession()) : null);
+		if (last != null && last.isDone()) {
+			Debug.info("The last audit of " + iTermCode + " has been completed, starting a new audit.");
+			last = null;
+		}
+		if (last == null) {
+			String hqlDelete = "delete BannerResponse br where br.termCode = :termCode and br.action = 'AUDIT'";
+			int deletedCount = getHibSession().createQuery(hqlDelete).setString("termCode", iTermCode).executeUpdate();
+			Debug.info(deletedCount + " previous AUDIT messages deleted for " + iTermCode);
+			iChunkNumber = 0;
+			beginPacket();
+			iRunId = iPacketMessage.getMessageId();
+		} else {
+			iRunId = last.getRunId();
+			iChunkNumber = last.getChunkNumber();
+			Debug.info("Resuming audit " + iRunId + " of " + iTermCode + " after chunk " + iChunkNumber + " (" + last.getPhase() + " " + last.getResumeKey() + ", " + last.getResumeOffset() + ")");
+		}
+		commitTransaction();
+		
+		if (last == null || BannerAuditChunk.PHASE_SECTIONS.equals(last.getPhase())) {
+			beginTransaction();
+			streamAllBannerSections(last == null ? null : last.getResumeKey(), last == null ? 0 : last.getResumeOffset().intValue());
+			commitTransaction();
+		}
+		
+		beginTransaction();
+		streamAllBannerCrossLists(last != null && BannerAuditChunk.PHASE_CROSSLISTS.equals(last.getPhase()) ? last.getResumeKey() : null);
+		writeOutChunk(BannerAuditChunk.PHASE_DONE, null, 0);
+		commitTransaction();
+		
+		Debug.info("Audit " + iRunId + " of " + iTermCode + " sent in " + iChunkNumber + " chunks.");
+	}
+	
+	/**
+	 * Streamed audit. The whole term is sent in one packet (as by {@link #saveXml(Document, Session, Properties)}), but the packet
+	 * is never held in memory as a whole: each SECTION and CROSSLIST element is written into the CLOB of the queue record as soon
+	 * as it has been created (see {@link XmlStreamCodec.PacketWriter}). The queue record is created with an empty packet first and its
+	 * CLOB is replaced in the same transaction, so that the queue processor does not see the record until the whole packet is written.
+	 * @param session academic session to audit
+	 * @param sync value of the SYNC attribute of the packet (TRUE or FALSE)
+	 */
+	public void sendStreamedAudit(Session session, String sync) throws Exception {
+		iSession = session;
+		iSync = sync;
+		iPacket = null; iPacketMessage = null;
+		
+		beginTransaction();
+		try {
+			iTermCode = BannerSession.findBannerSessionForSession(session.getUniqueId(), getHibSession()).getBannerTermCode();
+			String hqlDelete = "delete BannerResponse br where br.termCode = :termCode and br.action = 'AUDIT'";
+			int deletedCount = getHibSession().createQuery(hqlDelete).setString("termCode", iTermCode).executeUpdate();
+			Debug.info(deletedCount + " previous AUDIT messages deleted for " + iTermCode);
+			
+			beginPacket();
+			QueueOut outQ = new QueueOut();
+			outQ.setXml(iPacket);
+			outQ.setStatus(QueueOut.STATUS_POSTED);
+			outQ.setPostDate(new Date());
+			getHibSession().save(outQ);
+			getHibSession().flush();
+			getHibSession().evict(outQ);
+			final Long queueId = outQ.getUniqueId();
+			
+			final Clob clob = getHibSession().doReturningWork(new ReturningWork<Clob>() {
+				@Override
+				public Clob execute(Connection connection) throws SQLException {
+					return connection.createClob();
+				}
+			});
+			try {
+				iWriter = XmlStreamCodec.createPacketWriter(clob, iPacket.getRootElement());
+				streamAllBannerSections(null, 0);
+				streamAllBannerCrossLists(null);
+				iWriter.close();
+				final int count = iWriter.getCount();
+				
+				getHibSession().doWork(new Work() {
+					@Override
+					public void execute(Connection connection) throws SQLException {
+						String schema = _RootDAO.getConfiguration().getProperty("default_schema");
+						PreparedStatement ps = connection.prepareStatement(
+								"update " + (schema == null || schema.isEmpty() ? "" : schema + ".") + "integrationqueueout set xml = ? where uniqueid = ?");
+						try {
+							ps.setClob(1, clob);
+							ps.setLong(2, queueId);
+							ps.executeUpdate();
+						} finally {
+							ps.close();
+						}
+					}
+				});
+				commitTransaction();
+				Debug.info("Audit of " + iTermCode + ": packet " + iPacketMessage.getMessageId() + " with " + count + " elements queued as " + queueId + ".");
+			} finally {
+				iWriter = null;
+				clob.free();
+			}
+		} catch (Exception e) {
+			rollbackTransaction();
+			throw e;
+		} finally {
+			iPacket = null; iPacketMessage = null;
+		}
+	}
+	
+	/**
+	 * Streamed audit: write the elements that have been added to the packet into the CLOB and remove them from the packet.
+	 */
+	private void writeOutElements() {
+		try {
+			iWriter.writeContent(iPacket.getRootElement());
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write the audit packet: " + e.getMessage(), e);
+		}
+	}
+	
+	private void beginPacket() {
+		iPacket = DocumentHelper.createDocument();
+		iPacketMessage = new BannerMessage(iSession, BannerMessageAction.AUDIT, false, getHibSession(), iPacket);
+		iPacket.getRootElement().addAttribute("SYNC", iSync);
+	}
+	
+	private boolean isPacketFull() {
+		return iPacket != null && iPacket.getRootElement().nodeCount() >= iMaxPacketSize;
+	}
+	
+	/**
+	 * Put the current packet (if not empty) into the integration queue and record the chunk, both in one transaction.
+	 */
+	private void writeOutChunk(String phase, String resumeKey, int resumeOffset) {
+		boolean empty = (iPacket == null || !iPacket.getRootElement().elementIterator().hasNext());
+		
+		BannerAuditChunk chunk = new BannerAuditChunk();
+		chunk.setRunId(iRunId);
+		chunk.setTermCode(iTermCode);
+		chunk.setChunkNumber(++iChunkNumber);
+		chunk.setPhase(phase);
+		chunk.setResumeKey(resumeKey);
+		chunk.setResumeOffset(resumeOffset);
+		chunk.setNrElements(empty ? 0 : iPacket.getRootElement().nodeCount());
+		chunk.setCreatedDate(new Date());
+		
+		org.hibernate.Session newSession = QueueOutDAO.getInstance().createNewSession();
+		Transaction trans = newSession.beginTransaction();
+		try {
+			if (!empty) {
+				QueueOut outQ = new QueueOut();
+				outQ.setXml(iPacket);
+				outQ.setStatus(QueueOut.STATUS_POSTED);
+				outQ.setPostDate(new Date());
+				newSession.save(outQ);
+				chunk.setPacketId(iPacketMessage.getMessageId().toString());
+				chunk.setQueueId(outQ.getUniqueId());
+			}
+			newSession.save(chunk);
+			trans.commit();
+		} catch (RuntimeException e) {
+			trans.rollback();
+			throw e;
+		} finally {
+			newSession.close();
+		}
+		if (empty)
+			Debug.info("Audit chunk " + chunk.getChunkNumber() + " (" + phase + ") recorded, no packet sent.");
+		else
+			Debug.info("Audit chunk " + chunk.getChunkNumber() + " (" + phase + (resumeKey == null ? "" : " " + resumeKey) + "): packet " + chunk.getPacketId() + " with " + chunk.getNrElements() + " elements queued as " + chunk.getQueueId() + ".");
+		iPacket = null; iPacketMessage = null;
+	}
+	
+	private void streamAllBannerSections(String resumeSubject, int resumeOffset) {
+		String subjectQuery = "select distinct sa.subjectAreaAbbreviation from SubjectArea sa, BannerSession bs " +
+				"where bs.bannerTermCode = :termCode and sa.session.uniqueId = bs.session.uniqueId" +
+				" order by sa.subjectAreaAbbreviation";
+		String qs = "select bs from BannerSection bs, CourseOffering co, BannerSession b " +
+				"where bs.session.uniqueId = b.session.uniqueId and b.bannerTermCode = :termCode " +
+				"and bs.bannerConfig.bannerCourse.courseOfferingId = co.uniqueId " +
+				"and co.subjectArea.subjectAreaAbbreviation = :subjectAbbv " +
+				"order by co.subjectArea.subjectAreaAbbreviation, co.courseNbr, co.title, bs.uniqueId";
+		
+		ScrollableResults subjects = getHibSession().createQuery(subjectQuery).setString("termCode", iTermCode).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (subjects.next()) {
+				String subjectAbbv = (String) subjects.get(0);
+				int skip = 0;
+				if (resumeSubject != null) {
+					if (!resumeSubject.equals(subjectAbbv)) continue;
+					resumeSubject = null;
+					skip = resumeOffset;
+				}
+				int offset = 0;
+				List<BannerSection> batch = new ArrayList<BannerSection>(sBatchSize);
+				ScrollableResults sections = getHibSession().createQuery(qs)
+						.setString("termCode", iTermCode)
+						.setString("subjectAbbv", subjectAbbv)
+						.setFetchSize(sBatchSize)
+						.scroll(ScrollMode.FORWARD_ONLY);
+				try {
+					while (sections.next()) {
+						BannerSection bs = (BannerSection) sections.get(0);
+						if (offset < skip) {
+							offset ++;
+							getHibSession().evict(bs);
+							continue;
+						}
+						batch.add(bs);
+						if (batch.size() >= sBatchSize)
+							offset = streamBannerSections(batch, subjectAbbv, offset);
+					}
+					offset = streamBannerSections(batch, subjectAbbv, offset);
+				} finally {
+					sections.close();
+				}
+			}
+		} finally {
+			subjects.close();
+		}
+		if (resumeSubject != null)
+			Debug.warning("Subject area " + resumeSubject + " of the last recorded chunk was not found, no sections have been resumed.");
+		// all sections have been sent, the next chunk starts with the cross lists
+		if (iWriter == null)
+			writeOutChunk(BannerAuditChunk.PHASE_CROSSLISTS, null, 0);
+	}
+	
+	/**
+	 * Add a batch of banner sections (of the given subject area, following the given number of sections of the subject area) to the packets.
+	 * @return number of sections of the subject area processed so far
+	 */
+	private int streamBannerSections(List<BannerSection> batch, String subjectAbbv, int offset) {
+		new BannerSectionBatchLoader(getHibSession()).load(batch);
+		for (BannerSection bs : batch) {
+			offset ++;
+			if (iPacket == null) beginPacket();
+			iPacketMessage.addBannerSectionToMessage(bs, BannerMessageAction.AUDIT, getHibSession());
+			if (iWriter != null)
+				writeOutElements();
+			else if (isPacketFull())
+				writeOutChunk(BannerAuditChunk.PHASE_SECTIONS, subjectAbbv, offset);
+		}
+		batch.clear();
+		getHibSession().flush();
+		getHibSession().clear();
+		return offset;
+	}
+	
+	private void streamAllBannerCrossLists(String resumeCrossList) {
+		String qs = "select bs from BannerSection bs, BannerSession b " +
+				"where bs.session.uniqueId = b.session.uniqueId and b.bannerTermCode = :termCode " +
+				"and bs.crossListIdentifier is not null " +
+				(resumeCrossList == null ? "" : "and bs.crossListIdentifier > :resumeCrossList ") +
+				"order by bs.crossListIdentifier, bs.uniqueId";
+		org.hibernate.Query q = getHibSession().createQuery(qs).setString("termCode", iTermCode);
+		if (resumeCrossList != null) q.setString("resumeCrossList", resumeCrossList);
+		ScrollableResults sections = q.setFetchSize(sBatchSize).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			String previous = null;
+			List<BannerSection> batch = new ArrayList<BannerSection>(sBatchSize);
+			while (sections.next()) {
+				BannerSection bs = (BannerSection) sections.get(0);
+				if (bs.getCrossListIdentifier().equals(previous)) {
+					getHibSession().evict(bs);
+					continue;
+				}
+				previous = bs.getCrossListIdentifier();
+				batch.add(bs);
+				if (batch.size() >= sBatchSize)
+					streamBannerCrossLists(batch);
+			}
+			streamBannerCrossLists(batch);
+		} finally {
+			sections.close();
+		}
+	}
+	
+	private void streamBannerCrossLists(List<BannerSection> batch) {
+		new BannerSectionBatchLoader(getHibSession()).load(batch);
+		for (BannerSection bs : batch) {
+			if (iPacket == null) beginPacket();
+			iPacketMessage.addBannerCrossListToMessage(bs, BannerMessageAction.AUDIT, getHibSession());
+			if (iWriter != null)
+				writeOutElements();
+			else if (isPacketFull())
+				writeOutChunk(BannerAuditChunk.PHASE_CROSSLISTS, bs.getCrossListIdentifier(), 0);
+		}
+		batch.clear();
+		getHibSession().flush();
+		getHibSession().clear();
+	}
+	
 	private void addAllBannerCrossLists(BannerMessage bannerMessage, BannerMessageAction action, Session session){
 		BannerSession s = BannerSession.findBannerSessionForSession(session.getUniqueId(), getHibSession());
 		String qs = "select bs from BannerSection bs, CourseOffering co, BannerSession b " +
@@ -101,15 +440,28 @@ public class BannerSectionAuditExport extends BaseExport {
 		.setString("termCode", s.getBannerTermCode())
 		.iterate();
 		HashSet<String> hs = new HashSet<String>();
+		List<BannerSection> batch = new ArrayList<BannerSection>(sBatchSize);
 		while(it.hasNext()){
 			BannerSection bs = (BannerSection) it.next();
 			if (!hs.contains(bs.getCrossListIdentifier())){
 				hs.add(bs.getCrossListIdentifier());
-				bannerMessage.addBannerCrossListToMessage(bs, action, getHibSession());
-				getHibSession().evict(bs);
+				batch.add(bs);
+				if (batch.size() >= sBatchSize){
+					addBannerCrossLists(bannerMessage, action, batch);
+				}
 			}
 		}
+		addBannerCrossLists(bannerMessage, action, batch);
 
 	}
+	
+	private void addBannerCrossLists(BannerMessage bannerMessage, BannerMessageAction action, List<BannerSection> batch){
+		new BannerSectionBatchLoader(getHibSession()).load(batch);
+		for (BannerSection bs : batch){
+			bannerMessage.addBannerCrossListToMessage(bs, action, getHibSession());
+			getHibSession().evict(bs);
+		}
+		batch.clear();
+	}
 
 }
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.dom4j.Element;
+import org.unitime.banner.onlinesectioning.ReferenceEntityCache;
 import org.unitime.timetable.dataexchange.StudentImport;
 import org.unitime.timetable.gwt.shared.ReservationInterface.OverrideType;
 import org.unitime.timetable.model.AcademicArea;
@@ -49,12 +50,26 @@ import org.unitime.timetable.model.StudentGroup;
  * @author Tomas Muller
  */
 public class BannerStudentImport extends StudentImport {
+	private Set<Long> iSessionIds = new HashSet<Long>();
+	
+	@Override
+	public void loadXml(Element rootElement) throws Exception {
+		try {
+			super.loadXml(rootElement);
+		} finally {
+			// reference entities (areas, majors, groups, etc.) may have been changed by the import
+			for (Long sessionId: iSessionIds)
+				ReferenceEntityCache.invalidate(sessionId);
+			iSessionIds.clear();
+		}
+	}
 	
 	@Override
 	protected Student importStudent(Element element, String externalId, Hashtable<String, Student> students, Session session, Set<Long> updatedStudents,
 			Map<String, AcademicArea> abbv2area, Map<String, AcademicClassification> code2clasf, Map<String, PosMajor> code2major, Map<String, PosMinor> code2minor,
 			Map<String, StudentGroup> code2group, Map<String, StudentAccomodation> code2accomodation) {
 	
+		iSessionIds.add(session.getUniqueId());
 		Student student = super.importStudent(element, externalId, students, session, updatedStudents,
 				abbv2area, code2clasf, code2major, code2minor, code2group, code2accomodation);
 		
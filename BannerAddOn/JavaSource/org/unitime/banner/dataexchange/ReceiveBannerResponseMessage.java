@@ -19,9 +19,8 @@
 */
 package org.unitime.banner.dataexchange;
 
-import java.text.DateFormat;
+import java.io.Reader;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Iterator;
 
@@ -31,6 +30,8 @@ import org.unitime.banner.model.Queue;
 import org.unitime.banner.model.QueueIn;
 import org.unitime.banner.model.dao.QueueInDAO;
 import org.unitime.banner.queueprocessor.exception.LoggableException;
+import org.unitime.banner.queueprocessor.util.XmlStreamCodec;
+import org.unitime.banner.util.MessageDateFormat;
 import org.unitime.timetable.dataexchange.BaseImport;
 
 
@@ -83,32 +84,80 @@ public class ReceiveBannerResponseMessage extends BaseImport {
 			beginTransaction();
 			for (Iterator eIt = rootElement.elementIterator(bannerResponseName); eIt.hasNext();) {
 				Element bannerResponseElement = (Element) eIt.next();
-				BannerResponse resp = new BannerResponse();
-				String dateStr = getRequiredStringAttribute(bannerResponseElement, "ACTIVITY_DATE", bannerResponseName);
-				DateFormat df = new SimpleDateFormat("MM/dd/yyyy H:m:s");
-				try {
-					Date aDate = df.parse(dateStr);
-					resp.setActivityDate(aDate);
-				} catch (ParseException e) {
-					e.printStackTrace();
+				getHibSession().save(createBannerResponse(bannerResponseElement));
+			}
+			commitTransaction();
+		}
+	}
+	
+	/**
+	 * Streaming version of {@link ReceiveBannerResponseMessage#receiveResponseDocument(QueueIn)}: the response is pull-parsed
+	 * and a {@link BannerResponse} is persisted for each MESSAGE element as soon as it is read, without the whole
+	 * response document being held in memory.
+	 * @return the root element of the response (with its attributes, but without the messages)
+	 */
+	public static Element receiveResponseStream(Reader reader, Long queueId) throws Exception {
+		ReceiveBannerResponseMessage rbrm = new ReceiveBannerResponseMessage();
+		rbrm.setQueueId(queueId);
+		return rbrm.loadXml(reader);
+	}
+	
+	/**
+	 * Pull-parse the response, persisting the MESSAGE elements one by one (the hibernate session is flushed and cleared every 1000 messages).
+	 * @return the root element of the response (with its attributes, but without the messages)
+	 */
+	public Element loadXml(Reader reader) throws Exception {
+		beginTransaction();
+		try {
+			final int[] count = new int[] {0};
+			Element root = XmlStreamCodec.readElements(reader, bannerResponseName, new XmlStreamCodec.ElementHandler() {
+				@Override
+				public void handle(Element bannerResponseElement) throws Exception {
+					getHibSession().save(createBannerResponse(bannerResponseElement));
+					if (++count[0] % 1000 == 0) {
+						getHibSession().flush();
+						getHibSession().clear();
+					}
 				}
-				resp.setSequenceNumber(getRequiredIntegerAttribute(bannerResponseElement, "SEQNO", bannerResponseName));
-				resp.setTermCode(getRequiredStringAttribute(bannerResponseElement, "TERM_CODE", bannerResponseName));
-				resp.setCrn(getOptionalStringAttribute(bannerResponseElement, "CRN"));
-				resp.setSubjectCode(getOptionalStringAttribute(bannerResponseElement, "SUBJ_CODE"));
-				resp.setCourseNumber(getOptionalStringAttribute(bannerResponseElement, "CRSE_NUMB"));
-				resp.setSectionNumber(getOptionalStringAttribute(bannerResponseElement, "SEQ_NUMB"));
-				resp.setXlstGroup(getOptionalStringAttribute(bannerResponseElement, "XLST_GROUP"));
-				resp.setExternalId(getOptionalStringAttribute(bannerResponseElement, "EXTERNAL_ID"));
-				resp.setAction(getOptionalStringAttribute(bannerResponseElement, "ACTION"));
-				resp.setType(getOptionalStringAttribute(bannerResponseElement, "TYPE"));
-				resp.setMessage(getRequiredStringAttribute(bannerResponseElement, "MESSAGE", bannerResponseName));
-				resp.setPacketId(getRequiredStringAttribute(bannerResponseElement, "PACKET_ID", bannerResponseName));
-				resp.setQueueId(queueId);
-				getHibSession().save(resp);
+			});
+			if (root != null && !root.getName().equalsIgnoreCase(rootName)) {
+				// not a schedule response, nothing to save
+				rollbackTransaction();
+				return root;
 			}
 			commitTransaction();
+			if (root != null)
+				root.addAttribute("MESSAGE_COUNT", String.valueOf(count[0]));
+			return root;
+		} catch (Exception e) {
+			rollbackTransaction();
+			throw e;
+		}
+	}
+	
+	protected BannerResponse createBannerResponse(Element bannerResponseElement) throws Exception {
+		BannerResponse resp = new BannerResponse();
+		String dateStr = getRequiredStringAttribute(bannerResponseElement, "ACTIVITY_DATE", bannerResponseName);
+		try {
+			Date aDate = MessageDateFormat.parseDateTime(dateStr);
+			resp.setActivityDate(aDate);
+		} catch (ParseException e) {
+			e.printStackTrace();
 		}
+		resp.setSequenceNumber(getRequiredIntegerAttribute(bannerResponseElement, "SEQNO", bannerResponseName));
+		resp.setTermCode(getRequiredStringAttribute(bannerResponseElement, "TERM_CODE", bannerResponseName));
+		resp.setCrn(getOptionalStringAttribute(bannerResponseElement, "CRN"));
+		resp.setSubjectCode(getOptionalStringAttribute(bannerResponseElement, "SUBJ_CODE"));
+		resp.setCourseNumber(getOptionalStringAttribute(bannerResponseElement, "CRSE_NUMB"));
+		resp.setSectionNumber(getOptionalStringAttribute(bannerResponseElement, "SEQ_NUMB"));
+		resp.setXlstGroup(getOptionalStringAttribute(bannerResponseElement, "XLST_GROUP"));
+		resp.setExternalId(getOptionalStringAttribute(bannerResponseElement, "EXTERNAL_ID"));
+		resp.setAction(getOptionalStringAttribute(bannerResponseElement, "ACTION"));
+		resp.setType(getOptionalStringAttribute(bannerResponseElement, "TYPE"));
+		resp.setMessage(getRequiredStringAttribute(bannerResponseElement, "MESSAGE", bannerResponseName));
+		resp.setPacketId(getRequiredStringAttribute(bannerResponseElement, "PACKET_ID", bannerResponseName));
+		resp.setQueueId(queueId);
+		return resp;
 	}
 
 }
@@ -19,20 +19,22 @@
 */
 package org.unitime.banner.dataexchange;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.dom4j.Document;
 import org.dom4j.DocumentHelper;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
 import org.unitime.banner.dataexchange.BannerMessage.BannerMessageAction;
 import org.unitime.banner.model.BannerSection;
 import org.unitime.banner.model.BannerSession;
 import org.unitime.banner.model.QueueOut;
-import org.unitime.banner.model.dao.QueueOutDAO;
+import org.unitime.banner.util.BannerSectionBatchLoader;
 import org.unitime.commons.Debug;
 
 
@@ -41,6 +43,7 @@ import org.unitime.commons.Debug;
  *
  */
 public class SendBannerMessage {
+	protected static Log sLog = LogFactory.getLog(SendBannerMessage.class);
 
 	/**
 	 * 
@@ -57,6 +60,7 @@ public class SendBannerMessage {
         BannerSection bs = bannerSections.get(0);
         BannerSession bannerSession = BannerSession.findBannerSessionForSession(bs.getSession(), hibSession);
         if (BannerSession.shouldSendDataToBannerForSession(bs.getSession(), hibSession) || (bannerSession.isStoreDataForBanner().booleanValue() && BannerMessageAction.AUDIT.equals(bannerMessageAction))){
+			new BannerSectionBatchLoader(hibSession).load(bannerSections);
 			HashMap<String, BannerSection> crosslistMap = new HashMap<String, BannerSection>();
 			for(Iterator<BannerSection> it = bannerSections.iterator(); it.hasNext();){
 				bs = it.next();
@@ -102,24 +106,23 @@ public class SendBannerMessage {
 	}
 	
 	public static void writeOutMessage(Document document){
-		QueueOut outQ = new QueueOut();
 		if (document.getRootElement().element("SECTION") == null && document.getRootElement().element("CROSSLIST") == null){
-			Debug.info("no message to send = " + document.asXML());
+			Debug.info("no message to send (" + BannerMessageBatch.describe(document) + ")");
 			return;
 		}
-		String asxml = document.asXML();
-		if (asxml.length() > 2000) 
-		  Debug.info("message = " + asxml.substring(1,2000) + " ....and more....");
+		if (sLog.isDebugEnabled())
+			sLog.debug("message = " + document.asXML());
 		else
-		  Debug.info("message = " + asxml);
+			Debug.info("message " + BannerMessageBatch.describe(document));
+		QueueOut outQ = new QueueOut();
 		outQ.setXml(document);
 		outQ.setStatus(QueueOut.STATUS_POSTED);
 		outQ.setPostDate(new Date());
-		Session newSession = QueueOutDAO.getInstance().createNewSession();
-		Transaction trans = newSession.beginTransaction();
-		newSession.save(outQ);
-		trans.commit();
-		newSession.close();
+		BannerMessageBatch batch = BannerMessageBatch.getCurrent();
+		if (batch != null)
+			batch.add(outQ);
+		else
+			BannerMessageBatch.save(Collections.singletonList(outQ), 0);
 	}
 
 //	public static void sendBannerMessage(List<BannerSection> bannerSections,
@@ -0,0 +1,61 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.interfaces;
+
+import java.io.IOException;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+import org.dom4j.Document;
+
+/**
+ * Transport used by the queue processor to call the Banner stored procedures. By default, Banner is called over JDBC
+ * (see {@link org.unitime.banner.queueprocessor.oracle.OracleConnector}), a different implementation can be provided
+ * using the banner.transport.class property (e.g., {@link org.unitime.banner.queueprocessor.simulator.BannerSimulatorTransport}).
+ * An implementation must have a public no-argument constructor, a new instance is created for each call
+ * and released by {@link BannerTransportInterface#cleanup()}.
+ */
+public interface BannerTransportInterface {
+	
+	/**
+	 * Send a SCHEDULE packet to Banner (sz_unitime.p_process_packet), the out_sync packet (if any) is written to the queue.
+	 * @return the SCHEDULE_RESPONSE document
+	 */
+	public Clob processUnitimePacket(Document in_clob) throws SQLException, IOException;
+	
+	/**
+	 * Request student enrollment changes from Banner (sz_unitime.p_request_student_updates)
+	 * @return the enterprise document with the enrollment changes
+	 */
+	public Clob requestEnrollmentChanges(Document request) throws SQLException, IOException;
+	
+	/**
+	 * Check whether the given CRN is used in Banner in the given term
+	 * @return Y if the CRN is used, N otherwise
+	 */
+	public String validateCrnWithBanner(String bannerTermCode, Integer crn) throws SQLException;
+	
+	/**
+	 * Release the resources held by the transport
+	 */
+	public void cleanup() throws SQLException;
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.model;
+
+import org.hibernate.Session;
+import org.unitime.banner.model.base.BaseBannerAuditChunk;
+import org.unitime.banner.model.dao.BannerAuditChunkDAO;
+
+
+/**
+ * Manifest entry of a chunked audit run. Each packet of the audit that is put into the integration queue
+ * is recorded together with the position (phase, subject area or cross list identifier, and offset) up to which
+ * the audit has been sent, so that the audit responses can be correlated with the chunks (using the packet id)
+ * and an interrupted run can be resumed from the last completed chunk.
+ */
+public class BannerAuditChunk extends BaseBannerAuditChunk {
+	private static final long serialVersionUID = 1L;
+	
+	public static final String PHASE_SECTIONS = "SECTIONS";
+	public static final String PHASE_CROSSLISTS = "CROSSLISTS";
+	public static final String PHASE_DONE = "DONE";
+
+/*[CONSTRUCTOR MARKER BEGIN]*/
+	public BannerAuditChunk () {
+		super();
+	}
+
+	/**
+	 * Constructor for primary key
+	 */
+	public BannerAuditChunk (java.lang.Long uniqueId) {
+		super(uniqueId);
+	}
+/*[CONSTRUCTOR MARKER END]*/
+	
+	public boolean isDone() {
+		return PHASE_DONE.equals(getPhase());
+	}
+
+	/**
+	 * Last recorded chunk of the most recent audit run for the given term
+	 */
+	public static BannerAuditChunk findLastChunk(String termCode, Session hibSession) {
+		return (BannerAuditChunk)BannerAuditChunkDAO.getInstance().getQuery(
+				"from BannerAuditChunk c where c.termCode = :termCode order by c.runId desc, c.chunkNumber desc", hibSession)
+				.setString("termCode", termCode).setMaxResults(1).uniqueResult();
+	}
+	
+	/**
+	 * Chunk of an audit that contained the given packet
+	 */
+	public static BannerAuditChunk findChunkForPacket(String packetId, Session hibSession) {
+		return (BannerAuditChunk)BannerAuditChunkDAO.getInstance().getQuery(
+				"from BannerAuditChunk c where c.packetId = :packetId", hibSession)
+				.setString("packetId", packetId).setMaxResults(1).uniqueResult();
+	}
+}
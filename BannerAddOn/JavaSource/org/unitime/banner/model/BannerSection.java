@@ -44,7 +44,9 @@ import org.unitime.banner.model.base.BaseBannerSection;
 import org.unitime.banner.model.dao.BannerCourseDAO;
 import org.unitime.banner.model.dao.BannerSectionDAO;
 import org.unitime.banner.model.dao.BannerSessionDAO;
+import org.unitime.banner.util.BannerCrnIndex;
 import org.unitime.banner.util.BannerCrnValidator;
+import org.unitime.banner.util.BannerSectionBatchLoader;
 import org.unitime.banner.util.DefaultExternalBannerCampusCodeElementHelper;
 import org.unitime.banner.util.DefaultExternalBannerSubjectAreaElementHelper;
 import org.unitime.commons.Debug;
@@ -103,6 +105,22 @@ public class BannerSection extends BaseBannerSection {
 /*[CONSTRUCTOR MARKER END]*/
 
 	private HashSet<Class_> classes;
+	private transient BannerSectionBatchLoader batchLoader;
+	
+	/**
+	 * Set the classes of this banner section as loaded by the given batch loader (the loader is then also used for cross list checks)
+	 */
+	public void setPrefetchedClasses(HashSet<Class_> prefetchedClasses, BannerSectionBatchLoader loader){
+		classes = prefetchedClasses;
+		batchLoader = loader;
+	}
+	
+	/**
+	 * Batch loader that has loaded the classes of this banner section, null if the classes have been loaded individually
+	 */
+	public BannerSectionBatchLoader getBatchLoader(){
+		return(batchLoader);
+	}
 	
 	public void addClass(Class_ clazz, Session hibSession){
 		if (clazz == null || clazz.getUniqueId() == null){
@@ -111,6 +129,7 @@ public class BannerSection extends BaseBannerSection {
 		if (getBannerSectionToClasses() != null && !getBannerSectionToClasses().isEmpty()){
 			initClassesIfNecessary(hibSession, clazz);
 		}
+		batchLoader = null;
 		BannerSectionToClass bsc = new BannerSectionToClass();
 		bsc.setBannerSection(this);
 		bsc.setClassId(clazz.getUniqueId());
@@ -144,6 +163,7 @@ public class BannerSection extends BaseBannerSection {
 		}
 		if (bscToRemove != null) {
 			getBannerSectionToClasses().remove(bscToRemove);
+			batchLoader = null;
 		}
 	}
 
@@ -212,6 +232,9 @@ public class BannerSection extends BaseBannerSection {
 		if (classId == null){
 			return(0);
 		}
+		if (batchLoader != null && batchLoader.isLoaded(classId)){
+			return(batchLoader.countBannerSectionsFor(classId).intValue());
+		}
 		Session querySession = hibSession;
 		if (querySession == null){
 			querySession = Class_DAO.getInstance().getSession();
@@ -1177,6 +1200,9 @@ public class BannerSection extends BaseBannerSection {
     
     @SuppressWarnings("unchecked")
 	public static List<Class_> findAllClassesForCrnAndTermCode(Session hibSession, Integer crn, String termCode){
+    	if (BannerCrnIndex.isEnabled()){
+    		return(BannerCrnIndex.findClasses(hibSession, crn, termCode));
+    	}
     	return (hibSession.
 			createQuery("select distinct c from BannerSession bsess, BannerSection bs inner join bs.bannerSectionToClasses as bstc, Class_ c where " +
 					"bs.session.uniqueId=bsess.session.uniqueId and bsess.bannerTermCode = :termCode and bs.crn = :crn and bstc.classId = c.uniqueId").
@@ -1190,6 +1216,9 @@ public class BannerSection extends BaseBannerSection {
     }
   
     public static CourseOffering findCourseOfferingForCrnAndTermCode(Session hibSession, Integer crn, String termCode){
+    	if (BannerCrnIndex.isEnabled()){
+    		return(BannerCrnIndex.findCourseOffering(hibSession, crn, termCode));
+    	}
     	return ((CourseOffering)hibSession.
 			createQuery("select distinct co from BannerSession bsess, BannerSection bs, CourseOffering co where " +
 					"bs.session.uniqueId=bsess.session.uniqueId and bsess.bannerTermCode = :termCode and bs.crn = :crn and co.uniqueId = bs.bannerConfig.bannerCourse.courseOfferingId").
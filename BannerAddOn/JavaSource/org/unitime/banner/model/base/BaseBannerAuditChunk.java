@@ -0,0 +1,133 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.model.base;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.unitime.banner.model.BannerAuditChunk;
+
+/**
+ * Do not change this class. It has been automatically generated using ant create-model.
+ * @see org.unitime.commons.ant.CreateBaseModelFromXml
+ */
+public abstract class BaseBannerAuditChunk implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Long iUniqueId;
+	private Long iRunId;
+	private String iTermCode;
+	private Integer iChunkNumber;
+	private String iPhase;
+	private String iResumeKey;
+	private Integer iResumeOffset;
+	private String iPacketId;
+	private Long iQueueId;
+	private Integer iNrElements;
+	private Date iCreatedDate;
+
+
+	public static String PROP_UNIQUEID = "uniqueId";
+	public static String PROP_RUN_ID = "runId";
+	public static String PROP_TERM_CODE = "termCode";
+	public static String PROP_CHUNK_NBR = "chunkNumber";
+	public static String PROP_PHASE = "phase";
+	public static String PROP_RESUME_KEY = "resumeKey";
+	public static String PROP_RESUME_OFFSET = "resumeOffset";
+	public static String PROP_PACKET_ID = "packetId";
+	public static String PROP_QUEUE_ID = "queueId";
+	public static String PROP_NR_ELEMENTS = "nrElements";
+	public static String PROP_CREATED_DATE = "createdDate";
+
+	public BaseBannerAuditChunk() {
+		initialize();
+	}
+
+	public BaseBannerAuditChunk(Long uniqueId) {
+		setUniqueId(uniqueId);
+		initialize();
+	}
+
+	protected void initialize() {}
+
+	public Long getUniqueId() { return iUniqueId; }
+	public void setUniqueId(Long uniqueId) { iUniqueId = uniqueId; }
+
+	public Long getRunId() { return iRunId; }
+	public void setRunId(Long runId) { iRunId = runId; }
+
+	public String getTermCode() { return iTermCode; }
+	public void setTermCode(String termCode) { iTermCode = termCode; }
+
+	public Integer getChunkNumber() { return iChunkNumber; }
+	public void setChunkNumber(Integer chunkNumber) { iChunkNumber = chunkNumber; }
+
+	public String getPhase() { return iPhase; }
+	public void setPhase(String phase) { iPhase = phase; }
+
+	public String getResumeKey() { return iResumeKey; }
+	public void setResumeKey(String resumeKey) { iResumeKey = resumeKey; }
+
+	public Integer getResumeOffset() { return iResumeOffset; }
+	public void setResumeOffset(Integer resumeOffset) { iResumeOffset = resumeOffset; }
+
+	public String getPacketId() { return iPacketId; }
+	public void setPacketId(String packetId) { iPacketId = packetId; }
+
+	public Long getQueueId() { return iQueueId; }
+	public void setQueueId(Long queueId) { iQueueId = queueId; }
+
+	public Integer getNrElements() { return iNrElements; }
+	public void setNrElements(Integer nrElements) { iNrElements = nrElements; }
+
+	public Date getCreatedDate() { return iCreatedDate; }
+	public void setCreatedDate(Date createdDate) { iCreatedDate = createdDate; }
+
+	public boolean equals(Object o) {
+		if (o == null || !(o instanceof BannerAuditChunk)) return false;
+		if (getUniqueId() == null || ((BannerAuditChunk)o).getUniqueId() == null) return false;
+		return getUniqueId().equals(((BannerAuditChunk)o).getUniqueId());
+	}
+
+	public int hashCode() {
+		if (getUniqueId() == null) return super.hashCode();
+		return getUniqueId().hashCode();
+	}
+
+	public String toString() {
+		return "BannerAuditChunk["+getUniqueId()+"]";
+	}
+
+	public String toDebugString() {
+		return "BannerAuditChunk[" +
+			"\n	ChunkNumber: " + getChunkNumber() +
+			"\n	CreatedDate: " + getCreatedDate() +
+			"\n	NrElements: " + getNrElements() +
+			"\n	PacketId: " + getPacketId() +
+			"\n	Phase: " + getPhase() +
+			"\n	QueueId: " + getQueueId() +
+			"\n	ResumeKey: " + getResumeKey() +
+			"\n	ResumeOffset: " + getResumeOffset() +
+			"\n	RunId: " + getRunId() +
+			"\n	TermCode: " + getTermCode() +
+			"\n	UniqueId: " + getUniqueId() +
+			"]";
+	}
+}
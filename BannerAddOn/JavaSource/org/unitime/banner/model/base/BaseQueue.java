@@ -37,6 +37,8 @@ public abstract class BaseQueue implements Serializable {
 	private String iStatus;
 	private Date iPostDate;
 	private Date iProcessDate;
+	private String iLeaseOwner;
+	private Date iLeaseExpiry;
 
 
 	public static String PROP_UNIQUEID = "uniqueId";
@@ -44,6 +46,8 @@ public abstract class BaseQueue implements Serializable {
 	public static String PROP_STATUS = "status";
 	public static String PROP_POSTDATE = "postDate";
 	public static String PROP_PROCESSDATE = "processDate";
+	public static String PROP_LEASE_OWNER = "leaseOwner";
+	public static String PROP_LEASE_EXPIRY = "leaseExpiry";
 
 	public BaseQueue() {
 		initialize();
@@ -71,6 +75,12 @@ public abstract class BaseQueue implements Serializable {
 	public Date getProcessDate() { return iProcessDate; }
 	public void setProcessDate(Date processDate) { iProcessDate = processDate; }
 
+	public String getLeaseOwner() { return iLeaseOwner; }
+	public void setLeaseOwner(String leaseOwner) { iLeaseOwner = leaseOwner; }
+
+	public Date getLeaseExpiry() { return iLeaseExpiry; }
+	public void setLeaseExpiry(Date leaseExpiry) { iLeaseExpiry = leaseExpiry; }
+
 	public boolean equals(Object o) {
 		if (o == null || !(o instanceof Queue)) return false;
 		if (getUniqueId() == null || ((Queue)o).getUniqueId() == null) return false;
@@ -88,6 +98,8 @@ public abstract class BaseQueue implements Serializable {
 
 	public String toDebugString() {
 		return "Queue[" +
+			"\n	LeaseExpiry: " + getLeaseExpiry() +
+			"\n	LeaseOwner: " + getLeaseOwner() +
 			"\n	PostDate: " + getPostDate() +
 			"\n	ProcessDate: " + getProcessDate() +
 			"\n	Status: " + getStatus() +
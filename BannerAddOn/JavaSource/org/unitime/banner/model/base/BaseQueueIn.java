@@ -67,6 +67,8 @@ public abstract class BaseQueueIn extends Queue implements Serializable {
 
 	public String toDebugString() {
 		return "QueueIn[" +
+			"\n	LeaseExpiry: " + getLeaseExpiry() +
+			"\n	LeaseOwner: " + getLeaseOwner() +
 			"\n	MatchId: " + getMatchId() +
 			"\n	PostDate: " + getPostDate() +
 			"\n	ProcessDate: " + getProcessDate() +
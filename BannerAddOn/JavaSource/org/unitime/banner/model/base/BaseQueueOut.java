@@ -68,6 +68,8 @@ public abstract class BaseQueueOut extends Queue implements Serializable {
 
 	public String toDebugString() {
 		return "QueueOut[" +
+			"\n	LeaseExpiry: " + getLeaseExpiry() +
+			"\n	LeaseOwner: " + getLeaseOwner() +
 			"\n	PickupDate: " + getPickupDate() +
 			"\n	PostDate: " + getPostDate() +
 			"\n	ProcessDate: " + getProcessDate() +
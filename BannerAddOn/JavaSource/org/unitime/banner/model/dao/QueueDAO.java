@@ -20,7 +20,22 @@
 
 package org.unitime.banner.model.dao;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.LockMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.Oracle10gDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.unitime.banner.model.Queue;
 import org.unitime.banner.model.base.BaseQueueDAO;
+import org.unitime.banner.queueprocessor.exception.LoggableException;
+import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
 
 
 public class QueueDAO extends BaseQueueDAO {
@@ -29,6 +44,141 @@ public class QueueDAO extends BaseQueueDAO {
 	 * Default constructor.  Can be used in place of getInstance()
 	 */
 	public QueueDAO () {}
-
-
+	
+	/**
+	 * Use select ... for update skip locked to claim queue items? Defaults to true on Oracle, can be changed
+	 * using the banner.queue.lease.skipLocked property (e.g., MySQL 8 supports skip locked as well, but the MySQL dialect does not).
+	 */
+	protected static boolean isSkipLockedSupported(org.hibernate.Session hibSession) {
+		String skipLocked = ApplicationProperties.getProperty("banner.queue.lease.skipLocked");
+		if (skipLocked != null) return "true".equalsIgnoreCase(skipLocked);
+		return ((SessionFactoryImplementor)hibSession.getSessionFactory()).getDialect() instanceof Oracle10gDialect;
+	}
+	
+	/**
+	 * Atomically claim up to the given number of queue items of the given status. Claimed items are marked as PROCESSING,
+	 * with the given lease owner and a lease that expires after the given number of milliseconds. Expired leases are returned
+	 * to the given status first, so that items claimed by a processor that went away are picked up again.
+	 * Items are claimed in the order in which they were posted.<br>
+	 * Uses select ... for update skip locked where supported, optimistic conditional updates (on the item status) otherwise.
+	 * In both cases, multiple processors can claim items from the same queue at the same time.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <T extends Queue> List<T> lease(org.hibernate.Session hibSession, Class<T> queueClass, String status, String owner, int limit, long leaseTime) throws LoggableException {
+		String entity = queueClass.getSimpleName();
+		Transaction tx = null;
+		try {
+			tx = hibSession.beginTransaction();
+			
+			Date now = new Date();
+			int reclaimed = hibSession.createQuery(
+					"update " + entity + " set status = :status, leaseOwner = null, leaseExpiry = null " +
+					"where status = :processing and leaseExpiry < :now")
+					.setString("status", status)
+					.setString("processing", Queue.STATUS_PROCESSING)
+					.setTimestamp("now", now)
+					.executeUpdate();
+			if (reclaimed > 0)
+				Debug.info("Reclaimed " + reclaimed + " " + entity + " items with an expired lease.");
+			
+			Date expiry = new Date(now.getTime() + leaseTime);
+			List<T> leased = new ArrayList<T>();
+			if (isSkipLockedSupported(hibSession)) {
+				ScrollableResults results = hibSession.createQuery(
+						"from " + entity + " q where q.status = :status order by q.postDate, q.uniqueId")
+						.setString("status", status)
+						.setLockMode("q", LockMode.UPGRADE_SKIPLOCKED)
+						.setFetchSize(limit)
+						.scroll(ScrollMode.FORWARD_ONLY);
+				try {
+					while (leased.size() < limit && results.next()) {
+						T item = (T)results.get(0);
+						item.setStatus(Queue.STATUS_PROCESSING);
+						item.setLeaseOwner(owner);
+						item.setLeaseExpiry(expiry);
+						hibSession.update(item);
+						leased.add(item);
+					}
+				} finally {
+					results.close();
+				}
+				hibSession.flush();
+			} else {
+				List<Long> ids = hibSession.createQuery(
+						"select q.uniqueId from " + entity + " q where q.status = :status order by q.postDate, q.uniqueId")
+						.setString("status", status)
+						.setMaxResults(limit)
+						.list();
+				if (!ids.isEmpty()) {
+					// the status condition makes sure that an item is only claimed by one processor
+					hibSession.createQuery(
+							"update " + entity + " set status = :processing, leaseOwner = :owner, leaseExpiry = :expiry " +
+							"where uniqueId in (:ids) and status = :status")
+							.setString("processing", Queue.STATUS_PROCESSING)
+							.setString("owner", owner)
+							.setTimestamp("expiry", expiry)
+							.setParameterList("ids", ids)
+							.setString("status", status)
+							.executeUpdate();
+					leased = hibSession.createQuery(
+							"from " + entity + " q where q.uniqueId in (:ids) and q.status = :processing and q.leaseOwner = :owner order by q.postDate, q.uniqueId")
+							.setParameterList("ids", ids)
+							.setString("processing", Queue.STATUS_PROCESSING)
+							.setString("owner", owner)
+							.list();
+				}
+			}
+			
+			tx.commit();
+			return leased;
+		} catch (HibernateException e) {
+			if (tx != null) tx.rollback();
+			throw new LoggableException(e);
+		}
+	}
+	
+	/**
+	 * Extend the lease of a queue item. Returns false if the item is no longer leased by the given owner.
+	 */
+	protected static boolean renewLease(org.hibernate.Session hibSession, Class<? extends Queue> queueClass, Long queueId, String owner, long leaseTime) throws LoggableException {
+		Transaction tx = null;
+		try {
+			tx = hibSession.beginTransaction();
+			int updated = hibSession.createQuery(
+					"update " + queueClass.getSimpleName() + " set leaseExpiry = :expiry " +
+					"where uniqueId = :queueId and status = :processing and leaseOwner = :owner")
+					.setTimestamp("expiry", new Date(System.currentTimeMillis() + leaseTime))
+					.setLong("queueId", queueId)
+					.setString("processing", Queue.STATUS_PROCESSING)
+					.setString("owner", owner)
+					.executeUpdate();
+			tx.commit();
+			return updated > 0;
+		} catch (HibernateException e) {
+			if (tx != null) tx.rollback();
+			throw new LoggableException(e);
+		}
+	}
+	
+	/**
+	 * Release the lease of a queue item, setting the item to the given status. Returns false if the item is no longer leased by the given owner.
+	 */
+	protected static boolean releaseLease(org.hibernate.Session hibSession, Class<? extends Queue> queueClass, Long queueId, String owner, String status) throws LoggableException {
+		Transaction tx = null;
+		try {
+			tx = hibSession.beginTransaction();
+			int updated = hibSession.createQuery(
+					"update " + queueClass.getSimpleName() + " set status = :status, leaseOwner = null, leaseExpiry = null " +
+					"where uniqueId = :queueId and leaseOwner = :owner")
+					.setString("status", status)
+					.setLong("queueId", queueId)
+					.setString("owner", owner)
+					.executeUpdate();
+			tx.commit();
+			return updated > 0;
+		} catch (HibernateException e) {
+			if (tx != null) tx.rollback();
+			throw new LoggableException(e);
+		}
+	}
 }
\ No newline at end of file
@@ -119,4 +119,41 @@ public class QueueOutDAO extends BaseQueueOutDAO {
         }
 		return (list == null || list.isEmpty() ? null : list.get(0));
 	}
+
+	/**
+	 * Claim up to limit items of the given status (marking them as PROCESSING), see {@link QueueDAO#lease(org.hibernate.Session, Class, String, String, int, long)}.
+	 * @param status status of the items to claim (expired leases are returned to this status)
+	 * @param owner lease owner, identifying the processor that claims the items
+	 * @param limit maximal number of items to claim
+	 * @param leaseTime lease duration in milliseconds
+	 */
+	public List<QueueOut> lease(String status, String owner, int limit, long leaseTime) throws LoggableException {
+		try {
+			return QueueDAO.lease(getSession(), QueueOut.class, status, owner, limit, leaseTime);
+		} finally {
+			getSession().close();
+		}
+	}
+	
+	/**
+	 * Extend the lease of an item. Returns false if the item is no longer leased by the given owner.
+	 */
+	public boolean renewLease(Long queueId, String owner, long leaseTime) throws LoggableException {
+		try {
+			return QueueDAO.renewLease(getSession(), QueueOut.class, queueId, owner, leaseTime);
+		} finally {
+			getSession().close();
+		}
+	}
+	
+	/**
+	 * Release the lease of an item, changing its status to the given one. Returns false if the item is no longer leased by the given owner.
+	 */
+	public boolean releaseLease(Long queueId, String owner, String status) throws LoggableException {
+		try {
+			return QueueDAO.releaseLease(getSession(), QueueOut.class, queueId, owner, status);
+		} finally {
+			getSession().close();
+		}
+	}
 }
\ No newline at end of file
@@ -46,6 +46,7 @@ public class BannerSolverServerImplementation {
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			public void run() {
 				pooler.interrupt();
+				StudentUpdateEngine.shutdown();
 			}
 		});
 	}
@@ -19,16 +19,20 @@
 */
 package org.unitime.banner.onlinesectioning;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentHelper;
@@ -76,32 +80,14 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 			iContainer = ((SolverServerService)SpringApplicationContextHolder.getBean("solverServerService")).getOnlineStudentSchedulingContainer();
 	}
 	
-	protected XmlMessage getMessage() throws Exception {
-		org.hibernate.Session hibSession = QueueInDAO.getInstance().createNewSession();
-		Transaction tx = hibSession.beginTransaction();
-		try {
-			QueueIn qi = (QueueIn)hibSession.createQuery("from QueueIn where status = :status order by uniqueId")
-					.setString("status", QueueIn.STATUS_READY)
-					.setMaxResults(1)
-					.uniqueResult();
-			
-			XmlMessage ret = null;
-			
-			if (qi != null) {
-				qi.setStatus(Queue.STATUS_PROCESSING);
-				hibSession.update(qi);
-				ret = new XmlMessage(qi.getUniqueId(), qi.getPostDate(), qi.getXml());
-			}
-
-			tx.commit();
-			
-			return ret;
-		} catch (Exception e) {
-			tx.rollback();
-			throw e;
-		} finally {
-			hibSession.close();
-		}
+	/**
+	 * Claim a batch of messages that are ready to be processed, see {@link QueueInDAO#lease(String, String, int, long)}.
+	 */
+	protected List<XmlMessage> getMessages(String owner, int limit, long leaseTime) throws Exception {
+		List<XmlMessage> ret = new ArrayList<XmlMessage>();
+		for (QueueIn qi: QueueInDAO.getInstance().lease(QueueIn.STATUS_READY, owner, limit, leaseTime))
+			ret.add(new XmlMessage(qi.getUniqueId(), qi.getPostDate(), qi.getXml()));
+		return ret;
 	}
 	
 	protected void updateMessage(XmlMessage message, String status) throws Exception {
@@ -113,6 +99,8 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 			if (qi != null) {
 				qi.setStatus(status);
 				qi.setProcessDate(new Date());
+				qi.setLeaseOwner(null);
+				qi.setLeaseExpiry(null);
 				hibSession.update(qi);
 			}
 			
@@ -127,21 +115,32 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 	
 	public void pollMessage() {
 		try {
+			String owner = ManagementFactory.getRuntimeMXBean().getName();
+			int batchSize = Integer.parseInt(ApplicationProperties.getProperty("banner.studentUpdates.batchSize", "10"));
+			long leaseTime = 1000l * Long.parseLong(ApplicationProperties.getProperty("banner.studentUpdates.leaseTime", "3600"));
 			while (true) {
-				XmlMessage message = getMessage();
+				List<XmlMessage> messages = getMessages(owner, batchSize, leaseTime);
 				
-				if (message == null) break;
-				info("Processing message #" + message.getQueueId() + " posted at " + message.getCreated());
+				if (messages.isEmpty()) break;
 				
-				try {
-					processMessage(message.getContent().getRootElement());
-					info("Message #" + message.getQueueId() + " processed.");
-					updateMessage(message, Queue.STATUS_PROCESSED);
-				} catch (Exception e) {
-					updateMessage(message, Queue.STATUS_FAILED);
-					error("Failed to process message #" + message.getQueueId() +": " + e.getMessage(), e);
-				} finally {
-					_RootDAO.closeCurrentThreadSessions();
+				for (XmlMessage message: messages) {
+					// the lease may have expired while the previous messages of the batch were processed
+					if (!QueueInDAO.getInstance().renewLease(message.getQueueId(), owner, leaseTime)) {
+						info("Message #" + message.getQueueId() + " is no longer leased by " + owner + ", skipping.");
+						continue;
+					}
+					info("Processing message #" + message.getQueueId() + " posted at " + message.getCreated());
+					
+					try {
+						processMessage(message.getContent().getRootElement());
+						info("Message #" + message.getQueueId() + " processed.");
+						updateMessage(message, Queue.STATUS_PROCESSED);
+					} catch (Exception e) {
+						updateMessage(message, Queue.STATUS_FAILED);
+						error("Failed to process message #" + message.getQueueId() +": " + e.getMessage(), e);
+					} finally {
+						_RootDAO.closeCurrentThreadSessions();
+					}
 				}
 			}
 		} catch (Exception ex) {
@@ -274,12 +273,13 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 	}
 	
 	protected class MessageProcessor {
-		long iMaxElementTime = 0, iMinElementTime = 0;
-		int iElementCount = 0;
+		StudentUpdateEngine.Metrics iMetrics = new StudentUpdateEngine.Metrics();
+		StudentUpdateEngine iEngine = null;
 		boolean iTrimLeadingZerosFromExternalId = ApplicationProperty.DataExchangeTrimLeadingZerosFromExternalIds.isTrue();
 		int iNrThreads;
-		Iterator<?> iStudentElementIterator;
+		Element iRootElement;
 		int iStudentElementCount = 0;
+		volatile boolean iCancelled = false;
 		
 		Set<String> iFailedStudents = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 		Set<String> iProblemStudents = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
@@ -296,45 +296,103 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 				iStudentElementCount ++;
 				i.next();
 			}
-			iNrThreads = Math.min(
-					Integer.parseInt(ApplicationProperties.getProperty("banner.studentUpdates.nrThreads", "1")),
-					1 + iStudentElementCount / 10);
-			iStudentElementIterator = rootElement.elementIterator("student");
+			iNrThreads = (iStudentElementCount < 10 ? 1 : StudentUpdateEngine.getNrThreads());
+			iRootElement = rootElement;
+		}
+		
+		/**
+		 * Wait until no record of this message is being processed. Records that have not started yet are skipped once
+		 * {@link #iCancelled} is set. The interrupted flag of the current thread is preserved.
+		 */
+		protected void awaitRunningTasks() {
+			boolean interrupted = Thread.interrupted();
+			while (iMetrics.getActive() > 0) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+		
+		protected String getExternalId(Element studentElement) {
+			String externalId = studentElement.attributeValue("externalId");
+			while (externalId != null && iTrimLeadingZerosFromExternalId && externalId.startsWith("0")) externalId = externalId.substring(1);
+			return externalId;
 		}
 		
 		public void process() {
 			org.hibernate.Session hibSession = QueueInDAO.getInstance().createNewSession();
 			try {
 				long start = System.currentTimeMillis();
-				if (iNrThreads <= 1 || iStudentElementCount < 10) {
-					Worker worker = new Worker();
-					while (iStudentElementIterator.hasNext()) {
-						Element studentElement = (Element) iStudentElementIterator.next();
-						worker.processStudent(studentElement, hibSession, false);
+				if (iNrThreads <= 1) {
+					Worker worker = new Worker(hibSession);
+					for (Iterator<?> i = iRootElement.elementIterator("student"); i.hasNext(); ) {
+						Element studentElement = (Element) i.next();
+						worker.processStudent(studentElement, false);
 					}
 				} else {
-					List<Thread> workers = new ArrayList<Thread>();
-					for (int i = 0; i < iNrThreads; i++) {
-						Thread t = new Thread(new Worker());
-						t.setName("BannerStudentUpdates-" + (1 + i));
-						workers.add(t);
-					}
-					for (Thread worker: workers) worker.start();
-					for (Thread worker: workers) {
-						try {
-							worker.join();
-						} catch (InterruptedException e) {}
+					iEngine = StudentUpdateEngine.getInstance();
+					iNrThreads = iEngine.getNrLanes();
+					// one worker (with its own hibernate session) for each lane of the engine, a lane is processed by a single thread at a time
+					final Worker[] workers = new Worker[iEngine.getNrLanes()];
+					Map<Future<?>, String> futures = new LinkedHashMap<Future<?>, String>();
+					try {
+						for (Iterator<?> i = iRootElement.elementIterator("student"); i.hasNext(); ) {
+							final Element studentElement = (Element) i.next();
+							String externalId = getExternalId(studentElement);
+							final int lane = iEngine.getLane(externalId);
+							futures.put(iEngine.submit(externalId, new Runnable() {
+								@Override
+								public void run() {
+									iMetrics.started();
+									try {
+										if (iCancelled) return;
+										if (workers[lane] == null) workers[lane] = new Worker();
+										workers[lane].processStudent(studentElement, true);
+									} finally {
+										iMetrics.finished();
+										_RootDAO.closeCurrentThreadSessions();
+									}
+								}
+							}), externalId);
+						}
+						for (Map.Entry<Future<?>, String> entry: futures.entrySet()) {
+							try {
+								entry.getKey().get();
+							} catch (ExecutionException e) {
+								error("[" + entry.getValue() + "] Failed to update student: " + e.getCause().getMessage(), e.getCause());
+								if (entry.getValue() != null) iFailedStudents.add(entry.getValue());
+							}
+						}
+					} catch (InterruptedException e) {
+						for (Future<?> future: futures.keySet()) future.cancel(false);
+						error("Student updates interrupted: " + e.getMessage());
+						Thread.currentThread().interrupt();
+					} finally {
+						// the hibernate sessions of the workers cannot be closed while some of their records are still being processed
+						iCancelled = true;
+						for (Future<?> future: futures.keySet()) future.cancel(false);
+						awaitRunningTasks();
+						for (Worker worker: workers)
+							if (worker != null) worker.close();
 					}
 				}
 				long end = System.currentTimeMillis();
 				info(iUpdatedStudents.size() + " student records updated in " + (end - start)+ " milliseconds (" + iNrThreads + " threads used).");
 				info(iFailedStudents.size() + " student records failed to update.");
 				info(iProblemStudents.size() + " student records were updated, but had problems.");
-				if (iElementCount > 0) {
-					info("Minimum milliseconds required to process a record = " + iMinElementTime);
-					info("Maximum milliseconds required to process a record = " + iMaxElementTime);
-					info("Average milliseconds required to process a record = " + ((end - start)/iElementCount));
+				if (iMetrics.getCount() > 0) {
+					info("Minimum milliseconds required to process a record = " + iMetrics.getMinTime());
+					info("Maximum milliseconds required to process a record = " + iMetrics.getMaxTime());
+					info("Average milliseconds required to process a record = " + ((end - start)/iMetrics.getCount()));
+					info("Processing times: " + iMetrics.getHistogram());
 				}
+				if (iEngine != null)
+					info("Student update engine: " + iEngine.getMetrics() + " (all messages)");
+				for (String line: ReferenceEntityCache.getStatistics().split("\n"))
+					if (!line.isEmpty()) info("Reference entity cache: " + line);
 				if (!iUpdatedFutureStudents.isEmpty())
 					info(iUpdatedFutureStudents.size() + " future student records updated.");
 				if (!iFailedFutureStudents.isEmpty())
@@ -375,33 +433,30 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 			}
 		}
 		
-		protected class Worker implements Runnable {
+		protected class Worker {
 			Map<String, List<BannerSession>> iSession2ids = new HashMap<String, List<BannerSession>>();
+			org.hibernate.Session iHibSession;
+			boolean iCloseSession;
 			
-			public Worker() {}
+			public Worker(org.hibernate.Session hibSession) {
+				iHibSession = hibSession;
+				iCloseSession = false;
+			}
 			
-			@Override
-		    public void run() {
-				org.hibernate.Session hibSession = QueueInDAO.getInstance().createNewSession();
-				try {
-					while (true) {
-						Element studentElement = null;
-						synchronized (iStudentElementIterator) {
-							if (!iStudentElementIterator.hasNext()) break;
-							studentElement = (Element)iStudentElementIterator.next();
-						}
-						processStudent(studentElement, hibSession, true);
-					}
-				} finally {
-					hibSession.close();
-					_RootDAO.closeCurrentThreadSessions();
-				}
+			public Worker() {
+				iHibSession = QueueInDAO.getInstance().createNewSession();
+				iCloseSession = true;
+			}
+			
+			public void close() {
+				if (iCloseSession && iHibSession.isOpen())
+					iHibSession.close();
 			}
 			
-			protected List<BannerSession> getBannerSessions(String bannerSession, org.hibernate.Session hibSession) {
+			protected List<BannerSession> getBannerSessions(String bannerSession) {
 				List<BannerSession> sessionIds = iSession2ids.get(bannerSession);
 				if (sessionIds == null) {
-					sessionIds = (List<BannerSession>)hibSession.createQuery(
+					sessionIds = (List<BannerSession>)iHibSession.createQuery(
 							"select bs from BannerSession bs where bs.bannerTermCode = :termCode")
 							.setString("termCode", bannerSession).list();
 					iSession2ids.put(bannerSession, sessionIds);
@@ -409,22 +464,21 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 				return sessionIds;
 			}
 			
-			void processStudent(Element studentElement, org.hibernate.Session hibSession, boolean locking) {
+			void processStudent(Element studentElement, boolean locking) {
 				long t0 = System.currentTimeMillis();
 				try {
-					String externalId = studentElement.attributeValue("externalId");
+					String externalId = getExternalId(studentElement);
 					if (externalId == null) {
 						error("No externalId was given for a student.");
 						return;
 					}
-					while (iTrimLeadingZerosFromExternalId && externalId.startsWith("0")) externalId = externalId.substring(1);
 					
 					String bannerSession = studentElement.attributeValue("session");
 					if (bannerSession == null) {
 						error("[" + externalId + "] No session was given for a student.");
 						return;
 					}
-					List<BannerSession> sessionIds = getBannerSessions(bannerSession, hibSession);
+					List<BannerSession> sessionIds = getBannerSessions(bannerSession);
 					
 					BannerUpdateStudentAction update = generateUpdateAction(studentElement, externalId, bannerSession, iTrimLeadingZerosFromExternalId);
 					if (update == null) return;
@@ -552,15 +606,8 @@ public class BannerStudentUpdates extends BaseImport implements MessageHandler {
 		
 		protected void updateElementCount(long t0) {
 			long time = (System.currentTimeMillis() - t0);
-			synchronized (iStudentElementIterator) {
-				if (iElementCount == 0 || time < iMinElementTime) {
-					iMinElementTime = time;
-				}
-				if (iElementCount == 0 || time > iMaxElementTime) {
-					iMaxElementTime = time;
-				}
-				iElementCount ++;
-			}
+			iMetrics.record(time);
+			if (iEngine != null) iEngine.getMetrics().record(time);
 		}
 	}
 
@@ -40,6 +40,8 @@ public class BannerStudentUpdatesService implements InitializingBean, Disposable
 	public void destroy() throws Exception {
 		if (iPoller != null)
 			iPoller.interrupt();
+		StudentUpdateEngine.shutdown();
+		ReferenceEntityCache.invalidateAll();
 	}
 
 	@Override
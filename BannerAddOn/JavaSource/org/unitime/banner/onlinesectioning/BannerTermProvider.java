@@ -29,24 +29,50 @@ import org.unitime.timetable.onlinesectioning.custom.ExternalTermProvider;
  * @author Tomas Muller
  */
 public class BannerTermProvider implements ExternalTermProvider {
+	
+	public BannerTermProvider() {
+		// load the term mapping at startup
+		if (BannerTermCache.isEnabled()) {
+			try {
+				BannerTermCache.getSnapshot();
+			} catch (Exception e) {
+				BannerTermCache.sLog.warn("Failed to load Banner term mapping: " + e.getMessage(), e);
+			}
+		}
+	}
+	
 	@Override
 	public String getExternalTerm(AcademicSessionInfo session) {
+		if (BannerTermCache.isEnabled()) {
+			BannerTermCache.Term term = BannerTermCache.getTerm(session.getUniqueId());
+			if (term != null) return term.getTermCode();
+			return getDefaultTerm(session);
+		}
 		org.hibernate.Session hibSession = BannerSessionDAO.getInstance().createNewSession();
 		try {
 			BannerSession bs = BannerSession.findBannerSessionForSession(session.getUniqueId(), hibSession);
 			if (bs != null) return bs.getBannerTermCode();
-			if (session.getTerm().toLowerCase().startsWith("spr")) return session.getYear() + "20";
-			if (session.getTerm().toLowerCase().startsWith("sum")) return session.getYear() + "30";
-			if (session.getTerm().toLowerCase().startsWith("fal"))
-				return String.valueOf(Integer.parseInt(session.getYear()) + 1) + "10";
-			return session.getYear() + session.getTerm().toLowerCase();
+			return getDefaultTerm(session);
 		} finally {
 			hibSession.close();
 		}
 	}
 	
+	protected String getDefaultTerm(AcademicSessionInfo session) {
+		if (session.getTerm().toLowerCase().startsWith("spr")) return session.getYear() + "20";
+		if (session.getTerm().toLowerCase().startsWith("sum")) return session.getYear() + "30";
+		if (session.getTerm().toLowerCase().startsWith("fal"))
+			return String.valueOf(Integer.parseInt(session.getYear()) + 1) + "10";
+		return session.getYear() + session.getTerm().toLowerCase();
+	}
+	
 	@Override
 	public String getExternalCampus(AcademicSessionInfo session) {
+		if (BannerTermCache.isEnabled()) {
+			BannerTermCache.Term term = BannerTermCache.getTerm(session.getUniqueId());
+			if (term != null) return term.getCampus();
+			return session.getCampus();
+		}
 		org.hibernate.Session hibSession = BannerSessionDAO.getInstance().createNewSession();
 		try {
 			BannerSession bs = BannerSession.findBannerSessionForSession(session.getUniqueId(), hibSession);
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
 import javax.naming.Context;
 import javax.naming.NamingEnumeration;
@@ -435,30 +436,59 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 		return student;
 	}
 	
-	protected AcademicArea getAcademicArea(OnlineSectioningHelper helper, String area) {
+	/**
+	 * Lookup a reference entity (academic area, classification, major, group, advisor, etc.) using the
+	 * {@link ReferenceEntityCache} of the academic session. The loader is only called when the key is not cached
+	 * (it finds or creates the entity and returns its unique id); concurrent callers with the same key wait for
+	 * the first one. When the cached entity no longer exists (e.g., the transaction that created it was rolled back),
+	 * the key is invalidated and the lookup is retried once.
+	 */
+	protected <T> T getReferenceEntity(OnlineSectioningHelper helper, Class<T> type, String key, Callable<Long> loader) {
+		ReferenceEntityCache cache = ReferenceEntityCache.getInstance(iSession.getUniqueId());
+		Long id = cache.get(key, loader);
+		if (id == null) return null;
+		T entity = type.cast(helper.getHibSession().get(type, id));
+		if (entity == null) {
+			cache.invalidate(key);
+			id = cache.get(key, loader);
+			if (id != null)
+				entity = type.cast(helper.getHibSession().get(type, id));
+		}
+		return entity;
+	}
+	
+	protected AcademicArea getAcademicArea(final OnlineSectioningHelper helper, final String area) {
+		return getReferenceEntity(helper, AcademicArea.class, "Area:" + area, new Callable<Long>() {
+			@Override
+			public Long call() {
+				AcademicArea aa = findOrCreateAcademicArea(helper, area);
+				return (aa == null ? null : aa.getUniqueId());
+			}
+		});
+	}
+	
+	protected AcademicArea findOrCreateAcademicArea(OnlineSectioningHelper helper, String area) {
 		if (iLocking) {
-			synchronized (("Area:" + iSession.getReference() + ":" + area).intern()) {
-				AcademicArea aa = AcademicArea.findByExternalId(helper.getHibSession(), iSession.getUniqueId(), area);
-				if (aa != null) return aa;
-				aa = AcademicArea.findByAbbv(helper.getHibSession(), iSession.getUniqueId(), area);
-				if (aa != null) return aa;
-				aa = new AcademicArea();
-				aa.setPosMajors(new HashSet<PosMajor>());
-				aa.setAcademicAreaAbbreviation(area);
-				aa.setSession(iSession);
-				aa.setExternalUniqueId(area);
-				aa.setTitle(area);
-				org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
-				try {
-					aa.setUniqueId((Long)hibSession.save(aa));
-					hibSession.flush();
-				} finally {
-					hibSession.close();
-				}
-				helper.info("Added Academic Area:  " + area);
-				helper.getHibSession().update(aa);
-				return aa;
+			AcademicArea aa = AcademicArea.findByExternalId(helper.getHibSession(), iSession.getUniqueId(), area);
+			if (aa != null) return aa;
+			aa = AcademicArea.findByAbbv(helper.getHibSession(), iSession.getUniqueId(), area);
+			if (aa != null) return aa;
+			aa = new AcademicArea();
+			aa.setPosMajors(new HashSet<PosMajor>());
+			aa.setAcademicAreaAbbreviation(area);
+			aa.setSession(iSession);
+			aa.setExternalUniqueId(area);
+			aa.setTitle(area);
+			org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
+			try {
+				aa.setUniqueId((Long)hibSession.save(aa));
+				hibSession.flush();
+			} finally {
+				hibSession.close();
 			}
+			helper.info("Added Academic Area:  " + area);
+			helper.getHibSession().update(aa);
+			return aa;
 		} else {
 			AcademicArea aa = AcademicArea.findByExternalId(helper.getHibSession(), iSession.getUniqueId(), area);
 			if (aa == null)
@@ -477,29 +507,37 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 		}
 	}
 	
-	protected AcademicClassification getAcademicClassification(OnlineSectioningHelper helper, String clasf) {
+	protected AcademicClassification getAcademicClassification(final OnlineSectioningHelper helper, final String clasf) {
+		return getReferenceEntity(helper, AcademicClassification.class, "Clasf:" + clasf, new Callable<Long>() {
+			@Override
+			public Long call() {
+				AcademicClassification ac = findOrCreateAcademicClassification(helper, clasf);
+				return (ac == null ? null : ac.getUniqueId());
+			}
+		});
+	}
+	
+	protected AcademicClassification findOrCreateAcademicClassification(OnlineSectioningHelper helper, String clasf) {
 		if (iLocking) {
-			synchronized (("Clasf:" + iSession.getReference() + ":" + clasf).intern()) {
-				AcademicClassification ac = AcademicClassification.findByExternalId(helper.getHibSession(), iSession.getUniqueId(), clasf);
-				if (ac != null) return ac;
-				ac = AcademicClassification.findByCode(helper.getHibSession(), iSession.getUniqueId(), clasf);
-				if (ac != null) return ac;
-				ac = new AcademicClassification();
-				ac.setCode(clasf);
-				ac.setExternalUniqueId(clasf);
-				ac.setName(clasf);
-				ac.setSession(iSession);
-				org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
-				try {
-					ac.setUniqueId((Long)hibSession.save(ac));
-					hibSession.flush();
-				} finally {
-					hibSession.close();
-				}
-				helper.info("Added Academic Classification:  " + clasf);
-				helper.getHibSession().update(ac);
-				return ac;
+			AcademicClassification ac = AcademicClassification.findByExternalId(helper.getHibSession(), iSession.getUniqueId(), clasf);
+			if (ac != null) return ac;
+			ac = AcademicClassification.findByCode(helper.getHibSession(), iSession.getUniqueId(), clasf);
+			if (ac != null) return ac;
+			ac = new AcademicClassification();
+			ac.setCode(clasf);
+			ac.setExternalUniqueId(clasf);
+			ac.setName(clasf);
+			ac.setSession(iSession);
+			org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
+			try {
+				ac.setUniqueId((Long)hibSession.save(ac));
+				hibSession.flush();
+			} finally {
+				hibSession.close();
 			}
+			helper.info("Added Academic Classification:  " + clasf);
+			helper.getHibSession().update(ac);
+			return ac;
 		} else {
 			AcademicClassification ac = AcademicClassification.findByExternalId(helper.getHibSession(), iSession.getUniqueId(), clasf);
 			if (ac == null)
@@ -517,31 +555,39 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 		}
 	}
 	
-	protected PosMajor getPosMajor(OnlineSectioningHelper helper, AcademicArea aa, String area, String major) {
+	protected PosMajor getPosMajor(final OnlineSectioningHelper helper, final AcademicArea aa, final String area, final String major) {
+		return getReferenceEntity(helper, PosMajor.class, "Major:" + area + ":" + major, new Callable<Long>() {
+			@Override
+			public Long call() {
+				PosMajor posMajor = findOrCreatePosMajor(helper, aa, area, major);
+				return (posMajor == null ? null : posMajor.getUniqueId());
+			}
+		});
+	}
+	
+	protected PosMajor findOrCreatePosMajor(OnlineSectioningHelper helper, AcademicArea aa, String area, String major) {
 		if (iLocking) {
-			synchronized (("Major:" + iSession.getReference() + ":" + area + ":" + major).intern()) {
-				PosMajor posMajor = PosMajor.findByExternalIdAcadAreaExternalId(helper.getHibSession(), iSession.getUniqueId(), major, area);
-				if (posMajor != null) return posMajor;
-				posMajor = PosMajor.findByCodeAcadAreaAbbv(helper.getHibSession(), iSession.getUniqueId(), major, area);
-				if (posMajor != null) return posMajor;
-				posMajor = new PosMajor();
-				posMajor.setCode(major);
-				posMajor.setExternalUniqueId(major);
-				posMajor.setName(major);
-				posMajor.setSession(iSession);
-				org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
-				try {
-					posMajor.addToacademicAreas(aa);
-					aa.addToposMajors(posMajor);
-					posMajor.setUniqueId((Long)hibSession.save(posMajor));
-					hibSession.flush();
-				} finally {
-					hibSession.close();
-				}
-				helper.getHibSession().update(posMajor);
-				helper.info("Added Major:  " + major + " to Academic Area:  " + area);
-				return posMajor;
+			PosMajor posMajor = PosMajor.findByExternalIdAcadAreaExternalId(helper.getHibSession(), iSession.getUniqueId(), major, area);
+			if (posMajor != null) return posMajor;
+			posMajor = PosMajor.findByCodeAcadAreaAbbv(helper.getHibSession(), iSession.getUniqueId(), major, area);
+			if (posMajor != null) return posMajor;
+			posMajor = new PosMajor();
+			posMajor.setCode(major);
+			posMajor.setExternalUniqueId(major);
+			posMajor.setName(major);
+			posMajor.setSession(iSession);
+			org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
+			try {
+				posMajor.addToacademicAreas(aa);
+				aa.addToposMajors(posMajor);
+				posMajor.setUniqueId((Long)hibSession.save(posMajor));
+				hibSession.flush();
+			} finally {
+				hibSession.close();
 			}
+			helper.getHibSession().update(posMajor);
+			helper.info("Added Major:  " + major + " to Academic Area:  " + area);
+			return posMajor;
 		} else {
 			PosMajor posMajor = PosMajor.findByExternalIdAcadAreaExternalId(helper.getHibSession(), iSession.getUniqueId(), major, area);
 			if (posMajor == null)
@@ -626,39 +672,48 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 		return changed;
 	}
 	
-	protected StudentGroupType getStudentGroupType(OnlineSectioningHelper helper, String name) {
+	protected StudentGroupType getStudentGroupType(final OnlineSectioningHelper helper, final String name) {
+		if (name == null) return null;
+		return getReferenceEntity(helper, StudentGroupType.class, "GroupType:" + name, new Callable<Long>() {
+			@Override
+			public Long call() {
+				StudentGroupType type = findOrCreateStudentGroupType(helper, name);
+				return (type == null ? null : type.getUniqueId());
+			}
+		});
+	}
+	
+	protected StudentGroupType findOrCreateStudentGroupType(OnlineSectioningHelper helper, String name) {
 		if (iLocking) {
-			synchronized (("GroupType:" + name).intern()) {
-				StudentGroupType type = StudentGroupType.findByReference(name, helper.getHibSession());
-				if (type != null) return type;
-				if (type == null && "SPORT".equals(name)) {
-					type = new StudentGroupType();
-					type.setAdvisorsCanSet(false);
-					type.setAllowDisabledSection(StudentGroupType.AllowDisabledSection.NotAllowed);
-					type.setKeepTogether(false);
-					type.setReference("SPORT");
-					type.setLabel("Student Athletes");
-				}
-				if (type == null && "COHORT".equals(name)) {
-					type = new StudentGroupType();
-					type.setAdvisorsCanSet(false);
-					type.setAllowDisabledSection(StudentGroupType.AllowDisabledSection.NotAllowed);
-					type.setKeepTogether(false);
-					type.setReference("COHORT");
-					type.setLabel("Student Cohorts");
-				}
-				if (type != null) {
-					org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
-					try {
-						type.setUniqueId((Long)hibSession.save(type));
-						hibSession.flush();
-					} finally {
-						hibSession.close();
-					}
-					helper.getHibSession().update(type);
+			StudentGroupType type = StudentGroupType.findByReference(name, helper.getHibSession());
+			if (type != null) return type;
+			if (type == null && "SPORT".equals(name)) {
+				type = new StudentGroupType();
+				type.setAdvisorsCanSet(false);
+				type.setAllowDisabledSection(StudentGroupType.AllowDisabledSection.NotAllowed);
+				type.setKeepTogether(false);
+				type.setReference("SPORT");
+				type.setLabel("Student Athletes");
+			}
+			if (type == null && "COHORT".equals(name)) {
+				type = new StudentGroupType();
+				type.setAdvisorsCanSet(false);
+				type.setAllowDisabledSection(StudentGroupType.AllowDisabledSection.NotAllowed);
+				type.setKeepTogether(false);
+				type.setReference("COHORT");
+				type.setLabel("Student Cohorts");
+			}
+			if (type != null) {
+				org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
+				try {
+					type.setUniqueId((Long)hibSession.save(type));
+					hibSession.flush();
+				} finally {
+					hibSession.close();
 				}
-				return type;
+				helper.getHibSession().update(type);
 			}
+			return type;
 		} else {
 			StudentGroupType type = StudentGroupType.findByReference(name, helper.getHibSession());
 			if (type == null && "SPORT".equals(name)) {
@@ -683,49 +738,40 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 		}
 	}
 	
-	protected StudentGroup getStudentGroup(OnlineSectioningHelper helper, StudentGroupType type, String[] g) {
+	protected StudentGroup getStudentGroup(final OnlineSectioningHelper helper, final StudentGroupType type, final String[] g) {
+		StudentGroup sg = getReferenceEntity(helper, StudentGroup.class, "Group:" + g[0], new Callable<Long>() {
+			@Override
+			public Long call() {
+				StudentGroup sg = findOrCreateStudentGroup(helper, type, g);
+				return (sg == null ? null : sg.getUniqueId());
+			}
+		});
+		if (sg != null)
+			updateStudentGroup(helper, type, g, sg);
+		return sg;
+	}
+	
+	protected StudentGroup findOrCreateStudentGroup(OnlineSectioningHelper helper, StudentGroupType type, String[] g) {
 		if (iLocking) {
-			synchronized (("Group:" + g[0]).intern()) {
-				StudentGroup sg = StudentGroup.findByExternalId(helper.getHibSession(), g[0], iSession.getUniqueId());
-				if (sg == null) {
-					sg = new StudentGroup();
-					sg.setExternalUniqueId(g[0]);
-					sg.setSession(iSession);
-					sg.setGroupAbbreviation(g[2] == null ? g[0] : g[2]);
-					sg.setGroupName(g[3] == null ? g[0] : g[3]);
-					org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
-					try {
-						sg.setType(g[4] == null ? null : StudentGroupType.findByReference(g[4], hibSession));
-						sg.setUniqueId((Long)hibSession.save(sg));
-						hibSession.flush();
-					} finally {
-						hibSession.close();
-					}
-					helper.info("Added "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " -  " + sg.getGroupAbbreviation() + " - " + sg.getGroupName() + " to session " + sg.getSession().academicInitiativeDisplayString());
-					helper.getHibSession().update(sg);
-				} else {
-					boolean changed = false;
-					if (g[2] != null &&  !g[2].equals(sg.getGroupAbbreviation())){
-						helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old abbreviation:  " + sg.getGroupAbbreviation() + ", new abbreviation:  " + g[2] + " in session " + sg.getSession().academicInitiativeDisplayString());
-						sg.setGroupAbbreviation(g[2]);
-						changed = true;
-					} 
-					if (g[3] != null && !g[3].equals(sg.getGroupName())){
-						helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old name:  " + sg.getGroupName() + ", new name:  " + g[3] + " in session " + sg.getSession().academicInitiativeDisplayString());
-						sg.setGroupName(g[3]);
-						changed = true;
-					}
-					if (!(type == null ? ""  :type.getReference()).equals(sg.getType() == null ? "" : sg.getType().getReference())) {
-						helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old type:  " + (sg.getType() == null ? "null" : sg.getType().getReference()) + ", new type:  " + g[4] + " in session " + sg.getSession().academicInitiativeDisplayString());
-						sg.setType(type);
-						changed = true;
-					}
-					if (changed) {
-						helper.getHibSession().update(sg);
-					}
+			StudentGroup sg = StudentGroup.findByExternalId(helper.getHibSession(), g[0], iSession.getUniqueId());
+			if (sg == null) {
+				sg = new StudentGroup();
+				sg.setExternalUniqueId(g[0]);
+				sg.setSession(iSession);
+				sg.setGroupAbbreviation(g[2] == null ? g[0] : g[2]);
+				sg.setGroupName(g[3] == null ? g[0] : g[3]);
+				org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
+				try {
+					sg.setType(g[4] == null ? null : StudentGroupType.findByReference(g[4], hibSession));
+					sg.setUniqueId((Long)hibSession.save(sg));
+					hibSession.flush();
+				} finally {
+					hibSession.close();
 				}
-				return sg;
+				helper.info("Added "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " -  " + sg.getGroupAbbreviation() + " - " + sg.getGroupName() + " to session " + sg.getSession().academicInitiativeDisplayString());
+				helper.getHibSession().update(sg);
 			}
+			return sg;
 		} else {
 			StudentGroup sg = StudentGroup.findByExternalId(helper.getHibSession(), g[0], iSession.getUniqueId());
 			if (sg == null) {
@@ -737,31 +783,33 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 				sg.setType(type);
 				sg.setUniqueId((Long)helper.getHibSession().save(sg));
 				helper.info("Added "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " -  " + sg.getGroupAbbreviation() + " - " + sg.getGroupName() + " to session " + sg.getSession().academicInitiativeDisplayString());
-			} else {
-				boolean changed = false;
-				if (g[2] != null &&  !g[2].equals(sg.getGroupAbbreviation())){
-					helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old abbreviation:  " + sg.getGroupAbbreviation() + ", new abbreviation:  " + g[2] + " in session " + sg.getSession().academicInitiativeDisplayString());
-					sg.setGroupAbbreviation(g[2]);
-					changed = true;
-				} 
-				if (g[3] != null && !g[3].equals(sg.getGroupName())){
-					helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old name:  " + sg.getGroupName() + ", new name:  " + g[3] + " in session " + sg.getSession().academicInitiativeDisplayString());
-					sg.setGroupName(g[3]);
-					changed = true;
-				}
-				if (!(type == null ? ""  :type.getReference()).equals(sg.getType() == null ? "" : sg.getType().getReference())) {
-					helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old type:  " + (sg.getType() == null ? "null" : sg.getType().getReference()) + ", new type:  " + g[4] + " in session " + sg.getSession().academicInitiativeDisplayString());
-					sg.setType(type);
-					changed = true;
-				}
-				if (changed) {
-					helper.getHibSession().update(sg);
-				}
 			}
 			return sg;
 		}
 	}
 	
+	protected void updateStudentGroup(OnlineSectioningHelper helper, StudentGroupType type, String[] g, StudentGroup sg) {
+		boolean changed = false;
+		if (g[2] != null &&  !g[2].equals(sg.getGroupAbbreviation())){
+			helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old abbreviation:  " + sg.getGroupAbbreviation() + ", new abbreviation:  " + g[2] + " in session " + sg.getSession().academicInitiativeDisplayString());
+			sg.setGroupAbbreviation(g[2]);
+			changed = true;
+		} 
+		if (g[3] != null && !g[3].equals(sg.getGroupName())){
+			helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old name:  " + sg.getGroupName() + ", new name:  " + g[3] + " in session " + sg.getSession().academicInitiativeDisplayString());
+			sg.setGroupName(g[3]);
+			changed = true;
+		}
+		if (!(type == null ? ""  :type.getReference()).equals(sg.getType() == null ? "" : sg.getType().getReference())) {
+			helper.info("Changed "+(type == null ? "Student" : type.getLabel()) + " Group:  " + sg.getExternalUniqueId() + " - old type:  " + (sg.getType() == null ? "null" : sg.getType().getReference()) + ", new type:  " + g[4] + " in session " + sg.getSession().academicInitiativeDisplayString());
+			sg.setType(type);
+			changed = true;
+		}
+		if (changed) {
+			helper.getHibSession().update(sg);
+		}
+	}
+	
 	protected boolean updateStudentGroups(Student student, OnlineSectioningHelper helper) {
 		Set<StudentGroup> groups = new HashSet<StudentGroup>();
 		for (String[] g: iGroups) {
@@ -1255,7 +1303,7 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 		return enrollments;
 	}
 	
-	protected Advisor getAdvisor(OnlineSectioningHelper helper, String externalId, String type) {
+	protected Advisor getAdvisor(final OnlineSectioningHelper helper, final String externalId, String type) {
 		Roles role = null;
 		if (type != null && !type.isEmpty())
 			role = Roles.getRole(type + " Advisor", helper.getHibSession());
@@ -1265,34 +1313,43 @@ public class BannerUpdateStudentAction implements OnlineSectioningAction<BannerU
 			helper.warn("No advisor role found for " + type);
 			return null;
 		}
+		final Roles advisorRole = role;
+		return getReferenceEntity(helper, Advisor.class, "Advisor:" + externalId + ":" + role.getRoleId(), new Callable<Long>() {
+			@Override
+			public Long call() {
+				Advisor advisor = findOrCreateAdvisor(helper, externalId, advisorRole);
+				return (advisor == null ? null : advisor.getUniqueId());
+			}
+		});
+	}
+	
+	protected Advisor findOrCreateAdvisor(OnlineSectioningHelper helper, String externalId, Roles role) {
 		if (iLocking) {
-			synchronized (("Advisor:" + externalId).intern()) {
-				Advisor advisor = (Advisor)helper.getHibSession().createQuery(
-						"from Advisor where externalUniqueId = :externalId and role.roleId = :roleId and session.uniqueId = :sessionId")
-						.setString("externalId", externalId).setLong("roleId", role.getRoleId()).setLong("sessionId", iSession.getUniqueId())
-						.setCacheable(true).setMaxResults(1).uniqueResult();
-				if (advisor != null) return advisor;
-				advisor = new Advisor();
-				advisor.setExternalUniqueId(externalId);
-				advisor.setRole(role);
-				advisor.setSession(iSession);
-				advisor.setStudents(new HashSet<Student>());
-				try {
-					updateDetailsFromLdap(advisor);
-				} catch (Throwable t) {
-					helper.info("Failed to lookup advisor details: " + t.getMessage(), t);
-				}
-				org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
-				try {
-					advisor.setUniqueId((Long)hibSession.save(advisor));
-					hibSession.flush();
-				} finally {
-					hibSession.close();
-				}
-				helper.info("Added Advisor:  " + advisor.getExternalUniqueId() + " - " + advisor.getRole().getReference() + " to session " + iSession.academicInitiativeDisplayString());
-				helper.getHibSession().update(advisor);
-				return advisor;
+			Advisor advisor = (Advisor)helper.getHibSession().createQuery(
+					"from Advisor where externalUniqueId = :externalId and role.roleId = :roleId and session.uniqueId = :sessionId")
+					.setString("externalId", externalId).setLong("roleId", role.getRoleId()).setLong("sessionId", iSession.getUniqueId())
+					.setCacheable(true).setMaxResults(1).uniqueResult();
+			if (advisor != null) return advisor;
+			advisor = new Advisor();
+			advisor.setExternalUniqueId(externalId);
+			advisor.setRole(role);
+			advisor.setSession(iSession);
+			advisor.setStudents(new HashSet<Student>());
+			try {
+				updateDetailsFromLdap(advisor);
+			} catch (Throwable t) {
+				helper.info("Failed to lookup advisor details: " + t.getMessage(), t);
 			}
+			org.hibernate.Session hibSession = AcademicAreaDAO.getInstance().createNewSession();
+			try {
+				advisor.setUniqueId((Long)hibSession.save(advisor));
+				hibSession.flush();
+			} finally {
+				hibSession.close();
+			}
+			helper.info("Added Advisor:  " + advisor.getExternalUniqueId() + " - " + advisor.getRole().getReference() + " to session " + iSession.academicInitiativeDisplayString());
+			helper.getHibSession().update(advisor);
+			return advisor;
 		} else {
 			Advisor advisor = (Advisor)helper.getHibSession().createQuery(
 					"from Advisor where externalUniqueId = :externalId and role.roleId = :roleId and session.uniqueId = :sessionId")
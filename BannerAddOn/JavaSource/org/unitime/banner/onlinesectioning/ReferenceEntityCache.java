@@ -0,0 +1,159 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.onlinesectioning;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Concurrent cache of the unique ids of reference entities (academic areas, classifications, majors, student groups and their types, and advisors)
+ * that are looked up (and created when missing) by {@link BannerUpdateStudentAction} for each student update.<br>
+ * There is one cache per academic session. Each key holds a future, so that when multiple threads ask for the same missing entity,
+ * only one of them looks it up (and creates it if needed), while the others wait for the result. Other keys are not blocked.
+ * Only unique ids are cached, entities are always loaded using the hibernate session of the caller (which usually hits the second level cache).<br>
+ * A cached id of an entity that has been deleted is dropped on the next lookup. The cache of an academic session is dropped when students
+ * are imported by {@link org.unitime.banner.dataexchange.BannerStudentImport}. Other changes (e.g., an academic area renamed on the
+ * UniTime reference data pages) are not tracked: they are picked up once the cache expires, after banner.studentUpdates.referenceCache.timeToLive
+ * seconds (defaults to one hour).
+ */
+public class ReferenceEntityCache {
+	private static ConcurrentHashMap<Long, ReferenceEntityCache> sCaches = new ConcurrentHashMap<Long, ReferenceEntityCache>();
+	
+	private Long iSessionId;
+	private ConcurrentHashMap<String, Future<Long>> iEntries = new ConcurrentHashMap<String, Future<Long>>();
+	private AtomicLong iHits = new AtomicLong(0), iMisses = new AtomicLong(0), iInvalidations = new AtomicLong(0);
+	private long iCreated = System.currentTimeMillis();
+	
+	private ReferenceEntityCache(Long sessionId) {
+		iSessionId = sessionId;
+	}
+	
+	/**
+	 * Reference entity cache of the given academic session
+	 */
+	public static ReferenceEntityCache getInstance(Long sessionId) {
+		ReferenceEntityCache cache = sCaches.get(sessionId);
+		if (cache != null && cache.isExpired()) {
+			sCaches.remove(sessionId, cache);
+			cache = null;
+		}
+		if (cache == null) {
+			cache = new ReferenceEntityCache(sessionId);
+			ReferenceEntityCache other = sCaches.putIfAbsent(sessionId, cache);
+			if (other != null) cache = other;
+		}
+		return cache;
+	}
+	
+	protected static long getTimeToLive() {
+		return 1000l * Long.parseLong(ApplicationProperties.getProperty("banner.studentUpdates.referenceCache.timeToLive", "3600"));
+	}
+	
+	protected boolean isExpired() {
+		return System.currentTimeMillis() - iCreated > getTimeToLive();
+	}
+	
+	/**
+	 * Drop the cache of the given academic session (e.g., when its reference data have been changed or reloaded)
+	 */
+	public static void invalidate(Long sessionId) {
+		ReferenceEntityCache cache = sCaches.remove(sessionId);
+		if (cache != null) cache.iInvalidations.incrementAndGet();
+	}
+	
+	/**
+	 * Drop all caches
+	 */
+	public static void invalidateAll() {
+		sCaches.clear();
+	}
+	
+	/**
+	 * Hit and miss counts of all caches, one line per academic session
+	 */
+	public static String getStatistics() {
+		StringBuffer sb = new StringBuffer();
+		for (ReferenceEntityCache cache: sCaches.values()) {
+			if (sb.length() > 0) sb.append("\n");
+			sb.append(cache.toString());
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Unique id of the entity with the given key. When the key is not cached, the loader is called to look the entity up (or to create it).
+	 * Concurrent calls for the same key wait for the first loader to finish. Null results and failures are not cached.
+	 */
+	public Long get(String key, Callable<Long> loader) {
+		Future<Long> future = iEntries.get(key);
+		if (future == null) {
+			FutureTask<Long> task = new FutureTask<Long>(loader);
+			future = iEntries.putIfAbsent(key, task);
+			if (future == null) {
+				future = task;
+				iMisses.incrementAndGet();
+				task.run();
+			} else {
+				iHits.incrementAndGet();
+			}
+		} else {
+			iHits.incrementAndGet();
+		}
+		try {
+			Long id = future.get();
+			if (id == null) iEntries.remove(key, future);
+			return id;
+		} catch (ExecutionException e) {
+			iEntries.remove(key, future);
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Remove the given key, e.g., when the cached entity no longer exists
+	 */
+	public void invalidate(String key) {
+		if (iEntries.remove(key) != null) iInvalidations.incrementAndGet();
+	}
+	
+	public Long getSessionId() { return iSessionId; }
+	public long getHits() { return iHits.get(); }
+	public long getMisses() { return iMisses.get(); }
+	public long getInvalidations() { return iInvalidations.get(); }
+	public int size() { return iEntries.size(); }
+	
+	@Override
+	public String toString() {
+		long hits = getHits(), misses = getMisses();
+		return "ReferenceEntityCache[session=" + iSessionId + ", size=" + size() + ", hits=" + hits + ", misses=" + misses +
+				(hits + misses == 0 ? "" : " (" + (100 * hits / (hits + misses)) + "% hit ratio)") +
+				", invalidations=" + getInvalidations() + "]";
+	}
+}
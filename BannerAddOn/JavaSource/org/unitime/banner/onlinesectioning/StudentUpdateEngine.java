@@ -0,0 +1,249 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.onlinesectioning;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Shared pool of worker threads used by {@link BannerStudentUpdates} to process student records in parallel.
+ * The pool is split into a number of lanes, each having a single thread and a bounded queue. All the records
+ * of a student go to the same lane (see {@link #getLane(String)}), so that the updates of one student are
+ * processed in the order in which they were submitted while different students are processed in parallel.
+ * When a lane queue is full, {@link #submit(String, Runnable)} blocks until there is space (or until the engine is shut down).
+ * The pool is reused between messages, idle threads are released after {@link #getKeepAliveTime()} seconds.
+ */
+public class StudentUpdateEngine {
+	protected static Log sLog = LogFactory.getLog(StudentUpdateEngine.class);
+	private static StudentUpdateEngine sInstance = null;
+	
+	private ThreadPoolExecutor[] iLanes;
+	private int iQueueSize;
+	private Metrics iMetrics = new Metrics();
+	
+	protected StudentUpdateEngine(int nrLanes, int queueSize, long keepAliveTime) {
+		iQueueSize = queueSize;
+		iLanes = new ThreadPoolExecutor[nrLanes];
+		for (int i = 0; i < nrLanes; i++) {
+			final String name = "BannerStudentUpdates-" + (1 + i);
+			iLanes[i] = new ThreadPoolExecutor(1, 1, keepAliveTime, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(queueSize),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, name);
+							t.setDaemon(true);
+							return t;
+						}
+					},
+					new RejectedExecutionHandler() {
+						@Override
+						public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+							try {
+								// back-pressure: wait for a space in the lane queue, checking every second that the lane is still running
+								// (records of a student cannot be run by the caller, they would overtake the student's records in the queue)
+								while (true) {
+									if (executor.isShutdown())
+										throw new RejectedExecutionException("Student update engine has been shut down.");
+									if (executor.getQueue().offer(r, 1, TimeUnit.SECONDS)) break;
+								}
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+								throw new RejectedExecutionException("Interrupted while waiting for a space in the queue.", e);
+							}
+							if (executor.isShutdown() && executor.remove(r))
+								throw new RejectedExecutionException("Student update engine has been shut down.");
+							// the lane thread may have timed out in the meantime
+							executor.prestartCoreThread();
+						}
+					});
+			iLanes[i].allowCoreThreadTimeOut(true);
+		}
+	}
+	
+	/**
+	 * Number of threads (lanes), property banner.studentUpdates.nrThreads (defaults to 1, 0 or less means the number of available processors)
+	 */
+	public static int getNrThreads() {
+		int nrThreads = Integer.parseInt(ApplicationProperties.getProperty("banner.studentUpdates.nrThreads", "1"));
+		return (nrThreads <= 0 ? Runtime.getRuntime().availableProcessors() : nrThreads);
+	}
+	
+	/**
+	 * Maximal number of waiting records of a lane, property banner.studentUpdates.queueSize (defaults to 100)
+	 */
+	public static int getQueueSize() {
+		return Integer.parseInt(ApplicationProperties.getProperty("banner.studentUpdates.queueSize", "100"));
+	}
+	
+	/**
+	 * Number of seconds an idle thread is kept alive, property banner.studentUpdates.keepAliveTime (defaults to 300)
+	 */
+	public static long getKeepAliveTime() {
+		return Long.parseLong(ApplicationProperties.getProperty("banner.studentUpdates.keepAliveTime", "300"));
+	}
+	
+	/**
+	 * Shared instance, it is re-created when the number of threads or the queue size changes
+	 */
+	public static synchronized StudentUpdateEngine getInstance() {
+		int nrThreads = getNrThreads(), queueSize = getQueueSize();
+		if (sInstance == null || sInstance.getNrLanes() != nrThreads || sInstance.iQueueSize != queueSize) {
+			if (sInstance != null) sInstance.stop();
+			sInstance = new StudentUpdateEngine(nrThreads, queueSize, getKeepAliveTime());
+			sLog.info("Student update engine started with " + nrThreads + " threads.");
+		}
+		return sInstance;
+	}
+	
+	/**
+	 * Stop the shared instance (already submitted records are processed)
+	 */
+	public static synchronized void shutdown() {
+		if (sInstance != null) {
+			sInstance.stop();
+			sInstance = null;
+		}
+	}
+	
+	protected void stop() {
+		for (ThreadPoolExecutor lane: iLanes)
+			lane.shutdown();
+	}
+	
+	public int getNrLanes() { return iLanes.length; }
+	
+	/**
+	 * Lane of the given student
+	 */
+	public int getLane(String studentExternalId) {
+		return (studentExternalId == null ? 0 : (studentExternalId.hashCode() & 0x7fffffff) % iLanes.length);
+	}
+	
+	/**
+	 * Submit a task for the given student, blocks when the student's lane queue is full
+	 */
+	public Future<?> submit(String studentExternalId, Runnable task) {
+		FutureTask<Object> future = new FutureTask<Object>(task, null);
+		iLanes[getLane(studentExternalId)].execute(future);
+		return future;
+	}
+	
+	/**
+	 * Number of records waiting in the lane queues
+	 */
+	public int getQueueLength() {
+		int ret = 0;
+		for (ThreadPoolExecutor lane: iLanes)
+			ret += lane.getQueue().size();
+		return ret;
+	}
+	
+	/**
+	 * Cumulative metrics of all the records processed by this engine
+	 */
+	public Metrics getMetrics() { return iMetrics; }
+	
+	/**
+	 * Lock-free processing time statistics (count, total, min, max and a histogram)
+	 */
+	public static class Metrics {
+		private static final long[] sBuckets = new long[] { 10, 50, 100, 250, 500, 1000, 5000 };
+		private static final LongBinaryOperator sMin = new LongBinaryOperator() {
+			@Override
+			public long applyAsLong(long left, long right) { return Math.min(left, right); }
+		};
+		private static final LongBinaryOperator sMax = new LongBinaryOperator() {
+			@Override
+			public long applyAsLong(long left, long right) { return Math.max(left, right); }
+		};
+		
+		private LongAdder iCount = new LongAdder();
+		private LongAdder iTotalTime = new LongAdder();
+		private LongAccumulator iMinTime = new LongAccumulator(sMin, Long.MAX_VALUE);
+		private LongAccumulator iMaxTime = new LongAccumulator(sMax, 0l);
+		private LongAdder[] iHistogram;
+		private AtomicInteger iActive = new AtomicInteger(0);
+		
+		public Metrics() {
+			iHistogram = new LongAdder[sBuckets.length + 1];
+			for (int i = 0; i < iHistogram.length; i++)
+				iHistogram[i] = new LongAdder();
+		}
+		
+		/**
+		 * Record processing time of one record (in milliseconds)
+		 */
+		public void record(long time) {
+			iCount.increment();
+			iTotalTime.add(time);
+			iMinTime.accumulate(time);
+			iMaxTime.accumulate(time);
+			int bucket = 0;
+			while (bucket < sBuckets.length && time > sBuckets[bucket]) bucket++;
+			iHistogram[bucket].increment();
+		}
+		
+		public void started() { iActive.incrementAndGet(); }
+		public void finished() { iActive.decrementAndGet(); }
+		
+		public long getCount() { return iCount.sum(); }
+		public long getTotalTime() { return iTotalTime.sum(); }
+		public long getMinTime() { return (getCount() == 0 ? 0 : iMinTime.get()); }
+		public long getMaxTime() { return iMaxTime.get(); }
+		public double getAverageTime() { long count = getCount(); return (count == 0 ? 0.0 : ((double)getTotalTime()) / count); }
+		public int getActive() { return iActive.get(); }
+		
+		/**
+		 * Histogram of the processing times, e.g., &lt;=10ms: 5, &lt;=50ms: 3, ..., &gt;5000ms: 0
+		 */
+		public String getHistogram() {
+			StringBuffer sb = new StringBuffer();
+			for (int i = 0; i < iHistogram.length; i++) {
+				if (sb.length() > 0) sb.append(", ");
+				if (i < sBuckets.length)
+					sb.append("<=" + sBuckets[i] + "ms: ");
+				else
+					sb.append(">" + sBuckets[sBuckets.length - 1] + "ms: ");
+				sb.append(iHistogram[i].sum());
+			}
+			return sb.toString();
+		}
+		
+		@Override
+		public String toString() {
+			return "count=" + getCount() + ", min=" + getMinTime() + "ms, max=" + getMaxTime() + "ms, avg=" + Math.round(getAverageTime()) + "ms";
+		}
+	}
+}
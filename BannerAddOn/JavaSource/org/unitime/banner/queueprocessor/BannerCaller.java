@@ -23,6 +23,8 @@ package org.unitime.banner.queueprocessor;
 import java.sql.Clob;
 
 import org.dom4j.Document;
+import org.unitime.banner.interfaces.BannerTransportInterface;
+import org.unitime.banner.queueprocessor.oracle.OracleConnectionPool;
 import org.unitime.banner.queueprocessor.oracle.OracleConnector;
 import org.unitime.banner.queueprocessor.util.ClobTools;
 import org.unitime.commons.Debug;
@@ -79,15 +81,38 @@ public abstract class BannerCaller {
 	}
 
 	
-	protected OracleConnector getJDBCconnection(){
-		OracleConnector jdbc = null;
+	/**
+	 * Class of the transport used to call Banner (property banner.transport.class), null when Banner is called over JDBC
+	 */
+	public static String getBannerTransportClass() {
+		String bannerTransportClass = ApplicationProperties.getProperty("banner.transport.class");
+		if (bannerTransportClass == null || bannerTransportClass.trim().length() == 0){
+			return null;
+		}
+		return bannerTransportClass.trim();
+	}
+	
+	protected BannerTransportInterface getJDBCconnection(){
+		BannerTransportInterface jdbc = null;
 		try {
-			jdbc = new OracleConnector(
-					QueuedItem.getBannerHost(), 
-					QueuedItem.getBannerDatabase(),
-					QueuedItem.getBannerPort(),
-					QueuedItem.getBannerUser(),
-					QueuedItem.getBannerPassword());
+			String transportClass = getBannerTransportClass();
+			if (transportClass != null) {
+				jdbc = (BannerTransportInterface) Class.forName(transportClass).newInstance();
+			} else if (OracleConnectionPool.isEnabled()) {
+				jdbc = OracleConnector.getPooledConnector(
+						QueuedItem.getBannerHost(), 
+						QueuedItem.getBannerDatabase(),
+						QueuedItem.getBannerPort(),
+						QueuedItem.getBannerUser(),
+						QueuedItem.getBannerPassword());
+			} else {
+				jdbc = new OracleConnector(
+						QueuedItem.getBannerHost(), 
+						QueuedItem.getBannerDatabase(),
+						QueuedItem.getBannerPort(),
+						QueuedItem.getBannerUser(),
+						QueuedItem.getBannerPassword());
+			}
 		} catch (Exception e) {
 			Debug.info("*********************************************************************");
 			Debug.info("** Error setting up OracleConnector in in callOracleProcess *********");
@@ -27,12 +27,12 @@ import java.util.Date;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
+import org.unitime.banner.interfaces.BannerTransportInterface;
 import org.unitime.banner.model.QueueIn;
 import org.unitime.banner.model.QueueOut;
 import org.unitime.banner.model.dao.QueueInDAO;
 import org.unitime.banner.model.dao.QueueOutDAO;
 import org.unitime.banner.queueprocessor.exception.LoggableException;
-import org.unitime.banner.queueprocessor.oracle.OracleConnector;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.ApplicationProperties;
 
@@ -109,17 +109,17 @@ public class PollStudentUpdates extends BannerCaller {
 			throws ClassNotFoundException, SQLException, IOException,
 			DocumentException {
 
-		OracleConnector jdbc = getJDBCconnection();
+		BannerTransportInterface jdbc = getJDBCconnection();
 		
-		Debug.info("\tSending student update request to Banner...");
-		Clob clob = jdbc.requestEnrollmentChanges(request);
-		Debug.info("\tResponse received from Banner.");
-
-		Document outDoc = convertClobToDocument(clob);
-
-		jdbc.cleanup();
+		try {
+			Debug.info("\tSending student update request to Banner...");
+			Clob clob = jdbc.requestEnrollmentChanges(request);
+			Debug.info("\tResponse received from Banner.");
 
-		return outDoc;
+			return convertClobToDocument(clob);
+		} finally {
+			jdbc.cleanup();
+		}
 
 	}
 }
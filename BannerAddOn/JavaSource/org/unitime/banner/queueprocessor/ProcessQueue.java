@@ -29,6 +29,11 @@ import org.unitime.banner.model.QueueOut;
 import org.unitime.banner.model.dao.QueueInDAO;
 import org.unitime.banner.model.dao.QueueOutDAO;
 import org.unitime.banner.queueprocessor.exception.LoggableException;
+import org.unitime.banner.queueprocessor.metrics.MetricsEndpoint;
+import org.unitime.banner.queueprocessor.metrics.QueueLagMonitor;
+import org.unitime.banner.queueprocessor.metrics.QueueMetrics;
+import org.unitime.banner.queueprocessor.oracle.OracleConnectionPool;
+import org.unitime.banner.queueprocessor.util.QueueArchiver;
 import org.unitime.commons.Debug;
 import org.unitime.commons.hibernate.util.HibernateUtil;
 import org.unitime.timetable.ApplicationProperties;
@@ -45,6 +50,12 @@ public class ProcessQueue {
 	private static long loop_times = -1;
 	private static long error_sleep_interval = 300; // in seconds
 	private static String logfilename = "queueprocessor.log";
+	private static int workers = 0; // zero or one: process the queue sequentially
+	private static int max_attempts = 5;
+	private static long retry_interval = 10; // in seconds
+	private static long lease_time = 1800; // in seconds
+	
+	QueueWorkerPool workerPool = null;
 
 	public static void main(String[] args) {
 
@@ -68,6 +79,22 @@ public class ProcessQueue {
 		if (ApplicationProperties.getProperty("queueprocessor.logfilename") != null) {
 			logfilename = ApplicationProperties.getProperty("queueprocessor.logfilename");
 		}
+		
+		if (ApplicationProperties.getProperty("queueprocessor.workers") != null) {
+			workers = Integer.parseInt(ApplicationProperties.getProperty("queueprocessor.workers"));
+		}
+		
+		if (ApplicationProperties.getProperty("queueprocessor.maxattempts") != null) {
+			max_attempts = Integer.parseInt(ApplicationProperties.getProperty("queueprocessor.maxattempts"));
+		}
+		
+		if (ApplicationProperties.getProperty("queueprocessor.retryinterval") != null) {
+			retry_interval = Integer.parseInt(ApplicationProperties.getProperty("queueprocessor.retryinterval"));
+		}
+		
+		if (ApplicationProperties.getProperty("queueprocessor.leasetime") != null) {
+			lease_time = Integer.parseInt(ApplicationProperties.getProperty("queueprocessor.leasetime"));
+		}
 
 		// Use a daily rolling log file
 		Properties logProps = new Properties();
@@ -87,14 +114,29 @@ public class ProcessQueue {
 			e1.printStackTrace();
 			System.exit(1);
 		}
+		
+		QueueMetrics.registerMBean();
+		MetricsEndpoint.start();
 
 		Debug.info("Error Sleep Interval: " + error_sleep_interval);
 		Debug.info("Sleep Interval: " + sleep_interval);
 		Debug.info("Loop Count    : " + loop_times);
+		if (workers > 1) {
+			Debug.info("Workers       : " + workers);
+			Debug.info("Max Attempts  : " + max_attempts);
+			Debug.info("Retry Interval: " + retry_interval);
+			Debug.info("Lease Time    : " + lease_time);
+		}
 
 		// Convert sleep_intervals to milliseconds
 		error_sleep_interval = error_sleep_interval * 1000;
 		sleep_interval = sleep_interval * 1000;
+		retry_interval = retry_interval * 1000;
+		lease_time = lease_time * 1000;
+		
+		if (workers > 1) {
+			processQueue.workerPool = new QueueWorkerPool(workers, max_attempts, retry_interval, error_sleep_interval, lease_time);
+		}
 
 		int count = 1;
 		boolean done = false;
@@ -108,6 +150,8 @@ public class ProcessQueue {
 				lastRunTime = new Date();
 				processQueue.process();
 				pollStudentUpdates.poll();
+				QueueLagMonitor.getInstance().evaluate();
+				QueueArchiver.getInstance().archiveIfDue();
 			} else {
 				try {
 					Thread.sleep(sleep_interval);
@@ -115,6 +159,7 @@ public class ProcessQueue {
 					e.printStackTrace();
 				}
 			}
+			OracleConnectionPool.evictIdleConnections();
 
 			count++;
 
@@ -127,6 +172,12 @@ public class ProcessQueue {
 				done = true;
 			}
 		}
+		
+		if (processQueue.workerPool != null) {
+			processQueue.workerPool.shutdown();
+		}
+		OracleConnectionPool.closeAll();
+		MetricsEndpoint.stop();
 	}
 
 	public static void printUsage() {
@@ -135,6 +186,11 @@ public class ProcessQueue {
 	}
 
 	public void process() {
+		
+		if (workerPool != null) {
+			workerPool.process();
+			return;
+		}
 
 		try {
 			qod = new QueueOutDAO();
@@ -146,7 +202,9 @@ public class ProcessQueue {
 			do {
 			
 				try {
+					long t0 = QueueMetrics.start();
 					outList = qod.findByStatus(QueueOut.STATUS_POSTED);
+					QueueMetrics.stop(QueueMetrics.STAGE_CLAIM, t0);
 					error = false;
 				} catch(Exception ex) {
 					//Sleep for the error_sleep_interval and try again
@@ -156,6 +214,10 @@ public class ProcessQueue {
 				}
 			} while (error); //Try again if an error occurred
 
+			QueueMetrics.gauge(QueueMetrics.GAUGE_DEPTH, outList.size());
+			QueueLagMonitor.getInstance().posted(outList);
+			QueueMetrics.add(QueueMetrics.COUNTER_CLAIMED, outList.size());
+			
 			if (outList.size() == 0) {
 				Debug.info("*** No items in Queue to be processed.");
 				return;
@@ -169,7 +231,11 @@ public class ProcessQueue {
 				Debug.info("Processing ID:"
 						+ ((QueueOut) outList.get(i)).getUniqueId().toString());
 
-				(new QueuedItem((QueueOut) outList.get(i))).processItem();
+				QueueOut item = (QueueOut) outList.get(i);
+				long t0 = System.currentTimeMillis();
+				(new QueuedItem(item)).processItem();
+				if (QueueOut.STATUS_PROCESSED.equals(item.getStatus()))
+					QueueLagMonitor.getInstance().completed(item, System.currentTimeMillis() - t0);
 				
 				
 				} catch(Exception ex) {
@@ -0,0 +1,367 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.queueprocessor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.unitime.banner.model.QueueOut;
+import org.unitime.banner.model.dao.QueueOutDAO;
+import org.unitime.banner.queueprocessor.exception.LoggableException;
+import org.unitime.banner.queueprocessor.metrics.QueueLagMonitor;
+import org.unitime.banner.queueprocessor.metrics.QueueMetrics;
+import org.unitime.commons.Debug;
+import org.unitime.timetable.model.dao._RootDAO;
+
+/**
+ * Worker pool mode of the queue processor. Posted items are leased (see {@link QueueOutDAO#lease(String, String, int, long)})
+ * in batches, in the order in which they were posted, and handed over to a fixed number of workers, so that multiple queue processors can drain the queue at the same time.
+ * A failing item is retried on its own with an exponential back-off (the other items are not blocked),
+ * and an item that keeps failing is moved to the FAILED status after a bounded number of attempts.<br>
+ * The packets of the same section, cross-list, or course are sent to Banner in the order in which they were posted: an item is held back
+ * while an earlier item with a common ordering key (see {@link #getOrderingKeys(QueueOut)}) is in progress or waiting for a retry.
+ * The order is kept among the items leased by this processor; when the order matters across all packets, run one queue processor with multiple workers.
+ */
+public class QueueWorkerPool {
+	private ExecutorService iExecutor;
+	private Map<Long, Lease> iLeases = new ConcurrentHashMap<Long, Lease>();
+	private int iNrWorkers, iMaxAttempts;
+	private long iRetryInterval, iMaxRetryInterval, iLeaseTime;
+	private String iOwner;
+	
+	/**
+	 * @param nrWorkers number of worker threads
+	 * @param maxAttempts number of attempts after which an item is marked as FAILED
+	 * @param retryInterval delay before the first retry of a failed item (in milliseconds), doubled on each subsequent failure
+	 * @param maxRetryInterval maximal delay between two attempts (in milliseconds)
+	 * @param leaseTime how long is an item leased to this processor (in milliseconds), an item with an expired lease can be claimed by another processor
+	 */
+	public QueueWorkerPool(int nrWorkers, int maxAttempts, long retryInterval, long maxRetryInterval, long leaseTime) {
+		iNrWorkers = nrWorkers;
+		iMaxAttempts = maxAttempts;
+		iRetryInterval = retryInterval;
+		iMaxRetryInterval = Math.max(retryInterval, maxRetryInterval);
+		iLeaseTime = leaseTime;
+		iOwner = ManagementFactory.getRuntimeMXBean().getName();
+		iExecutor = Executors.newFixedThreadPool(nrWorkers, new WorkerThreadFactory());
+	}
+	
+	/**
+	 * Lease new posted items and start the leased items that are due (see {@link #schedule()}).
+	 * At most twice the number of workers items are in progress or held back at a time. The method does not wait for the items to be processed.
+	 */
+	public void process() {
+		QueueOutDAO qod = new QueueOutDAO();
+		
+		long now = System.currentTimeMillis();
+		int active = 0;
+		for (Lease lease: iLeases.values()) {
+			if (lease.isRunning() || lease.getNextAttempt() <= now) active ++;
+		}
+		
+		int leased = 0;
+		if (active < 2 * iNrWorkers) {
+			List<QueueOut> outList = null;
+			try {
+				long t0 = QueueMetrics.start();
+				outList = qod.lease(QueueOut.STATUS_POSTED, iOwner, 2 * iNrWorkers - active, iLeaseTime);
+				QueueMetrics.stop(QueueMetrics.STAGE_CLAIM, t0);
+				QueueLagMonitor.getInstance().leased(outList, outList.size() >= 2 * iNrWorkers - active);
+			} catch (Exception ex) {
+				// Try again on the next iteration
+				Debug.error(ex);
+				outList = null;
+			}
+			if (outList != null) {
+				for (QueueOut item: outList) {
+					iLeases.put(item.getUniqueId(), new Lease(item, getOrderingKeys(item)));
+					leased ++;
+				}
+			}
+		}
+		
+		Schedule schedule = schedule();
+		
+		QueueMetrics.add(QueueMetrics.COUNTER_CLAIMED, leased);
+		QueueMetrics.add(QueueMetrics.COUNTER_RETRIED, schedule.iRetried);
+		QueueMetrics.gauge(QueueMetrics.GAUGE_IN_PROGRESS, schedule.iRunning);
+		QueueMetrics.gauge(QueueMetrics.GAUGE_WAITING, schedule.iWaiting + schedule.iHeldBack);
+		
+		if (leased == 0 && schedule.iRunning == 0 && schedule.iWaiting == 0 && schedule.iHeldBack == 0) {
+			Debug.info("*** No items in Queue to be processed.");
+		} else {
+			Debug.info("*** Leased " + leased + " queue entries to workers (" + schedule.iRetried + " retried, " + schedule.iRunning + " in progress, " +
+					schedule.iWaiting + " waiting for a retry, " + schedule.iHeldBack + " waiting for an earlier item).");
+		}
+	}
+	
+	/**
+	 * Start the leased items that can be started, in the order in which they were posted. An item that is not running is started when it is
+	 * not waiting for a retry and there is no earlier leased item (running, waiting for a retry, or held back) that has a common ordering key.
+	 * Called from {@link #process()} and by a worker that has finished an item, so that the next packet of the same section is sent right away.
+	 */
+	protected synchronized Schedule schedule() {
+		QueueOutDAO qod = new QueueOutDAO();
+		long now = System.currentTimeMillis();
+		Schedule schedule = new Schedule();
+		List<Lease> leases = new ArrayList<Lease>(iLeases.values());
+		Collections.sort(leases);
+		Set<String> busy = new HashSet<String>();
+		for (Lease lease: leases) {
+			if (lease.isRunning()) {
+				schedule.iRunning ++;
+			} else if (lease.getNextAttempt() > now) {
+				schedule.iWaiting ++;
+			} else if (!Collections.disjoint(busy, lease.getKeys())) {
+				// keep the lease of a held back item from expiring
+				if (!renew(qod, lease, now, false)) continue;
+				schedule.iHeldBack ++;
+			} else if (!renew(qod, lease, now, lease.getAttempts() > 0)) {
+				// lease could not be renewed, the item is tried again on the next iteration (keeping its place in the order)
+				if (iLeases.containsKey(lease.getItem().getUniqueId())) {
+					schedule.iWaiting ++;
+					busy.addAll(lease.getKeys());
+				}
+				continue;
+			} else {
+				lease.setRunning(true);
+				try {
+					iExecutor.execute(new Worker(lease));
+				} catch (RejectedExecutionException e) {
+					// the pool is shutting down, the item is released by shutdown()
+					lease.setRunning(false);
+					return schedule;
+				}
+				schedule.iRunning ++;
+				if (lease.getAttempts() > 0) schedule.iRetried ++;
+			}
+			busy.addAll(lease.getKeys());
+		}
+		return schedule;
+	}
+	
+	/**
+	 * Renew the lease of an item when forced or when it expires within half of the lease time.
+	 * Returns false (and forgets the item) when the item is no longer leased by this processor.
+	 */
+	protected boolean renew(QueueOutDAO qod, Lease lease, long now, boolean force) {
+		QueueOut item = lease.getItem();
+		if (!force && item.getLeaseExpiry() != null && item.getLeaseExpiry().getTime() - now > iLeaseTime / 2) return true;
+		try {
+			if (!qod.renewLease(item.getUniqueId(), iOwner, iLeaseTime)) {
+				Debug.info("Processing ID:" + item.getUniqueId() + " is no longer leased by " + iOwner + ".");
+				iLeases.remove(item.getUniqueId());
+				QueueLagMonitor.getInstance().released(item);
+				return false;
+			}
+		} catch (Exception ex) {
+			Debug.error(ex);
+			return !force;
+		}
+		item.setLeaseExpiry(new Date(now + iLeaseTime));
+		return true;
+	}
+	
+	/**
+	 * Ordering keys of a queue item: the sections (by their external id and CRN), the courses (term, subject, and course number),
+	 * and the cross-list groups of the packet. Packets that share a key are processed in the order in which they were posted.
+	 */
+	protected static Set<String> getOrderingKeys(QueueOut item) {
+		Set<String> keys = new HashSet<String>();
+		Document document = item.getXml();
+		if (document == null || document.getRootElement() == null) return keys;
+		Element root = document.getRootElement();
+		String term = root.attributeValue("TERM_CODE", "");
+		for (Iterator<?> i = root.elementIterator("SECTION"); i.hasNext(); ) {
+			Element section = (Element)i.next();
+			String id = section.attributeValue("EXTERNAL_ID");
+			if (id != null && !id.isEmpty()) keys.add("S:" + term + ":" + id);
+			String crn = section.attributeValue("CRN");
+			if (crn != null && !crn.isEmpty()) keys.add("N:" + term + ":" + crn);
+			String subject = section.attributeValue("SUBJ_CODE"), course = section.attributeValue("CRSE_NUMB");
+			if (subject != null && course != null) keys.add("C:" + term + ":" + subject + ":" + course);
+		}
+		for (Iterator<?> i = root.elementIterator("CROSSLIST"); i.hasNext(); ) {
+			Element crossList = (Element)i.next();
+			String group = crossList.attributeValue("GROUP");
+			if (group != null && !group.isEmpty()) keys.add("X:" + term + ":" + group);
+		}
+		return keys;
+	}
+	
+	/**
+	 * Stop accepting new items, wait for the items in progress to finish, and release the items that are waiting for a retry or held back.
+	 */
+	public void shutdown() {
+		iExecutor.shutdown();
+		try {
+			if (!iExecutor.awaitTermination(iMaxRetryInterval, TimeUnit.MILLISECONDS))
+				iExecutor.shutdownNow();
+		} catch (InterruptedException e) {
+			iExecutor.shutdownNow();
+		}
+		QueueOutDAO qod = new QueueOutDAO();
+		for (Lease lease: iLeases.values()) {
+			if (lease.isRunning()) continue;
+			try {
+				qod.releaseLease(lease.getItem().getUniqueId(), iOwner, QueueOut.STATUS_POSTED);
+			} catch (Exception ex) {
+				Debug.error(ex);
+			}
+		}
+		iLeases.clear();
+	}
+	
+	protected long getRetryDelay(int attempt) {
+		long delay = iRetryInterval;
+		for (int i = 1; i < attempt && delay < iMaxRetryInterval; i++)
+			delay *= 2;
+		return Math.min(delay, iMaxRetryInterval);
+	}
+	
+	protected void failed(Lease lease, Exception ex) {
+		QueueOut item = lease.getItem();
+		QueueOutDAO qod = new QueueOutDAO();
+		lease.incAttempts();
+		if (lease.getAttempts() >= iMaxAttempts) {
+			Debug.info("Processing ID:" + item.getUniqueId() + " failed " + lease.getAttempts() + " times, marking it as " + QueueOut.STATUS_FAILED + ".");
+			try {
+				qod.releaseLease(item.getUniqueId(), iOwner, QueueOut.STATUS_FAILED);
+				iLeases.remove(item.getUniqueId());
+				QueueLagMonitor.getInstance().released(item);
+			} catch (Exception e) {
+				// Keep the lease, the status update will be attempted again after the retry interval
+				Debug.error(e);
+				lease.setNextAttempt(System.currentTimeMillis() + getRetryDelay(lease.getAttempts()));
+			}
+			LoggableException le = new LoggableException("Giving up after " + lease.getAttempts() + " attempts" + (ex == null ? "." : ": " + ex.getMessage()), item);
+			le.logError();
+		} else {
+			long delay = getRetryDelay(lease.getAttempts());
+			Debug.info("Processing ID:" + item.getUniqueId() + " failed (attempt " + lease.getAttempts() + " of " + iMaxAttempts + "), next attempt in " + (delay / 1000) + " seconds.");
+			try {
+				// keep the item leased while waiting for the retry
+				qod.renewLease(item.getUniqueId(), iOwner, delay + iLeaseTime);
+			} catch (Exception e) {
+				Debug.error(e);
+			}
+			lease.setNextAttempt(System.currentTimeMillis() + delay);
+		}
+	}
+	
+	protected class Worker implements Runnable {
+		private Lease iLease;
+		
+		Worker(Lease lease) {
+			iLease = lease;
+		}
+
+		@Override
+		public void run() {
+			QueueOut item = iLease.getItem();
+			try {
+				Debug.info("Processing ID:" + item.getUniqueId().toString());
+				long t0 = System.currentTimeMillis();
+				new QueuedItem(item).processItem();
+				if (QueueOut.STATUS_PROCESSED.equals(item.getStatus())) {
+					iLeases.remove(item.getUniqueId());
+					QueueLagMonitor.getInstance().completed(item, System.currentTimeMillis() - t0);
+				} else {
+					failed(iLease, null);
+				}
+			} catch (Exception ex) {
+				Debug.error(ex);
+				failed(iLease, ex);
+			} finally {
+				iLease.setRunning(false);
+				_RootDAO.closeCurrentThreadSessions();
+			}
+			// start the items that were waiting for this one
+			if (!iExecutor.isShutdown()) {
+				try {
+					schedule();
+				} catch (Exception ex) {
+					Debug.error(ex);
+				} finally {
+					_RootDAO.closeCurrentThreadSessions();
+				}
+			}
+		}
+	}
+	
+	protected static class Schedule {
+		private int iRunning = 0, iWaiting = 0, iHeldBack = 0, iRetried = 0;
+	}
+	
+	protected static class Lease implements Comparable<Lease> {
+		private QueueOut iItem;
+		private Set<String> iKeys;
+		private volatile boolean iRunning = false;
+		private volatile int iAttempts = 0;
+		private volatile long iNextAttempt = 0;
+		
+		Lease(QueueOut item, Set<String> keys) { iItem = item; iKeys = keys; }
+		
+		public QueueOut getItem() { return iItem; }
+		public Set<String> getKeys() { return iKeys; }
+		public boolean isRunning() { return iRunning; }
+		public void setRunning(boolean running) { iRunning = running; }
+		public int getAttempts() { return iAttempts; }
+		public void incAttempts() { iAttempts ++; }
+		public long getNextAttempt() { return iNextAttempt; }
+		public void setNextAttempt(long nextAttempt) { iNextAttempt = nextAttempt; }
+		
+		@Override
+		public int compareTo(Lease lease) {
+			Date d1 = getItem().getPostDate(), d2 = lease.getItem().getPostDate();
+			if (d1 != null && d2 != null && !d1.equals(d2)) return d1.compareTo(d2);
+			return getItem().getUniqueId().compareTo(lease.getItem().getUniqueId());
+		}
+	}
+	
+	protected static class WorkerThreadFactory implements ThreadFactory {
+		private AtomicInteger iCount = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread t = new Thread(runnable);
+			t.setName("QueueWorker-" + iCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -21,20 +21,25 @@
 package org.unitime.banner.queueprocessor;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.sql.Clob;
 import java.sql.SQLException;
 import java.util.Date;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
 import org.unitime.banner.dataexchange.ReceiveBannerResponseMessage;
+import org.unitime.banner.interfaces.BannerTransportInterface;
 import org.unitime.banner.model.QueueIn;
 import org.unitime.banner.model.QueueOut;
 import org.unitime.banner.model.dao.QueueInDAO;
 import org.unitime.banner.model.dao.QueueOutDAO;
 import org.unitime.banner.queueprocessor.exception.LoggableException;
-import org.unitime.banner.queueprocessor.oracle.OracleConnector;
+import org.unitime.banner.queueprocessor.metrics.QueueMetrics;
 import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
 
 /*
  * based on code contributed by Aaron Tyler and Dagmar Murray
@@ -54,38 +59,51 @@ public class QueuedItem extends BannerCaller {
 
 	public void processItem() throws SQLException, Exception {
 
+		long t0 = QueueMetrics.start();
 		try {
 
 			item.setPickupDate(new Date());
-			item.setStatus(QueueOut.STATUS_POSTED);
+			if (item.getPostDate() != null)
+				QueueMetrics.recordMillis(QueueMetrics.STAGE_WAIT, item.getPickupDate().getTime() - item.getPostDate().getTime());
+			// a leased item stays in the PROCESSING status until it is done
+			if (item.getLeaseOwner() == null)
+				item.setStatus(QueueOut.STATUS_POSTED);
 
 			qod.update(item);
 
-			Document result = callOracleProcess(item.getXml());
-
-			QueueIn qi = new QueueIn();
-			try {
-				qi.setPostDate(new Date());
-
-				QueueInDAO qid = new QueueInDAO();
-
-				qi.setMatchId(item.getUniqueId());
-				qi.setStatus(QueueIn.STATUS_POSTED);
-				qi.setXml(result);
-
-				qid.save(qi);
-				
-				// Process in UniTime
-				ReceiveBannerResponseMessage.receiveResponseDocument(qi);
-				
-			} catch (Exception ex) {
-				LoggableException le = new LoggableException(ex, qi);
-				le.logError();
-				throw le;
+			if (isStreamResponses()) {
+				callOracleProcessStreaming(item.getXml());
+			} else {
+				Document result = callOracleProcess(item.getXml());
+
+				QueueIn qi = new QueueIn();
+				try {
+					qi.setPostDate(new Date());
+
+					QueueInDAO qid = new QueueInDAO();
+
+					qi.setMatchId(item.getUniqueId());
+					qi.setStatus(QueueIn.STATUS_POSTED);
+					qi.setXml(result);
+
+					qid.save(qi);
+					
+					// Process in UniTime
+					long t1 = QueueMetrics.start();
+					ReceiveBannerResponseMessage.receiveResponseDocument(qi);
+					QueueMetrics.stop(QueueMetrics.STAGE_RESPONSE, t1);
+					
+				} catch (Exception ex) {
+					LoggableException le = new LoggableException(ex, qi);
+					le.logError();
+					throw le;
+				}
 			}
 
 			item.setProcessDate(new Date());
 			item.setStatus(QueueOut.STATUS_PROCESSED);
+			item.setLeaseOwner(null);
+			item.setLeaseExpiry(null);
 
 			qod.update(item);
 
@@ -102,25 +120,85 @@ public class QueuedItem extends BannerCaller {
 			
 			LoggableException le = new LoggableException(ex, item);
 			le.logError();
+		} finally {
+			QueueMetrics.stop(QueueMetrics.STAGE_ITEM, t0);
+			QueueMetrics.increment(QueueOut.STATUS_PROCESSED.equals(item.getStatus()) ? QueueMetrics.COUNTER_PROCESSED : QueueMetrics.COUNTER_FAILED);
 		}
 
 	}
 
+	/**
+	 * Stream responses from Banner (property banner.queue.streamResponses, defaults to false).
+	 * When enabled, the response is not loaded into memory as a whole, the Banner response messages are persisted
+	 * while the response is being parsed and the integration queue in table only keeps the root element of the response
+	 * (with the number of messages received). This is a trade-off: the full response payload is not kept for troubleshooting,
+	 * only the Banner response records (banner_response) that were created from it.
+	 */
+	public static boolean isStreamResponses() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("banner.queue.streamResponses", "false"));
+	}
+	
+	private void callOracleProcessStreaming(Document xml) throws ClassNotFoundException, SQLException, IOException, LoggableException {
+		
+		BannerTransportInterface jdbc = getJDBCconnection();
+
+		try {
+			Debug.info("\t" + item.getUniqueId() + ": Sending request to Banner...");
+			Clob clob = jdbc.processUnitimePacket(xml);
+			Debug.info("\t" + item.getUniqueId() + ": Response received from Banner.");
+			
+			QueueIn qi = new QueueIn();
+			try {
+				qi.setPostDate(new Date());
+				qi.setMatchId(item.getUniqueId());
+				
+				// Process in UniTime
+				long t0 = QueueMetrics.start();
+				Element root = null;
+				if (clob != null) {
+					try (Reader reader = clob.getCharacterStream()) {
+						root = ReceiveBannerResponseMessage.receiveResponseStream(reader, item.getUniqueId());
+					}
+				}
+				QueueMetrics.stop(QueueMetrics.STAGE_RESPONSE, t0);
+				
+				Document summary = DocumentHelper.createDocument();
+				if (root != null) summary.setRootElement(root);
+				qi.setXml(summary);
+				qi.setStatus(QueueIn.STATUS_PROCESSED);
+				qi.setProcessDate(new Date());
+				
+				new QueueInDAO().save(qi);
+			} catch (Exception ex) {
+				LoggableException le = new LoggableException(ex, qi);
+				le.logError();
+				throw le;
+			}
+		} finally {
+			jdbc.cleanup();
+		}
+	}
+
 	private Document callOracleProcess(Document xml)
 			throws ClassNotFoundException, SQLException, IOException,
 			DocumentException {
 
-		OracleConnector jdbc = getJDBCconnection();
-
-		Debug.info("\t" + item.getUniqueId() + ": Sending request to Banner...");
-		Clob clob = jdbc.processUnitimePacket(xml);
-		Debug.info("\t" + item.getUniqueId() + ": Response received from Banner.");
+		BannerTransportInterface jdbc = getJDBCconnection();
 
-		Document outDoc = convertClobToDocument(clob);
-		
-		jdbc.cleanup();
+		try {
+			Debug.info("\t" + item.getUniqueId() + ": Sending request to Banner...");
+			Clob clob = jdbc.processUnitimePacket(xml);
+			Debug.info("\t" + item.getUniqueId() + ": Response received from Banner.");
 
-		return outDoc;
+			long t0 = QueueMetrics.start();
+			try {
+				return convertClobToDocument(clob);
+			} finally {
+				QueueMetrics.stop(QueueMetrics.STAGE_PARSE, t0);
+			}
+		} finally {
+			jdbc.cleanup();
+		}
 
 	}
 
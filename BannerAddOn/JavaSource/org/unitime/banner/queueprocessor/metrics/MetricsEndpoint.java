@@ -0,0 +1,90 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.queueprocessor.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Optional HTTP endpoint exposing the {@link QueueMetrics} in the Prometheus text format on /metrics
+ * and the {@link QueueLagMonitor.Status} of the processor on /status.
+ * The endpoint is started when queueprocessor.metrics.port is set, it listens on queueprocessor.metrics.host (defaults to localhost).
+ */
+public class MetricsEndpoint {
+	private static HttpServer sServer = null;
+	
+	public static synchronized void start() {
+		String port = ApplicationProperties.getProperty("queueprocessor.metrics.port");
+		if (port == null || port.trim().isEmpty() || sServer != null) return;
+		String host = ApplicationProperties.getProperty("queueprocessor.metrics.host", "localhost");
+		try {
+			sServer = HttpServer.create(new InetSocketAddress(host, Integer.parseInt(port.trim())), 0);
+			sServer.createContext("/metrics", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					try {
+						StringWriter writer = new StringWriter();
+						QueueMetrics.getInstance().writePrometheus(writer);
+						byte[] body = writer.toString().getBytes(StandardCharsets.UTF_8);
+						exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+						exchange.sendResponseHeaders(200, body.length);
+						exchange.getResponseBody().write(body);
+					} finally {
+						exchange.close();
+					}
+				}
+			});
+			sServer.createContext("/status", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					try {
+						byte[] body = QueueLagMonitor.getInstance().getStatus().toString().getBytes(StandardCharsets.UTF_8);
+						exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+						exchange.sendResponseHeaders(200, body.length);
+						exchange.getResponseBody().write(body);
+					} finally {
+						exchange.close();
+					}
+				}
+			});
+			sServer.start();
+			Debug.info("Metrics Endpoint: http://" + host + ":" + port.trim() + "/metrics");
+		} catch (Exception e) {
+			Debug.error("Failed to start the metrics endpoint: " + e.getMessage());
+			sServer = null;
+		}
+	}
+	
+	public static synchronized void stop() {
+		if (sServer != null) {
+			sServer.stop(0);
+			sServer = null;
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.queueprocessor.metrics;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.unitime.banner.model.QueueOut;
+import org.unitime.commons.Debug;
+import org.unitime.commons.Email;
+import org.unitime.commons.hibernate.util.HibernateUtil;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Lag monitor of the queue processor, updated incrementally from the claim loop (no queries are made).
+ * The monitor keeps the items the processor knows to be outstanding (posted or leased and not yet processed) with their post dates,
+ * so that the age of the oldest item is always known, and measures the drain rate (items processed per second while there is a backlog)
+ * and the average processing time of an item. When the projected time to drain the backlog exceeds queueprocessor.lag.maxDrainTime
+ * seconds (defaults to 1800), or when nothing was processed for queueprocessor.lag.stallTime seconds (defaults to 900) while there are
+ * outstanding items, an alert is logged and emailed (at most once every queueprocessor.lag.alertInterval seconds, defaults to 3600).
+ * The alert tells apart a stalled processor, a slow Banner (average item time over queueprocessor.lag.slowItemTime seconds, defaults to 30),
+ * and a burst backlog. The current {@link Status} is exposed through {@link QueueMetrics} and on the /status page of the {@link MetricsEndpoint}.
+ */
+public class QueueLagMonitor {
+	public static enum State {
+		IDLE, OK, BACKLOG, SLOW, STALLED;
+		
+		public boolean isAlert() { return this == BACKLOG || this == SLOW || this == STALLED; }
+	}
+	
+	private static QueueLagMonitor sInstance = null;
+	
+	private final Clock iClock;
+	private final long iMaxDrainTime, iStallTime, iSlowItemTime, iWindow, iAlertInterval;
+	private final double iAlpha = 0.3;
+	
+	private final Map<Long, Long> iOutstanding = new HashMap<Long, Long>();
+	private final TreeMap<Long, Integer> iPostTimes = new TreeMap<Long, Integer>();
+	private boolean iMore = false;
+	
+	private long iLastHeartbeat = -1, iLastCompletion = -1, iBacklogSince = -1, iLastAlert = -1;
+	private long iWindowStart = -1;
+	private int iWindowCompleted = 0;
+	private boolean iWindowBusy = false;
+	private double iDrainRate = -1.0, iItemTime = -1.0;
+	private long iProcessed = 0;
+	private Status iLastStatus = null;
+	
+	public QueueLagMonitor(Clock clock, long maxDrainTime, long stallTime, long slowItemTime, long window, long alertInterval) {
+		iClock = clock;
+		iMaxDrainTime = maxDrainTime;
+		iStallTime = stallTime;
+		iSlowItemTime = slowItemTime;
+		iWindow = window;
+		iAlertInterval = alertInterval;
+	}
+	
+	/**
+	 * Lag monitor of this processor, configured from the queueprocessor.lag.* properties (in seconds)
+	 */
+	public static synchronized QueueLagMonitor getInstance() {
+		if (sInstance == null) {
+			sInstance = new QueueLagMonitor(Clock.systemUTC(),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.lag.maxDrainTime", "1800")),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.lag.stallTime", "900")),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.lag.slowItemTime", "30")),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.lag.window", "60")),
+					1000l * Long.parseLong(ApplicationProperties.getProperty("queueprocessor.lag.alertInterval", "3600")));
+		}
+		return sInstance;
+	}
+	
+	/**
+	 * The claim loop has read all the posted items, these are the only outstanding items
+	 */
+	public synchronized void posted(Collection<QueueOut> items) {
+		iOutstanding.clear(); iPostTimes.clear();
+		for (QueueOut item: items) add(item);
+		iMore = false;
+		heartbeat();
+	}
+	
+	/**
+	 * The claim loop has leased the given items, more is true when there may be other posted items that were not leased
+	 */
+	public synchronized void leased(Collection<QueueOut> items, boolean more) {
+		for (QueueOut item: items) add(item);
+		iMore = more;
+		heartbeat();
+	}
+	
+	/**
+	 * An item has been processed, taking the given number of milliseconds
+	 */
+	public synchronized void completed(QueueOut item, long millis) {
+		remove(item);
+		long now = iClock.millis();
+		iLastCompletion = now;
+		iWindowCompleted ++;
+		iProcessed ++;
+		iItemTime = (iItemTime < 0.0 ? millis : iAlpha * millis + (1.0 - iAlpha) * iItemTime);
+	}
+	
+	/**
+	 * An item is no longer outstanding without being processed (e.g., it has been marked as failed)
+	 */
+	public synchronized void released(QueueOut item) {
+		remove(item);
+	}
+	
+	private void add(QueueOut item) {
+		if (item.getUniqueId() == null || iOutstanding.containsKey(item.getUniqueId())) return;
+		long posted = (item.getPostDate() == null ? iClock.millis() : item.getPostDate().getTime());
+		iOutstanding.put(item.getUniqueId(), posted);
+		Integer count = iPostTimes.get(posted);
+		iPostTimes.put(posted, count == null ? 1 : count + 1);
+	}
+	
+	private void remove(QueueOut item) {
+		Long posted = iOutstanding.remove(item.getUniqueId());
+		if (posted == null) return;
+		Integer count = iPostTimes.get(posted);
+		if (count == null || count <= 1)
+			iPostTimes.remove(posted);
+		else
+			iPostTimes.put(posted, count - 1);
+	}
+	
+	private void heartbeat() {
+		long now = iClock.millis();
+		iLastHeartbeat = now;
+		if (iOutstanding.isEmpty()) {
+			iBacklogSince = -1;
+		} else if (iBacklogSince < 0) {
+			iBacklogSince = now;
+		}
+		if (iWindowStart < 0) {
+			iWindowStart = now;
+		}
+		if (!iOutstanding.isEmpty()) iWindowBusy = true;
+		if (now - iWindowStart >= iWindow) {
+			// only measure the drain rate while there is something to drain
+			if (iWindowBusy && iWindowCompleted > 0) {
+				double rate = 1000.0 * iWindowCompleted / (now - iWindowStart);
+				iDrainRate = (iDrainRate < 0.0 ? rate : iAlpha * rate + (1.0 - iAlpha) * iDrainRate);
+			}
+			iWindowStart = now; iWindowCompleted = 0; iWindowBusy = !iOutstanding.isEmpty();
+		}
+	}
+	
+	/**
+	 * Current status, without side effects
+	 */
+	public synchronized Status getStatus() {
+		long now = iClock.millis();
+		int backlog = iOutstanding.size();
+		long oldestAge = (iPostTimes.isEmpty() ? 0 : Math.max(0, now - iPostTimes.firstKey()));
+		long projected = (backlog == 0 ? 0 : iDrainRate > 0.0 ? Math.round(1000.0 * backlog / iDrainRate) : -1);
+		long noProgress = (backlog == 0 ? 0 : now - Math.max(iLastCompletion, iBacklogSince < 0 ? now : iBacklogSince));
+		State state;
+		if (backlog == 0) {
+			state = State.IDLE;
+		} else if (noProgress >= iStallTime) {
+			state = State.STALLED;
+		} else if (projected > iMaxDrainTime) {
+			state = (iItemTime > iSlowItemTime ? State.SLOW : State.BACKLOG);
+		} else {
+			state = State.OK;
+		}
+		return new Status(state, backlog, iMore, oldestAge, iDrainRate, iItemTime, projected,
+				iLastHeartbeat < 0 ? -1 : now - iLastHeartbeat, noProgress, iProcessed);
+	}
+	
+	/**
+	 * Evaluate the current status (to be called once per iteration of the claim loop), update the metrics and raise an alert if needed
+	 */
+	public Status evaluate() {
+		Status status;
+		boolean alert = false;
+		synchronized (this) {
+			heartbeat();
+			status = getStatus();
+			if (status.getState().isAlert() && (iLastAlert < 0 || iClock.millis() - iLastAlert >= iAlertInterval)) {
+				iLastAlert = iClock.millis();
+				alert = true;
+			} else if (!status.getState().isAlert()) {
+				iLastAlert = -1;
+			}
+			iLastStatus = status;
+		}
+		QueueMetrics.gauge("lag_state", status.getState().ordinal());
+		QueueMetrics.gauge("lag_backlog", status.getBacklog());
+		QueueMetrics.gauge("lag_oldest_age_ms", status.getOldestAge());
+		QueueMetrics.gauge("lag_projected_drain_ms", status.getProjectedDrainTime());
+		if (alert) alert(status);
+		return status;
+	}
+	
+	/**
+	 * Last evaluated status, null if the monitor was never evaluated
+	 */
+	public synchronized Status getLastStatus() { return iLastStatus; }
+	
+	protected void alert(Status status) {
+		Debug.warning("Queue processor lag: " + status.getMessage());
+		if ("true".equalsIgnoreCase(ApplicationProperties.getProperty("queueprocessor.lag.email", "true"))) {
+			try {
+				Email email = Email.createEmail();
+				email.setSubject("UniTime Queue Processor is lagging behind (" + status.getState() + ")");
+				email.addNotify();
+				email.setText("UniTime Queue Processor for database " + HibernateUtil.getDatabaseName() + ": " + status.getMessage() + "\n\n" + status);
+				email.send();
+			} catch (Exception e) {
+				Debug.error("Failed to send queue processor lag alert: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Snapshot of the lag of the queue processor
+	 */
+	public static class Status {
+		private final State iState;
+		private final int iBacklog;
+		private final boolean iMore;
+		private final long iOldestAge, iProjectedDrainTime, iHeartbeatAge, iNoProgress, iProcessed;
+		private final double iDrainRate, iItemTime;
+		
+		Status(State state, int backlog, boolean more, long oldestAge, double drainRate, double itemTime, long projectedDrainTime, long heartbeatAge, long noProgress, long processed) {
+			iState = state; iBacklog = backlog; iMore = more; iOldestAge = oldestAge; iDrainRate = drainRate; iItemTime = itemTime;
+			iProjectedDrainTime = projectedDrainTime; iHeartbeatAge = heartbeatAge; iNoProgress = noProgress; iProcessed = processed;
+		}
+		
+		public State getState() { return iState; }
+		/** Number of outstanding items known to the processor */
+		public int getBacklog() { return iBacklog; }
+		/** True if there may be more posted items than the backlog (the last lease was full) */
+		public boolean hasMore() { return iMore; }
+		/** Age of the oldest outstanding item in milliseconds */
+		public long getOldestAge() { return iOldestAge; }
+		/** Items processed per second while there was a backlog, -1 if not measured yet */
+		public double getDrainRate() { return iDrainRate; }
+		/** Average processing time of an item in milliseconds, -1 if not measured yet */
+		public double getItemTime() { return iItemTime; }
+		/** Projected time to drain the backlog in milliseconds, -1 if unknown */
+		public long getProjectedDrainTime() { return iProjectedDrainTime; }
+		/** Milliseconds since the last iteration of the claim loop, -1 if there was none */
+		public long getHeartbeatAge() { return iHeartbeatAge; }
+		/** Milliseconds since the last processed item (or since the backlog appeared), 0 if there is no backlog */
+		public long getNoProgressTime() { return iNoProgress; }
+		public long getProcessed() { return iProcessed; }
+		
+		public String getMessage() {
+			switch (iState) {
+			case STALLED:
+				return iBacklog + (iMore ? "+" : "") + " outstanding items, but nothing has been processed for " + (iNoProgress / 60000) + " minutes (oldest item is " + (iOldestAge / 60000) + " minutes old).";
+			case SLOW:
+				return "Banner is slow: an item takes " + Math.round(iItemTime) + " ms on average, " + iBacklog + (iMore ? "+" : "") + " outstanding items will take " + (iProjectedDrainTime / 60000) + " minutes to process.";
+			case BACKLOG:
+				return "Backlog of " + iBacklog + (iMore ? "+" : "") + " items will take " + (iProjectedDrainTime / 60000) + " minutes to process (oldest item is " + (iOldestAge / 60000) + " minutes old).";
+			case OK:
+				return iBacklog + (iMore ? "+" : "") + " outstanding items.";
+			default:
+				return "No outstanding items.";
+			}
+		}
+		
+		/**
+		 * Status in the java.util.Properties format (one key=value pair per line)
+		 */
+		@Override
+		public String toString() {
+			return "state=" + iState + "\n" +
+					"message=" + getMessage() + "\n" +
+					"backlog=" + iBacklog + "\n" +
+					"more=" + iMore + "\n" +
+					"oldestAge=" + iOldestAge + "\n" +
+					"drainRate=" + iDrainRate + "\n" +
+					"itemTime=" + iItemTime + "\n" +
+					"projectedDrainTime=" + iProjectedDrainTime + "\n" +
+					"heartbeatAge=" + iHeartbeatAge + "\n" +
+					"noProgressTime=" + iNoProgress + "\n" +
+					"processed=" + iProcessed + "\n";
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.queueprocessor.oracle;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * A small bounded pool of connections to the Banner database. Connections are validated when borrowed,
+ * connections that have been idle for too long are closed (when a connection is borrowed and on each iteration
+ * of the queue processor, see {@link #evictIdleConnections()}), and each connection keeps a cache of
+ * prepared callable statements (so that the Banner stored procedures do not need to be prepared on every call).
+ * <br>
+ * The pool is configured using the following properties:
+ * <ul>
+ * <li>banner.connectionPool.maxSize ... maximal number of open connections (defaults to 5)
+ * <li>banner.connectionPool.maxIdleTime ... number of seconds after which an idle connection is closed (defaults to 300)
+ * <li>banner.connectionPool.maxWait ... number of seconds to wait for a connection when all are in use (defaults to 60)
+ * <li>banner.connectionPool.validationTimeout ... number of seconds to wait for a connection to validate (defaults to 5)
+ * <li>banner.connectionPool.statementCacheSize ... number of callable statements cached per connection (defaults to 10)
+ * </ul>
+ */
+public class OracleConnectionPool {
+	private static Map<String, OracleConnectionPool> sPools = new HashMap<String, OracleConnectionPool>();
+	
+	private String iUrl, iUser, iPassword;
+	private int iMaxSize, iStatementCacheSize, iValidationTimeout;
+	private long iMaxIdleTime, iMaxWait;
+	private LinkedList<PooledConnection> iIdle = new LinkedList<PooledConnection>();
+	private int iSize = 0;
+	private boolean iClosed = false;
+	
+	protected OracleConnectionPool(String url, String user, String password) {
+		iUrl = url; iUser = user; iPassword = password;
+		iMaxSize = Integer.parseInt(ApplicationProperties.getProperty("banner.connectionPool.maxSize", "5"));
+		iMaxIdleTime = 1000l * Integer.parseInt(ApplicationProperties.getProperty("banner.connectionPool.maxIdleTime", "300"));
+		iMaxWait = 1000l * Integer.parseInt(ApplicationProperties.getProperty("banner.connectionPool.maxWait", "60"));
+		iValidationTimeout = Integer.parseInt(ApplicationProperties.getProperty("banner.connectionPool.validationTimeout", "5"));
+		iStatementCacheSize = Integer.parseInt(ApplicationProperties.getProperty("banner.connectionPool.statementCacheSize", "10"));
+	}
+	
+	/**
+	 * Is connection pooling enabled (property banner.connectionPool.enabled, defaults to true)
+	 */
+	public static boolean isEnabled() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("banner.connectionPool.enabled", "true"));
+	}
+	
+	/**
+	 * Returns the pool for the given connection URL and user, the pool is created if it does not exist yet.
+	 */
+	public static synchronized OracleConnectionPool getPool(String url, String user, String password) {
+		String key = user + "@" + url;
+		OracleConnectionPool pool = sPools.get(key);
+		if (pool == null) {
+			pool = new OracleConnectionPool(url, user, password);
+			sPools.put(key, pool);
+		}
+		return pool;
+	}
+	
+	/**
+	 * Close the connections of all the pools that have been idle for more than banner.connectionPool.maxIdleTime seconds.
+	 * Called periodically from the queue processor loop, so that idle connections are closed also while no calls are made.
+	 */
+	public static synchronized void evictIdleConnections() {
+		for (OracleConnectionPool pool: sPools.values())
+			pool.evictIdle();
+	}
+	
+	/**
+	 * Close all idle connections of all the pools. Connections that are in use are closed when returned
+	 * (the pools are marked as closed, see {@link #release(PooledConnection)}).
+	 */
+	public static synchronized void closeAll() {
+		for (OracleConnectionPool pool: sPools.values())
+			pool.close();
+		sPools.clear();
+	}
+	
+	/**
+	 * Borrow a connection from the pool. A new connection is opened when there is no idle connection and
+	 * the pool is not full, otherwise the call waits until a connection is returned.
+	 */
+	public PooledConnection borrow() throws SQLException {
+		long timeout = System.currentTimeMillis() + iMaxWait;
+		while (true) {
+			PooledConnection connection = null;
+			synchronized (this) {
+				evictIdle();
+				if (!iIdle.isEmpty()) {
+					connection = iIdle.removeFirst();
+				} else if (iSize < iMaxSize) {
+					iSize ++;
+				} else {
+					long wait = timeout - System.currentTimeMillis();
+					if (wait <= 0)
+						throw new SQLException("Timeout waiting for a connection to " + iUrl + " (all " + iMaxSize + " connections are in use).");
+					try {
+						wait(wait);
+					} catch (InterruptedException e) {
+						throw new SQLException("Interrupted while waiting for a connection to " + iUrl + ".", e);
+					}
+					continue;
+				}
+			}
+			if (connection == null) {
+				try {
+					return new PooledConnection(DriverManager.getConnection(iUrl, iUser, iPassword));
+				} catch (SQLException ex) {
+					synchronized (this) { iSize --; notify(); }
+					Debug.info("Failed to establish a connection to: " + iUrl);
+					throw ex;
+				}
+			}
+			if (connection.isValid(iValidationTimeout)) return connection;
+			Debug.info("Discarding invalid connection to: " + iUrl);
+			discard(connection);
+		}
+	}
+	
+	/**
+	 * Return a connection to the pool. A connection that is no longer valid is closed, and so is
+	 * a connection that is returned after the pool has been closed (see {@link #closeAll()}).
+	 */
+	public void release(PooledConnection connection) {
+		if (!connection.isClosed()) {
+			synchronized (this) {
+				if (!iClosed) {
+					connection.touch();
+					iIdle.addFirst(connection);
+					notify();
+					return;
+				}
+			}
+		}
+		discard(connection);
+	}
+	
+	/**
+	 * Close the given connection and make room for a new one.
+	 */
+	public void discard(PooledConnection connection) {
+		connection.close();
+		synchronized (this) {
+			iSize --;
+			notify();
+		}
+	}
+	
+	/**
+	 * Returns true if the pool has been closed, connections returned to a closed pool are closed.
+	 */
+	public synchronized boolean isClosed() {
+		return iClosed;
+	}
+	
+	protected synchronized void close() {
+		iClosed = true;
+		for (PooledConnection connection: iIdle) {
+			connection.close();
+			iSize --;
+		}
+		iIdle.clear();
+	}
+	
+	protected synchronized void evictIdle() {
+		long now = System.currentTimeMillis();
+		for (Iterator<PooledConnection> i = iIdle.iterator(); i.hasNext(); ) {
+			PooledConnection connection = i.next();
+			if (now - connection.getLastUsed() > iMaxIdleTime) {
+				i.remove();
+				connection.close();
+				iSize --;
+			}
+		}
+	}
+	
+	/**
+	 * A pooled connection with its cache of callable statements.
+	 */
+	public class PooledConnection {
+		private Connection iConnection;
+		private long iLastUsed;
+		private Map<String, CallableStatement> iStatements = new LinkedHashMap<String, CallableStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CallableStatement> eldest) {
+				if (size() > iStatementCacheSize) {
+					closeStatement(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		
+		PooledConnection(Connection connection) {
+			iConnection = connection;
+			iLastUsed = System.currentTimeMillis();
+		}
+		
+		public Connection getConnection() { return iConnection; }
+		
+		public long getLastUsed() { return iLastUsed; }
+		
+		void touch() { iLastUsed = System.currentTimeMillis(); }
+		
+		/**
+		 * Returns a prepared callable statement for the given call, the statement is taken from the cache when available.
+		 * Cached statements are not to be closed by the caller.
+		 */
+		public CallableStatement prepareCall(String call) throws SQLException {
+			CallableStatement statement = iStatements.get(call);
+			if (statement != null) {
+				if (!statement.isClosed()) {
+					statement.clearParameters();
+					return statement;
+				}
+				iStatements.remove(call);
+			}
+			statement = iConnection.prepareCall(call);
+			if (iStatementCacheSize > 0)
+				iStatements.put(call, statement);
+			return statement;
+		}
+		
+		/**
+		 * Returns true if the given statement is kept in the statement cache of this connection.
+		 */
+		public boolean isCached(CallableStatement statement) {
+			return iStatements.containsValue(statement);
+		}
+		
+		boolean isValid(int timeout) {
+			try {
+				return !iConnection.isClosed() && iConnection.isValid(timeout);
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+		
+		boolean isClosed() {
+			try {
+				return iConnection.isClosed();
+			} catch (SQLException e) {
+				return true;
+			}
+		}
+		
+		void close() {
+			for (CallableStatement statement: iStatements.values())
+				closeStatement(statement);
+			iStatements.clear();
+			try {
+				iConnection.close();
+			} catch (SQLException e) {
+				Debug.info("Failed to close a connection to: " + iUrl + " (" + e.getMessage() + ")");
+			}
+		}
+		
+		private void closeStatement(CallableStatement statement) {
+			try {
+				statement.close();
+			} catch (SQLException e) {}
+		}
+	}
+}
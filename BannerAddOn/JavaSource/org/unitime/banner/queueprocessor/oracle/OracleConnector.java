@@ -26,21 +26,28 @@ import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.unitime.banner.dataexchange.SendBannerMessage;
+import org.unitime.banner.interfaces.BannerTransportInterface;
+import org.unitime.banner.queueprocessor.metrics.QueueMetrics;
 import org.unitime.banner.queueprocessor.util.ClobTools;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.ApplicationProperties;
 /*
  * based on code contributed by Aaron Tyler and Dagmar Murray
  */
-public class OracleConnector {
+public class OracleConnector implements BannerTransportInterface {
 
-	private String driver = "oracle.jdbc.driver.OracleDriver";
+	private static String driver = "oracle.jdbc.driver.OracleDriver";
 	private String url = "jdbc:oracle:thin:@";
 	private Connection conn = null;
+	private OracleConnectionPool pool = null;
+	private OracleConnectionPool.PooledConnection pooledConn = null;
+	private List<Clob> clobs = new ArrayList<Clob>();
 
 	public OracleConnector(String host, String db, String port, String user,
 			String password) throws ClassNotFoundException, SQLException {
@@ -60,6 +67,45 @@ public class OracleConnector {
 			throw ex;
 		}
 	}
+	
+	private OracleConnector(OracleConnectionPool pool, OracleConnectionPool.PooledConnection pooledConn) {
+		this.pool = pool;
+		this.pooledConn = pooledConn;
+		this.conn = pooledConn.getConnection();
+	}
+	
+	/**
+	 * Returns a connector that uses a connection borrowed from the connection pool (see {@link OracleConnectionPool}).
+	 * The connection is returned to the pool by calling {@link OracleConnector#cleanup()}.
+	 */
+	public static OracleConnector getPooledConnector(String host, String db, String port, String user,
+			String password) throws ClassNotFoundException, SQLException {
+		String url = "jdbc:oracle:thin:@" + host + ":" + port + ":" + db;
+		try {
+			Class.forName(driver);
+		} catch (ClassNotFoundException ex) {
+			Debug.info("Failed to find driver class: " + driver);
+			throw ex;
+		}
+		OracleConnectionPool pool = OracleConnectionPool.getPool(url, user, password);
+		return new OracleConnector(pool, pool.borrow());
+	}
+	
+	private CallableStatement prepareCall(String call) throws SQLException {
+		if (pooledConn != null)
+			return pooledConn.prepareCall(call);
+		return conn.prepareCall(call);
+	}
+	
+	private void closeCall(CallableStatement stmt) throws SQLException {
+		if (pooledConn == null || !pooledConn.isCached(stmt))
+			stmt.close();
+	}
+	
+	private Clob track(Clob clob) {
+		if (clob != null) clobs.add(clob);
+		return clob;
+	}
 
 	private void outputStandardDebugInfo(Exception e){
 		Debug.info("******************************************************************************************************");
@@ -127,21 +173,24 @@ public class OracleConnector {
 	
 	}
 	
+	@Override
 	public Clob processUnitimePacket(Document in_clob) throws SQLException,
 			IOException {
 
 		CallableStatement stmt = null;
 		try {
-			stmt = conn.prepareCall(getBannerStoredProcedureCall());
+			stmt = prepareCall(getBannerStoredProcedureCall());
 		} catch (Exception e1) {
 			outputStandardDebugInfo(e1);
 		}
 
+		long t0 = QueueMetrics.start();
 		try {
-		stmt.setClob(1, ClobTools.documentToCLOB(in_clob, conn));
+		stmt.setClob(1, track(ClobTools.documentToCLOB(in_clob, conn)));
 		} catch(Exception ex) {
 			outputStandardDebugInfo(ex);
 		}
+		QueueMetrics.stop(QueueMetrics.STAGE_BUILD, t0);
 		try {
 			stmt.registerOutParameter(2, java.sql.Types.CLOB);
 			stmt.registerOutParameter(3, java.sql.Types.CLOB);			
@@ -149,21 +198,26 @@ public class OracleConnector {
 			outputStandardDebugInfo(e);
 		}
 
+		long t1 = QueueMetrics.start();
 		try {
 			stmt.execute();			
 		} catch (Exception e) {
 			outputStandardDebugInfo(e);
 		}
+		QueueMetrics.stop(QueueMetrics.STAGE_CALL, t1);
 
-		Clob out_clob = stmt.getClob(2);
-		Clob out_sync_clob = stmt.getClob(3);
+		Clob out_clob = track(stmt.getClob(2));
+		Clob out_sync_clob = track(stmt.getClob(3));
 
-		stmt.close();
+		closeCall(stmt);
 
 		if(out_sync_clob != null) {
 			//Put the "Sync" XML into the IntegrationQueueOut table
+	        long t2 = QueueMetrics.start();
 	        try {
 		        SendBannerMessage.writeOutMessage(ClobTools.clobToDocument(out_sync_clob));
+		        QueueMetrics.stop(QueueMetrics.STAGE_SYNC, t2);
+		        QueueMetrics.increment(QueueMetrics.COUNTER_SYNC_MESSAGES);
 			} catch (DocumentException e) {
 				Debug.info("******************************************************************************************************");
 				Debug.info("** Error in SendBannerMessage: sending sync CLOB *");
@@ -178,12 +232,13 @@ public class OracleConnector {
 	}
 
 	
+	@Override
 	public Clob requestEnrollmentChanges(Document request) throws SQLException,
 	IOException {
 
 		CallableStatement stmt = null;
 		try {
-			stmt = conn.prepareCall(getBannerStudentUpdatesStoredProcedureCall());
+			stmt = prepareCall(getBannerStudentUpdatesStoredProcedureCall());
 		} catch (Exception e1) {
 			outputStandardStudentUpdateDebugInfo(e1);
 		}
@@ -196,7 +251,7 @@ public class OracleConnector {
 		
 		try {
 			if (stmt.getParameterMetaData().getParameterCount() == 2) {
-				stmt.setClob(2, request == null ? null : ClobTools.documentToCLOB(request, conn));
+				stmt.setClob(2, request == null ? null : track(ClobTools.documentToCLOB(request, conn)));
 			}
 		} catch(Exception ex) {
 			outputStandardStudentUpdateDebugInfo(ex);
@@ -208,14 +263,15 @@ public class OracleConnector {
 			outputStandardStudentUpdateDebugInfo(e);
 		}
 		
-		Clob out_clob = stmt.getClob(1);
+		Clob out_clob = track(stmt.getClob(1));
 		
-		stmt.close();
+		closeCall(stmt);
 				
 		return out_clob;
 		
 	}
 
+	@Override
 	public String validateCrnWithBanner(String bannerTermCode, Integer crn) throws SQLException  {
 
 		CallableStatement stmt = null;
@@ -224,7 +280,7 @@ public class OracleConnector {
 			if (crnValidatorStoredProcedureCall == null){
 				return("N");
 			}
-			stmt = conn.prepareCall(crnValidatorStoredProcedureCall);
+			stmt = prepareCall(crnValidatorStoredProcedureCall);
 		} catch (Exception e1) {
 			outputStandardCrnValidatorDebugInfo(e1);
 		}
@@ -246,15 +302,28 @@ public class OracleConnector {
 		
 		String result = stmt.getString(3);
 		
-		stmt.close();
+		closeCall(stmt);
 				
 		return result;
 		
 	}
 
+	@Override
 	public void cleanup() throws SQLException {
+		
+		// Free temporary LOBs, so that they do not pile up on a pooled connection
+		for (Clob clob: clobs) {
+			try {
+				clob.free();
+			} catch (Exception e) {}
+		}
+		clobs.clear();
 
-		if (conn != null)
+		if (pooledConn != null) {
+			pool.release(pooledConn);
+			pooledConn = null;
+			conn = null;
+		} else if (conn != null)
 			conn.close();
 	}
 	
@@ -0,0 +1,434 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.queueprocessor.simulator;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dom4j.Attribute;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.unitime.banner.dataexchange.BannerStudentEnrollmentMessage;
+import org.unitime.banner.util.MessageDateFormat;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Embedded simulator of the Banner side of the interface (sz_unitime.p_process_packet, p_request_student_updates, and p_validate_crn),
+ * used by the queue processor through {@link BannerSimulatorTransport} when Banner is not available (e.g., for load testing, see org.unitime.banner.benchmark.BannerLoadTest).
+ * The simulator keeps the sections (by term and CRN) and the cross-lists it has received in memory, and answers each SCHEDULE packet with
+ * a SCHEDULE_RESPONSE with a SUCCESS, WARNING, ERROR, or AUDIT message for each section and cross-list, the way Banner does.
+ * A call takes banner.simulator.latency milliseconds plus banner.simulator.sectionLatency milliseconds for each section (randomized by
+ * +/- banner.simulator.jitter), fails with an SQLException with probability banner.simulator.failureRate, a section is rejected with
+ * probability banner.simulator.errorRate, and a section is sent back in the out_sync packet with probability banner.simulator.syncRate.
+ * Each student update request returns banner.simulator.enrollmentChanges random enrollment changes of banner.simulator.students students.
+ */
+public class BannerSimulator {
+	private static BannerSimulator sInstance = null;
+	
+	private final Random iRandom;
+	private final long iLatency, iSectionLatency;
+	private final double iJitter, iFailureRate, iErrorRate, iSyncRate;
+	private final int iEnrollmentChanges, iStudents;
+	
+	private final Map<String, Map<Integer, Section>> iSections = new HashMap<String, Map<Integer, Section>>();
+	private final Map<String, Map<String, TreeSet<Integer>>> iCrossLists = new HashMap<String, Map<String, TreeSet<Integer>>>();
+	private int iSeqNo = 0;
+	
+	private final AtomicLong iPackets = new AtomicLong(0), iSectionMessages = new AtomicLong(0), iErrors = new AtomicLong(0),
+			iFailures = new AtomicLong(0), iSyncPackets = new AtomicLong(0), iStudentUpdates = new AtomicLong(0);
+	
+	public BannerSimulator(long seed, long latency, long sectionLatency, double jitter, double failureRate, double errorRate, double syncRate, int enrollmentChanges, int students) {
+		iRandom = new Random(seed);
+		iLatency = latency;
+		iSectionLatency = sectionLatency;
+		iJitter = jitter;
+		iFailureRate = failureRate;
+		iErrorRate = errorRate;
+		iSyncRate = syncRate;
+		iEnrollmentChanges = enrollmentChanges;
+		iStudents = students;
+	}
+	
+	/**
+	 * Simulator shared by all the transports of this process, configured from the banner.simulator.* properties
+	 */
+	public static synchronized BannerSimulator getInstance() {
+		if (sInstance == null) {
+			sInstance = new BannerSimulator(
+					Long.parseLong(ApplicationProperties.getProperty("banner.simulator.seed", "1")),
+					Long.parseLong(ApplicationProperties.getProperty("banner.simulator.latency", "50")),
+					Long.parseLong(ApplicationProperties.getProperty("banner.simulator.sectionLatency", "5")),
+					Double.parseDouble(ApplicationProperties.getProperty("banner.simulator.jitter", "0.2")),
+					Double.parseDouble(ApplicationProperties.getProperty("banner.simulator.failureRate", "0.0")),
+					Double.parseDouble(ApplicationProperties.getProperty("banner.simulator.errorRate", "0.01")),
+					Double.parseDouble(ApplicationProperties.getProperty("banner.simulator.syncRate", "0.0")),
+					Integer.parseInt(ApplicationProperties.getProperty("banner.simulator.enrollmentChanges", "0")),
+					Integer.parseInt(ApplicationProperties.getProperty("banner.simulator.students", "1000")));
+		}
+		return sInstance;
+	}
+	
+	/**
+	 * Simulated sz_unitime.p_process_packet(in_packet, out_response, out_sync)
+	 */
+	@SuppressWarnings("unchecked")
+	public Result processPacket(Document packet) throws SQLException {
+		Element root = packet.getRootElement();
+		int size = root.elements("SECTION").size() + root.elements("CROSSLIST").size();
+		delay(iLatency + size * iSectionLatency);
+		failIfNeeded();
+		iPackets.incrementAndGet();
+		
+		String packetId = root.attributeValue("PACKET_ID");
+		String termCode = root.attributeValue("TERM_CODE");
+		boolean audit = "AUDIT".equals(root.attributeValue("ACTION"));
+		
+		Document response = DocumentHelper.createDocument();
+		Element responseRoot = response.addElement("SCHEDULE_RESPONSE");
+		responseRoot.addAttribute("PACKET_ID", packetId);
+		responseRoot.addAttribute("TERM_CODE", termCode);
+		
+		Document sync = null;
+		synchronized (this) {
+			for (Element section: (List<Element>)root.elements("SECTION")) {
+				boolean resend = processSection(responseRoot, packetId, termCode, audit, section);
+				if (resend) {
+					if (sync == null) {
+						sync = DocumentHelper.createDocument();
+						Element syncRoot = sync.addElement("SCHEDULE");
+						for (Attribute attribute: (List<Attribute>)root.attributes())
+							syncRoot.addAttribute(attribute.getName(), attribute.getValue());
+						syncRoot.addAttribute("ORIGIN", "Banner");
+					}
+					sync.getRootElement().add(section.createCopy());
+				}
+			}
+			for (Element crossList: (List<Element>)root.elements("CROSSLIST")) {
+				processCrossList(responseRoot, packetId, termCode, audit, crossList);
+			}
+		}
+		if (sync != null) iSyncPackets.incrementAndGet();
+		return new Result(response, sync);
+	}
+	
+	/**
+	 * Process one SECTION element, returns true if the section is to be sent back in the out_sync packet
+	 */
+	protected boolean processSection(Element responseRoot, String packetId, String termCode, boolean audit, Element sectionElement) {
+		String action = sectionElement.attributeValue("ACTION", "UPDATE");
+		Section update = new Section(sectionElement);
+		Integer crn = null;
+		try {
+			crn = Integer.valueOf(sectionElement.attributeValue("CRN"));
+		} catch (NumberFormatException e) {
+			message(responseRoot, packetId, termCode, update, null, action, "ERROR", "CRN is missing or not numeric.");
+			return false;
+		}
+		
+		Map<Integer, Section> sections = iSections.get(termCode);
+		if (sections == null) {
+			sections = new HashMap<Integer, Section>();
+			iSections.put(termCode, sections);
+		}
+		Section section = sections.get(crn);
+		
+		if (audit || "AUDIT".equals(action)) {
+			if (section == null) {
+				message(responseRoot, packetId, termCode, update, crn, action, "AUDIT", "Section does not exist in Banner.");
+			} else {
+				for (String difference: section.compare(update))
+					message(responseRoot, packetId, termCode, update, crn, action, "AUDIT", difference);
+			}
+			return false;
+		}
+		
+		if (iRandom.nextDouble() < iErrorRate) {
+			message(responseRoot, packetId, termCode, update, crn, action, "ERROR", "Simulated error: the section could not be saved.");
+			return false;
+		}
+		
+		if ("DELETE".equals(action)) {
+			if (section == null) {
+				message(responseRoot, packetId, termCode, update, crn, action, "WARNING", "Section does not exist in Banner.");
+			} else {
+				sections.remove(crn);
+				message(responseRoot, packetId, termCode, section, crn, action, "SUCCESS", "Section deleted.");
+			}
+			return false;
+		}
+		
+		if (section != null && section.getExternalId() != null && update.getExternalId() != null && !section.getExternalId().equals(update.getExternalId())) {
+			message(responseRoot, packetId, termCode, update, crn, action, "ERROR", "CRN " + crn + " is already used by a different section (" + section.getExternalId() + ").");
+			return false;
+		}
+		sections.put(crn, update);
+		message(responseRoot, packetId, termCode, update, crn, action, "SUCCESS", section == null ? "Section created." : "Section updated.");
+		return iRandom.nextDouble() < iSyncRate;
+	}
+	
+	/**
+	 * Process one CROSSLIST element
+	 */
+	@SuppressWarnings("unchecked")
+	protected void processCrossList(Element responseRoot, String packetId, String termCode, boolean audit, Element crossListElement) {
+		String action = crossListElement.attributeValue("ACTION", "UPDATE");
+		String group = crossListElement.attributeValue("GROUP");
+		TreeSet<Integer> members = new TreeSet<Integer>();
+		for (Element member: (List<Element>)crossListElement.elements("MEMBER")) {
+			try {
+				members.add(Integer.valueOf(member.attributeValue("CRN")));
+			} catch (NumberFormatException e) {}
+		}
+		
+		Map<String, TreeSet<Integer>> crossLists = iCrossLists.get(termCode);
+		if (crossLists == null) {
+			crossLists = new HashMap<String, TreeSet<Integer>>();
+			iCrossLists.put(termCode, crossLists);
+		}
+		TreeSet<Integer> current = crossLists.get(group);
+		Element message;
+		
+		if (audit || "AUDIT".equals(action)) {
+			if (current == null)
+				message = message(responseRoot, packetId, termCode, null, null, action, "AUDIT", "Cross-list does not exist in Banner.");
+			else if (!current.equals(members))
+				message = message(responseRoot, packetId, termCode, null, null, action, "AUDIT", "Cross-list members differ: Banner has " + current + ", UniTime has " + members + ".");
+			else
+				return;
+		} else if ("DELETE".equals(action)) {
+			if (current == null) {
+				message = message(responseRoot, packetId, termCode, null, null, action, "WARNING", "Cross-list does not exist in Banner.");
+			} else {
+				crossLists.remove(group);
+				message = message(responseRoot, packetId, termCode, null, null, action, "SUCCESS", "Cross-list deleted.");
+			}
+		} else {
+			Map<Integer, Section> sections = iSections.get(termCode);
+			TreeSet<Integer> missing = new TreeSet<Integer>();
+			for (Integer crn: members)
+				if (sections == null || !sections.containsKey(crn)) missing.add(crn);
+			crossLists.put(group, members);
+			if (missing.isEmpty())
+				message = message(responseRoot, packetId, termCode, null, null, action, "SUCCESS", current == null ? "Cross-list created." : "Cross-list updated.");
+			else
+				message = message(responseRoot, packetId, termCode, null, null, action, "WARNING", "Cross-list saved, but CRNs " + missing + " do not exist in Banner.");
+		}
+		message.addAttribute("XLST_GROUP", group);
+		message.addAttribute("EXTERNAL_ID", crossListElement.attributeValue("EXTERNAL_ID"));
+	}
+	
+	private Element message(Element responseRoot, String packetId, String termCode, Section section, Integer crn, String action, String type, String text) {
+		Element message = responseRoot.addElement("MESSAGE");
+		message.addAttribute("PACKET_ID", packetId);
+		message.addAttribute("SEQNO", String.valueOf(++iSeqNo));
+		message.addAttribute("ACTIVITY_DATE", MessageDateFormat.formatDateTime(new Date()));
+		message.addAttribute("TERM_CODE", termCode);
+		if (crn != null)
+			message.addAttribute("CRN", crn.toString());
+		if (section != null) {
+			message.addAttribute("SUBJ_CODE", section.getSubject());
+			message.addAttribute("CRSE_NUMB", section.getCourseNumber());
+			message.addAttribute("SEQ_NUMB", section.getSectionNumber());
+			message.addAttribute("EXTERNAL_ID", section.getExternalId());
+		}
+		message.addAttribute("ACTION", action);
+		message.addAttribute("TYPE", type);
+		message.addAttribute("MESSAGE", text);
+		iSectionMessages.incrementAndGet();
+		if ("ERROR".equals(type)) iErrors.incrementAndGet();
+		return message;
+	}
+	
+	/**
+	 * Simulated sz_unitime.p_request_student_updates(out_response, in_request): returns an enterprise message with random
+	 * enrollment changes in the sections the simulator knows about
+	 */
+	public Document requestEnrollmentChanges(Document request) throws SQLException {
+		delay(iLatency);
+		failIfNeeded();
+		iStudentUpdates.incrementAndGet();
+		
+		Document document = DocumentHelper.createDocument();
+		Element root = document.addElement("enterprise");
+		List<String> crnTerms = new ArrayList<String>();
+		synchronized (this) {
+			for (Map.Entry<String, Map<Integer, Section>> term: iSections.entrySet())
+				for (Integer crn: term.getValue().keySet())
+					crnTerms.add(crn + "." + term.getKey());
+		}
+		if (iEnrollmentChanges <= 0 || crnTerms.isEmpty()) return document;
+		
+		Element properties = root.addElement("properties");
+		properties.addElement("datasource").setText(BannerStudentEnrollmentMessage.getExpectedDataSource());
+		properties.addElement("datetime").setText(MessageDateFormat.formatDateTime(new Date()));
+		Map<String, Element> memberships = new LinkedHashMap<String, Element>();
+		for (int i = 0; i < iEnrollmentChanges; i++) {
+			String crnTerm = crnTerms.get(iRandom.nextInt(crnTerms.size()));
+			Element membership = memberships.get(crnTerm);
+			if (membership == null) {
+				membership = root.addElement("membership");
+				Element sourceId = membership.addElement("sourceid");
+				sourceId.addElement("source").setText(BannerStudentEnrollmentMessage.getExpectedSource());
+				sourceId.addElement("id").setText(crnTerm);
+				memberships.put(crnTerm, membership);
+			}
+			Element member = membership.addElement("member");
+			Element sourceId = member.addElement("sourceid");
+			sourceId.addElement("source").setText(BannerStudentEnrollmentMessage.getExpectedSource());
+			sourceId.addElement("id").setText(String.valueOf(100000000 + iRandom.nextInt(Math.max(1, iStudents))));
+			member.addElement("idtype").setText("1");
+			member.addElement("role").addAttribute("recstatus", iRandom.nextDouble() < 0.2 ? "3" : "1");
+		}
+		return document;
+	}
+	
+	/**
+	 * Simulated sz_unitime.p_validate_crn(in_term, in_crn, out_used)
+	 */
+	public String validateCrn(String termCode, Integer crn) throws SQLException {
+		delay(iLatency);
+		failIfNeeded();
+		synchronized (this) {
+			Map<Integer, Section> sections = iSections.get(termCode);
+			return (sections != null && sections.containsKey(crn) ? "Y" : "N");
+		}
+	}
+	
+	private void delay(long millis) {
+		if (millis <= 0) return;
+		long delay = Math.round(millis * (1.0 + iJitter * (2.0 * iRandom.nextDouble() - 1.0)));
+		if (delay <= 0) return;
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private void failIfNeeded() throws SQLException {
+		if (iFailureRate > 0.0 && iRandom.nextDouble() < iFailureRate) {
+			iFailures.incrementAndGet();
+			throw new SQLException("Simulated failure: the connection to Banner has been lost.", "08006");
+		}
+	}
+	
+	/**
+	 * Forget all sections and cross-lists and reset the counters
+	 */
+	public synchronized void reset() {
+		iSections.clear();
+		iCrossLists.clear();
+		iSeqNo = 0;
+		iPackets.set(0); iSectionMessages.set(0); iErrors.set(0); iFailures.set(0); iSyncPackets.set(0); iStudentUpdates.set(0);
+	}
+	
+	/** Number of sections the simulator knows about */
+	public synchronized int getNrSections() {
+		int count = 0;
+		for (Map<Integer, Section> sections: iSections.values())
+			count += sections.size();
+		return count;
+	}
+	/** Number of processed SCHEDULE packets */
+	public long getNrPackets() { return iPackets.get(); }
+	/** Number of response messages */
+	public long getNrMessages() { return iSectionMessages.get(); }
+	/** Number of ERROR response messages */
+	public long getNrErrors() { return iErrors.get(); }
+	/** Number of failed calls */
+	public long getNrFailures() { return iFailures.get(); }
+	/** Number of out_sync packets */
+	public long getNrSyncPackets() { return iSyncPackets.get(); }
+	/** Number of student update requests */
+	public long getNrStudentUpdates() { return iStudentUpdates.get(); }
+	
+	@Override
+	public String toString() {
+		return getNrPackets() + " packets, " + getNrMessages() + " messages (" + getNrErrors() + " errors), " + getNrFailures() + " failed calls, " +
+				getNrSyncPackets() + " sync packets, " + getNrStudentUpdates() + " student update requests, " + getNrSections() + " sections";
+	}
+	
+	/**
+	 * Outputs of a simulated p_process_packet call
+	 */
+	public static class Result {
+		private final Document iResponse, iSync;
+		
+		public Result(Document response, Document sync) {
+			iResponse = response; iSync = sync;
+		}
+		
+		/** out_response: the SCHEDULE_RESPONSE document */
+		public Document getResponse() { return iResponse; }
+		/** out_sync: SCHEDULE packet to be sent back to Banner, null if there is none */
+		public Document getSync() { return iSync; }
+	}
+	
+	/**
+	 * Section as stored in the simulator
+	 */
+	protected static class Section {
+		private final String iExternalId, iSubject, iCourseNumber, iSectionNumber, iMaxEnrl, iCredit;
+		
+		public Section(Element sectionElement) {
+			iExternalId = sectionElement.attributeValue("EXTERNAL_ID");
+			iSubject = sectionElement.attributeValue("SUBJ_CODE");
+			iCourseNumber = sectionElement.attributeValue("CRSE_NUMB");
+			iSectionNumber = sectionElement.attributeValue("ID");
+			iMaxEnrl = sectionElement.attributeValue("MAX_ENRL");
+			iCredit = sectionElement.attributeValue("CREDIT_HRS");
+		}
+		
+		public String getExternalId() { return iExternalId; }
+		public String getSubject() { return iSubject; }
+		public String getCourseNumber() { return iCourseNumber; }
+		public String getSectionNumber() { return iSectionNumber; }
+		public String getMaxEnrl() { return iMaxEnrl; }
+		public String getCredit() { return iCredit; }
+		
+		/**
+		 * Differences between this section (as stored in Banner) and the given one (as sent by UniTime)
+		 */
+		public List<String> compare(Section section) {
+			List<String> differences = new ArrayList<String>();
+			compare(differences, "Subject", iSubject, section.getSubject());
+			compare(differences, "Course number", iCourseNumber, section.getCourseNumber());
+			compare(differences, "Section number", iSectionNumber, section.getSectionNumber());
+			compare(differences, "Maximum enrollment", iMaxEnrl, section.getMaxEnrl());
+			compare(differences, "Credit hours", iCredit, section.getCredit());
+			return differences;
+		}
+		
+		private static void compare(List<String> differences, String name, String banner, String unitime) {
+			if (unitime == null || (banner == null ? "" : banner).equals(unitime)) return;
+			differences.add(name + " differs: Banner has " + (banner == null ? "" : banner) + ", UniTime has " + unitime + ".");
+		}
+	}
+}
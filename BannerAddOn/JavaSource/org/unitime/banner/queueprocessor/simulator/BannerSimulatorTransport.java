@@ -0,0 +1,73 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.queueprocessor.simulator;
+
+import java.io.IOException;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+import org.dom4j.Document;
+import org.unitime.banner.dataexchange.SendBannerMessage;
+import org.unitime.banner.interfaces.BannerTransportInterface;
+import org.unitime.banner.queueprocessor.metrics.QueueMetrics;
+import org.unitime.banner.queueprocessor.util.ClobTools;
+
+/**
+ * Transport that calls the embedded {@link BannerSimulator} instead of Banner. To use it, set
+ * banner.transport.class=org.unitime.banner.queueprocessor.simulator.BannerSimulatorTransport
+ * (no connection to Banner is needed, the banner.host and related properties are ignored).
+ */
+public class BannerSimulatorTransport implements BannerTransportInterface {
+	
+	public BannerSimulatorTransport() {}
+
+	@Override
+	public Clob processUnitimePacket(Document in_clob) throws SQLException, IOException {
+		long t1 = QueueMetrics.start();
+		BannerSimulator.Result result = BannerSimulator.getInstance().processPacket(in_clob);
+		QueueMetrics.stop(QueueMetrics.STAGE_CALL, t1);
+		
+		if (result.getSync() != null) {
+			//Put the "Sync" XML into the IntegrationQueueOut table
+			long t2 = QueueMetrics.start();
+			SendBannerMessage.writeOutMessage(result.getSync());
+			QueueMetrics.stop(QueueMetrics.STAGE_SYNC, t2);
+			QueueMetrics.increment(QueueMetrics.COUNTER_SYNC_MESSAGES);
+		}
+		
+		return ClobTools.documentToCLOB(result.getResponse());
+	}
+
+	@Override
+	public Clob requestEnrollmentChanges(Document request) throws SQLException, IOException {
+		return ClobTools.documentToCLOB(BannerSimulator.getInstance().requestEnrollmentChanges(request));
+	}
+
+	@Override
+	public String validateCrnWithBanner(String bannerTermCode, Integer crn) throws SQLException {
+		return BannerSimulator.getInstance().validateCrn(bannerTermCode, crn);
+	}
+
+	@Override
+	public void cleanup() throws SQLException {
+	}
+
+}
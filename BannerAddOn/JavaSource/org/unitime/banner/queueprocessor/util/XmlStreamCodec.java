@@ -0,0 +1,198 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.queueprocessor.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.xml.sax.SAXException;
+
+/**
+ * Streaming counterpart of {@link ClobTools}. Large packets (e.g., an audit with tens of thousands of SECTION elements)
+ * and their responses do not need to be held in memory as a whole: the {@link PacketWriter} writes the root element and
+ * then each child element as soon as it is created, and {@link XmlStreamCodec#readElements(Reader, String, ElementHandler)}
+ * pull-parses the input and passes the child elements of the root to a handler one by one.
+ */
+public class XmlStreamCodec {
+	
+	/**
+	 * Handler of the elements read by {@link XmlStreamCodec#readElements(Reader, String, ElementHandler)}.
+	 */
+	public static interface ElementHandler {
+		/**
+		 * Called for each matching child element of the root. The element is detached and it is not referenced by the codec afterwards.
+		 */
+		public void handle(Element element) throws Exception;
+	}
+	
+	protected static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		return factory;
+	}
+	
+	/**
+	 * Pull-parse the given input. Each child element of the root with the given name (all child elements when the name is null)
+	 * is read into a detached element (including its attributes, text and nested elements) and passed to the handler.
+	 * Other child elements of the root are skipped.
+	 * @return root element with its attributes, but without any content (null if the input contains no element)
+	 */
+	public static Element readElements(Reader reader, String elementName, ElementHandler handler) throws Exception {
+		XMLStreamReader xml = createInputFactory().createXMLStreamReader(reader);
+		try {
+			Element root = null;
+			int depth = 0;
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth ++;
+					if (depth == 1) {
+						root = createElement(xml);
+					} else if (depth == 2 && (elementName == null || elementName.equals(xml.getLocalName()))) {
+						Element element = readElement(xml);
+						depth --;
+						handler.handle(element);
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth --;
+				}
+			}
+			return root;
+		} finally {
+			xml.close();
+		}
+	}
+	
+	/**
+	 * Pull-parse the content of the given CLOB, see {@link XmlStreamCodec#readElements(Reader, String, ElementHandler)}.
+	 */
+	public static Element readElements(Clob clob, String elementName, ElementHandler handler) throws Exception {
+		Reader reader = clob.getCharacterStream();
+		try {
+			return readElements(reader, elementName, handler);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	private static Element createElement(XMLStreamReader xml) {
+		Element element = DocumentHelper.createElement(xml.getLocalName());
+		for (int i = 0; i < xml.getAttributeCount(); i++)
+			element.addAttribute(xml.getAttributeLocalName(i), xml.getAttributeValue(i));
+		return element;
+	}
+	
+	private static Element readElement(XMLStreamReader xml) throws XMLStreamException {
+		Element element = createElement(xml);
+		while (xml.hasNext()) {
+			switch (xml.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				element.add(readElement(xml));
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+				if (!xml.isWhiteSpace()) element.addText(xml.getText());
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				return element;
+			}
+		}
+		return element;
+	}
+	
+	/**
+	 * Create a packet writer that writes into the given CLOB.
+	 */
+	public static PacketWriter createPacketWriter(Clob clob, Element root) throws IOException, SQLException {
+		return new PacketWriter(clob.setCharacterStream(1l), root);
+	}
+	
+	/**
+	 * Writes a packet one child element at a time. The root element (with its attributes) is written first,
+	 * each child element is serialized as soon as it is passed to {@link PacketWriter#write(Element)}, and
+	 * the root is closed by {@link PacketWriter#close()}. The output is the same as the compact format of {@link ClobTools}.
+	 */
+	public static class PacketWriter {
+		private XMLWriter iWriter;
+		private Element iRoot;
+		private int iCount = 0;
+		private boolean iClosed = false;
+		
+		public PacketWriter(Writer writer, Element root) throws IOException {
+			iRoot = root;
+			iWriter = new XMLWriter(writer, OutputFormat.createCompactFormat());
+			try {
+				iWriter.startDocument();
+			} catch (SAXException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			iWriter.writeOpen(iRoot);
+		}
+		
+		/**
+		 * Write a child element of the root. The element can be discarded afterwards.
+		 */
+		public void write(Element element) throws IOException {
+			iWriter.write(element);
+			iCount ++;
+		}
+		
+		/**
+		 * Write all child elements of the given parent and remove them from it, so that the parent
+		 * (e.g., the root of a document that a BannerMessage adds its elements to) can be reused.
+		 */
+		public void writeContent(Element parent) throws IOException {
+			for (Object child: parent.elements())
+				write((Element)child);
+			parent.clearContent();
+		}
+		
+		/**
+		 * Number of child elements written so far
+		 */
+		public int getCount() { return iCount; }
+		
+		/**
+		 * Close the root element and the underlying writer.
+		 */
+		public void close() throws IOException {
+			if (iClosed) return;
+			iClosed = true;
+			iWriter.writeClose(iRoot);
+			iWriter.flush();
+			iWriter.close();
+		}
+	}
+}
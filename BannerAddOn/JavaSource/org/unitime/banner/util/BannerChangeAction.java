@@ -20,6 +20,8 @@
 
 package org.unitime.banner.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -28,6 +30,7 @@ import java.util.Vector;
 
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.unitime.banner.dataexchange.BannerMessageBatch;
 import org.unitime.banner.dataexchange.SendBannerMessage;
 import org.unitime.banner.dataexchange.BannerMessage.BannerMessageAction;
 import org.unitime.banner.model.BannerConfig;
@@ -83,7 +86,9 @@ public class BannerChangeAction implements ExternalClassEditAction,
 	 */
 	public void performExternalClassEditAction(Class_ clazz,
 			Session hibSession) {
-		SendBannerMessage.sendBannerMessage(BannerSection.findBannerSectionsForClass(clazz, hibSession), BannerMessageAction.UPDATE, hibSession);
+		List<BannerSection> bannerSections = BannerSection.findBannerSectionsForClass(clazz, hibSession);
+		BannerCrnIndex.update(bannerSections, hibSession);
+		BannerChangeCoalescer.sendUpdate(clazz.getSchedulingSubpart().getInstrOfferingConfig().getInstructionalOffering().getUniqueId(), bannerSections, hibSession);
 	}
 
 	/* (non-Javadoc)
@@ -93,6 +98,7 @@ public class BannerChangeAction implements ExternalClassEditAction,
 			InstructionalOffering instructionalOffering, Session hibSession) {
 		BannerInstrOffrConfigChangeAction biocca = new BannerInstrOffrConfigChangeAction();
 		biocca.performExternalInstrOffrConfigChangeAction(instructionalOffering, hibSession);
+		BannerCrnIndex.update(instructionalOffering, hibSession);
 	}
 
 	/* (non-Javadoc)
@@ -100,7 +106,9 @@ public class BannerChangeAction implements ExternalClassEditAction,
 	 */
 	public void performExternalCourseOfferingEditAction(
 			InstructionalOffering instructionalOffering, Session hibSession) {
-		SendBannerMessage.sendBannerMessage(BannerSection.findBannerSectionsForInstructionalOffering(instructionalOffering, hibSession), BannerMessageAction.UPDATE, hibSession);
+		List<BannerSection> bannerSections = BannerSection.findBannerSectionsForInstructionalOffering(instructionalOffering, hibSession);
+		BannerCrnIndex.update(bannerSections, hibSession);
+		BannerChangeCoalescer.sendUpdate(instructionalOffering.getUniqueId(), bannerSections, hibSession);
 	}
 
 	/* (non-Javadoc)
@@ -119,6 +127,7 @@ public class BannerChangeAction implements ExternalClassEditAction,
 		if (io != null){
 			BannerInstrOffrConfigChangeAction biocca = new BannerInstrOffrConfigChangeAction();
 			biocca.performExternalInstrOffrConfigChangeAction(io, hibSession);
+			BannerCrnIndex.update(io, hibSession);
 		}
 	}
 
@@ -127,7 +136,7 @@ public class BannerChangeAction implements ExternalClassEditAction,
 	 */
 	public void performExternalInstrOfferingConfigAssignInstructorsAction(
 			InstrOfferingConfig instrOfferingConfig, Session hibSession) {
-		SendBannerMessage.sendBannerMessage(BannerSection.findBannerSectionsForInstrOfferingConfig(instrOfferingConfig, hibSession), BannerMessageAction.UPDATE, hibSession);
+		BannerChangeCoalescer.sendUpdate(instrOfferingConfig.getInstructionalOffering().getUniqueId(), BannerSection.findBannerSectionsForInstrOfferingConfig(instrOfferingConfig, hibSession), hibSession);
 	}
 
 	/* (non-Javadoc)
@@ -161,13 +170,16 @@ public class BannerChangeAction implements ExternalClassEditAction,
 	public void performExternalInstructionalOfferingDeleteAction(
 			InstructionalOffering instructionalOffering, Session hibSession) {
 		if (BannerSession.shouldCreateBannerDataForSession(instructionalOffering.getSession(), hibSession)){
+			List<Long> courseOfferingIds = new ArrayList<Long>();
 			for(Iterator it = instructionalOffering.getCourseOfferings().iterator(); it.hasNext();){
 				CourseOffering co = (CourseOffering) it.next();
+				courseOfferingIds.add(co.getUniqueId());
 				BannerCourse bc = BannerCourse.findBannerCourseForCourseOffering(co.getUniqueId(), hibSession);		
 				if (bc != null){
 					hibSession.delete(bc);
 				}
 			}
+			BannerCrnIndex.remove(courseOfferingIds, instructionalOffering.getSession().getUniqueId(), hibSession);
 		}
 	}
 
@@ -176,7 +188,7 @@ public class BannerChangeAction implements ExternalClassEditAction,
 	 */
 	public void performExternalInstructionalOfferingNotOfferedAction(
 			InstructionalOffering instructionalOffering, Session hibSession) {
-		BannerSection.removeOrphanedBannerSections(hibSession);
+		BannerChangeCoalescer.removeOrphanedBannerSections(instructionalOffering, hibSession);
 	}
 
 	/* (non-Javadoc)
@@ -192,7 +204,9 @@ public class BannerChangeAction implements ExternalClassEditAction,
 	 */
 	public void performExternalSchedulingSubpartEditAction(
 			SchedulingSubpart schedulingSubpart, Session hibSession) {
-		SendBannerMessage.sendBannerMessage(BannerSection.findBannerSectionsForSchedulingSubpart(schedulingSubpart, hibSession), BannerMessageAction.UPDATE, hibSession);
+		List<BannerSection> bannerSections = BannerSection.findBannerSectionsForSchedulingSubpart(schedulingSubpart, hibSession);
+		BannerCrnIndex.update(bannerSections, hibSession);
+		BannerChangeCoalescer.sendUpdate(schedulingSubpart.getInstrOfferingConfig().getInstructionalOffering().getUniqueId(), bannerSections, hibSession);
 	}
 
 	/* (non-Javadoc)
@@ -206,7 +220,8 @@ public class BannerChangeAction implements ExternalClassEditAction,
 		}
 		Vector<BannerSection> bannerSections = new Vector<BannerSection>();
 		bannerSections.addAll(sections);
-		SendBannerMessage.sendBannerMessage(bannerSections, BannerMessageAction.UPDATE, hibSession);
+		BannerCrnIndex.update(bannerSections, hibSession);
+		BannerChangeCoalescer.sendUpdate(bannerSections, hibSession);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -215,16 +230,22 @@ public class BannerChangeAction implements ExternalClassEditAction,
 		if (BannerSession.shouldCreateBannerDataForSession(courseOffering.getSubjectArea().getSession(), hibSession)){
 			List<BannerCourse> bannerCourses = BannerCourse.findBannerCoursesForCourseOffering(courseOffering.getUniqueId(), hibSession);
 			if (!bannerCourses.isEmpty()){
-				for (BannerCourse bc : bannerCourses){
-					for(Iterator bcfgIt = bc.getBannerConfigs().iterator(); bcfgIt.hasNext();){
-						BannerConfig bcfg = (BannerConfig) bcfgIt.next();
-						for(Iterator bsIt = bcfg.getBannerSections().iterator(); bsIt.hasNext();){
-							BannerSection bs = (BannerSection) bsIt.next();
-							SendBannerMessage.sendBannerMessage(bs, BannerMessageAction.DELETE, hibSession);
+				BannerMessageBatch.begin();
+				try {
+					for (BannerCourse bc : bannerCourses){
+						for(Iterator bcfgIt = bc.getBannerConfigs().iterator(); bcfgIt.hasNext();){
+							BannerConfig bcfg = (BannerConfig) bcfgIt.next();
+							for(Iterator bsIt = bcfg.getBannerSections().iterator(); bsIt.hasNext();){
+								BannerSection bs = (BannerSection) bsIt.next();
+								SendBannerMessage.sendBannerMessage(bs, BannerMessageAction.DELETE, hibSession);
+							}
 						}
+						hibSession.delete(bc);
 					}
-					hibSession.delete(bc);
+				} finally {
+					BannerMessageBatch.end();
 				}
+				BannerCrnIndex.remove(Collections.singletonList(courseOffering.getUniqueId()), courseOffering.getSubjectArea().getSession().getUniqueId(), hibSession);
 			}
 		}
 	}
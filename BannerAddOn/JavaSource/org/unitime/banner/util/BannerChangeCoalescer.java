@@ -0,0 +1,274 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.unitime.banner.dataexchange.BannerMessage.BannerMessageAction;
+import org.unitime.banner.dataexchange.BannerMessageBatch;
+import org.unitime.banner.dataexchange.SendBannerMessage;
+import org.unitime.banner.model.BannerSection;
+import org.unitime.banner.model.dao.BannerSectionDAO;
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.model.InstrOfferingConfig;
+import org.unitime.timetable.model.InstructionalOffering;
+import org.unitime.timetable.model.dao.InstrOfferingConfigDAO;
+import org.unitime.timetable.model.dao.InstructionalOfferingDAO;
+import org.unitime.timetable.model.dao._RootDAO;
+
+/**
+ * Outbound stage of the Banner change actions. Instead of sending the Banner UPDATE messages right away, the change hooks
+ * only record the ids of the affected Banner sections (per instructional offering). The changes are collected for
+ * banner.changes.coalesceWindow milliseconds (defaults to 1000) after the first one, then each offering is sent
+ * in one packet containing each of its changed sections once (all the packets are saved together, see {@link BannerMessageBatch}).
+ * The changes are recorded when the transaction of the change is committed (right away when there is no transaction).
+ * Repeated requests to remove the orphaned Banner sections are merged in the same way.
+ * When the window is set to 0, the messages are sent synchronously.<br>
+ * The background thread is stopped (and the pending changes are sent) by {@link #shutdown()}, which is called when
+ * the application context is closed (see {@link BannerChangeCoalescerService}).
+ */
+public class BannerChangeCoalescer {
+	protected static Log sLog = LogFactory.getLog(BannerChangeCoalescer.class);
+	private static BannerChangeCoalescer sInstance = null;
+	
+	private ScheduledThreadPoolExecutor iExecutor;
+	private Map<Long, Set<Long>> iPending = new LinkedHashMap<Long, Set<Long>>();
+	private Set<Long> iOrphanedOfferingIds = new LinkedHashSet<Long>();
+	private int iRequested = 0;
+	private ScheduledFuture<?> iFlush = null;
+	
+	private BannerChangeCoalescer() {
+		iExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread t = new Thread(runnable);
+				t.setName("BannerChangeCoalescer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		iExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+	
+	public static long getWindow() {
+		return Long.parseLong(ApplicationProperties.getProperty("banner.changes.coalesceWindow", "1000"));
+	}
+	
+	public static boolean isEnabled() {
+		return getWindow() > 0;
+	}
+	
+	protected static synchronized BannerChangeCoalescer getInstance() {
+		if (sInstance == null)
+			sInstance = new BannerChangeCoalescer();
+		return sInstance;
+	}
+	
+	/**
+	 * Send an UPDATE message for the given Banner sections of an instructional offering
+	 */
+	public static void sendUpdate(Long offeringId, List<BannerSection> bannerSections, Session hibSession) {
+		if (bannerSections == null || bannerSections.isEmpty()) return;
+		if (!isEnabled()) {
+			BannerMessageBatch.begin();
+			try {
+				SendBannerMessage.sendBannerMessage(bannerSections, BannerMessageAction.UPDATE, hibSession);
+			} finally {
+				BannerMessageBatch.end();
+			}
+			return;
+		}
+		Map<Long, Set<Long>> changes = new LinkedHashMap<Long, Set<Long>>();
+		Set<Long> sectionIds = new LinkedHashSet<Long>();
+		for (BannerSection bs: bannerSections)
+			sectionIds.add(bs.getUniqueId());
+		changes.put(offeringId, sectionIds);
+		record(changes, false, hibSession);
+	}
+	
+	/**
+	 * Send UPDATE messages for the given Banner sections, one for each instructional offering
+	 */
+	public static void sendUpdate(List<BannerSection> bannerSections, Session hibSession) {
+		if (bannerSections == null || bannerSections.isEmpty()) return;
+		if (!isEnabled()) {
+			BannerMessageBatch.begin();
+			try {
+				SendBannerMessage.sendBannerMessage(bannerSections, BannerMessageAction.UPDATE, hibSession);
+			} finally {
+				BannerMessageBatch.end();
+			}
+			return;
+		}
+		Map<Long, Set<Long>> changes = new LinkedHashMap<Long, Set<Long>>();
+		for (BannerSection bs: bannerSections) {
+			InstrOfferingConfig ioc = InstrOfferingConfigDAO.getInstance().get(bs.getBannerConfig().getInstrOfferingConfigId(), hibSession);
+			Long offeringId = (ioc == null ? null : ioc.getInstructionalOffering().getUniqueId());
+			Set<Long> sectionIds = changes.get(offeringId);
+			if (sectionIds == null) {
+				sectionIds = new LinkedHashSet<Long>();
+				changes.put(offeringId, sectionIds);
+			}
+			sectionIds.add(bs.getUniqueId());
+		}
+		record(changes, false, hibSession);
+	}
+	
+	/**
+	 * Remove the orphaned Banner sections (see {@link BannerSection#removeOrphanedBannerSections(Session)}) after the given
+	 * instructional offering has been made not offered, the CRN index entries of the offering are dropped once the sections are removed
+	 */
+	public static void removeOrphanedBannerSections(InstructionalOffering instructionalOffering, Session hibSession) {
+		if (!isEnabled()) {
+			BannerSection.removeOrphanedBannerSections(hibSession);
+			BannerCrnIndex.update(instructionalOffering, hibSession);
+			return;
+		}
+		record(new LinkedHashMap<Long, Set<Long>>(), Collections.singleton(instructionalOffering.getUniqueId()), hibSession);
+	}
+	
+	protected static void record(final Map<Long, Set<Long>> changes, final Set<Long> orphanedOfferingIds, Session hibSession) {
+		if (hibSession != null && hibSession.getTransaction() != null && hibSession.getTransaction().isActive()) {
+			hibSession.getTransaction().registerSynchronization(new Synchronization() {
+				@Override
+				public void beforeCompletion() {}
+				@Override
+				public void afterCompletion(int status) {
+					if (status == Status.STATUS_COMMITTED)
+						getInstance().add(changes, orphanedOfferingIds);
+				}
+			});
+		} else {
+			getInstance().add(changes, orphanedOfferingIds);
+		}
+	}
+	
+	protected synchronized void add(Map<Long, Set<Long>> changes, Set<Long> orphanedOfferingIds) {
+		for (Map.Entry<Long, Set<Long>> entry: changes.entrySet()) {
+			Set<Long> sectionIds = iPending.get(entry.getKey());
+			if (sectionIds == null) {
+				sectionIds = new LinkedHashSet<Long>();
+				iPending.put(entry.getKey(), sectionIds);
+			}
+			sectionIds.addAll(entry.getValue());
+			iRequested += entry.getValue().size();
+		}
+		if (orphanedOfferingIds != null) iOrphanedOfferingIds.addAll(orphanedOfferingIds);
+		if (iFlush == null && !iExecutor.isShutdown())
+			iFlush = iExecutor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					flush();
+				}
+			}, getWindow(), TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Send all the collected changes
+	 */
+	@SuppressWarnings("unchecked")
+	protected void flush() {
+		Map<Long, Set<Long>> pending;
+		Set<Long> orphanedOfferingIds;
+		int requested;
+		synchronized (this) {
+			pending = iPending; iPending = new LinkedHashMap<Long, Set<Long>>();
+			orphanedOfferingIds = iOrphanedOfferingIds; iOrphanedOfferingIds = new LinkedHashSet<Long>();
+			requested = iRequested; iRequested = 0;
+			iFlush = null;
+		}
+		boolean removeOrphans = !orphanedOfferingIds.isEmpty();
+		if (pending.isEmpty() && !removeOrphans) return;
+		long t0 = System.currentTimeMillis();
+		int sections = 0;
+		try {
+			BannerMessageBatch.begin();
+			try {
+				if (removeOrphans) {
+					Session hibSession = BannerSectionDAO.getInstance().createNewSession();
+					try {
+						BannerSection.removeOrphanedBannerSections(hibSession);
+						// the sections are removed (and committed), drop the CRNs of the not offered offerings from the index
+						for (Long offeringId: orphanedOfferingIds) {
+							InstructionalOffering io = InstructionalOfferingDAO.getInstance().get(offeringId, hibSession);
+							if (io != null) BannerCrnIndex.update(io, hibSession);
+						}
+					} catch (Exception e) {
+						sLog.error("Failed to remove orphaned banner sections: " + e.getMessage(), e);
+					} finally {
+						hibSession.close();
+					}
+				}
+				for (Map.Entry<Long, Set<Long>> entry: pending.entrySet()) {
+					Session hibSession = BannerSectionDAO.getInstance().createNewSession();
+					try {
+						List<BannerSection> bannerSections = new ArrayList<BannerSection>(
+								hibSession.createQuery("from BannerSection bs where bs.uniqueId in (:ids)")
+								.setParameterList("ids", entry.getValue()).list());
+						SendBannerMessage.sendBannerMessage(bannerSections, BannerMessageAction.UPDATE, hibSession);
+						sections += bannerSections.size();
+					} catch (Exception e) {
+						sLog.error("Failed to send banner sections of offering " + entry.getKey() + ": " + e.getMessage(), e);
+					} finally {
+						hibSession.close();
+					}
+				}
+			} finally {
+				BannerMessageBatch.end();
+			}
+		} finally {
+			_RootDAO.closeCurrentThreadSessions();
+		}
+		sLog.info("Sent " + sections + " banner sections of " + pending.size() + " offerings (" + requested + " section changes" + (removeOrphans ? ", orphaned sections removed" : "") + ") in " + (System.currentTimeMillis() - t0) + " ms.");
+	}
+	
+	/**
+	 * Stop the background thread and send the changes that are still pending
+	 */
+	public static void shutdown() {
+		BannerChangeCoalescer instance = null;
+		synchronized (BannerChangeCoalescer.class) {
+			instance = sInstance;
+			sInstance = null;
+		}
+		if (instance == null) return;
+		instance.iExecutor.shutdown();
+		try {
+			instance.iExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {}
+		instance.flush();
+	}
+}
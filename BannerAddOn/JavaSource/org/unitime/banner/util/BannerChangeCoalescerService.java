@@ -0,0 +1,36 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.util;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ties the {@link BannerChangeCoalescer} to the life cycle of the application: when the application context is closed,
+ * the background thread of the coalescer is stopped and the changes that are still pending are sent.
+ */
+@Service("bannerChangeCoalescerService")
+public class BannerChangeCoalescerService implements DisposableBean {
+
+	@Override
+	public void destroy() throws Exception {
+		BannerChangeCoalescer.shutdown();
+	}
+}
@@ -0,0 +1,509 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.unitime.banner.model.BannerSection;
+import org.unitime.banner.model.BannerSession;
+import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.model.Class_;
+import org.unitime.timetable.model.CourseOffering;
+import org.unitime.timetable.model.InstructionalOffering;
+import org.unitime.timetable.model.dao.Class_DAO;
+import org.unitime.timetable.model.dao.CourseOfferingDAO;
+
+/**
+ * In-memory index of CRNs for each banner term. For each CRN, the index contains the banner section id, the academic session id,
+ * the course offering id and the class ids of each banner section with the CRN (a term can have more than one academic session,
+ * and the same CRN can be used in more of them), so that student enrollment messages with many students
+ * can resolve their CRNs without running two queries per CRN.<br>
+ * The index of a term is built in bulk (with a single query) when it is first needed and it expires after banner.crnIndex.timeToLive
+ * seconds (defaults to one hour). Entries changed by {@link BannerChangeAction}, the course offering import or the roll forward are
+ * dropped when the transaction that changed them is completed.
+ * CRNs that are not in the index are looked up in the database and added to the index.
+ * The index can be disabled by setting banner.crnIndex.enabled to false.
+ */
+public class BannerCrnIndex {
+	private static Map<String, TermIndex> sTermIndexes = new ConcurrentHashMap<String, TermIndex>();
+	
+	private static String sBulkQuery = "select bs.uniqueId, bs.crn, bs.session.uniqueId, bs.bannerConfig.bannerCourse.courseOfferingId, bstc.classId " +
+			"from BannerSession bsess, BannerSection bs left join bs.bannerSectionToClasses as bstc where " +
+			"bs.session.uniqueId = bsess.session.uniqueId and bsess.bannerTermCode = :termCode and bs.crn is not null";
+	
+	public static boolean isEnabled() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("banner.crnIndex.enabled", "true"));
+	}
+	
+	protected static long getTimeToLive() {
+		return 1000l * Long.parseLong(ApplicationProperties.getProperty("banner.crnIndex.timeToLive", "3600"));
+	}
+	
+	/**
+	 * Index of the given term, built when needed
+	 */
+	protected static TermIndex getTermIndex(String termCode, Session hibSession) {
+		TermIndex index = sTermIndexes.get(termCode);
+		if (index == null || index.isExpired()) {
+			synchronized (sTermIndexes) {
+				index = sTermIndexes.get(termCode);
+				if (index == null || index.isExpired()) {
+					index = new TermIndex(termCode);
+					index.build(hibSession);
+					sTermIndexes.put(termCode, index);
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Course offering of the given CRN and term (null if there is no such CRN)
+	 */
+	public static CourseOffering findCourseOffering(Session hibSession, Integer crn, String termCode) {
+		if (crn == null || termCode == null) return null;
+		Entry entry = first(getTermIndex(termCode, hibSession).get(crn, hibSession), null);
+		if (entry == null) return null;
+		return CourseOfferingDAO.getInstance().get(entry.getCourseOfferingId(), hibSession);
+	}
+	
+	/**
+	 * Classes of the given CRN and term
+	 */
+	public static List<Class_> findClasses(Session hibSession, Integer crn, String termCode) {
+		List<Class_> classes = new ArrayList<Class_>();
+		if (crn == null || termCode == null) return classes;
+		for (long classId: classIds(getTermIndex(termCode, hibSession).get(crn, hibSession), null)) {
+			Class_ clazz = Class_DAO.getInstance().get(classId, hibSession);
+			if (clazz != null) classes.add(clazz);
+		}
+		return classes;
+	}
+	
+	/**
+	 * Course offering of the given CRN and academic session (null if there is no such CRN)
+	 */
+	public static CourseOffering findCourseOfferingForSession(Session hibSession, Integer crn, Long sessionId) {
+		BannerSession bs = BannerSession.findBannerSessionForSession(sessionId, hibSession);
+		if (bs == null || crn == null) return null;
+		Entry entry = first(getTermIndex(bs.getBannerTermCode(), hibSession).get(crn, hibSession), sessionId);
+		if (entry == null) return null;
+		return CourseOfferingDAO.getInstance().get(entry.getCourseOfferingId(), hibSession);
+	}
+	
+	/**
+	 * Classes of the given CRN and academic session
+	 */
+	public static List<Class_> findClassesForSession(Session hibSession, Integer crn, Long sessionId) {
+		List<Class_> classes = new ArrayList<Class_>();
+		BannerSession bs = BannerSession.findBannerSessionForSession(sessionId, hibSession);
+		if (bs == null || crn == null) return classes;
+		for (long classId: classIds(getTermIndex(bs.getBannerTermCode(), hibSession).get(crn, hibSession), sessionId)) {
+			Class_ clazz = Class_DAO.getInstance().get(classId, hibSession);
+			if (clazz != null) classes.add(clazz);
+		}
+		return classes;
+	}
+	
+	/**
+	 * First of the given entries of the given academic session (of any session when null), null if there is none
+	 */
+	protected static Entry first(Entry[] entries, Long sessionId) {
+		if (entries == null) return null;
+		for (Entry entry: entries)
+			if (sessionId == null || entry.getSessionId() == sessionId.longValue()) return entry;
+		return null;
+	}
+	
+	/**
+	 * Class ids of the given entries of the given academic session (of all sessions when null), each class once
+	 */
+	protected static Set<Long> classIds(Entry[] entries, Long sessionId) {
+		Set<Long> classIds = new LinkedHashSet<Long>();
+		if (entries == null) return classIds;
+		for (Entry entry: entries) {
+			if (sessionId != null && entry.getSessionId() != sessionId.longValue()) continue;
+			for (long classId: entry.getClassIds())
+				classIds.add(classId);
+		}
+		return classIds;
+	}
+	
+	/**
+	 * Drop the index entries of the given banner sections (and of their current CRNs) once the current transaction of the given
+	 * session is completed, the entries are loaded from the database again when needed.
+	 */
+	public static void update(Collection<BannerSection> bannerSections, Session hibSession) {
+		if (bannerSections == null || bannerSections.isEmpty()) return;
+		Map<Long, Changes> changes = new HashMap<Long, Changes>();
+		for (BannerSection bs: bannerSections) {
+			if (bs == null || bs.getSession() == null) continue;
+			Changes ch = getChanges(changes, bs.getSession().getUniqueId());
+			if (bs.getUniqueId() != null) ch.iSectionIds.add(bs.getUniqueId());
+			if (bs.getCrn() != null) ch.iCrns.add(bs.getCrn());
+		}
+		evictOnCompletion(changes, hibSession);
+	}
+	
+	/**
+	 * Drop the index entries of the course offerings and of the current banner sections of the given instructional offering once
+	 * the current transaction of the given session is completed.
+	 */
+	public static void update(InstructionalOffering instructionalOffering, Session hibSession) {
+		if (instructionalOffering == null) return;
+		Map<Long, Changes> changes = new HashMap<Long, Changes>();
+		Changes ch = getChanges(changes, instructionalOffering.getSession().getUniqueId());
+		for (CourseOffering co: instructionalOffering.getCourseOfferings())
+			ch.iCourseOfferingIds.add(co.getUniqueId());
+		for (BannerSection bs: BannerSection.findBannerSectionsForInstructionalOffering(instructionalOffering, hibSession)) {
+			if (bs.getUniqueId() != null) ch.iSectionIds.add(bs.getUniqueId());
+			if (bs.getCrn() != null) ch.iCrns.add(bs.getCrn());
+		}
+		evictOnCompletion(changes, hibSession);
+	}
+	
+	/**
+	 * Remove all CRNs of the given course offerings of the given academic session from the index once the current transaction
+	 * of the given session is completed.
+	 */
+	public static void remove(Collection<Long> courseOfferingIds, Long sessionId, Session hibSession) {
+		if (courseOfferingIds == null || courseOfferingIds.isEmpty()) return;
+		Map<Long, Changes> changes = new HashMap<Long, Changes>();
+		getChanges(changes, sessionId).iCourseOfferingIds.addAll(courseOfferingIds);
+		evictOnCompletion(changes, hibSession);
+	}
+	
+	/**
+	 * Drop the index of the given term once the current transaction of the given session is completed.
+	 */
+	public static void invalidateOnCommit(final String termCode, Session hibSession) {
+		if (termCode == null) return;
+		if (hibSession != null && hibSession.getTransaction() != null && hibSession.getTransaction().isActive()) {
+			hibSession.getTransaction().registerSynchronization(new Synchronization() {
+				@Override
+				public void beforeCompletion() {}
+				@Override
+				public void afterCompletion(int status) {
+					if (status == Status.STATUS_COMMITTED)
+						invalidate(termCode);
+				}
+			});
+		} else {
+			invalidate(termCode);
+		}
+	}
+	
+	private static Changes getChanges(Map<Long, Changes> changes, Long sessionId) {
+		Changes ch = changes.get(sessionId);
+		if (ch == null) {
+			ch = new Changes();
+			changes.put(sessionId, ch);
+		}
+		return ch;
+	}
+	
+	/**
+	 * Changes are applied after the transaction is committed, so that the index never contains data that have not been committed
+	 * (and that could be rolled back). The entries are dropped after a rollback as well, as they could have been loaded from
+	 * the uncommitted state of the transaction in the meantime. Without an active transaction, the changes are applied at once.
+	 */
+	private static void evictOnCompletion(Map<Long, Changes> changes, Session hibSession) {
+		final Map<String, Changes> terms = new HashMap<String, Changes>();
+		for (Map.Entry<Long, Changes> e: changes.entrySet()) {
+			BannerSession bsess = BannerSession.findBannerSessionForSession(e.getKey(), hibSession);
+			if (bsess != null && bsess.getBannerTermCode() != null && !e.getValue().isEmpty())
+				terms.put(bsess.getBannerTermCode(), e.getValue());
+		}
+		if (terms.isEmpty()) return;
+		if (hibSession != null && hibSession.getTransaction() != null && hibSession.getTransaction().isActive()) {
+			hibSession.getTransaction().registerSynchronization(new Synchronization() {
+				@Override
+				public void beforeCompletion() {}
+				@Override
+				public void afterCompletion(int status) {
+					evict(terms);
+				}
+			});
+		} else {
+			evict(terms);
+		}
+	}
+	
+	private static void evict(Map<String, Changes> terms) {
+		for (Map.Entry<String, Changes> e: terms.entrySet()) {
+			TermIndex index = sTermIndexes.get(e.getKey());
+			if (index != null) index.evict(e.getValue());
+		}
+	}
+	
+	/**
+	 * Drop the index of the given term (it will be rebuilt when needed).
+	 */
+	public static void invalidate(String termCode) {
+		sTermIndexes.remove(termCode);
+	}
+	
+	/**
+	 * Drop all indexes.
+	 */
+	public static void invalidateAll() {
+		sTermIndexes.clear();
+	}
+	
+	/**
+	 * Banner sections, CRNs and course offerings of one academic session whose index entries are to be dropped.
+	 */
+	protected static class Changes {
+		protected Set<Long> iSectionIds = new HashSet<Long>();
+		protected Set<Integer> iCrns = new HashSet<Integer>();
+		protected Set<Long> iCourseOfferingIds = new HashSet<Long>();
+		
+		protected boolean isEmpty() {
+			return iSectionIds.isEmpty() && iCrns.isEmpty() && iCourseOfferingIds.isEmpty();
+		}
+	}
+	
+	/**
+	 * One banner section of a CRN of the index.
+	 */
+	public static class Entry {
+		private long iSectionId;
+		private long iSessionId;
+		private long iCourseOfferingId;
+		private long[] iClassIds;
+		
+		public Entry(long sectionId, long sessionId, long courseOfferingId, long[] classIds) {
+			iSectionId = sectionId;
+			iSessionId = sessionId;
+			iCourseOfferingId = courseOfferingId;
+			iClassIds = classIds;
+		}
+		
+		public long getSectionId() { return iSectionId; }
+		public long getSessionId() { return iSessionId; }
+		public long getCourseOfferingId() { return iCourseOfferingId; }
+		public long[] getClassIds() { return iClassIds; }
+		
+		protected Entry addClassId(long classId) {
+			for (long id: iClassIds)
+				if (id == classId) return this;
+			long[] classIds = new long[iClassIds.length + 1];
+			System.arraycopy(iClassIds, 0, classIds, 0, iClassIds.length);
+			classIds[iClassIds.length] = classId;
+			return new Entry(iSectionId, iSessionId, iCourseOfferingId, classIds);
+		}
+	}
+	
+	/**
+	 * CRN index of one banner term. Entries are immutable, changes replace the entries of a CRN.
+	 */
+	protected static class TermIndex {
+		private String iTermCode;
+		private CrnMap iEntries = new CrnMap(1024);
+		private long iCreated = System.currentTimeMillis();
+		
+		protected TermIndex(String termCode) {
+			iTermCode = termCode;
+		}
+		
+		protected boolean isExpired() {
+			return System.currentTimeMillis() - iCreated > getTimeToLive();
+		}
+		
+		protected synchronized void build(Session hibSession) {
+			long t0 = System.currentTimeMillis();
+			load(hibSession.createQuery(sBulkQuery).setString("termCode", iTermCode));
+			Debug.info("CRN index of " + iTermCode + " built with " + iEntries.size() + " CRNs in " + (System.currentTimeMillis() - t0) + " ms.");
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void load(Query query) {
+			load((List<Object[]>)query.setFlushMode(FlushMode.MANUAL).setCacheable(false).list());
+		}
+		
+		/**
+		 * Add rows of the bulk query (banner section id, CRN, academic session id, course offering id, class id) to the index
+		 */
+		protected void load(List<Object[]> rows) {
+			for (Object[] o: rows) {
+				long sectionId = ((Number)o[0]).longValue();
+				int crn = ((Number)o[1]).intValue();
+				Entry[] entries = iEntries.get(crn);
+				int idx = -1;
+				if (entries == null) {
+					entries = new Entry[0];
+				} else {
+					for (int i = 0; i < entries.length; i++)
+						if (entries[i].getSectionId() == sectionId) { idx = i; break; }
+				}
+				Entry entry = (idx < 0 ? new Entry(sectionId, ((Number)o[2]).longValue(), ((Number)o[3]).longValue(), new long[0]) : entries[idx]);
+				if (o[4] != null)
+					entry = entry.addClassId(((Number)o[4]).longValue());
+				if (idx < 0) {
+					idx = entries.length;
+					Entry[] extended = new Entry[entries.length + 1];
+					System.arraycopy(entries, 0, extended, 0, entries.length);
+					entries = extended;
+				} else {
+					entries = entries.clone();
+				}
+				entries[idx] = entry;
+				iEntries.put(crn, entries);
+			}
+		}
+		
+		/**
+		 * Entries of the given CRN, one for each banner section of the term with the CRN (null if there is no such CRN)
+		 */
+		protected synchronized Entry[] get(int crn, Session hibSession) {
+			Entry[] entries = iEntries.get(crn);
+			if (entries == null) {
+				load(hibSession.createQuery(sBulkQuery + " and bs.crn = :crn").setString("termCode", iTermCode).setInteger("crn", crn));
+				entries = iEntries.get(crn);
+			}
+			return entries;
+		}
+		
+		protected synchronized void evict(Changes changes) {
+			iEntries.removeAll(changes);
+		}
+		
+		/**
+		 * Number of CRNs in the index
+		 */
+		protected synchronized int size() {
+			return iEntries.size();
+		}
+	}
+	
+	/**
+	 * Open addressing hash map with primitive int keys (CRNs) and linear probing.
+	 */
+	protected static class CrnMap {
+		private int[] iKeys;
+		private Entry[][] iValues;
+		private int iSize = 0;
+		
+		protected CrnMap(int capacity) {
+			int size = 16;
+			while (size < 2 * capacity) size <<= 1;
+			iKeys = new int[size];
+			iValues = new Entry[size][];
+		}
+		
+		protected int size() { return iSize; }
+		
+		private static int index(int crn, int mask) {
+			int h = crn * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+		
+		protected Entry[] get(int crn) {
+			int mask = iKeys.length - 1;
+			for (int i = index(crn, mask); iValues[i] != null; i = (i + 1) & mask)
+				if (iKeys[i] == crn) return iValues[i];
+			return null;
+		}
+		
+		protected void put(int crn, Entry[] entries) {
+			int mask = iKeys.length - 1;
+			int i = index(crn, mask);
+			while (iValues[i] != null) {
+				if (iKeys[i] == crn) {
+					iValues[i] = entries;
+					return;
+				}
+				i = (i + 1) & mask;
+			}
+			iKeys[i] = crn;
+			iValues[i] = entries;
+			iSize ++;
+			if (2 * iSize > iKeys.length) rehash(2 * iKeys.length);
+		}
+		
+		protected void remove(int crn) {
+			int mask = iKeys.length - 1;
+			for (int i = index(crn, mask); iValues[i] != null; i = (i + 1) & mask) {
+				if (iKeys[i] == crn) {
+					removeAt(i);
+					return;
+				}
+			}
+		}
+		
+		protected void removeAll(Changes changes) {
+			List<Integer> crns = new ArrayList<Integer>(changes.iCrns);
+			if (!changes.iSectionIds.isEmpty() || !changes.iCourseOfferingIds.isEmpty())
+				for (int i = 0; i < iValues.length; i++) {
+					if (iValues[i] == null) continue;
+					for (Entry entry: iValues[i]) {
+						if (changes.iSectionIds.contains(entry.getSectionId()) || changes.iCourseOfferingIds.contains(entry.getCourseOfferingId())) {
+							crns.add(iKeys[i]);
+							break;
+						}
+					}
+				}
+			for (Integer crn: crns)
+				remove(crn);
+		}
+		
+		/** Remove the entry at the given slot, shifting back the following entries of the same probe sequence */
+		private void removeAt(int i) {
+			int mask = iKeys.length - 1;
+			iValues[i] = null;
+			iSize --;
+			for (int j = (i + 1) & mask; iValues[j] != null; j = (j + 1) & mask) {
+				int home = index(iKeys[j], mask);
+				if ((j > i && (home <= i || home > j)) || (j < i && (home <= i && home > j))) {
+					iKeys[i] = iKeys[j];
+					iValues[i] = iValues[j];
+					iValues[j] = null;
+					i = j;
+				}
+			}
+		}
+		
+		private void rehash(int size) {
+			int[] keys = iKeys;
+			Entry[][] values = iValues;
+			iKeys = new int[size];
+			iValues = new Entry[size][];
+			iSize = 0;
+			for (int i = 0; i < keys.length; i++)
+				if (values[i] != null) put(keys[i], values[i]);
+		}
+	}
+}
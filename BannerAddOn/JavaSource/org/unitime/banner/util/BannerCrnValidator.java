@@ -21,8 +21,8 @@ package org.unitime.banner.util;
 
 import java.sql.SQLException;
 
+import org.unitime.banner.interfaces.BannerTransportInterface;
 import org.unitime.banner.queueprocessor.BannerCaller;
-import org.unitime.banner.queueprocessor.oracle.OracleConnector;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.ApplicationProperties;
 
@@ -30,15 +30,17 @@ import org.unitime.timetable.ApplicationProperties;
 public class BannerCrnValidator extends BannerCaller {
 
 	public String isCrnUsedInBannerForTerm(Integer crn, String bannerTermCode) throws Exception{
-		String bannerHost = ApplicationProperties.getProperty("banner.host");
-		if ( bannerHost == null || bannerHost.trim().length() == 0){
-			return("N");			
-		}
-		String bannerStoredProcedure = ApplicationProperties.getProperty("banner.crnValidator.storedProcedure.call");
-		if ( bannerStoredProcedure == null || bannerStoredProcedure.trim().length() == 0){
-			return("N");			
+		if (getBannerTransportClass() == null){
+			String bannerHost = ApplicationProperties.getProperty("banner.host");
+			if ( bannerHost == null || bannerHost.trim().length() == 0){
+				return("N");			
+			}
+			String bannerStoredProcedure = ApplicationProperties.getProperty("banner.crnValidator.storedProcedure.call");
+			if ( bannerStoredProcedure == null || bannerStoredProcedure.trim().length() == 0){
+				return("N");			
+			}
 		}
-		OracleConnector jdbc = getJDBCconnection();
+		BannerTransportInterface jdbc = getJDBCconnection();
 		if (jdbc == null){
 			Debug.info("No Connection to Banner, skipping Banner check for CRN: " + crn.toString() + " for Banner Term " + bannerTermCode);
 			return("N");
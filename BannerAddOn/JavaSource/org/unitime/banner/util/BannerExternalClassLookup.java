@@ -19,6 +19,7 @@
 */
 package org.unitime.banner.util;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.unitime.timetable.interfaces.ExternalClassLookupInterface;
@@ -33,6 +34,10 @@ public class BannerExternalClassLookup implements ExternalClassLookupInterface {
 	
 	@Override
 	public CourseOffering findCourseByExternalId(Long sessionId, String externalId) {
+		if (BannerCrnIndex.isEnabled()) {
+			Integer crn = parseCrn(externalId);
+			return (crn == null ? null : BannerCrnIndex.findCourseOfferingForSession(CourseOfferingDAO.getInstance().getSession(), crn, sessionId));
+		}
 		return (CourseOffering) CourseOfferingDAO.getInstance().getSession().createQuery(
 					"select distinct co from BannerSection bs, CourseOffering co where " +
 					"bs.session.uniqueId = :sessionId and bs.crn = :crn and co.uniqueId = bs.bannerConfig.bannerCourse.courseOfferingId"
@@ -41,9 +46,22 @@ public class BannerExternalClassLookup implements ExternalClassLookupInterface {
 
 	@Override
 	public List<Class_> findClassesByExternalId(Long sessionId, String externalId) {
+		if (BannerCrnIndex.isEnabled()) {
+			Integer crn = parseCrn(externalId);
+			return (crn == null ? new ArrayList<Class_>() : BannerCrnIndex.findClassesForSession(CourseOfferingDAO.getInstance().getSession(), crn, sessionId));
+		}
 		return (List<Class_>) CourseOfferingDAO.getInstance().getSession().createQuery(
 				"select c from BannerSection bs inner join bs.bannerSectionToClasses b2c, Class_ c where " +
 				"bs.session.uniqueId = :sessionId and b2c.classId = c.uniqueId and bs.crn = :crn"
 			).setLong("sessionId",sessionId).setString("crn", externalId).setCacheable(true).list();
 	}
+	
+	private Integer parseCrn(String externalId) {
+		if (externalId == null) return null;
+		try {
+			return Integer.valueOf(externalId.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
 }
@@ -25,8 +25,7 @@ import java.util.Set;
 
 import org.hibernate.Session;
 import org.hibernate.Transaction;
-import org.unitime.banner.dataexchange.BannerMessage.BannerMessageAction;
-import org.unitime.banner.dataexchange.SendBannerMessage;
+import org.unitime.banner.dataexchange.BannerMessageBatch;
 import org.unitime.banner.model.BannerConfig;
 import org.unitime.banner.model.BannerSection;
 import org.unitime.banner.model.BannerSession;
@@ -62,10 +61,15 @@ public class BannerInstrOffrConfigChangeAction implements
 	public void performExternalInstrOffrConfigChangeAction(
 			InstructionalOffering instructionalOffering, Session hibSession) {
 		if (BannerSession.shouldGenerateBannerDataFieldsForSession(instructionalOffering.getSession(), hibSession)){
-			updateInstructionalOffering(instructionalOffering, hibSession);
-			
-			if (BannerSession.shouldSendDataToBannerForSession(instructionalOffering.getSession(), hibSession)){
-				SendBannerMessage.sendBannerMessage(BannerSection.findBannerSectionsForInstructionalOffering(instructionalOffering, hibSession), BannerMessageAction.UPDATE, hibSession);
+			BannerMessageBatch.begin();
+			try {
+				updateInstructionalOffering(instructionalOffering, hibSession);
+				
+				if (BannerSession.shouldSendDataToBannerForSession(instructionalOffering.getSession(), hibSession)){
+					BannerChangeCoalescer.sendUpdate(instructionalOffering.getUniqueId(), BannerSection.findBannerSectionsForInstructionalOffering(instructionalOffering, hibSession), hibSession);
+				}
+			} finally {
+				BannerMessageBatch.end();
 			}
 		}
 	}
@@ -19,10 +19,15 @@
 */
 package org.unitime.banner.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 import org.hibernate.HibernateException;
+import org.hibernate.Session;
 import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.Oracle8iDialect;
 import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.id.IdentifierGenerator;
 import org.hibernate.id.PersistentIdentifierGenerator;
@@ -30,6 +35,7 @@ import org.hibernate.id.SequenceGenerator;
 import org.hibernate.type.LongType;
 import org.hibernate.type.Type;
 import org.unitime.banner.dataexchange.BannerMessage;
+import org.unitime.banner.dataexchange.BannerMessageBatch;
 import org.unitime.commons.hibernate.id.UniqueIdGenerator;
 import org.unitime.timetable.model.dao.LocationDAO;
 import org.unitime.timetable.model.dao._RootDAO;
@@ -42,6 +48,7 @@ import org.unitime.timetable.model.dao._RootDAO;
  */
 public class BannerMessageIdGenerator {
     private static IdentifierGenerator sGenerator = null;
+    private static Dialect sDialect = null;
     
     protected static String sSequence = "banner_message_seq";
     
@@ -55,6 +62,7 @@ public class BannerMessageIdGenerator {
             params.put(SequenceGenerator.SEQUENCE, sSequence);
             params.put(PersistentIdentifierGenerator.SCHEMA, _RootDAO.getConfiguration().getProperty("default_schema"));
             idGen.configure(type, params, dialect);
+            sDialect = dialect;
             sGenerator = idGen;
             return sGenerator;
         } catch (HibernateException e) {
@@ -65,6 +73,32 @@ public class BannerMessageIdGenerator {
     }
     
     public static void setMessageId(BannerMessage message) {
-        message.setMessageId(((Number)getGenerator().generate((SessionImplementor)new _RootDAO().getSession(), message)).longValue());
+        BannerMessageBatch batch = BannerMessageBatch.getCurrent();
+        if (batch != null)
+            message.setMessageId(batch.nextMessageId());
+        else
+            message.setMessageId(((Number)getGenerator().generate((SessionImplementor)new _RootDAO().getSession(), message)).longValue());
+    }
+    
+    /**
+     * Allocate a block of message ids. On Oracle, the whole block is fetched from the sequence in one query,
+     * otherwise the ids are generated one by one.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Long> generateBlock(int size) throws HibernateException {
+        IdentifierGenerator generator = getGenerator();
+        Session hibSession = new _RootDAO().getSession();
+        List<Long> ids = new ArrayList<Long>(Math.max(size, 1));
+        if (size > 1 && sDialect instanceof Oracle8iDialect) {
+            String schema = _RootDAO.getConfiguration().getProperty("default_schema");
+            String sequence = (schema == null || schema.isEmpty() ? sSequence : schema + "." + sSequence);
+            for (Number id: (List<Number>)hibSession.createSQLQuery("select " + sequence + ".nextval from dual connect by level <= :size").setInteger("size", size).list())
+                ids.add(id.longValue());
+            Collections.sort(ids);
+        } else {
+            for (int i = 0; i < Math.max(size, 1); i++)
+                ids.add(((Number)generator.generate((SessionImplementor)hibSession, null)).longValue());
+        }
+        return ids;
     }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+package org.unitime.banner.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.unitime.banner.model.BannerSection;
+import org.unitime.banner.model.BannerSectionToClass;
+import org.unitime.timetable.model.Class_;
+import org.unitime.timetable.model.dao.Class_DAO;
+
+/**
+ * Batch loader of the classes of banner sections. Instead of loading the classes of each banner section one by one
+ * (and counting the banner sections of each class when checking for cross lists), the classes of all the given banner sections
+ * (together with their scheduling subparts and configurations) and the banner sections of these classes are loaded using
+ * a constant number of queries (one per {@link BannerSectionBatchLoader#MAX_IN_LIST} classes).<br>
+ * The loaded classes are kept in an identity map for the lifetime of the loader, which is meant to be used for
+ * one request (or one batch of an export) within one hibernate session.
+ */
+public class BannerSectionBatchLoader {
+	public static final int MAX_IN_LIST = 1000;
+	
+	private Session iHibSession;
+	private Map<Long, Class_> iClasses = new HashMap<Long, Class_>();
+	private Map<Long, Set<Integer>> iCrns = new HashMap<Long, Set<Integer>>();
+	private Map<Long, Integer> iSectionCounts = new HashMap<Long, Integer>();
+	
+	public BannerSectionBatchLoader(Session hibSession) {
+		iHibSession = (hibSession == null ? Class_DAO.getInstance().getSession() : hibSession);
+	}
+	
+	/**
+	 * Load classes and the cross list information of the given banner sections. The classes of the banner sections are initialized
+	 * and the banner sections will use this loader for cross list checks.
+	 */
+	public void load(Collection<BannerSection> bannerSections) {
+		if (bannerSections == null || bannerSections.isEmpty()) return;
+		
+		Set<Long> missing = new LinkedHashSet<Long>();
+		for (BannerSection bs : bannerSections) {
+			if (bs.getBannerSectionToClasses() == null) continue;
+			for (BannerSectionToClass bsc : bs.getBannerSectionToClasses()) {
+				if (bsc.getClassId() != null && !iSectionCounts.containsKey(bsc.getClassId()))
+					missing.add(bsc.getClassId());
+			}
+		}
+		List<Long> classIds = new ArrayList<Long>(missing);
+		
+		for (int i = 0; i < classIds.size(); i += MAX_IN_LIST) {
+			List<Long> ids = classIds.subList(i, Math.min(i + MAX_IN_LIST, classIds.size()));
+			loadClasses(ids);
+			loadCrossLists(ids);
+		}
+		
+		for (BannerSection bs : bannerSections) {
+			HashSet<Class_> classes = new HashSet<Class_>();
+			if (bs.getBannerSectionToClasses() != null) {
+				for (BannerSectionToClass bsc : bs.getBannerSectionToClasses()) {
+					Class_ c = iClasses.get(bsc.getClassId());
+					if (c != null) classes.add(c);
+				}
+			}
+			bs.setPrefetchedClasses(classes, this);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void loadClasses(List<Long> classIds) {
+		for (Class_ c : (List<Class_>)iHibSession.createQuery(
+				"select distinct c from Class_ c left join fetch c.schedulingSubpart s left join fetch s.instrOfferingConfig " +
+				"where c.uniqueId in (:classIds)")
+				.setParameterList("classIds", classIds)
+				.setFlushMode(FlushMode.MANUAL)
+				.list()) {
+			iClasses.put(c.getUniqueId(), c);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void loadCrossLists(List<Long> classIds) {
+		for (Long classId : classIds) {
+			iSectionCounts.put(classId, 0);
+			iCrns.put(classId, new TreeSet<Integer>());
+		}
+		for (Object[] o : (List<Object[]>)iHibSession.createQuery(
+				"select bsc.classId, bsc.bannerSection.crn from BannerSectionToClass bsc where bsc.classId in (:classIds)")
+				.setParameterList("classIds", classIds)
+				.setFlushMode(FlushMode.MANUAL)
+				.list()) {
+			Long classId = (Long)o[0];
+			Integer crn = (Integer)o[1];
+			iSectionCounts.put(classId, iSectionCounts.get(classId) + 1);
+			if (crn != null) iCrns.get(classId).add(crn);
+		}
+	}
+	
+	/**
+	 * Has the cross list information for the given class been loaded?
+	 */
+	public boolean isLoaded(Long classId) {
+		return iSectionCounts.containsKey(classId);
+	}
+	
+	/**
+	 * Loaded class (null if not loaded or if it does not exist)
+	 */
+	public Class_ getClass(Long classId) {
+		return iClasses.get(classId);
+	}
+	
+	/**
+	 * Number of banner sections of the given class, null if not loaded
+	 */
+	public Integer countBannerSectionsFor(Long classId) {
+		return iSectionCounts.get(classId);
+	}
+	
+	/**
+	 * CRNs of the banner sections of the given class, null if not loaded
+	 */
+	public Set<Integer> getCrnsFor(Long classId) {
+		return iCrns.get(classId);
+	}
+}
@@ -36,6 +36,7 @@ import org.unitime.banner.model.BannerSectionToClass;
 import org.unitime.banner.model.BannerSession;
 import org.unitime.banner.model.dao.BannerCourseDAO;
 import org.unitime.banner.model.dao.BannerSessionDAO;
+import org.unitime.banner.onlinesectioning.BannerTermCache;
 import org.unitime.timetable.ApplicationProperties;
 import org.unitime.timetable.model.Class_;
 import org.unitime.timetable.model.CourseOffering;
@@ -163,6 +164,7 @@ public class BannerSessionRollForward extends SessionRollForward {
 					hibSession.evict(fromBc);
 				}
 			}
+			BannerCrnIndex.invalidateOnCommit(bs.getBannerTermCode(), hibSession);
 		}
 	}
 
@@ -237,6 +239,7 @@ public class BannerSessionRollForward extends SessionRollForward {
 			toBs.setSubjectAreaPrefixDelimiter(fromBs.getSubjectAreaPrefixDelimiter());
 			toBs.setUseSubjectAreaPrefixAsCampus(fromBs.getUseSubjectAreaPrefixAsCampus());
 			BannerSessionDAO.getInstance().save(toBs);
+			BannerTermCache.invalidateOnCommit(BannerSessionDAO.getInstance().getSession());
 		}
 	}
 
@@ -0,0 +1,138 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.util;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.unitime.timetable.model.DatePattern;
+import org.unitime.timetable.model.Session;
+
+/**
+ * Thread-safe cache of compiled date patterns, shared by all the messages. A date pattern is compiled
+ * (see {@link MeetingElement#datePatternDates(DatePattern)}) only once and kept as an unmodifiable sorted map of meeting
+ * date ranges, grouped by academic session. Each compiled pattern remembers the pattern, its offset and the
+ * session holidays and begin date it was compiled from, so that it is recompiled when the date pattern or the
+ * academic session holidays are changed. The cache also keeps the default date pattern of each academic session.
+ */
+public class DatePatternCache {
+	private static ConcurrentHashMap<Long, Map<Long, DateRanges>> sDatePatterns = new ConcurrentHashMap<Long, Map<Long, DateRanges>>();
+	private static ConcurrentHashMap<Long, Long> sDefaultDatePatterns = new ConcurrentHashMap<Long, Long>();
+	
+	/**
+	 * Meeting date ranges of the given date pattern
+	 */
+	public static DateRanges getDateRanges(DatePattern datePattern) {
+		Long sessionId = datePattern.getSession().getUniqueId();
+		Map<Long, DateRanges> patterns = sDatePatterns.get(sessionId);
+		if (patterns == null) {
+			patterns = new ConcurrentHashMap<Long, DateRanges>();
+			Map<Long, DateRanges> other = sDatePatterns.putIfAbsent(sessionId, patterns);
+			if (other != null) patterns = other;
+		}
+		DateRanges ranges = patterns.get(datePattern.getUniqueId());
+		if (ranges == null || !ranges.isUpToDate(datePattern)) {
+			ranges = new DateRanges(datePattern);
+			patterns.put(datePattern.getUniqueId(), ranges);
+		}
+		return ranges;
+	}
+	
+	/**
+	 * Default date pattern of an academic session, null if not cached
+	 */
+	public static Long getDefaultDatePatternId(Long sessionId) {
+		return sDefaultDatePatterns.get(sessionId);
+	}
+	
+	public static void setDefaultDatePatternId(Long sessionId, Long datePatternId) {
+		if (datePatternId == null)
+			sDefaultDatePatterns.remove(sessionId);
+		else
+			sDefaultDatePatterns.put(sessionId, datePatternId);
+	}
+	
+	/**
+	 * Drop all cached date patterns of an academic session
+	 */
+	public static void invalidate(Long sessionId) {
+		sDatePatterns.remove(sessionId);
+		sDefaultDatePatterns.remove(sessionId);
+	}
+	
+	/**
+	 * Drop a cached date pattern
+	 */
+	public static void invalidate(DatePattern datePattern) {
+		Map<Long, DateRanges> patterns = sDatePatterns.get(datePattern.getSession().getUniqueId());
+		if (patterns != null) patterns.remove(datePattern.getUniqueId());
+	}
+	
+	public static void invalidateAll() {
+		sDatePatterns.clear();
+		sDefaultDatePatterns.clear();
+	}
+	
+	/**
+	 * Immutable list of meeting date ranges of a date pattern, sorted by the start date
+	 */
+	public static class DateRanges {
+		private final SortedMap<Date, Date> iDates;
+		private final String iPattern, iHolidays;
+		private final Integer iOffset;
+		private final Date iSessionBeginDate;
+		
+		protected DateRanges(DatePattern datePattern) {
+			iDates = Collections.unmodifiableSortedMap(MeetingElement.datePatternDates(datePattern));
+			Session session = datePattern.getSession();
+			iPattern = datePattern.getPattern();
+			iOffset = datePattern.getOffset();
+			iHolidays = session.getHolidays();
+			iSessionBeginDate = session.getSessionBeginDateTime();
+		}
+		
+		/**
+		 * Check that the date pattern and its academic session have not changed since the ranges were computed
+		 */
+		public boolean isUpToDate(DatePattern datePattern) {
+			Session session = datePattern.getSession();
+			return eq(iPattern, datePattern.getPattern()) && eq(iOffset, datePattern.getOffset()) &&
+					eq(iHolidays, session.getHolidays()) &&
+					(iSessionBeginDate == null ? session.getSessionBeginDateTime() == null : session.getSessionBeginDateTime() != null && iSessionBeginDate.getTime() == session.getSessionBeginDateTime().getTime());
+		}
+		
+		private static boolean eq(Object o1, Object o2) {
+			return (o1 == null ? o2 == null : o1.equals(o2));
+		}
+		
+		public int size() { return iDates.size(); }
+		
+		/**
+		 * Date ranges (start date, end date), see {@link MeetingElement#datePatternDates(DatePattern)}. The map is shared by all the messages
+		 * and cannot be modified (the dates must not be changed either).
+		 */
+		public SortedMap<Date, Date> toMap() {
+			return iDates;
+		}
+	}
+}
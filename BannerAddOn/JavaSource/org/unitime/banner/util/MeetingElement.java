@@ -20,12 +20,19 @@
 
 package org.unitime.banner.util;
 
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Vector;
 
 import org.cpsolver.coursett.model.TimeLocation.IntEnumeration;
@@ -67,7 +74,6 @@ public class MeetingElement implements Comparable<MeetingElement> {
 	private String roomCode;
 	private String hoursToArrange;
 	private String meetingId;
-    private static SimpleDateFormat sDateFormat = new SimpleDateFormat("MM/dd/yyyy");
     private String roomType;
     private String instructorId;
 	
@@ -152,7 +158,7 @@ public class MeetingElement implements Comparable<MeetingElement> {
 		
 		Assignment a = clazz.getCommittedAssignment();
 		if (a != null){
-			TreeMap<Date, Date> dates = bannerMessage.findDatesFor(a.getDatePattern());
+			SortedMap<Date, Date> dates = bannerMessage.findDatesFor(a.getDatePattern());
 			String beginTime = getStartTimeForAssignment(a);
 			String endTime = getEndTimeForAssignment(a);
 			String bldgAbbv = null;
@@ -195,7 +201,7 @@ public class MeetingElement implements Comparable<MeetingElement> {
 			if (clazz.getEffectiveTimePreferences().isEmpty()){
 				double hours = clazz.getSchedulingSubpart().getMinutesPerWk()/50;
 				DatePattern dp = clazz.getDatePattern();
-				TreeMap<Date, Date> dates = null;
+				SortedMap<Date, Date> dates = null;
 				if (dp == null){
 					dp = clazz.getSchedulingSubpart().getDatePattern();
 				}
@@ -277,6 +283,39 @@ public class MeetingElement implements Comparable<MeetingElement> {
 		}
 	}
 	
+	/**
+	 * Key of the meetings that can be merged with this meeting, two meetings can be merged
+	 * (see {@link #canBeMerged(MeetingElement)}) if and only if they have the same (non-null) key.
+	 * Null is returned when this meeting cannot be merged with any other meeting.
+	 */
+	public List<Object> getMergeKey() {
+		if (getStartDate() == null || getEndDate() == null || getBeginTime() == null || getEndTime() == null || getBldgCode() == null || getRoomCode() == null)
+			return null;
+		return Arrays.asList(new Object[] { getStartDate().getTime(), getEndDate().getTime(), getBeginTime(), getEndTime(), getBldgCode(), getRoomCode() });
+	}
+	
+	/**
+	 * Merge meetings that only differ in days of week. The meetings are grouped by {@link #getMergeKey()} in a single pass,
+	 * the first meeting of each group (in the iteration order of the given collection) is kept and the days of
+	 * the other meetings of the group are merged into it. This gives the same result as comparing all pairs
+	 * of meetings using {@link #canBeMerged(MeetingElement)}, in linear time.
+	 */
+	public static TreeSet<MeetingElement> mergeMeetings(Collection<MeetingElement> meetings) {
+		List<MeetingElement> merged = new ArrayList<MeetingElement>(meetings.size());
+		Map<List<Object>, MeetingElement> groups = new HashMap<List<Object>, MeetingElement>();
+		for (MeetingElement me: meetings) {
+			List<Object> key = me.getMergeKey();
+			MeetingElement first = (key == null ? null : groups.get(key));
+			if (first != null) {
+				first.merge(me);
+			} else {
+				if (key != null) groups.put(key, me);
+				merged.add(me);
+			}
+		}
+		return new TreeSet<MeetingElement>(merged);
+	}
+	
 	public void merge(MeetingElement me){
 		if (me.isMonday()){
 			setMonday(true);
@@ -434,12 +473,12 @@ public class MeetingElement implements Comparable<MeetingElement> {
 			meetingElement.addAttribute("SUNDAY", "");
 		}
 		if (startDate != null){
-			meetingElement.addAttribute("START_DATE", sDateFormat.format(startDate));
+			meetingElement.addAttribute("START_DATE", MessageDateFormat.formatDate(startDate));
 		} else {
 			meetingElement.addAttribute("START_DATE", "");			
 		}
 		if (endDate != null){
-			meetingElement.addAttribute("END_DATE", sDateFormat.format(endDate));
+			meetingElement.addAttribute("END_DATE", MessageDateFormat.formatDate(endDate));
 		} else {
 			meetingElement.addAttribute("END_DATE", "");
 		}
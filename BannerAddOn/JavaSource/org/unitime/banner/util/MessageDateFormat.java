@@ -0,0 +1,105 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.util;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Thread-safe formatting and parsing of the dates used in the XML messages, based on immutable
+ * {@link DateTimeFormatter}s. Formatted dates (MM/dd/yyyy) are cached by the epoch day, so that
+ * formatting a date that has been formatted before does not allocate any objects.
+ * Dates are converted using the default time zone (as it was when this class was loaded).
+ */
+public class MessageDateFormat {
+	private static final TimeZone sTimeZone = TimeZone.getDefault();
+	private static final ZoneId sZoneId = sTimeZone.toZoneId();
+	private static final DateTimeFormatter sDateFormat = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+	private static final DateTimeFormatter sDateTimeFormat = DateTimeFormatter.ofPattern("M/d/yyyy H:m:s");
+	private static final DateTimeFormatter sDateTimeParser = new DateTimeFormatterBuilder().parseLenient().appendPattern("M/d/y H:m:s")
+			.toFormatter().withResolverStyle(ResolverStyle.LENIENT);
+	private static final long sDayInMillis = 24l * 60l * 60l * 1000l;
+	// epoch days 0 .. 65535 (years 1970 .. 2149)
+	private static final String[] sDateCache = new String[65536];
+	
+	/**
+	 * Epoch day of the given date in the default time zone
+	 */
+	public static long getEpochDay(Date date) {
+		long millis = date.getTime();
+		return Math.floorDiv(millis + sTimeZone.getOffset(millis), sDayInMillis);
+	}
+	
+	/**
+	 * Format date as MM/dd/yyyy, null when the date is null
+	 */
+	public static String formatDate(Date date) {
+		if (date == null) return null;
+		long epochDay = getEpochDay(date);
+		if (epochDay < 0 || epochDay >= sDateCache.length)
+			return sDateFormat.format(LocalDate.ofEpochDay(epochDay));
+		String text = sDateCache[(int)epochDay];
+		if (text == null) {
+			// strings are immutable, a concurrent put of the same value is harmless
+			text = sDateFormat.format(LocalDate.ofEpochDay(epochDay));
+			sDateCache[(int)epochDay] = text;
+		}
+		return text;
+	}
+	
+	/**
+	 * Format date and time as M/d/yyyy H:m:s (the format of the ACTIVITY_DATE of a response message), null when the date is null
+	 */
+	public static String formatDateTime(Date date) {
+		if (date == null) return null;
+		return sDateTimeFormat.format(LocalDateTime.ofInstant(date.toInstant(), sZoneId));
+	}
+
+	/**
+	 * Parse date and time in the MM/dd/yyyy H:m:s format (e.g., ACTIVITY_DATE of a response message).
+	 * As with the lenient SimpleDateFormat used before, leading white spaces and any text following the seconds
+	 * (e.g., fractions of a second) are ignored and out of range values roll over (e.g., 2/30/2020 is March 1, 2020).
+	 */
+	public static Date parseDateTime(String text) throws ParseException {
+		if (text == null) throw new ParseException("No date given.", 0);
+		int index = 0;
+		while (index < text.length() && Character.isWhitespace(text.charAt(index))) index++;
+		try {
+			TemporalAccessor parsed = sDateTimeParser.parse(text, new ParsePosition(index));
+			// an ambiguous time (when the clocks are set back) is in the standard time, as with SimpleDateFormat
+			return Date.from(LocalDateTime.from(parsed).atZone(sZoneId).withLaterOffsetAtOverlap().toInstant());
+		} catch (DateTimeParseException e) {
+			throw new ParseException(e.getMessage(), e.getErrorIndex());
+		} catch (DateTimeException e) {
+			throw new ParseException(e.getMessage(), index);
+		}
+	}
+}
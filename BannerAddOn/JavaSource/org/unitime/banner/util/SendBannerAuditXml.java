@@ -43,19 +43,23 @@ public class SendBannerAuditXml {
 
 	/**
 	 * @param args
-	 *            Initiative Year Term Sync=TRUE|FALSE
+	 *            Initiative Year Term Sync=TRUE|FALSE [Mode=CHUNKED|RESUME|STREAMED]
 	 * @throws Exception
 	 */
 	public static void main(String[] args) throws Exception {
-		if (args.length != 4){
+		if (args.length != 4 && args.length != 5){
 			Debug.error("The following arguments are required:");
-			Debug.error("	<Academic Initiative> <Year> <Term> <Syncronize>");
+			Debug.error("	<Academic Initiative> <Year> <Term> <Syncronize> [<Mode>]");
 			Debug.error("");
 			Debug.error("		Academic Initiative - The value set as the academic initiative for the session.");
 			Debug.error("		Year - The value set as the academic year for the session.");
 			Debug.error("		Term - The value set as the academic term for the session.");
 			Debug.error("		Syncronize - Either TRUE or FALSE.  ");
 			Debug.error("    		If the audit should send a message to syncronize banner to match the values in UniTime set this to TRUE.");
+			Debug.error("		Mode - Optional, either CHUNKED, RESUME, or STREAMED.");
+			Debug.error("			CHUNKED sends the audit in multiple packets (see banner.audit.maxPacketSize), RESUME continues the last unfinished chunked audit.");
+			Debug.error("			STREAMED sends the audit in one packet that is written into the queue section by section (it is not held in memory).");
+			Debug.error("			Defaults to CHUNKED when banner.audit.chunked is set to true.");
 			Debug.error("");
 			throw(new Exception("Missing arguments."));			
 		}
@@ -80,6 +84,22 @@ public class SendBannerAuditXml {
 			Debug.error("   valid values are:  TRUE, FALSE");
 			throw(new Exception("ERROR:  Invalid value for Syncronize."));
 		}
+		if (args.length == 5 && !"CHUNKED".equalsIgnoreCase(args[4]) && !"RESUME".equalsIgnoreCase(args[4]) && !"STREAMED".equalsIgnoreCase(args[4])){
+			Debug.error("Invalid value for Mode parameter:  " + args[4]);
+			Debug.error("   valid values are:  CHUNKED, RESUME, STREAMED");
+			throw(new Exception("ERROR:  Invalid value for Mode."));
+		}
+		
+		if (args.length == 5 && "STREAMED".equalsIgnoreCase(args[4])) {
+			bsea.sendStreamedAudit(session, args[3].toUpperCase());
+			return;
+		}
+		
+		if (args.length == 5 || "true".equalsIgnoreCase(ApplicationProperties.getProperty("banner.audit.chunked", "false"))) {
+			bsea.sendChunkedAudit(session, args[3].toUpperCase(), args.length == 5 && "RESUME".equalsIgnoreCase(args[4]));
+			return;
+		}
+		
 		Document document = bsea.saveXml(session, new Properties());
 		Element root = document.getRootElement();
 		root.addAttribute("SYNC", args[3].toUpperCase());
@@ -24,7 +24,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -32,12 +35,15 @@ import java.util.Vector;
 
 import javax.servlet.jsp.JspWriter;
 
+import org.hibernate.FlushMode;
 import org.unitime.banner.form.BannerCourseListForm;
 import org.unitime.banner.model.BannerCourse;
 import org.unitime.banner.model.BannerLastSentSectionRestriction;
 import org.unitime.banner.model.BannerSection;
+import org.unitime.banner.model.BannerSectionToClass;
 import org.unitime.banner.model.BannerSession;
 import org.unitime.banner.model.dao.BannerCourseDAO;
+import org.unitime.banner.util.BannerSectionBatchLoader;
 import org.unitime.commons.web.htmlgen.TableCell;
 import org.unitime.commons.web.htmlgen.TableHeaderCell;
 import org.unitime.commons.web.htmlgen.TableRow;
@@ -68,6 +74,8 @@ public class WebBannerCourseListTableBuilder extends
 		WebInstructionalOfferingTableBuilder {
  
 	private Comparator iClassComparator = new ClassComparator(ClassComparator.COMPARE_BY_ITYPE);
+	private Long iBannerSectionsCourseOfferingId = null;
+	private Map<Long, BannerSection> iBannerSections = null;
 
 	/**
 	 * 
@@ -293,6 +301,7 @@ public class WebBannerCourseListTableBuilder extends
         table.addContent(row);
 		}
 
+        prefetchBannerSections(bc, Class_DAO.getInstance().getSession());
         ArrayList subpartList = new ArrayList(ioc.getSchedulingSubparts());
         Collections.sort(subpartList, new SchedulingSubpartComparator());
         Iterator it = subpartList.iterator();
@@ -359,7 +368,10 @@ public class WebBannerCourseListTableBuilder extends
         if (clickable){
             row.setOnClick(subjectOnClickAction(bc.getUniqueId()));
         }
-		BannerSection bs = BannerSection.findBannerSectionForClassAndCourseOffering(c, bc.getCourseOffering(hibSession), hibSession);
+		BannerSection bs = (iBannerSections == null ? null : iBannerSections.get(c.getUniqueId()));
+		if (bs == null){
+			bs = BannerSection.findBannerSectionForClassAndCourseOffering(c, bc.getCourseOffering(hibSession), hibSession);
+		}
 		if (bs == null){
 			return;
 		}
@@ -450,6 +462,29 @@ public class WebBannerCourseListTableBuilder extends
     	table.addContent(row);
 	}
 
+	/**
+	 * Load all banner sections of the course (with their classes and cross list information) at once, instead of one section row at a time.
+	 */
+	@SuppressWarnings("unchecked")
+	private void prefetchBannerSections(BannerCourse bc, org.hibernate.Session hibSession) {
+		if (bc.getCourseOfferingId() == null || bc.getCourseOfferingId().equals(iBannerSectionsCourseOfferingId)) {
+			return;
+		}
+		List<BannerSection> sections = (List<BannerSection>)hibSession.createQuery(
+				"select distinct bsc.bannerSection from BannerSectionToClass as bsc where bsc.bannerSection.bannerConfig.bannerCourse.courseOfferingId = :courseOfferingId")
+				.setLong("courseOfferingId", bc.getCourseOfferingId())
+				.setFlushMode(FlushMode.MANUAL)
+				.list();
+		new BannerSectionBatchLoader(hibSession).load(sections);
+		iBannerSections = new HashMap<Long, BannerSection>();
+		for (BannerSection bs : sections) {
+			for (BannerSectionToClass bsc : bs.getBannerSectionToClasses()) {
+				iBannerSections.put(bsc.getClassId(), bs);
+			}
+		}
+		iBannerSectionsCourseOfferingId = bc.getCourseOfferingId();
+	}
+
 	private TableCell initCell(String onClick, int cols, boolean nowrap){
         TableCell cell = new TableCell();
         cell.setValign("top");
@@ -0,0 +1,144 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.queueprocessor.oracle;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link OracleConnectionPool} with connections of a test driver that only keeps track of whether the connection has been closed.
+ */
+public class OracleConnectionPoolTest {
+	private static final String URL = "jdbc:pooltest:banner";
+	private TestDriver iDriver;
+	
+	@Before
+	public void setUp() throws SQLException {
+		iDriver = new TestDriver();
+		DriverManager.registerDriver(iDriver);
+	}
+	
+	@After
+	public void tearDown() throws SQLException {
+		OracleConnectionPool.closeAll();
+		DriverManager.deregisterDriver(iDriver);
+	}
+	
+	@Test
+	public void testReleasedConnectionIsReused() throws SQLException {
+		OracleConnectionPool pool = OracleConnectionPool.getPool(URL, "user", "password");
+		OracleConnectionPool.PooledConnection connection = pool.borrow();
+		pool.release(connection);
+		assertFalse(connection.getConnection().isClosed());
+		assertSame(connection, pool.borrow());
+	}
+	
+	@Test
+	public void testConnectionReleasedAfterCloseAllIsClosed() throws SQLException {
+		OracleConnectionPool pool = OracleConnectionPool.getPool(URL, "user", "password");
+		OracleConnectionPool.PooledConnection inUse = pool.borrow();
+		OracleConnectionPool.PooledConnection idle = pool.borrow();
+		pool.release(idle);
+		
+		OracleConnectionPool.closeAll();
+		assertTrue(pool.isClosed());
+		assertTrue(idle.getConnection().isClosed());
+		assertFalse(inUse.getConnection().isClosed());
+		
+		pool.release(inUse);
+		assertTrue(inUse.getConnection().isClosed());
+		
+		OracleConnectionPool newPool = OracleConnectionPool.getPool(URL, "user", "password");
+		assertNotSame(pool, newPool);
+		OracleConnectionPool.PooledConnection connection = newPool.borrow();
+		assertNotSame(inUse, connection);
+		assertFalse(connection.getConnection().isClosed());
+	}
+	
+	private static class TestDriver implements Driver {
+		@Override
+		public Connection connect(String url, Properties info) throws SQLException {
+			if (!acceptsURL(url)) return null;
+			return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] { Connection.class }, new InvocationHandler() {
+				private boolean iClosed = false;
+				
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if ("close".equals(method.getName())) {
+						iClosed = true; return null;
+					} else if ("isClosed".equals(method.getName())) {
+						return iClosed;
+					} else if ("isValid".equals(method.getName())) {
+						return !iClosed;
+					} else if ("hashCode".equals(method.getName())) {
+						return System.identityHashCode(proxy);
+					} else if ("equals".equals(method.getName())) {
+						return proxy == args[0];
+					} else if ("toString".equals(method.getName())) {
+						return "TestConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+					}
+					throw new SQLFeatureNotSupportedException(method.getName());
+				}
+			});
+		}
+
+		@Override
+		public boolean acceptsURL(String url) {
+			return url != null && url.startsWith("jdbc:pooltest:");
+		}
+
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override
+		public int getMajorVersion() { return 1; }
+
+		@Override
+		public int getMinorVersion() { return 0; }
+
+		@Override
+		public boolean jdbcCompliant() { return false; }
+
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+	}
+}
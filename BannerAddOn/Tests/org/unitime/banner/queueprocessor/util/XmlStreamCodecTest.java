@@ -0,0 +1,112 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.queueprocessor.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.junit.Test;
+
+/**
+ * A packet written one element at a time by {@link XmlStreamCodec.PacketWriter} must be the same as the packet
+ * written as a document (as {@link ClobTools} does it), and it must read back element by element.
+ */
+public class XmlStreamCodecTest {
+	
+	private static Element createRoot(Document document) {
+		Element root = document.addElement("SCHEDULE");
+		root.addAttribute("PACKET_ID", "1");
+		root.addAttribute("TERM_CODE", "202710");
+		return root;
+	}
+	
+	private static void addSection(Element root, int section) {
+		Element sectionElement = root.addElement("SECTION");
+		sectionElement.addAttribute("CRN", String.valueOf(10000 + section));
+		sectionElement.addAttribute("TITLE", "Course & Lab <" + section + ">");
+		sectionElement.addElement("MEETING").addAttribute("MONDAY", section % 2 == 0 ? "M" : "");
+		sectionElement.addElement("TEXT").addText("Note \"" + section + "\"");
+	}
+	
+	@Test
+	public void testPacketWriterMatchesDocument() throws Exception {
+		Document document = DocumentHelper.createDocument();
+		Element root = createRoot(document);
+		for (int s = 0; s < 50; s++)
+			addSection(root, s);
+		root.addElement("CROSSLIST").addAttribute("GROUP", "X1");
+		StringWriter expected = new StringWriter();
+		XMLWriter writer = new XMLWriter(expected, OutputFormat.createCompactFormat());
+		writer.write(document);
+		writer.flush(); writer.close();
+		
+		StringWriter streamed = new StringWriter();
+		Element streamedRoot = createRoot(DocumentHelper.createDocument());
+		XmlStreamCodec.PacketWriter packetWriter = new XmlStreamCodec.PacketWriter(streamed, streamedRoot);
+		for (int s = 0; s < 50; s++) {
+			addSection(streamedRoot, s);
+			packetWriter.writeContent(streamedRoot);
+			assertTrue(streamedRoot.elements().isEmpty());
+		}
+		streamedRoot.addElement("CROSSLIST").addAttribute("GROUP", "X1");
+		packetWriter.writeContent(streamedRoot);
+		packetWriter.close();
+		
+		assertEquals(51, packetWriter.getCount());
+		assertEquals(expected.toString(), streamed.toString());
+	}
+	
+	@Test
+	public void testReadElements() throws Exception {
+		StringWriter streamed = new StringWriter();
+		Element root = createRoot(DocumentHelper.createDocument());
+		XmlStreamCodec.PacketWriter packetWriter = new XmlStreamCodec.PacketWriter(streamed, root);
+		for (int s = 0; s < 10; s++) {
+			addSection(root, s);
+			packetWriter.writeContent(root);
+		}
+		packetWriter.close();
+		
+		final List<Element> sections = new ArrayList<Element>();
+		Element readRoot = XmlStreamCodec.readElements(new StringReader(streamed.toString()), "SECTION", new XmlStreamCodec.ElementHandler() {
+			@Override
+			public void handle(Element element) throws Exception {
+				sections.add(element);
+			}
+		});
+		assertEquals("202710", readRoot.attributeValue("TERM_CODE"));
+		assertEquals(10, sections.size());
+		for (int s = 0; s < 10; s++) {
+			Element expected = DocumentHelper.createElement("SCHEDULE");
+			addSection(expected, s);
+			assertEquals(((Element)expected.elements().get(0)).asXML(), sections.get(s).asXML());
+		}
+	}
+}
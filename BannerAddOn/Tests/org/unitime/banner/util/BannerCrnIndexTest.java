@@ -0,0 +1,97 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.unitime.banner.util.BannerCrnIndex.Entry;
+import org.unitime.banner.util.BannerCrnIndex.TermIndex;
+
+/**
+ * {@link BannerCrnIndex} of a term with two academic sessions that use the same CRN must resolve the CRN
+ * for each of the sessions, as the per-session queries it replaced did.
+ */
+public class BannerCrnIndexTest {
+	private static final long SESSION1 = 1l, SESSION2 = 2l;
+	
+	private static Object[] row(long sectionId, int crn, long sessionId, long courseOfferingId, Long classId) {
+		return new Object[] { sectionId, crn, sessionId, courseOfferingId, classId };
+	}
+	
+	/**
+	 * CRN 12345 is used by section 10 of session 1 (course 100, classes 1000 and 1001) and by section 20 of session 2
+	 * (course 200, class 2000), CRN 23456 only by section 11 of session 1 (course 101, no classes).
+	 */
+	private static TermIndex createIndex() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(row(10l, 12345, SESSION1, 100l, 1000l));
+		rows.add(row(20l, 12345, SESSION2, 200l, 2000l));
+		rows.add(row(11l, 23456, SESSION1, 101l, null));
+		rows.add(row(10l, 12345, SESSION1, 100l, 1001l));
+		TermIndex index = new TermIndex("202710");
+		index.load(rows);
+		return index;
+	}
+	
+	@Test
+	public void testCrnInTwoSessions() {
+		TermIndex index = createIndex();
+		Entry[] entries = index.get(12345, null);
+		assertEquals(2, entries.length);
+		
+		assertEquals(100l, BannerCrnIndex.first(entries, SESSION1).getCourseOfferingId());
+		assertEquals(200l, BannerCrnIndex.first(entries, SESSION2).getCourseOfferingId());
+		assertNull(BannerCrnIndex.first(entries, 3l));
+		
+		assertEquals(new LinkedHashSet<Long>(Arrays.asList(1000l, 1001l)), BannerCrnIndex.classIds(entries, SESSION1));
+		assertEquals(new LinkedHashSet<Long>(Arrays.asList(2000l)), BannerCrnIndex.classIds(entries, SESSION2));
+		assertEquals(Collections.emptySet(), BannerCrnIndex.classIds(entries, 3l));
+		// term lookups return the classes of all the sessions
+		assertEquals(new LinkedHashSet<Long>(Arrays.asList(1000l, 1001l, 2000l)), BannerCrnIndex.classIds(entries, null));
+	}
+	
+	@Test
+	public void testCrnInOneSession() {
+		TermIndex index = createIndex();
+		Entry[] entries = index.get(23456, null);
+		assertEquals(1, entries.length);
+		assertEquals(101l, BannerCrnIndex.first(entries, SESSION1).getCourseOfferingId());
+		assertNull(BannerCrnIndex.first(entries, SESSION2));
+		assertEquals(Collections.emptySet(), BannerCrnIndex.classIds(entries, SESSION1));
+	}
+	
+	@Test
+	public void testEvictSectionOfSecondSession() {
+		TermIndex index = createIndex();
+		BannerCrnIndex.Changes changes = new BannerCrnIndex.Changes();
+		changes.iSectionIds.add(20l);
+		index.evict(changes);
+		assertEquals(1, index.size());
+		assertEquals(1, index.get(23456, null).length);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.banner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * {@link MessageDateFormat} must give the same results as the SimpleDateFormat instances it replaced,
+ * also when it is used by many threads at once.
+ */
+public class MessageDateFormatTest {
+	private static final String[] sDateTimes = new String[] {
+		"10/15/2020 14:03:02",
+		"1/5/2020 4:3:2",
+		"01/05/2020 04:03:02",
+		"10/15/2020 14:03:02.0",	// fraction of a second (Oracle timestamp)
+		"10/15/2020 14:03:02 PM",
+		" 10/15/2020 14:03:02",
+		"2/30/2020 10:00:00",		// rolls over to March 1
+		"13/01/2020 24:00:00",
+		"12/31/2149 23:59:59",
+		"3/8/2020 2:30:00",		// not existing in US time zones (clocks set forward)
+		"11/1/2020 1:30:00",		// ambiguous in US time zones (clocks set back)
+	};
+	
+	@Test
+	public void testFormatDate() {
+		SimpleDateFormat df = new SimpleDateFormat("MM/dd/yyyy");
+		assertNull(MessageDateFormat.formatDate(null));
+		Random random = new Random(1);
+		for (int i = 0; i < 10000; i++) {
+			// years 1900 .. 2250, i.e., also outside of the cached range
+			Date date = new Date(-2208988800000l + (long)(random.nextDouble() * 11045000000000l));
+			assertEquals(df.format(date), MessageDateFormat.formatDate(date));
+		}
+	}
+	
+	@Test
+	public void testParseDateTime() throws ParseException {
+		SimpleDateFormat df = new SimpleDateFormat("MM/dd/yyyy H:m:s");
+		for (String text: sDateTimes)
+			assertEquals(text, df.parse(text), MessageDateFormat.parseDateTime(text));
+	}
+	
+	@Test
+	public void testParseDateTimeErrors() {
+		for (String text: new String[] { null, "", "x", "10/15/2020", "10/15/2020 14:03" }) {
+			try {
+				MessageDateFormat.parseDateTime(text);
+				fail("ParseException expected for " + text);
+			} catch (ParseException e) {}
+		}
+	}
+	
+	@Test
+	public void testFormatDateTime() throws ParseException {
+		SimpleDateFormat df = new SimpleDateFormat("M/d/yyyy H:m:s");
+		Random random = new Random(2);
+		for (int i = 0; i < 1000; i++) {
+			Date date = new Date(1000l * (long)(random.nextDouble() * 4000000000l));
+			assertEquals(df.format(date), MessageDateFormat.formatDateTime(date));
+			assertEquals(df.parse(df.format(date)), MessageDateFormat.parseDateTime(MessageDateFormat.formatDateTime(date)));
+		}
+	}
+	
+	@Test
+	public void testConcurrency() throws Exception {
+		final int nrThreads = 8, nrDates = 20000;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(nrThreads);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int t = 0; t < nrThreads; t++) {
+				final long seed = t;
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						// each thread has its own SimpleDateFormat instances to compare with
+						SimpleDateFormat df = new SimpleDateFormat("MM/dd/yyyy");
+						SimpleDateFormat dtf = new SimpleDateFormat("M/d/yyyy H:m:s");
+						Random random = new Random(seed);
+						start.await();
+						for (int i = 0; i < nrDates; i++) {
+							Date date = new Date(1000l * (long)(random.nextDouble() * 4000000000l));
+							String text = MessageDateFormat.formatDate(date);
+							if (!df.format(date).equals(text))
+								return "formatDate(" + date + ") returned " + text + ", expected " + df.format(date);
+							text = MessageDateFormat.formatDateTime(date);
+							if (!dtf.format(date).equals(text))
+								return "formatDateTime(" + date + ") returned " + text + ", expected " + dtf.format(date);
+							Date parsed = MessageDateFormat.parseDateTime(text);
+							if (!dtf.parse(text).equals(parsed))
+								return "parseDateTime(" + text + ") returned " + parsed + ", expected " + dtf.parse(text);
+						}
+						return null;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<String> result: results)
+				assertNull(result.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
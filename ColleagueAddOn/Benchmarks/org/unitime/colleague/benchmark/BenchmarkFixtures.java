@@ -0,0 +1,308 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.unitime.colleague.util.MeetingElement;
+import org.unitime.colleague.util.MessageDateFormat;
+import org.unitime.timetable.model.DatePattern;
+import org.unitime.timetable.model.Session;
+import org.unitime.timetable.util.DateUtils;
+
+/**
+ * Synthetic in-memory data for the benchmarks: an academic session with holidays, its date patterns, the meetings
+ * of the classes of each section, SCHEDULE packets and the matching SCHEDULE_RESPONSE. Nothing is read from or written
+ * to the database, and all the data are generated from a fixed seed so that the results of two builds are comparable.
+ */
+public class BenchmarkFixtures {
+	public static final String TERM_CODE = "2026FA";
+	public static final long SEED = 1l;
+	
+	private static final String[] sSubjects = new String[] { "BIOL", "CHM", "CS", "ECON", "ENGL", "HIST", "MA", "PHYS" };
+	private static final String[] sBuildings = new String[] { "LWSN", "MATH", "PHYS", "WTHR", "HAAS", "UNIV" };
+	private static final String[][] sTimes = new String[][] {
+		{ "0730", "0820" }, { "0830", "0920" }, { "0930", "1020" }, { "1030", "1120" }, { "1130", "1220" },
+		{ "1230", "1320" }, { "1330", "1445" }, { "1500", "1615" }, { "1630", "1745" }, { "1800", "2050" } };
+	
+	private Session iSession;
+	private DatePattern iFullTerm, iHolidays, iEvenWeeks;
+	
+	public BenchmarkFixtures() {
+		iSession = createSession();
+		int length = getNrDays(iSession.getSessionBeginDateTime(), iSession.getClassesEndDateTime());
+		iFullTerm = createDatePattern(-1l, "Full Term", fullTerm(length));
+		iHolidays = createDatePattern(-2l, "Full Term (with holidays)", withHolidays(length));
+		iEvenWeeks = createDatePattern(-3l, "Even Weeks", evenWeeks(length));
+	}
+	
+	public Session getSession() { return iSession; }
+	public DatePattern getFullTermPattern() { return iFullTerm; }
+	public DatePattern getHolidayPattern() { return iHolidays; }
+	public DatePattern getEvenWeeksPattern() { return iEvenWeeks; }
+	public DatePattern[] getDatePatterns() { return new DatePattern[] { iFullTerm, iHolidays, iEvenWeeks }; }
+	
+	/**
+	 * Fall term from August 24 to December 12 (final exams until December 19), with Labor Day, a two day fall break
+	 * and the Thanksgiving holidays
+	 */
+	protected static Session createSession() {
+		Session session = new Session();
+		session.setUniqueId(-1l);
+		session.setAcademicInitiative("BENCH");
+		session.setAcademicYear("2027");
+		session.setAcademicTerm("Fall");
+		session.setSessionBeginDateTime(date(2026, Calendar.AUGUST, 24));
+		session.setClassesEndDateTime(date(2026, Calendar.DECEMBER, 12));
+		session.setSessionEndDateTime(date(2026, Calendar.DECEMBER, 19));
+		session.setEventBeginDate(date(2026, Calendar.AUGUST, 17));
+		session.setEventEndDate(date(2026, Calendar.DECEMBER, 31));
+		char[] holidays = new char[800];
+		for (int i = 0; i < holidays.length; i++) holidays[i] = '0';
+		holidays[holidayIndex(session, Calendar.SEPTEMBER, 7)] = '1';
+		holidays[holidayIndex(session, Calendar.OCTOBER, 12)] = '2';
+		holidays[holidayIndex(session, Calendar.OCTOBER, 13)] = '2';
+		for (int day = 25; day <= 28; day++)
+			holidays[holidayIndex(session, Calendar.NOVEMBER, day)] = '1';
+		session.setHolidays(new String(holidays));
+		return session;
+	}
+	
+	private static int holidayIndex(Session session, int month, int day) {
+		return DateUtils.getDayOfYear(day, month, session.getSessionStartYear()) - DateUtils.getDayOfYear(1, session.getStartMonth(), session.getSessionStartYear());
+	}
+	
+	protected DatePattern createDatePattern(Long uniqueId, String name, String pattern) {
+		DatePattern dp = new DatePattern();
+		dp.setUniqueId(uniqueId);
+		dp.setName(name);
+		dp.setPattern(pattern);
+		dp.setOffset(0);
+		dp.setType(DatePattern.sTypeStandard);
+		dp.setVisible(true);
+		dp.setSession(iSession);
+		return dp;
+	}
+	
+	private static String fullTerm(int length) {
+		StringBuffer pattern = new StringBuffer(length);
+		for (int i = 0; i < length; i++) pattern.append('1');
+		return pattern.toString();
+	}
+	
+	private String withHolidays(int length) {
+		StringBuffer pattern = new StringBuffer(length);
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(iSession.getSessionBeginDateTime());
+		for (int i = 0; i < length; i++) {
+			int index = holidayIndex(iSession, cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH));
+			pattern.append(iSession.getHolidays().charAt(index) == '0' ? '1' : '0');
+			cal.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		return pattern.toString();
+	}
+	
+	private static String evenWeeks(int length) {
+		StringBuffer pattern = new StringBuffer(length);
+		for (int i = 0; i < length; i++) pattern.append((i / 7) % 2 == 1 ? '1' : '0');
+		return pattern.toString();
+	}
+	
+	public static Date date(int year, int month, int day) {
+		Calendar cal = Calendar.getInstance();
+		cal.clear();
+		cal.set(year, month, day);
+		return cal.getTime();
+	}
+	
+	private static int getNrDays(Date first, Date last) {
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(first);
+		int days = 1;
+		while (cal.getTime().before(last)) {
+			cal.add(Calendar.DAY_OF_MONTH, 1);
+			days++;
+		}
+		return days;
+	}
+	
+	/**
+	 * Meetings of the classes of a section, the way {@link MeetingElement#createMeetingElementsFor} creates them: one meeting
+	 * for each class, room, and date range. The classes of a section share the time and the room, but each meets on different
+	 * days of the week, so that the meetings of a section collapse into one meeting for each date range when merged.
+	 * Every fourth section meets on even weeks only, which gives a date range for each week.
+	 */
+	public List<MeetingElement> createMeetings(int section, int nrClasses) {
+		List<MeetingElement> meetings = new ArrayList<MeetingElement>();
+		String[] time = sTimes[section % sTimes.length];
+		String bldg = sBuildings[section % sBuildings.length];
+		String room = String.valueOf(100 + (section / sBuildings.length) % 300);
+		DatePattern dp = (section % 4 == 3 ? iEvenWeeks : iHolidays);
+		for (Map.Entry<Date, Date> range: MeetingElement.datePatternDates(dp).entrySet()) {
+			for (int c = 0; c < nrClasses; c++) {
+				MeetingElement me = new MeetingElement();
+				me.setMeetingId(section + "-" + c);
+				me.setItypeId(10);
+				me.setInstructionalMethod("LEC");
+				me.setAlternatingWeeks(dp == iEvenWeeks);
+				me.setStartDate(range.getKey());
+				me.setEndDate(range.getValue());
+				me.setBeginTime(time[0]);
+				me.setEndTime(time[1]);
+				me.setBldgCode(bldg);
+				me.setRoomCode(room);
+				switch (c % 5) {
+				case 0: me.setMonday(true); break;
+				case 1: me.setTuesday(true); break;
+				case 2: me.setWednesday(true); break;
+				case 3: me.setThursday(true); break;
+				case 4: me.setFriday(true); break;
+				}
+				meetings.add(me);
+			}
+		}
+		return meetings;
+	}
+	
+	/**
+	 * Merged meetings of the given number of sections
+	 */
+	public List<TreeSet<MeetingElement>> createMergedMeetings(int nrSections, int nrClasses) {
+		List<TreeSet<MeetingElement>> meetings = new ArrayList<TreeSet<MeetingElement>>(nrSections);
+		for (int s = 0; s < nrSections; s++)
+			meetings.add(MeetingElement.mergeMeetings(createMeetings(s, nrClasses)));
+		return meetings;
+	}
+	
+	/**
+	 * SCHEDULE packet with the given sections (with the attributes that ColleagueMessage fills in), every tenth section is cross-listed
+	 * with the previous one
+	 */
+	public Document createPacket(long packetId, List<TreeSet<MeetingElement>> meetings) {
+		Random random = new Random(SEED);
+		Document document = DocumentHelper.createDocument();
+		Element root = document.addElement("SCHEDULE");
+		root.addAttribute("PACKET_ID", String.valueOf(packetId));
+		root.addAttribute("TERM_CODE", TERM_CODE);
+		root.addAttribute("ORIGIN", "UniTime");
+		root.addAttribute("ACTION", "UPDATE");
+		root.addAttribute("IS_TRANSACTION", "Y");
+		root.addAttribute("DATE_FORMAT", "MM/DD/YYYY");
+		for (int s = 0; s < meetings.size(); s++)
+			addSection(root, s, meetings.get(s), random);
+		return document;
+	}
+	
+	/**
+	 * SECTION element with its meetings, instructor, and cross-list
+	 */
+	public Element addSection(Element root, int section, TreeSet<MeetingElement> meetings, Random random) {
+		Element sectionElement = root.addElement("SECTION");
+		sectionElement.addAttribute("ACTION", "UPDATE");
+		sectionElement.addAttribute("EXTERNAL_ID", String.valueOf(section));
+		sectionElement.addAttribute("COLLEAGUE_SYNONYM", String.valueOf(100000 + section));
+		sectionElement.addAttribute("SUBJ_CODE", sSubjects[section % sSubjects.length]);
+		sectionElement.addAttribute("CRSE_NUMB", String.valueOf(100 + section / 20));
+		sectionElement.addAttribute("ID", String.format("%02d", section % 20));
+		sectionElement.addAttribute("TITLE", "Synthetic Course " + (section / 20));
+		sectionElement.addAttribute("DEPT_CODE", sSubjects[section % sSubjects.length]);
+		sectionElement.addAttribute("LOCATION_CODE", "MC");
+		sectionElement.addAttribute("CAMP_CODE", "MC");
+		sectionElement.addAttribute("INSTRUCTIONAL_METHOD", "LEC");
+		sectionElement.addAttribute("MAX_ENRL", String.valueOf(10 + random.nextInt(200)));
+		sectionElement.addAttribute("NUM_WEEKS", "16");
+		sectionElement.addAttribute("MEETING_PATTERN", "");
+		sectionElement.addAttribute("MIN_CREDIT_HOURS", "3");
+		sectionElement.addAttribute("MAX_CREDIT_HOURS", "");
+		sectionElement.addAttribute("TEXT_NARRATIVE", "");
+		sectionElement.addAttribute("APPROVAL", "");
+		sectionElement.addAttribute("WEB_AVAIL", "Y");
+		sectionElement.addAttribute("PRINT_IND", "Y");
+		sectionElement.addAttribute("UNITIME_UID", "UniTime");
+		sectionElement.addAttribute("SECT_START_DATE", MessageDateFormat.formatDate(iSession.getSessionBeginDateTime()));
+		sectionElement.addAttribute("SECT_END_DATE", MessageDateFormat.formatDate(iSession.getClassesEndDateTime()));
+		sectionElement.addAttribute("SOFF_START_DATE", MessageDateFormat.formatDate(iSession.getSessionBeginDateTime()));
+		sectionElement.addAttribute("SOFF_END_DATE", MessageDateFormat.formatDate(iSession.getClassesEndDateTime()));
+		HashMap<String, Integer> meetingRepeatCounts = new HashMap<String, Integer>();
+		for (MeetingElement me: meetings) {
+			Integer count = meetingRepeatCounts.get(me.getMeetingId());
+			count = (count == null ? 0 : count + 1);
+			meetingRepeatCounts.put(me.getMeetingId(), count);
+			me.addMeetingElements(sectionElement, count);
+		}
+		Element instructorElement = sectionElement.addElement("INSTRUCTOR");
+		instructorElement.addAttribute("ID", String.format("%07d", random.nextInt(1000000)));
+		instructorElement.addAttribute("PERCENT", "100");
+		instructorElement.addAttribute("FIRST_NAME", "Synthetic");
+		instructorElement.addAttribute("MIDDLE_NAME", "");
+		instructorElement.addAttribute("LAST_NAME", "Instructor " + (section % 97));
+		if (section % 10 == 9) {
+			Element crosslistElement = sectionElement.addElement("CROSSLIST");
+			crosslistElement.addAttribute("PRIMARY_COLLEAGUE_SYNONYM", String.valueOf(100000 + section - 1));
+			crosslistElement.addAttribute("PRIMARY_UNITIME_UID", String.valueOf(section - 1));
+			crosslistElement.addAttribute("PRIMARY_CRS_SUBJECT", sSubjects[(section - 1) % sSubjects.length]);
+			crosslistElement.addAttribute("PRIMARY_CRS_NUMBER", String.valueOf(100 + (section - 1) / 20));
+			crosslistElement.addAttribute("PRIMARY_SECTION_ID", String.format("%02d", (section - 1) % 20));
+		}
+		return sectionElement;
+	}
+	
+	/**
+	 * Response to the given packet, as returned by Colleague (a MESSAGE for each section, every fiftieth of them an error)
+	 */
+	@SuppressWarnings("unchecked")
+	public static Document createResponse(Document packet) {
+		Element root = packet.getRootElement();
+		Document response = DocumentHelper.createDocument();
+		Element responseRoot = response.addElement("SCHEDULE_RESPONSE");
+		responseRoot.addAttribute("PACKET_ID", root.attributeValue("PACKET_ID"));
+		responseRoot.addAttribute("TERM_CODE", root.attributeValue("TERM_CODE"));
+		String activityDate = new SimpleDateFormat("M/d/yyyy H:m:s").format(new Date());
+		int seqNo = 0;
+		for (Element section: (List<Element>)root.elements("SECTION")) {
+			boolean error = (seqNo % 50 == 49);
+			Element message = responseRoot.addElement("MESSAGE");
+			message.addAttribute("PACKET_ID", root.attributeValue("PACKET_ID"));
+			message.addAttribute("SEQNO", String.valueOf(++seqNo));
+			message.addAttribute("ACTIVITY_DATE", activityDate);
+			message.addAttribute("TERM_CODE", root.attributeValue("TERM_CODE"));
+			message.addAttribute("COLLEAGUE_SYNONYM", section.attributeValue("COLLEAGUE_SYNONYM"));
+			message.addAttribute("SUBJ_CODE", section.attributeValue("SUBJ_CODE"));
+			message.addAttribute("CRSE_NUMB", section.attributeValue("CRSE_NUMB"));
+			message.addAttribute("ID", section.attributeValue("ID"));
+			message.addAttribute("UNITIME_UID", section.attributeValue("EXTERNAL_ID"));
+			message.addAttribute("ACTION", section.attributeValue("ACTION"));
+			message.addAttribute("TYPE", error ? "ERROR" : "SUCCESS");
+			message.addAttribute("MESSAGE", error ? "Section could not be saved." : "Section updated.");
+		}
+		return response;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import org.dom4j.Document;
+import org.unitime.colleague.queueprocessor.https.HttpsConnector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Load test of {@link HttpsConnector} against an embedded HTTPS server with a self-signed certificate (generated by keytool
+ * into a temporary key store). The given number of threads (defaults to 20) each send the given number of packets (defaults to 50)
+ * with the given number of sections (defaults to 100), the server answers each packet with its response after a delay
+ * (in milliseconds, defaults to 20). The following is reported:
+ * <ul>
+ * <li>throughput and the average and 95th percentile call times
+ * <li>connections ... TLS connections opened by the client (much lower than the number of calls when the connections are kept alive)
+ * <li>max concurrent ... highest number of calls that the server was processing at once (at most colleague.https.maxConnections)
+ * <li>chunked ... number of requests that were streamed in chunks rather than sent with a content length
+ * </ul>
+ * The connector settings are read from the system properties, e.g., -Dcolleague.https.maxConnections=10, see the benchmark-https target.
+ */
+public class HttpsLoadTest {
+	private static final String sPassword = "changeit";
+	
+	private static AtomicInteger sConnections = new AtomicInteger(0);
+	private static AtomicInteger sActive = new AtomicInteger(0);
+	private static AtomicInteger sMaxActive = new AtomicInteger(0);
+	private static AtomicInteger sChunked = new AtomicInteger(0);
+	
+	public static void main(String[] args) throws Exception {
+		int threads = (args.length > 0 ? Integer.parseInt(args[0]) : 20);
+		final int calls = (args.length > 1 ? Integer.parseInt(args[1]) : 50);
+		int sections = (args.length > 2 ? Integer.parseInt(args[2]) : 100);
+		final long delay = (args.length > 3 ? Long.parseLong(args[3]) : 20l);
+		
+		BenchmarkFixtures fixtures = new BenchmarkFixtures();
+		final Document packet = fixtures.createPacket(1l, fixtures.createMergedMeetings(sections, 1));
+		final byte[] response = BenchmarkFixtures.createResponse(packet).asXML().getBytes("UTF-8");
+		
+		HttpsServer server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setHttpsConfigurator(new HttpsConfigurator(createSslContext()) {
+			@Override
+			public void configure(HttpsParameters params) {
+				// called once for each new connection
+				sConnections.incrementAndGet();
+				params.setSSLParameters(getSSLContext().getDefaultSSLParameters());
+			}
+		});
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int active = sActive.incrementAndGet();
+				try {
+					while (true) {
+						int max = sMaxActive.get();
+						if (active <= max || sMaxActive.compareAndSet(max, active)) break;
+					}
+					if ("chunked".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Transfer-Encoding")))
+						sChunked.incrementAndGet();
+					InputStream in = exchange.getRequestBody();
+					byte[] buffer = new byte[8192];
+					while (in.read(buffer) >= 0) {}
+					in.close();
+					Thread.sleep(delay);
+					exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=UTF-8");
+					exchange.sendResponseHeaders(200, response.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(response);
+					out.close();
+				} catch (InterruptedException e) {
+					exchange.sendResponseHeaders(503, -1);
+				} finally {
+					sActive.decrementAndGet();
+					exchange.close();
+				}
+			}
+		});
+		ExecutorService serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.start();
+		
+		final String site = "https://localhost:" + server.getAddress().getPort() + "/";
+		ExecutorService clients = Executors.newFixedThreadPool(threads);
+		try {
+			// warm up (class loading, first TLS handshake)
+			new HttpsConnector().processUniTimePacket(site, null, null, true, packet);
+			sConnections.set(0); sMaxActive.set(0); sChunked.set(0);
+			
+			long t0 = System.nanoTime();
+			List<Future<List<Long>>> futures = new ArrayList<Future<List<Long>>>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(clients.submit(new Callable<List<Long>>() {
+					@Override
+					public List<Long> call() throws Exception {
+						HttpsConnector connector = new HttpsConnector();
+						List<Long> times = new ArrayList<Long>(calls);
+						for (int i = 0; i < calls; i++) {
+							long start = System.nanoTime();
+							if (connector.processUniTimePacket(site, null, null, true, packet) == null)
+								throw new Exception("No response returned.");
+							times.add(System.nanoTime() - start);
+						}
+						return times;
+					}
+				}));
+			}
+			List<Long> times = new ArrayList<Long>();
+			int errors = 0;
+			for (Future<List<Long>> future: futures) {
+				try {
+					times.addAll(future.get());
+				} catch (Exception e) {
+					System.err.println("Client failed: " + e.getMessage());
+					errors ++;
+				}
+			}
+			long wall = System.nanoTime() - t0;
+			Collections.sort(times);
+			long total = 0;
+			for (Long time: times) total += time;
+			
+			System.out.println(String.format("%-20s %d threads x %d calls, %d sections, %d ms server delay", "Load", threads, calls, sections, delay));
+			System.out.println(String.format("%-20s %d", "calls", times.size()));
+			System.out.println(String.format("%-20s %d", "failed clients", errors));
+			System.out.println(String.format("%-20s %.1f", "calls/s", times.size() / (wall / 1e9)));
+			if (!times.isEmpty()) {
+				System.out.println(String.format("%-20s %.2f", "average [ms]", total / 1e6 / times.size()));
+				System.out.println(String.format("%-20s %.2f", "95th pct [ms]", times.get((int)Math.floor(0.95 * (times.size() - 1))) / 1e6));
+			}
+			System.out.println(String.format("%-20s %d", "connections", sConnections.get()));
+			System.out.println(String.format("%-20s %d", "max concurrent", sMaxActive.get()));
+			System.out.println(String.format("%-20s %d", "chunked", sChunked.get()));
+		} finally {
+			clients.shutdownNow();
+			HttpsConnector.shutdown();
+			server.stop(0);
+			serverExecutor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Generate a key store with a self-signed certificate for localhost
+	 */
+	protected static SSLContext createSslContext() throws Exception {
+		File dir = File.createTempFile("https-load-test", "");
+		dir.delete(); dir.mkdirs();
+		File file = new File(dir, "keystore.jks");
+		try {
+			Process keytool = new ProcessBuilder(
+					System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool",
+					"-genkeypair", "-alias", "localhost", "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+					"-dname", "CN=localhost", "-keystore", file.getPath(), "-storetype", "JKS",
+					"-storepass", sPassword, "-keypass", sPassword).inheritIO().start();
+			if (keytool.waitFor() != 0)
+				throw new Exception("Failed to generate the key store (keytool exited with " + keytool.exitValue() + ").");
+			KeyStore keyStore = KeyStore.getInstance("JKS");
+			FileInputStream in = new FileInputStream(file);
+			try {
+				keyStore.load(in, sPassword.toCharArray());
+			} finally {
+				in.close();
+			}
+			KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+			kmf.init(keyStore, sPassword.toCharArray());
+			SSLContext context = SSLContext.getInstance("TLS");
+			context.init(kmf.getKeyManagers(), null, null);
+			return context;
+		} finally {
+			file.delete();
+			dir.delete();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.unitime.colleague.util.DatePatternCache;
+import org.unitime.colleague.util.MeetingElement;
+import org.unitime.timetable.model.DatePattern;
+
+/**
+ * Meeting expansion (date pattern to meeting date ranges) and merging of the meetings of a section.
+ * The pairwise merge is the algorithm that was used before {@link MeetingElement#mergeMeetings(Collection)},
+ * kept here as a baseline.<br>
+ * Both merges change the meetings they are given, so the meetings are created again before each invocation
+ * (outside of the measured time).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MeetingBenchmark {
+	@Param({ "1", "4", "16" })
+	public int classes;
+	
+	private BenchmarkFixtures iFixtures;
+	private List<List<MeetingElement>> iMeetings;
+	
+	@Setup
+	public void setup() {
+		iFixtures = new BenchmarkFixtures();
+		DatePatternCache.invalidateAll();
+	}
+	
+	@Setup(Level.Invocation)
+	public void createMeetings() {
+		iMeetings = new ArrayList<List<MeetingElement>>();
+		for (int s = 0; s < 100; s++)
+			iMeetings.add(iFixtures.createMeetings(s, classes));
+	}
+	
+	@Benchmark
+	public void expandDatePatterns(Blackhole bh) {
+		for (DatePattern dp: iFixtures.getDatePatterns())
+			bh.consume(MeetingElement.datePatternDates(dp));
+	}
+	
+	@Benchmark
+	public void expandDatePatternsCached(Blackhole bh) {
+		for (DatePattern dp: iFixtures.getDatePatterns())
+			bh.consume(DatePatternCache.getDateRanges(dp).toMap());
+	}
+	
+	@Benchmark
+	public void mergeMeetings(Blackhole bh) {
+		for (List<MeetingElement> meetings: iMeetings)
+			bh.consume(MeetingElement.mergeMeetings(meetings));
+	}
+	
+	@Benchmark
+	public void mergeMeetingsPairwise(Blackhole bh) {
+		for (List<MeetingElement> meetings: iMeetings)
+			bh.consume(pairwiseMerge(meetings));
+	}
+	
+	@Benchmark
+	public void expandAndMergeSections(Blackhole bh) {
+		for (int s = 0; s < 100; s++)
+			bh.consume(MeetingElement.mergeMeetings(iFixtures.createMeetings(s, classes)));
+	}
+	
+	protected static TreeSet<MeetingElement> pairwiseMerge(Collection<MeetingElement> meetings) {
+		TreeSet<MeetingElement> mergedMeetings = new TreeSet<MeetingElement>();
+		HashSet<MeetingElement> unmergedMeetings = new HashSet<MeetingElement>(meetings);
+		HashSet<MeetingElement> iterateSet = new HashSet<MeetingElement>(meetings);
+		for (Iterator<MeetingElement> meetingIt = meetings.iterator(); meetingIt.hasNext();) {
+			MeetingElement me = meetingIt.next();
+			iterateSet.remove(me);
+			if (unmergedMeetings.contains(me)) {
+				for (Iterator<MeetingElement> checkMeetingIt = iterateSet.iterator(); checkMeetingIt.hasNext();) {
+					MeetingElement checkMeeting = checkMeetingIt.next();
+					if (me.canBeMerged(checkMeeting)) {
+						me.merge(checkMeeting);
+						unmergedMeetings.remove(checkMeeting);
+					}
+				}
+				mergedMeetings.add(me);
+			}
+		}
+		return mergedMeetings;
+	}
+}
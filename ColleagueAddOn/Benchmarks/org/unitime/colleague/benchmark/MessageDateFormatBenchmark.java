@@ -0,0 +1,91 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.benchmark;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.unitime.colleague.util.MessageDateFormat;
+
+/**
+ * Formatting of the START_DATE / END_DATE attributes and parsing of the ACTIVITY_DATE attributes of 1000 messages using
+ * {@link MessageDateFormat}, compared with the SimpleDateFormat instances it replaced (a shared instance for formatting and
+ * a new instance for each response element for parsing).
+ * Run it with the GC profiler to see the allocations, e.g., -Dbench.include=MessageDateFormatBenchmark -Dbench.args="-f 1 -prof gc"
+ * (gc.alloc.rate.norm is the number of bytes allocated per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageDateFormatBenchmark {
+	private Date[] iDates;
+	private String[] iDateTimes;
+	private DateFormat iSharedDateFormat;
+	
+	@Setup
+	public void setup() {
+		Random random = new Random(BenchmarkFixtures.SEED);
+		iSharedDateFormat = new SimpleDateFormat("MM/dd/yyyy");
+		DateFormat dateTimeFormat = new SimpleDateFormat("MM/dd/yyyy H:m:s");
+		iDates = new Date[1000];
+		iDateTimes = new String[iDates.length];
+		long start = new Date().getTime();
+		for (int i = 0; i < iDates.length; i++) {
+			// dates of one semester
+			iDates[i] = new Date(start + (long)(random.nextDouble() * 120l * 24l * 3600000l));
+			iDateTimes[i] = dateTimeFormat.format(iDates[i]);
+		}
+	}
+	
+	@Benchmark
+	public void formatDate(Blackhole bh) {
+		for (Date date: iDates)
+			bh.consume(MessageDateFormat.formatDate(date));
+	}
+	
+	@Benchmark
+	public void formatDateSimpleDateFormat(Blackhole bh) {
+		for (Date date: iDates)
+			bh.consume(iSharedDateFormat.format(date));
+	}
+	
+	@Benchmark
+	public void parseDateTime(Blackhole bh) throws Exception {
+		for (String text: iDateTimes)
+			bh.consume(MessageDateFormat.parseDateTime(text));
+	}
+	
+	@Benchmark
+	public void parseDateTimeSimpleDateFormat(Blackhole bh) throws Exception {
+		for (String text: iDateTimes)
+			bh.consume(new SimpleDateFormat("MM/dd/yyyy H:m:s").parse(text));
+	}
+}
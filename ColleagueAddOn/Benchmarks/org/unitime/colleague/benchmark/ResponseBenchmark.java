@@ -0,0 +1,76 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.benchmark;
+
+import java.sql.Clob;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.unitime.colleague.dataexchange.ReceiveColleagueResponseMessage;
+import org.unitime.colleague.model.ColleagueResponse;
+import org.unitime.colleague.queueprocessor.util.ClobTools;
+
+/**
+ * Parsing of a SCHEDULE_RESPONSE into {@link ColleagueResponse} objects, the way {@link ReceiveColleagueResponseMessage} does it
+ * (without saving the responses and updating the sections).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseBenchmark {
+	@Param({ "100", "1000", "5000" })
+	public int sections;
+	
+	private Clob iResponse;
+	private ResponseParser iParser;
+	
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkFixtures fixtures = new BenchmarkFixtures();
+		iResponse = ClobTools.documentToCLOB(BenchmarkFixtures.createResponse(fixtures.createPacket(1l, fixtures.createMergedMeetings(sections, 1))));
+		iParser = new ResponseParser();
+	}
+	
+	@Benchmark
+	public void parseResponse(Blackhole bh) throws Exception {
+		Element root = ClobTools.clobToDocument(iResponse).getRootElement();
+		for (Iterator<?> i = root.elementIterator("MESSAGE"); i.hasNext();)
+			bh.consume(iParser.parse((Element)i.next()));
+	}
+	
+	/**
+	 * Response message reader that returns the responses instead of saving them
+	 */
+	public static class ResponseParser extends ReceiveColleagueResponseMessage {
+		public ColleagueResponse parse(Element colleagueResponseElement) throws Exception {
+			return createColleagueResponse(colleagueResponseElement);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.Work;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.unitime.colleague.model.ColleagueSection;
+import org.unitime.colleague.model.ColleagueSession;
+import org.unitime.colleague.model.dao.ColleagueSessionDAO;
+import org.unitime.colleague.util.ColleagueSectionGenerator;
+import org.unitime.commons.hibernate.util.HibernateUtil;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Generation of the Colleague sections of a whole session by {@link ColleagueSectionGenerator} (bulk) and by the original loop over all
+ * the class and course offering pairs ({@link ColleagueSession#generateColleagueSectionsForSessionPerClass()}).
+ * Before each invocation, the Colleague sections of the session with the most classes are deleted in a transaction that is rolled back
+ * after the invocation, so each invocation creates all the sections and the database is not changed.<br>
+ * Unlike the other benchmarks, this one needs a UniTime database with a Colleague session, configured in the same way
+ * as for the other command line tools (e.g., -Dtmtbl.custom.properties=...). It is excluded by bench.exclude, run it with
+ * -Dbench.include=SectionGeneratorBenchmark -Dbench.exclude=none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SectionGeneratorBenchmark {
+	private Long iColleagueSessionId;
+	private org.hibernate.Session iHibSession;
+	private Transaction iTransaction;
+	private ColleagueSession iColleagueSession;
+	
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
+		org.hibernate.Session hibSession = ColleagueSessionDAO.getInstance().createNewSession();
+		try {
+			List<Long> ids = (List<Long>)hibSession.createQuery(
+					"select cs.uniqueId from ColleagueSession cs, Class_ c where c.schedulingSubpart.instrOfferingConfig.instructionalOffering.session = cs.session " +
+					"group by cs.uniqueId order by count(c) desc").setMaxResults(1).list();
+			if (ids.isEmpty()) throw new IllegalStateException("There are no Colleague sessions with classes in the database.");
+			iColleagueSessionId = ids.get(0);
+		} finally {
+			hibSession.close();
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		HibernateUtil.closeHibernate();
+	}
+	
+	@Setup(Level.Invocation)
+	public void deleteSections() {
+		iHibSession = ColleagueSessionDAO.getInstance().getSession();
+		iTransaction = iHibSession.beginTransaction();
+		iColleagueSession = ColleagueSessionDAO.getInstance().get(iColleagueSessionId, iHibSession);
+		final Long sessionId = iColleagueSession.getSession().getUniqueId();
+		iHibSession.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement ps = connection.prepareStatement(
+						"delete from colleague_section_join_class where colleague_section_id in (select uniqueid from colleague_section where session_id = ?)");
+				try {
+					ps.setLong(1, sessionId);
+					ps.executeUpdate();
+				} finally {
+					ps.close();
+				}
+				ps = connection.prepareStatement("delete from colleague_section where session_id = ?");
+				try {
+					ps.setLong(1, sessionId);
+					ps.executeUpdate();
+				} finally {
+					ps.close();
+				}
+			}
+		});
+		evictCaches();
+	}
+	
+	@TearDown(Level.Invocation)
+	public void rollback() {
+		if (iTransaction != null && iTransaction.isActive()) iTransaction.rollback();
+		iHibSession.clear();
+		evictCaches();
+	}
+	
+	protected void evictCaches() {
+		iHibSession.getSessionFactory().getCache().evictEntityRegion(ColleagueSection.class);
+		iHibSession.getSessionFactory().getCache().evictCollectionRegion(ColleagueSection.class.getName() + ".colleagueSectionToClasses");
+		iHibSession.getSessionFactory().getCache().evictQueryRegions();
+	}
+	
+	@Benchmark
+	public int bulk() {
+		return new ColleagueSectionGenerator(iColleagueSession, iHibSession).generateSections();
+	}
+	
+	@Benchmark
+	public void perClass() {
+		iColleagueSession.generateColleagueSectionsForSessionPerClass();
+	}
+}
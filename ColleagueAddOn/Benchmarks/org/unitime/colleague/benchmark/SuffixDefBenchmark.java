@@ -0,0 +1,102 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.unitime.colleague.model.ColleagueSuffixDef;
+import org.unitime.colleague.model.ColleagueSuffixDefResolver;
+import org.unitime.colleague.model.dao.ColleagueSuffixDefDAO;
+import org.unitime.commons.hibernate.util.HibernateUtil;
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.model.CourseOffering;
+import org.unitime.timetable.model.ItypeDesc;
+
+/**
+ * Colleague suffix definition lookup of {@link ColleagueSuffixDef#findColleagueSuffixDefForTermCode(ItypeDesc, CourseOffering, String, org.hibernate.Session)},
+ * using the cached decision table of {@link ColleagueSuffixDefResolver} and using the query cascade (as when colleague.suffixDefCache.enabled is false).
+ * The lookups cycle through the course offerings of the term with the most suffix definitions and all the instructional types.<br>
+ * Unlike the other benchmarks, this one needs a UniTime database with Colleague suffix definitions, configured in the same way
+ * as for the other command line tools (e.g., -Dtmtbl.custom.properties=...). It is excluded by bench.exclude, run it with
+ * -Dbench.include=SuffixDefBenchmark -Dbench.exclude=none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SuffixDefBenchmark {
+	private org.hibernate.Session iHibSession;
+	private String iTermCode;
+	private CourseOffering[] iCourses;
+	private ItypeDesc[] iItypes;
+	private int iNextCourse = 0, iNextItype = 0;
+	
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
+		iHibSession = ColleagueSuffixDefDAO.getInstance().getSession();
+		List<Object[]> terms = (List<Object[]>)iHibSession.createQuery(
+				"select csd.termCode, count(csd) from ColleagueSuffixDef csd group by csd.termCode order by count(csd) desc").setMaxResults(1).list();
+		if (terms.isEmpty()) throw new IllegalStateException("There are no Colleague suffix definitions in the database.");
+		iTermCode = (String)terms.get(0)[0];
+		List<CourseOffering> courses = (List<CourseOffering>)iHibSession.createQuery(
+				"select co from CourseOffering co inner join fetch co.subjectArea sa, ColleagueSession cs where cs.colleagueTermCode = :termCode and sa.session = cs.session")
+				.setString("termCode", iTermCode).setMaxResults(1000).list();
+		if (courses.isEmpty()) throw new IllegalStateException("There are no course offerings of Colleague term " + iTermCode + ".");
+		iCourses = courses.toArray(new CourseOffering[courses.size()]);
+		List<ItypeDesc> itypes = (List<ItypeDesc>)iHibSession.createQuery("from ItypeDesc").list();
+		iItypes = itypes.toArray(new ItypeDesc[itypes.size()]);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		HibernateUtil.closeHibernate();
+	}
+	
+	private CourseOffering nextCourse() {
+		iNextCourse = (iNextCourse + 1) % iCourses.length;
+		return iCourses[iNextCourse];
+	}
+	
+	private ItypeDesc nextItype() {
+		if (iItypes.length == 0) return null;
+		iNextItype = (iNextItype + 1) % iItypes.length;
+		return iItypes[iNextItype];
+	}
+	
+	@Benchmark
+	public ColleagueSuffixDef cached() {
+		return ColleagueSuffixDefResolver.resolve(nextItype(), nextCourse(), iTermCode);
+	}
+	
+	@Benchmark
+	public ColleagueSuffixDef cascade() {
+		return ColleagueSuffixDef.findColleagueSuffixDefForTermCodeNoCache(nextItype(), nextCourse(), iTermCode);
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+create table integrationqueueout_arch (
+	uniqueid decimal(20,0) primary key not null,
+	status varchar(10) null,
+	postdate datetime not null,
+	pickupdate datetime null,
+	processdate datetime null,
+	archivedate datetime not null,
+	xml_gz longblob null
+) engine = INNODB;
+create index idx_integrationqueueout_arch on integrationqueueout_arch(archivedate);
+
+create table integrationqueuein_arch (
+	uniqueid decimal(20,0) primary key not null,
+	matchid decimal(20,0) null,
+	status varchar(10) null,
+	postdate datetime not null,
+	processdate datetime null,
+	session_key varchar(100) null,
+	message_type varchar(50) null,
+	external_id varchar(40) null,
+	archivedate datetime not null,
+	xml_gz longblob null
+) engine = INNODB;
+create index idx_integrationqueuein_arch on integrationqueuein_arch(archivedate);
+create index idx_integrationqueuein_arch_m on integrationqueuein_arch(matchid);
+
+create table integrationqueueerror_arch (
+	queueid decimal(20,0) not null,
+	errortype varchar(2) not null,
+	errordate datetime not null,
+	errortext varchar(255) null,
+	archivedate datetime not null,
+	primary key (queueid, errortype, errordate)
+) engine = INNODB;
+
+create index idx_integrationqueueout_post on integrationqueueout(status, postdate);
+create index idx_integrationqueuein_post on integrationqueuein(status, postdate);
+create index idx_response_queue_id on colleague_response(queue_id);
+
+update application_config set value='3' where name='tmtbl.db.colleague.version';
+
+commit;
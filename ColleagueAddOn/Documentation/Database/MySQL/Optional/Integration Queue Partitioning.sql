@@ -0,0 +1,66 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+/*
+ * Optional monthly partitioning of the integration queue archive tables (see 03 Integration Queue Archive.sql), by the archive date.
+ * This is not a part of the automatic database update, run it manually (on empty archive tables, right after the update, it is instant).
+ * MySQL requires the partitioning column to be a part of the primary key, so the archive date is added to it (the archived items are never updated).
+ * MySQL does not create new partitions automatically: split the pmax partition before each month starts, e.g.,
+ *   alter table integrationqueueout_arch reorganize partition pmax into (
+ *     partition p202704 values less than (to_days('2027-05-01')), partition pmax values less than maxvalue);
+ * (the same for integrationqueuein_arch and integrationqueueerror_arch).
+ * When partitioned, set colleague.queue.archive.keep=0 and drop the old partitions instead, e.g.,
+ *   alter table integrationqueueout_arch drop partition p202610;
+ *   alter table integrationqueuein_arch drop partition p202610;
+ *   alter table integrationqueueerror_arch drop partition p202610;
+ * (all items of a batch are archived with the same archive date, so the same months can be dropped from all three tables)
+ * The live queue tables are not partitioned: the archive date is not known when an item is posted and the primary key (uniqueid)
+ * of the live tables would need to include the post date.
+ */
+
+alter table integrationqueueout_arch drop primary key, add primary key (uniqueid, archivedate);
+alter table integrationqueueout_arch partition by range (to_days(archivedate)) (
+	partition p202610 values less than (to_days('2026-11-01')),
+	partition p202611 values less than (to_days('2026-12-01')),
+	partition p202612 values less than (to_days('2027-01-01')),
+	partition p202701 values less than (to_days('2027-02-01')),
+	partition p202702 values less than (to_days('2027-03-01')),
+	partition p202703 values less than (to_days('2027-04-01')),
+	partition pmax values less than maxvalue);
+
+alter table integrationqueuein_arch drop primary key, add primary key (uniqueid, archivedate);
+alter table integrationqueuein_arch partition by range (to_days(archivedate)) (
+	partition p202610 values less than (to_days('2026-11-01')),
+	partition p202611 values less than (to_days('2026-12-01')),
+	partition p202612 values less than (to_days('2027-01-01')),
+	partition p202701 values less than (to_days('2027-02-01')),
+	partition p202702 values less than (to_days('2027-03-01')),
+	partition p202703 values less than (to_days('2027-04-01')),
+	partition pmax values less than maxvalue);
+
+alter table integrationqueueerror_arch drop primary key, add primary key (queueid, errortype, errordate, archivedate);
+alter table integrationqueueerror_arch partition by range (to_days(archivedate)) (
+	partition p202610 values less than (to_days('2026-11-01')),
+	partition p202611 values less than (to_days('2026-12-01')),
+	partition p202612 values less than (to_days('2027-01-01')),
+	partition p202701 values less than (to_days('2027-02-01')),
+	partition p202702 values less than (to_days('2027-03-01')),
+	partition p202703 values less than (to_days('2027-04-01')),
+	partition pmax values less than maxvalue);
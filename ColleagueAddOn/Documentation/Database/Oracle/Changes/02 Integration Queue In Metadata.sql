@@ -0,0 +1,35 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+alter table integrationqueuein add session_key varchar2(100 char);
+alter table integrationqueuein add message_type varchar2(50 char);
+alter table integrationqueuein add external_id varchar2(40 char);
+
+create index idx_integrationqueuein_key on integrationqueuein(message_type, session_key, status);
+create index idx_integrationqueuein_ext on integrationqueuein(external_id);
+
+/*
+ * Existing messages are updated (message_type, session_key, external_id filled in from the XML)
+ * by a background job started the first time the old student update messages are removed (see QueueInMetadataBackfill)
+ */
+
+update application_config set value='2' where name='tmtbl.db.colleague.version';
+
+commit;
\ No newline at end of file
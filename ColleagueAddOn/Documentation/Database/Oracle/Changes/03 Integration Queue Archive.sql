@@ -0,0 +1,64 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+create table integrationqueueout_arch (
+	uniqueid number(20,0) constraint nn_iqoa_uniqueid not null,
+	status varchar2(10 char),
+	postdate timestamp constraint nn_iqoa_postdate not null,
+	pickupdate timestamp,
+	processdate timestamp,
+	archivedate timestamp constraint nn_iqoa_archivedate not null,
+	xml_gz blob
+);
+alter table integrationqueueout_arch add constraint pk_integrationqueueout_arch primary key (uniqueid);
+create index idx_integrationqueueout_arch on integrationqueueout_arch(archivedate);
+
+create table integrationqueuein_arch (
+	uniqueid number(20,0) constraint nn_iqia_uniqueid not null,
+	matchid number(20,0),
+	status varchar2(10 char),
+	postdate timestamp constraint nn_iqia_postdate not null,
+	processdate timestamp,
+	session_key varchar2(100 char),
+	message_type varchar2(50 char),
+	external_id varchar2(40 char),
+	archivedate timestamp constraint nn_iqia_archivedate not null,
+	xml_gz blob
+);
+alter table integrationqueuein_arch add constraint pk_integrationqueuein_arch primary key (uniqueid);
+create index idx_integrationqueuein_arch on integrationqueuein_arch(archivedate);
+create index idx_integrationqueuein_arch_m on integrationqueuein_arch(matchid);
+
+create table integrationqueueerror_arch (
+	queueid number(20,0) constraint nn_iqea_queueid not null,
+	errortype varchar2(2 char) constraint nn_iqea_errortype not null,
+	errordate timestamp constraint nn_iqea_errordate not null,
+	errortext varchar2(255 char),
+	archivedate timestamp constraint nn_iqea_archivedate not null
+);
+alter table integrationqueueerror_arch add constraint pk_integrationqueueerror_arch primary key (queueid, errortype, errordate);
+
+create index idx_integrationqueueout_post on integrationqueueout(status, postdate);
+create index idx_integrationqueuein_post on integrationqueuein(status, postdate);
+create index idx_response_queue_id on colleague_response(queue_id);
+
+update application_config set value='3' where name='tmtbl.db.colleague.version';
+
+commit;
@@ -0,0 +1,60 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+
+/*
+ * Optional monthly partitioning of the integration queue archive tables (see 03 Integration Queue Archive.sql), by the archive date.
+ * Requires Oracle 12.2 or newer with the Partitioning option. This is not a part of the automatic database update, run it manually.
+ * When partitioned, set colleague.queue.archive.keep=0 and drop the old partitions instead, e.g.,
+ *   alter table integrationqueueout_arch drop partition for (timestamp '2026-01-15 00:00:00') update global indexes;
+ *   alter table integrationqueuein_arch drop partition for (timestamp '2026-01-15 00:00:00') update global indexes;
+ *   alter table integrationqueueerror_arch drop partition for (timestamp '2026-01-15 00:00:00') update global indexes;
+ * (all items of a batch are archived with the same archive date, so the same months can be dropped from all three tables)
+ */
+
+alter table integrationqueueout_arch modify
+	partition by range (archivedate) interval (numtoyminterval(1, 'MONTH'))
+	(partition p_initial values less than (timestamp '2000-01-01 00:00:00'))
+	online update indexes (idx_integrationqueueout_arch local);
+
+alter table integrationqueuein_arch modify
+	partition by range (archivedate) interval (numtoyminterval(1, 'MONTH'))
+	(partition p_initial values less than (timestamp '2000-01-01 00:00:00'))
+	online update indexes (idx_integrationqueuein_arch local);
+
+alter table integrationqueueerror_arch modify
+	partition by range (archivedate) interval (numtoyminterval(1, 'MONTH'))
+	(partition p_initial values less than (timestamp '2000-01-01 00:00:00'))
+	online;
+
+/*
+ * The live queue tables can be partitioned by the post date as well. The status queries of the queue processor use the (status, postdate)
+ * index, which is kept global, so this mostly helps with keeping the segments of the tables compact.
+ * Converting a populated table rewrites it, run it during a maintenance window (the queue processor can keep running, the conversion is online).
+ *
+ * alter table integrationqueueout modify
+ * 	partition by range (postdate) interval (numtoyminterval(1, 'MONTH'))
+ * 	(partition p_initial values less than (timestamp '2000-01-01 00:00:00'))
+ * 	online update indexes;
+ *
+ * alter table integrationqueuein modify
+ * 	partition by range (postdate) interval (numtoyminterval(1, 'MONTH'))
+ * 	(partition p_initial values less than (timestamp '2000-01-01 00:00:00'))
+ * 	online update indexes;
+ */
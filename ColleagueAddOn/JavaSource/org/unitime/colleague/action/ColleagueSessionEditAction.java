@@ -37,6 +37,7 @@ import org.springframework.stereotype.Service;
 import org.unitime.colleague.form.ColleagueSessionEditForm;
 import org.unitime.colleague.model.ColleagueSession;
 import org.unitime.colleague.model.dao.ColleagueSessionDAO;
+import org.unitime.colleague.onlinesectioning.ColleagueTermCache;
 import org.unitime.timetable.model.ChangeLog;
 import org.unitime.timetable.model.dao.SessionDAO;
 import org.unitime.timetable.security.SessionContext;
@@ -174,6 +175,7 @@ public class ColleagueSessionEditAction extends SpringAwareLookupDispatchAction
                     null);
             
             tx.commit() ;
+            ColleagueTermCache.invalidate();
         } catch (Exception e) {
             if (tx!=null) tx.rollback();
             throw e;
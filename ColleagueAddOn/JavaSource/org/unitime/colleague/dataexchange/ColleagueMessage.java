@@ -19,12 +19,12 @@
 */
 package org.unitime.colleague.dataexchange;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
@@ -36,6 +36,8 @@ import org.unitime.colleague.model.ColleagueSection;
 import org.unitime.colleague.model.ColleagueSession;
 import org.unitime.colleague.model.ColleagueSuffixDef;
 import org.unitime.colleague.util.ColleagueMessageIdGenerator;
+import org.unitime.colleague.util.DatePatternCache;
+import org.unitime.colleague.util.MessageDateFormat;
 import org.unitime.colleague.util.MeetingElement;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.model.Class_;
@@ -60,38 +62,30 @@ public class ColleagueMessage {
 	private Element root;
 	private Document document;
 	
-    private static SimpleDateFormat sDateFormat = new SimpleDateFormat("MM/dd/yyyy");
 
-	private HashMap<Long, TreeMap<Date, Date>> datePatternMap;
-	private static HashMap<Long, Long> sessionDefaultDatePatternMap;
+	private HashMap<Long, SortedMap<Date, Date>> datePatternMap;
 
 	
 	private void manageDatePatternMapCache(){
 		if(datePatternMap == null){
-			datePatternMap = new HashMap<Long, TreeMap<Date,Date>>();
-		}
-	}
-	
-	private static void manageDefaultDatePatternMapCache(){
-		if(sessionDefaultDatePatternMap == null){
-			sessionDefaultDatePatternMap = new HashMap<Long, Long>();
+			datePatternMap = new HashMap<Long, SortedMap<Date,Date>>();
 		}
 	}
 
 	
-	public TreeMap<Date, Date> findDatesFor(DatePattern datePattern){
+	public SortedMap<Date, Date> findDatesFor(DatePattern datePattern){
 		manageDatePatternMapCache();
 		if (!datePatternMap.containsKey(datePattern.getUniqueId())){
-			datePatternMap.put(datePattern.getUniqueId(), MeetingElement.datePatternDates(datePattern));
+			datePatternMap.put(datePattern.getUniqueId(), DatePatternCache.getDateRanges(datePattern).toMap());
 		}
 		return(datePatternMap.get(datePattern.getUniqueId()));
 	}
 	
-	public TreeMap<Date, Date> findDatesFor(Long datePatternId){
+	public SortedMap<Date, Date> findDatesFor(Long datePatternId){
 		manageDatePatternMapCache();
 		if (!datePatternMap.containsKey(datePatternId)){
 			DatePattern dp = DatePatternDAO.getInstance().get(datePatternId);
-			datePatternMap.put(datePatternId, MeetingElement.datePatternDates(dp));
+			datePatternMap.put(datePatternId, DatePatternCache.getDateRanges(dp).toMap());
 		}
 		return(datePatternMap.get(datePatternId));
 	}
@@ -100,25 +94,28 @@ public class ColleagueMessage {
 	public void updateDatesForDatePattern(DatePattern datePattern){
 		manageDatePatternMapCache();
 		if (!datePatternMap.containsKey(datePattern.getUniqueId())){
-			datePatternMap.put(datePattern.getUniqueId(), MeetingElement.datePatternDates(datePattern));
+			datePatternMap.put(datePattern.getUniqueId(), DatePatternCache.getDateRanges(datePattern).toMap());
 		}	
 	}
 
 	public Long findDefaultDatePatternFor(org.unitime.timetable.model.Session acadSession){		
-		manageDefaultDatePatternMapCache();
-		if (!sessionDefaultDatePatternMap.containsKey(acadSession.getUniqueId())){
+		Long defaultDatePatternId = DatePatternCache.getDefaultDatePatternId(acadSession.getUniqueId());
+		if (defaultDatePatternId == null){
 			Session hibSession = DatePatternDAO.getInstance().createNewSession();
-			DatePattern defaultDatePattern = (DatePattern)hibSession.createQuery("from DatePattern dp where dp.session.uniqueId = :sessionId and dp.session.defaultDatePattern.uniqueId = dp.uniqueId").setLong("sessionId", acadSession.getUniqueId().longValue()).uniqueResult();
-			sessionDefaultDatePatternMap.put(acadSession.getUniqueId(), defaultDatePattern.getUniqueId());
-			updateDatesForDatePattern(defaultDatePattern);
-			hibSession.close();
+			try {
+				DatePattern defaultDatePattern = (DatePattern)hibSession.createQuery("from DatePattern dp where dp.session.uniqueId = :sessionId and dp.session.defaultDatePattern.uniqueId = dp.uniqueId").setLong("sessionId", acadSession.getUniqueId().longValue()).uniqueResult();
+				defaultDatePatternId = defaultDatePattern.getUniqueId();
+				DatePatternCache.setDefaultDatePatternId(acadSession.getUniqueId(), defaultDatePatternId);
+				updateDatesForDatePattern(defaultDatePattern);
+			} finally {
+				hibSession.close();
+			}
 		}
-		return(sessionDefaultDatePatternMap.get(acadSession.getUniqueId()));
+		return(defaultDatePatternId);
 	}
 	
 	public static void updateDefaultDatePatternForSession(DatePattern datePattern){
-		manageDefaultDatePatternMapCache();
-		sessionDefaultDatePatternMap.put(datePattern.getSession().getUniqueId(), datePattern.getUniqueId());
+		DatePatternCache.setDefaultDatePatternId(datePattern.getSession().getUniqueId(), datePattern.getUniqueId());
 	}
 
 	
@@ -206,7 +203,7 @@ public class ColleagueMessage {
 	
 	private void createMeetingElementsXml(ColleagueSection colleagueSection, Session hibSession, Element sectionElement) {
 		Set<MeetingElement> initialMeetingElements = getInitialMeetingElements(colleagueSection, hibSession);
-		TreeSet<MeetingElement> meetingElements = mergeMeetings(initialMeetingElements);
+		TreeSet<MeetingElement> meetingElements = MeetingElement.mergeMeetings(initialMeetingElements);
 		HashMap<String, Integer> meetingRepeatCounts = new HashMap<String, Integer>();
 		for(MeetingElement me : meetingElements){
 			if (meetingRepeatCounts.get(me.getMeetingId()) == null) {
@@ -411,40 +408,14 @@ public class ColleagueMessage {
 					endDate = dp.getEndDate();
 				}
 			}
-			sectionElement.addAttribute("SECT_START_DATE", sDateFormat.format(startDate));
-			sectionElement.addAttribute("SECT_END_DATE", sDateFormat.format(endDate));
-			sectionElement.addAttribute("SOFF_START_DATE", sDateFormat.format(startDate));
-			sectionElement.addAttribute("SOFF_END_DATE", sDateFormat.format(endDate));
+			sectionElement.addAttribute("SECT_START_DATE", MessageDateFormat.formatDate(startDate));
+			sectionElement.addAttribute("SECT_END_DATE", MessageDateFormat.formatDate(endDate));
+			sectionElement.addAttribute("SOFF_START_DATE", MessageDateFormat.formatDate(startDate));
+			sectionElement.addAttribute("SOFF_END_DATE", MessageDateFormat.formatDate(endDate));
 		} 
 		return(sectionElement);
 	}
 	
-	private TreeSet<MeetingElement> mergeMeetings(Set<MeetingElement> meetings){
-		TreeSet<MeetingElement> mergedMeetings = new TreeSet<MeetingElement>();
-		if(meetings.size() == 0){
-			mergedMeetings.addAll(meetings);
-		} else {
-			HashSet<MeetingElement> unmergedMeetings = new HashSet<MeetingElement>();
-			unmergedMeetings.addAll(meetings);
-			HashSet<MeetingElement> iterateSet = new HashSet<MeetingElement>();
-			iterateSet.addAll(meetings);
-			for(Iterator<MeetingElement> meetingIt = meetings.iterator(); meetingIt.hasNext();){
-				MeetingElement me = meetingIt.next();
-				iterateSet.remove(me);
-				if (unmergedMeetings.contains(me)){
-					for(Iterator<MeetingElement> checkMeetingIt = iterateSet.iterator(); checkMeetingIt.hasNext();){
-						MeetingElement checkMeeting = checkMeetingIt.next();
-						if (me.canBeMerged(checkMeeting)){
-							me.merge(checkMeeting);
-							unmergedMeetings.remove(checkMeeting);
-						}
-					}
-					mergedMeetings.add(me);
-				}
-			}
-		}
-		return(mergedMeetings);
-	}
 	public Long getMessageId() {
 		return messageId;
 	}
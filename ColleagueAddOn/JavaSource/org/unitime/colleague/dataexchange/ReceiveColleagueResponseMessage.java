@@ -19,9 +19,7 @@
 */
 package org.unitime.colleague.dataexchange;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
@@ -35,6 +33,7 @@ import org.unitime.colleague.model.QueueIn;
 import org.unitime.colleague.model.dao.ColleagueSectionDAO;
 import org.unitime.colleague.model.dao.QueueInDAO;
 import org.unitime.colleague.queueprocessor.exception.LoggableException;
+import org.unitime.colleague.util.MessageDateFormat;
 import org.unitime.timetable.dataexchange.BaseImport;
 
 
@@ -94,27 +93,7 @@ public class ReceiveColleagueResponseMessage extends BaseImport {
 				for (@SuppressWarnings("rawtypes")
 				Iterator eIt = rootElement.elementIterator(colleagueResponseName); eIt.hasNext();) {
 					Element colleagueResponseElement = (Element) eIt.next();
-					ColleagueResponse resp = new ColleagueResponse();
-					String dateStr = getRequiredStringAttribute(colleagueResponseElement, "ACTIVITY_DATE", colleagueResponseName);
-					DateFormat df = new SimpleDateFormat("MM/dd/yyyy H:m:s");
-					try {
-						Date aDate = df.parse(dateStr);
-						resp.setActivityDate(aDate);
-					} catch (ParseException e) {
-						e.printStackTrace();
-					}
-					resp.setSequenceNumber(getRequiredIntegerAttribute(colleagueResponseElement, "SEQNO", colleagueResponseName));
-					resp.setTermCode(getRequiredStringAttribute(colleagueResponseElement, "TERM_CODE", colleagueResponseName));
-					resp.setColleagueId(getOptionalStringAttribute(colleagueResponseElement, "COLLEAGUE_SYNONYM"));
-					resp.setSubjectCode(getOptionalStringAttribute(colleagueResponseElement, "SUBJ_CODE"));
-					resp.setCourseNumber(getOptionalStringAttribute(colleagueResponseElement, "CRSE_NUMB"));
-					resp.setSectionNumber(getOptionalStringAttribute(colleagueResponseElement, "ID"));
-					resp.setExternalId(getOptionalStringAttribute(colleagueResponseElement, "UNITIME_UID"));
-					resp.setAction(getOptionalStringAttribute(colleagueResponseElement, "ACTION"));
-					resp.setType(getOptionalStringAttribute(colleagueResponseElement, "TYPE"));
-					resp.setMessage(getRequiredStringAttribute(colleagueResponseElement, "MESSAGE", colleagueResponseName));
-					resp.setPacketId(getRequiredStringAttribute(colleagueResponseElement, "PACKET_ID", colleagueResponseName));
-					resp.setQueueId(queueId);
+					ColleagueResponse resp = createColleagueResponse(colleagueResponseElement);
 					getHibSession().save(resp);
 					
 					ColleagueSection colleagueSection = csDao.get(new Long(resp.getExternalId()), getHibSession());
@@ -146,5 +125,29 @@ public class ReceiveColleagueResponseMessage extends BaseImport {
 
 		}
 	}
+	
+	protected ColleagueResponse createColleagueResponse(Element colleagueResponseElement) throws Exception {
+		ColleagueResponse resp = new ColleagueResponse();
+		String dateStr = getRequiredStringAttribute(colleagueResponseElement, "ACTIVITY_DATE", colleagueResponseName);
+		try {
+			Date aDate = MessageDateFormat.parseDateTime(dateStr);
+			resp.setActivityDate(aDate);
+		} catch (ParseException e) {
+			e.printStackTrace();
+		}
+		resp.setSequenceNumber(getRequiredIntegerAttribute(colleagueResponseElement, "SEQNO", colleagueResponseName));
+		resp.setTermCode(getRequiredStringAttribute(colleagueResponseElement, "TERM_CODE", colleagueResponseName));
+		resp.setColleagueId(getOptionalStringAttribute(colleagueResponseElement, "COLLEAGUE_SYNONYM"));
+		resp.setSubjectCode(getOptionalStringAttribute(colleagueResponseElement, "SUBJ_CODE"));
+		resp.setCourseNumber(getOptionalStringAttribute(colleagueResponseElement, "CRSE_NUMB"));
+		resp.setSectionNumber(getOptionalStringAttribute(colleagueResponseElement, "ID"));
+		resp.setExternalId(getOptionalStringAttribute(colleagueResponseElement, "UNITIME_UID"));
+		resp.setAction(getOptionalStringAttribute(colleagueResponseElement, "ACTION"));
+		resp.setType(getOptionalStringAttribute(colleagueResponseElement, "TYPE"));
+		resp.setMessage(getRequiredStringAttribute(colleagueResponseElement, "MESSAGE", colleagueResponseName));
+		resp.setPacketId(getRequiredStringAttribute(colleagueResponseElement, "PACKET_ID", colleagueResponseName));
+		resp.setQueueId(queueId);
+		return resp;
+	}
 
 }
@@ -725,24 +725,35 @@ public class ColleagueSection extends BaseColleagueSection {
 	}
 		
 	public String classSuffixFor(Class_ clazz){
-			if (this.getColleagueId() == null  && this.getSectionIndex() == null){
+		if (this.getColleagueId() == null  && this.getSectionIndex() == null){
+			return(clazz.getClassSuffix());
+		}
+		return(classSuffixFor(this.getColleagueId(), this.getSectionIndex(), getCourseOffering().getInstructionalOffering().getCourseOfferings().size() > 1, clazz));
+	}
+	
+	public static String classSuffixFor(String colleagueId, String sectionIndex, boolean crosslisted, Class_ clazz){
+			if (colleagueId == null  && sectionIndex == null){
 				return(clazz.getClassSuffix());
-			} else if (this.getColleagueId() == null && this.getSectionIndex() != null) {
-				return(this.getSectionIndex() + (getCourseOffering().getInstructionalOffering().getCourseOfferings().size() > 1?"*":""));
-			} else if (this.getColleagueId() != null && this.getSectionIndex() == null) {
-				return(this.getColleagueId() + (getCourseOffering().getInstructionalOffering().getCourseOfferings().size() > 1?"*":""));
+			} else if (colleagueId == null && sectionIndex != null) {
+				return(sectionIndex + (crosslisted?"*":""));
+			} else if (colleagueId != null && sectionIndex == null) {
+				return(colleagueId + (crosslisted?"*":""));
 			} else {
-				if ((this.getColleagueId().length() + this.getSectionIndex().length() + (getCourseOffering().getInstructionalOffering().getCourseOfferings().size() > 1?"*":"").length()) >= 10){
-					String str = this.getColleagueId() + '-' + this.getSectionIndex() + (getCourseOffering().getInstructionalOffering().getCourseOfferings().size() > 1?"*":"");
+				if ((colleagueId.length() + sectionIndex.length() + (crosslisted?"*":"").length()) >= 10){
+					String str = colleagueId + '-' + sectionIndex + (crosslisted?"*":"");
 					return (str.substring(str.length() - 10));
 				} else {
-					return (this.getColleagueId() + '-' + this.getSectionIndex() + (getCourseOffering().getInstructionalOffering().getCourseOfferings().size() > 1?"*":""));
+					return (colleagueId + '-' + sectionIndex + (crosslisted?"*":""));
 				}
 			}
 	}
 	
 	public String externalUniqueIdFor(Class_ clazz, Session hibSession){
-		if (this.getColleagueId() == null){
+		return(externalUniqueIdFor(this.getColleagueId(), clazz));
+	}
+	
+	public static String externalUniqueIdFor(String colleagueId, Class_ clazz){
+		if (colleagueId == null){
 			if (clazz != null && clazz.getExternalUniqueId() != null){
 				return(clazz.getExternalUniqueId());
 			} else {
@@ -750,7 +761,7 @@ public class ColleagueSection extends BaseColleagueSection {
 			}
 		}
 
-		return(this.getColleagueId());
+		return(colleagueId);
 	}
 
 	public void assignNewSectionIndex(Session hibSession) throws Exception{
@@ -27,6 +27,7 @@ import java.util.Vector;
 import org.hibernate.FlushMode;
 import org.unitime.colleague.model.base.BaseColleagueSession;
 import org.unitime.colleague.model.dao.ColleagueSessionDAO;
+import org.unitime.colleague.util.ColleagueSectionGenerator;
 import org.unitime.timetable.model.Class_;
 import org.unitime.timetable.model.CourseOffering;
 import org.unitime.timetable.model.InstrOfferingConfig;
@@ -155,6 +156,17 @@ public class ColleagueSession extends BaseColleagueSession {
 	}
 
 	public void assignSectionNumbersToAllSectionsForSession() {
+		if (ColleagueSectionGenerator.isEnabled()) {
+			new ColleagueSectionGenerator(this, new InstructionalOfferingDAO().getSession()).assignSectionNumbers();
+		} else {
+			assignSectionNumbersToAllSectionsForSessionPerClass();
+		}
+	}
+	
+	/**
+	 * Same as {@link #assignSectionNumbersToAllSectionsForSession()}, but the sections of each class are looked up and updated one by one
+	 */
+	public void assignSectionNumbersToAllSectionsForSessionPerClass() {
 		
 		InstructionalOfferingDAO ioDao = new InstructionalOfferingDAO();
 		for(SubjectArea sa : this.getSession().getSubjectAreas()){
@@ -179,6 +191,17 @@ public class ColleagueSession extends BaseColleagueSession {
 		}
 	}
 	public void generateColleagueSectionsForSession() {
+		if (ColleagueSectionGenerator.isEnabled()) {
+			new ColleagueSectionGenerator(this, new InstructionalOfferingDAO().getSession()).generateSections();
+		} else {
+			generateColleagueSectionsForSessionPerClass();
+		}
+	}
+	
+	/**
+	 * Same as {@link #generateColleagueSectionsForSession()}, but each class and course offering pair is looked up and saved one by one
+	 */
+	public void generateColleagueSectionsForSessionPerClass() {
 		SchedulingSubpartComparator ssc = new SchedulingSubpartComparator();
 		InstructionalOfferingDAO ioDao = new InstructionalOfferingDAO();
 		for(SubjectArea sa : this.getSession().getSubjectAreas()){
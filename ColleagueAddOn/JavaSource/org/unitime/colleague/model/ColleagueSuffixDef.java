@@ -104,22 +104,50 @@ public class ColleagueSuffixDef extends BaseColleagueSuffixDef {
 		
 	}
 	
+	/**
+	 * Exact match lookup of a suffix definition of a term, null values only match definitions where the property is not set
+	 */
+	public static interface Lookup {
+		public ColleagueSuffixDef find(Long subjectAreaId, Integer itypeId, String suffix);
+	}
+	
 	public static ColleagueSuffixDef findColleagueSuffixDefForTermCode(ItypeDesc itype, CourseOffering courseOffering,
 			String termCode, Session session) {
+		if (ColleagueSuffixDefResolver.isEnabled())
+			return ColleagueSuffixDefResolver.resolve(itype, courseOffering, termCode);
+		return findColleagueSuffixDefForTermCodeNoCache(itype, courseOffering, termCode);
+	}
+	
+	/**
+	 * Same as {@link #findColleagueSuffixDefForTermCode(ItypeDesc, CourseOffering, String, Session)}, but each of the lookups is a database query
+	 */
+	public static ColleagueSuffixDef findColleagueSuffixDefForTermCodeNoCache(ItypeDesc itype, CourseOffering courseOffering, final String termCode) {
+		return findColleagueSuffixDef(itype, courseOffering, new Lookup() {
+			@Override
+			public ColleagueSuffixDef find(Long subjectAreaId, Integer itypeId, String suffix) {
+				return findColleagueSuffixDefForTermCodeItypeSuffix(termCode, subjectAreaId, itypeId, suffix);
+			}
+		});
+	}
+	
+	/**
+	 * Find the most specific suffix definition of the given instructional type and course offering, combining the partial matches when there is no exact match
+	 */
+	public static ColleagueSuffixDef findColleagueSuffixDef(ItypeDesc itype, CourseOffering courseOffering, Lookup lookup) {
 
 		String courseSuffix = findCourseSuffix(courseOffering);
-		ColleagueSuffixDef csd = findColleagueSuffixDefForTermCodeItypeSuffix(termCode, courseOffering.getSubjectArea().getUniqueId(), (itype == null?null:itype.getItype()), courseSuffix);
+		ColleagueSuffixDef csd = lookup.find(courseOffering.getSubjectArea().getUniqueId(), (itype == null?null:itype.getItype()), courseSuffix);
 		if (csd == null) {
 
-			ColleagueSuffixDef csdSubjectArea = findColleagueSuffixDefForTermCodeItypeSuffix(termCode, courseOffering.getSubjectArea().getUniqueId(), null, null);
+			ColleagueSuffixDef csdSubjectArea = lookup.find(courseOffering.getSubjectArea().getUniqueId(), null, null);
 
-			ColleagueSuffixDef csdItypeCourseSuffix = findColleagueSuffixDefForTermCodeItypeSuffix(termCode, null, (itype == null?null:itype.getItype()), courseSuffix);
+			ColleagueSuffixDef csdItypeCourseSuffix = lookup.find(null, (itype == null?null:itype.getItype()), courseSuffix);
 
 			ColleagueSuffixDef csdItype = null;
 			ColleagueSuffixDef csdCourseSuffix = null;
 			if (csdItypeCourseSuffix == null) {
-				csdItype = findColleagueSuffixDefForTermCodeItypeSuffix(termCode, null, (itype == null?null:itype.getItype()), null);
-				csdCourseSuffix = findColleagueSuffixDefForTermCodeItypeSuffix(termCode, null, null, courseSuffix);
+				csdItype = lookup.find(null, (itype == null?null:itype.getItype()), null);
+				csdCourseSuffix = lookup.find(null, null, courseSuffix);
 			} else {
 				csdItype = new ColleagueSuffixDef();
 				csdItype.setItypeId(csdItypeCourseSuffix.getItypeId());
@@ -137,7 +165,7 @@ public class ColleagueSuffixDef extends BaseColleagueSuffixDef {
 			}
 					
 			if (csdSubjectArea == null && csdItype == null && csdCourseSuffix == null){
-				csd = findColleagueSuffixDefForTermCodeItypeSuffix(termCode, null, null, null);
+				csd = lookup.find(null, null, null);
 				if (csd == null){
 					csd = new ColleagueSuffixDef();
 					csd.setMinSectionNum(new Integer(1));
@@ -341,6 +369,41 @@ public class ColleagueSuffixDef extends BaseColleagueSuffixDef {
 		return(Integer.toString(num));
 		
     }
+    /**
+     * Part of the section index that precedes the section number, as used by {@link #findNextSectionIndex(String)}
+     */
+    public String getSectionIndexPrefix() {
+    	if (this.isAllNumbers()) return "";
+    	if (this.getItypePrefix() != null && !this.getItypePrefix().isEmpty()) {
+    		return this.getItypePrefix() + (this.getPrefix() != null && !this.getPrefix().isEmpty() ? this.getPrefix() : "");
+    	}
+    	if (this.getPrefix() != null && !this.getPrefix().isEmpty()) return this.getPrefix();
+    	return "";
+    }
+    
+    /**
+     * Part of the section index that follows the section number, as used by {@link #findNextSectionIndex(String)}
+     */
+    public String getSectionIndexSuffix() {
+    	if (this.isAllNumbers()) return "";
+    	if (this.getPrefix() != null && !this.getPrefix().isEmpty()) return "";
+    	if (this.getItypePrefix() != null && !this.getItypePrefix().isEmpty()) {
+    		return (this.getSuffix() != null && !this.getSuffix().isEmpty() ? this.getSuffix() : "");
+    	}
+    	return this.getSuffix();
+    }
+    
+    /**
+     * Section index of the given section number, the same index {@link #findNextSectionIndex(String)} would return for the number
+     */
+    public String sectionIndexFor(int sectionNumber) {
+    	String num = Integer.toString(sectionNumber);
+    	if (this.isAllNumbers()) {
+    		return (num.length() == 1 ? "0" + num : num);
+    	}
+    	return getSectionIndexPrefix() + num + getSectionIndexSuffix();
+    }
+    
     public String findNextSectionIndex(String sectionIndex) throws Exception {
     	String next = "";
     	if (sectionIndex == null) {
@@ -0,0 +1,224 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.transaction.Synchronization;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.NonUniqueResultException;
+import org.unitime.colleague.model.dao.ColleagueSuffixDefDAO;
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.model.CourseOffering;
+import org.unitime.timetable.model.ItypeDesc;
+
+/**
+ * In-memory decision table of the {@link ColleagueSuffixDef} records of a Colleague term, used by
+ * {@link ColleagueSuffixDef#findColleagueSuffixDefForTermCode(ItypeDesc, CourseOffering, String, org.hibernate.Session)}
+ * to resolve the most specific suffix definition without querying the database for each of the partial matches.
+ * All definitions of a term are loaded at once into an immutable {@link Table} that is replaced as a whole when it is reloaded.
+ * A table is reloaded when the definitions were invalidated (see {@link #invalidate()}, called when the Colleague
+ * suffix definitions are saved) or when it is older than colleague.suffixDefCache.timeToLive seconds (defaults to 3600).
+ */
+public class ColleagueSuffixDefResolver {
+	protected static Log sLog = LogFactory.getLog(ColleagueSuffixDefResolver.class);
+	private static final AtomicLong sVersion = new AtomicLong(0);
+	private static final Map<String, Table> sTables = new ConcurrentHashMap<String, Table>();
+	
+	public static boolean isEnabled() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("colleague.suffixDefCache.enabled", "true"));
+	}
+	
+	public static long getTimeToLive() {
+		return 1000l * Long.parseLong(ApplicationProperties.getProperty("colleague.suffixDefCache.timeToLive", "3600"));
+	}
+	
+	/**
+	 * Decision table of the given term, reloaded from the database when invalidated or expired
+	 */
+	public static Table getTable(String termCode) {
+		Table table = sTables.get(termCode);
+		if (table == null || !table.isValid()) {
+			synchronized (ColleagueSuffixDefResolver.class) {
+				table = sTables.get(termCode);
+				if (table == null || !table.isValid()) {
+					table = load(termCode);
+					sTables.put(termCode, table);
+				}
+			}
+		}
+		return table;
+	}
+	
+	/**
+	 * Most specific suffix definition of the given instructional type and course offering, using the same precedence rules
+	 * as {@link ColleagueSuffixDef#findColleagueSuffixDefForTermCodeNoCache(ItypeDesc, CourseOffering, String)}
+	 */
+	public static ColleagueSuffixDef resolve(ItypeDesc itype, CourseOffering courseOffering, String termCode) {
+		return ColleagueSuffixDef.findColleagueSuffixDef(itype, courseOffering, getTable(termCode));
+	}
+	
+	/**
+	 * Current version of the definitions, incremented by {@link #invalidate()}
+	 */
+	static long getVersion() {
+		return sVersion.get();
+	}
+	
+	/**
+	 * Mark all the tables as outdated, the next lookup of a term will reload its definitions
+	 */
+	public static void invalidate() {
+		sVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Invalidate the tables once the current transaction of the given session is completed
+	 */
+	public static void invalidateOnCommit(org.hibernate.Session hibSession) {
+		invalidate();
+		if (hibSession.getTransaction() != null && hibSession.getTransaction().isActive()) {
+			hibSession.getTransaction().registerSynchronization(new Synchronization() {
+				@Override
+				public void beforeCompletion() {}
+				@Override
+				public void afterCompletion(int status) {
+					invalidate();
+				}
+			});
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected static Table load(String termCode) {
+		long version = sVersion.get();
+		org.hibernate.Session hibSession = ColleagueSuffixDefDAO.getInstance().createNewSession();
+		try {
+			return createTable(version, termCode, (List<ColleagueSuffixDef>)hibSession.createQuery(
+					"from ColleagueSuffixDef csd where csd.termCode = :termCode").setString("termCode", termCode).list());
+		} finally {
+			hibSession.close();
+		}
+	}
+	
+	/**
+	 * Decision table of the given suffix definitions (all of the same term)
+	 */
+	static Table createTable(long version, String termCode, Collection<ColleagueSuffixDef> suffixDefs) {
+		Map<Key, ColleagueSuffixDef> definitions = new HashMap<Key, ColleagueSuffixDef>();
+		Map<Key, Integer> duplicates = new HashMap<Key, Integer>();
+		for (ColleagueSuffixDef csd: suffixDefs) {
+			Key key = new Key(csd.getSubjectAreaId(), csd.getItypeId(), csd.getCourseSuffix());
+			if (definitions.put(key, copy(csd)) != null) {
+				Integer count = duplicates.get(key);
+				duplicates.put(key, count == null ? 2 : count + 1);
+			}
+		}
+		if (!duplicates.isEmpty())
+			sLog.warn("Colleague suffix definitions of term " + termCode + " are not unique for " + duplicates.keySet() + ".");
+		sLog.debug("Colleague suffix definitions loaded (term " + termCode + ", version " + version + ", " + definitions.size() + " definitions).");
+		return new Table(version, definitions, duplicates);
+	}
+	
+	protected static ColleagueSuffixDef copy(ColleagueSuffixDef csd) {
+		ColleagueSuffixDef copy = csd.clone();
+		copy.setUniqueId(csd.getUniqueId());
+		copy.setTermCode(csd.getTermCode());
+		return copy;
+	}
+	
+	/**
+	 * Immutable decision table of the suffix definitions of a term, keyed by subject area, instructional type, and course suffix
+	 */
+	public static class Table implements ColleagueSuffixDef.Lookup {
+		private final long iVersion;
+		private final long iCreated;
+		private final Map<Key, ColleagueSuffixDef> iDefinitions;
+		private final Map<Key, Integer> iDuplicates;
+		
+		Table(long version, Map<Key, ColleagueSuffixDef> definitions, Map<Key, Integer> duplicates) {
+			iVersion = version;
+			iCreated = System.currentTimeMillis();
+			iDefinitions = Collections.unmodifiableMap(definitions);
+			iDuplicates = Collections.unmodifiableMap(duplicates);
+		}
+		
+		public long getVersion() { return iVersion; }
+		public long getCreated() { return iCreated; }
+		public int size() { return iDefinitions.size(); }
+		
+		public boolean isValid() {
+			return iVersion == sVersion.get() && System.currentTimeMillis() - iCreated < getTimeToLive();
+		}
+		
+		/**
+		 * Exact match, a copy is returned so that the callers cannot change the cached definition.
+		 * Fails the same way as the query does when the match is not unique.
+		 */
+		@Override
+		public ColleagueSuffixDef find(Long subjectAreaId, Integer itypeId, String suffix) {
+			Key key = new Key(subjectAreaId, itypeId, suffix);
+			Integer duplicates = iDuplicates.get(key);
+			if (duplicates != null)
+				throw new NonUniqueResultException(duplicates);
+			ColleagueSuffixDef csd = iDefinitions.get(key);
+			return (csd == null ? null : copy(csd));
+		}
+	}
+	
+	static class Key {
+		private final Long iSubjectAreaId;
+		private final Integer iItypeId;
+		private final String iCourseSuffix;
+		
+		Key(Long subjectAreaId, Integer itypeId, String courseSuffix) {
+			iSubjectAreaId = subjectAreaId; iItypeId = itypeId; iCourseSuffix = courseSuffix;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (o == null || !(o instanceof Key)) return false;
+			Key k = (Key)o;
+			return equals(iSubjectAreaId, k.iSubjectAreaId) && equals(iItypeId, k.iItypeId) && equals(iCourseSuffix, k.iCourseSuffix);
+		}
+		
+		private static boolean equals(Object o1, Object o2) {
+			return (o1 == null ? o2 == null : o1.equals(o2));
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * (31 * (iSubjectAreaId == null ? 0 : iSubjectAreaId.hashCode()) + (iItypeId == null ? 0 : iItypeId.hashCode())) + (iCourseSuffix == null ? 0 : iCourseSuffix.hashCode());
+		}
+		
+		@Override
+		public String toString() {
+			return (iSubjectAreaId == null ? "*" : iSubjectAreaId.toString()) + "/" + (iItypeId == null ? "*" : iItypeId.toString()) + "/" + (iCourseSuffix == null ? "*" : iCourseSuffix);
+		}
+	}
+}
@@ -20,6 +20,9 @@
 
 package org.unitime.colleague.model;
 
+import java.util.Iterator;
+
+import org.dom4j.Element;
 import org.unitime.colleague.model.base.BaseQueueIn;
 
 
@@ -32,6 +35,9 @@ public class QueueIn extends BaseQueueIn {
 	private static final long serialVersionUID = 1L;
 
 	private static final String QUEUE_TYPE = "IN";
+	
+	/** Session key of a message with students of more than one session */
+	public static final String SESSION_KEY_MULTIPLE = "*";
 
 /*[CONSTRUCTOR MARKER BEGIN]*/
 	public QueueIn () {
@@ -50,5 +56,38 @@ public class QueueIn extends BaseQueueIn {
 	public String getQueueType() {
 		return QUEUE_TYPE;
 	}
+	
+	/**
+	 * Update the indexed metadata of the message from its XML: the message type is the name of the root element,
+	 * the session key is the session of the students of a studentUpdates message ({@link #SESSION_KEY_MULTIPLE} when
+	 * the students are from different sessions), and the external id is set when the message contains exactly one student.
+	 * Must be called when the XML of the message is set.
+	 */
+	public void updateMetadata() {
+		Element root = (getXml() == null ? null : getXml().getRootElement());
+		String sessionKey = null, externalId = null;
+		if (root != null && "studentUpdates".equalsIgnoreCase(root.getName())) {
+			int students = 0;
+			for (Iterator<?> i = root.elementIterator("student"); i.hasNext(); ) {
+				Element studentElement = (Element)i.next();
+				String session = studentElement.attributeValue("session");
+				if (session != null) {
+					if (session.length() > 100)
+						sessionKey = SESSION_KEY_MULTIPLE;
+					else if (sessionKey == null)
+						sessionKey = session;
+					else if (!sessionKey.equals(session))
+						sessionKey = SESSION_KEY_MULTIPLE;
+				}
+				if (students++ == 0)
+					externalId = studentElement.attributeValue("externalId");
+			}
+			if (students != 1 || (externalId != null && externalId.length() > 40))
+				externalId = null;
+		}
+		setMessageType(root == null ? null : root.getName().length() > 50 ? root.getName().substring(0, 50) : root.getName());
+		setSessionKey(sessionKey);
+		setExternalId(externalId);
+	}
 
 }
\ No newline at end of file
@@ -28,9 +28,15 @@ public abstract class BaseQueueIn extends Queue implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 	private Long iMatchId;
+	private String iSessionKey;
+	private String iMessageType;
+	private String iExternalId;
 
 
 	public static String PROP_MATCHID = "matchId";
+	public static String PROP_SESSION_KEY = "sessionKey";
+	public static String PROP_MESSAGE_TYPE = "messageType";
+	public static String PROP_EXTERNAL_ID = "externalId";
 
 	public BaseQueueIn() {
 		initialize();
@@ -46,6 +52,15 @@ public abstract class BaseQueueIn extends Queue implements Serializable {
 	public Long getMatchId() { return iMatchId; }
 	public void setMatchId(Long matchId) { iMatchId = matchId; }
 
+	public String getSessionKey() { return iSessionKey; }
+	public void setSessionKey(String sessionKey) { iSessionKey = sessionKey; }
+
+	public String getMessageType() { return iMessageType; }
+	public void setMessageType(String messageType) { iMessageType = messageType; }
+
+	public String getExternalId() { return iExternalId; }
+	public void setExternalId(String externalId) { iExternalId = externalId; }
+
 	public boolean equals(Object o) {
 		if (o == null || !(o instanceof QueueIn)) return false;
 		if (getUniqueId() == null || ((QueueIn)o).getUniqueId() == null) return false;
@@ -63,9 +78,12 @@ public abstract class BaseQueueIn extends Queue implements Serializable {
 
 	public String toDebugString() {
 		return "QueueIn[" +
+			"\n	ExternalId: " + getExternalId() +
 			"\n	MatchId: " + getMatchId() +
+			"\n	MessageType: " + getMessageType() +
 			"\n	PostDate: " + getPostDate() +
 			"\n	ProcessDate: " + getProcessDate() +
+			"\n	SessionKey: " + getSessionKey() +
 			"\n	Status: " + getStatus() +
 			"\n	UniqueId: " + getUniqueId() +
 			"\n	Xml: " + getXml() +
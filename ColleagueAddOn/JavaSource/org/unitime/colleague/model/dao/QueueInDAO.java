@@ -20,11 +20,14 @@
 
 package org.unitime.colleague.model.dao;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.unitime.colleague.model.Queue;
 import org.unitime.colleague.model.QueueIn;
 import org.unitime.colleague.model.base.BaseQueueInDAO;
 import org.unitime.colleague.queueprocessor.exception.LoggableException;
@@ -95,4 +98,72 @@ public class QueueInDAO extends BaseQueueInDAO {
 		return null;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Delete processed messages of the given type and session key (except for the given message) in batches of at most batchSize messages.
+	 * The messages are found using the indexed metadata columns, only messages with students of multiple sessions
+	 * ({@link QueueIn#SESSION_KEY_MULTIPLE}) are checked using their XML.
+	 * When the session has no active transaction, each batch is deleted in its own transaction.
+	 * @return number of deleted messages
+	 */
+	@SuppressWarnings("unchecked")
+	public int purge(String messageType, String sessionKey, Long exceptId, int batchSize, Session hibSession) {
+		int deleted = 0;
+		boolean ownTransaction = (hibSession.getTransaction() == null || !hibSession.getTransaction().isActive());
+		while (true) {
+			List<Long> ids = new ArrayList<Long>(batchSize);
+			ids.addAll(hibSession.createQuery(
+					"select q.uniqueId from QueueIn q where q.messageType = :messageType and q.sessionKey = :sessionKey and q.status = :status and q.uniqueId != :exceptId")
+					.setString("messageType", messageType).setString("sessionKey", sessionKey)
+					.setString("status", Queue.STATUS_PROCESSED).setLong("exceptId", exceptId)
+					.setMaxResults(batchSize).list());
+			if (ids.size() < batchSize)
+				ids.addAll(hibSession.createQuery(
+						"select q.uniqueId from QueueIn q where q.messageType = :messageType and q.sessionKey = :multiple and q.status = :status and q.uniqueId != :exceptId and q.xml like :pattern")
+						.setString("messageType", messageType).setString("multiple", QueueIn.SESSION_KEY_MULTIPLE)
+						.setString("status", Queue.STATUS_PROCESSED).setLong("exceptId", exceptId)
+						.setString("pattern", "%session=\"" + sessionKey + "\"%")
+						.setMaxResults(batchSize - ids.size()).list());
+			if (ids.isEmpty()) break;
+			Transaction tx = (ownTransaction ? hibSession.beginTransaction() : null);
+			try {
+				deleted += hibSession.createQuery("delete QueueIn q where q.uniqueId in (:ids)").setParameterList("ids", ids).executeUpdate();
+				if (tx != null) tx.commit();
+			} catch (HibernateException e) {
+				if (tx != null && tx.isActive()) tx.rollback();
+				throw e;
+			}
+			if (ids.size() < batchSize) break;
+		}
+		return deleted;
+	}
+	
+	/**
+	 * Fill in the metadata columns (see {@link QueueIn#updateMetadata()}) of at most batchSize messages that were saved before the columns existed
+	 * and that have a greater unique id than lastId, in a transaction of their own.
+	 * @return unique ids of the updated messages, ordered
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Long> backfillMetadata(Long lastId, int batchSize) {
+		List<Long> ids = new ArrayList<Long>(batchSize);
+		Session hibSession = createNewSession();
+		Transaction tx = hibSession.beginTransaction();
+		try {
+			List<QueueIn> messages = hibSession.createQuery(
+					"from QueueIn q where q.messageType is null and q.uniqueId > :lastId order by q.uniqueId")
+					.setLong("lastId", lastId).setMaxResults(batchSize).list();
+			for (QueueIn message: messages) {
+				message.updateMetadata();
+				hibSession.update(message);
+				ids.add(message.getUniqueId());
+			}
+			tx.commit();
+		} catch (HibernateException e) {
+			if (tx.isActive()) tx.rollback();
+			throw e;
+		} finally {
+			hibSession.close();
+		}
+		return ids;
+	}
+
+}
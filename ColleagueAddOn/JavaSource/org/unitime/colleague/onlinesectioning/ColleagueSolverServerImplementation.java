@@ -46,6 +46,7 @@ public class ColleagueSolverServerImplementation {
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			public void run() {
 				poller.interrupt();
+				QueueInMetadataBackfill.shutdown();
 			}
 		});
 	}
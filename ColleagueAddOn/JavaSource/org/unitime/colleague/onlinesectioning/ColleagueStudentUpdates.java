@@ -36,6 +36,7 @@ import org.unitime.colleague.model.Queue;
 import org.unitime.colleague.model.QueueIn;
 import org.unitime.colleague.model.dao.QueueInDAO;
 import org.unitime.colleague.onlinesectioning.ColleagueUpdateStudentAction.UpdateResult;
+import org.unitime.timetable.ApplicationProperties;
 import org.unitime.timetable.dataexchange.BaseImport;
 import org.unitime.timetable.defaults.ApplicationProperty;
 import org.unitime.timetable.model.StudentClassEnrollment;
@@ -131,27 +132,15 @@ public class ColleagueStudentUpdates extends BaseImport implements MessageHandle
 			}
 		}
 
+		if (colleagueSessionIds.isEmpty()) return;
+		QueueInMetadataBackfill.startOnce();
+		int batchSize = Integer.parseInt(ApplicationProperties.getProperty("colleague.studentUpdates.purgeBatchSize", "500"));
 		for (String colleagueSessionId : colleagueSessionIds) {
-			StringBuilder queryBase = new StringBuilder();
-			queryBase.append(" from QueueIn q where q.xml like '%session=\"")
-					.append(colleagueSessionId)
-					.append("\"%' and q.uniqueId != ")
-					.append(queueId.toString())
-					.append(" and q.status = '")
-					.append(Queue.STATUS_PROCESSED)
-					.append("'");
-					;
-			String countQuery = "select count(q) " + queryBase.toString();
-	    	    Long uniqueIdsToDeleteCount = (Long) hibSession.createQuery(countQuery).uniqueResult();
-	    	    if (0 == uniqueIdsToDeleteCount) {
-	    	    		info("-- no old student update records to delete from:  QueueIn");
-	    	    }
-	    	    else {
-	    	        info("-- " + uniqueIdsToDeleteCount + " old student update records to delete from:  QueueIn");
-	    	        String deleteHql = "delete " + queryBase.toString();
-	    	        info("-- delete statement:  " + deleteHql);
-	    	        hibSession.createQuery(deleteHql).executeUpdate();
-	    	    }
+			int deleted = QueueInDAO.getInstance().purge(rootElement.getName(), colleagueSessionId, queueId, batchSize, hibSession);
+			if (deleted == 0)
+				info("-- no old student update records to delete from:  QueueIn");
+			else
+				info("-- " + deleted + " old student update records of session " + colleagueSessionId + " deleted from:  QueueIn");
 		}
 	}
 	
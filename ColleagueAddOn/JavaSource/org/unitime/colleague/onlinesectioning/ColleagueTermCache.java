@@ -0,0 +1,158 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.onlinesectioning;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.transaction.Synchronization;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitime.colleague.model.dao.ColleagueSessionDAO;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * In-memory mapping of academic sessions to Colleague term codes and campuses, used by {@link ColleagueTermProvider}.
+ * The mapping is kept in an immutable {@link Snapshot} that is replaced as a whole when it is reloaded,
+ * so lookups do not need any locking or database access. A snapshot is reloaded when the mapping was
+ * invalidated (see {@link #invalidate()}, called when a Colleague session is saved) or when it is older than
+ * colleague.termCache.timeToLive seconds (defaults to 3600).
+ */
+public class ColleagueTermCache {
+	protected static Log sLog = LogFactory.getLog(ColleagueTermCache.class);
+	private static final AtomicLong sVersion = new AtomicLong(0);
+	private static volatile Snapshot sSnapshot = null;
+	
+	public static boolean isEnabled() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("colleague.termCache.enabled", "true"));
+	}
+	
+	public static long getTimeToLive() {
+		return 1000l * Long.parseLong(ApplicationProperties.getProperty("colleague.termCache.timeToLive", "3600"));
+	}
+	
+	/**
+	 * Current snapshot, reloaded from the database when invalidated or expired
+	 */
+	public static Snapshot getSnapshot() {
+		Snapshot snapshot = sSnapshot;
+		if (snapshot == null || !snapshot.isValid()) {
+			synchronized (ColleagueTermCache.class) {
+				snapshot = sSnapshot;
+				if (snapshot == null || !snapshot.isValid()) {
+					snapshot = load();
+					sSnapshot = snapshot;
+				}
+			}
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Colleague term and campus of the given academic session, null if the session has no Colleague session
+	 */
+	public static Term getTerm(Long sessionId) {
+		return getSnapshot().getTerm(sessionId);
+	}
+	
+	/**
+	 * Mark the current snapshot as outdated, the next lookup will reload the mapping
+	 */
+	public static void invalidate() {
+		sVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Invalidate the mapping once the current transaction of the given session is completed
+	 */
+	public static void invalidateOnCommit(org.hibernate.Session hibSession) {
+		invalidate();
+		if (hibSession.getTransaction() != null && hibSession.getTransaction().isActive()) {
+			hibSession.getTransaction().registerSynchronization(new Synchronization() {
+				@Override
+				public void beforeCompletion() {}
+				@Override
+				public void afterCompletion(int status) {
+					invalidate();
+				}
+			});
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected static Snapshot load() {
+		long version = sVersion.get();
+		Map<Long, Term> terms = new HashMap<Long, Term>();
+		org.hibernate.Session hibSession = ColleagueSessionDAO.getInstance().createNewSession();
+		try {
+			for (Object[] o: (List<Object[]>)hibSession.createQuery(
+					"select cs.session.uniqueId, cs.colleagueTermCode, cs.colleagueCampus from ColleagueSession cs").list()) {
+				terms.put((Long)o[0], new Term((String)o[1], (String)o[2]));
+			}
+		} finally {
+			hibSession.close();
+		}
+		sLog.debug("Colleague term mapping loaded (version " + version + ", " + terms.size() + " sessions).");
+		return new Snapshot(version, terms);
+	}
+	
+	/**
+	 * Immutable mapping of academic session ids to Colleague terms
+	 */
+	public static class Snapshot {
+		private final long iVersion;
+		private final long iCreated;
+		private final Map<Long, Term> iTerms;
+		
+		Snapshot(long version, Map<Long, Term> terms) {
+			iVersion = version;
+			iCreated = System.currentTimeMillis();
+			iTerms = Collections.unmodifiableMap(terms);
+		}
+		
+		public Term getTerm(Long sessionId) { return (sessionId == null ? null : iTerms.get(sessionId)); }
+		
+		public boolean isValid() {
+			return iVersion == sVersion.get() && System.currentTimeMillis() - iCreated < getTimeToLive();
+		}
+	}
+	
+	/**
+	 * Colleague term code and campus of an academic session
+	 */
+	public static class Term {
+		private final String iTermCode;
+		private final String iCampus;
+		
+		Term(String termCode, String campus) {
+			iTermCode = termCode; iCampus = campus;
+		}
+		
+		public String getTermCode() { return iTermCode; }
+		public String getCampus() { return iCampus; }
+		
+		@Override
+		public String toString() { return iTermCode + " (" + iCampus + ")"; }
+	}
+}
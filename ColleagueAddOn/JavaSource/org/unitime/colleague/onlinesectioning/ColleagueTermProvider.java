@@ -28,9 +28,25 @@ import org.unitime.timetable.onlinesectioning.custom.ExternalTermProvider;
  * @author Tomas Muller, Stephanie Schluttenhofer
  */
 public class ColleagueTermProvider implements ExternalTermProvider {
+	
+	public ColleagueTermProvider() {
+		// load the term mapping at startup
+		if (ColleagueTermCache.isEnabled()) {
+			try {
+				ColleagueTermCache.getSnapshot();
+			} catch (Exception e) {
+				ColleagueTermCache.sLog.warn("Failed to load Colleague term mapping: " + e.getMessage(), e);
+			}
+		}
+	}
 
 	@Override
 	public String getExternalTerm(AcademicSessionInfo session) {
+		if (ColleagueTermCache.isEnabled()) {
+			ColleagueTermCache.Term term = ColleagueTermCache.getTerm(session.getUniqueId());
+			if (term != null) return term.getTermCode();
+			return session.getTerm();
+		}
 		org.hibernate.Session hibSession = ColleagueSessionDAO.getInstance().createNewSession();
 		try {
 			ColleagueSession cs = ColleagueSession.findColleagueSessionForSession(session.getUniqueId(), hibSession);
@@ -46,6 +62,11 @@ public class ColleagueTermProvider implements ExternalTermProvider {
 	
 	@Override
 	public String getExternalCampus(AcademicSessionInfo session) {
+		if (ColleagueTermCache.isEnabled()) {
+			ColleagueTermCache.Term term = ColleagueTermCache.getTerm(session.getUniqueId());
+			if (term != null) return term.getCampus();
+			return session.getCampus();
+		}
 		org.hibernate.Session hibSession = ColleagueSessionDAO.getInstance().createNewSession();
 		try {
 			ColleagueSession cs = ColleagueSession.findColleagueSessionForSession(session.getUniqueId(), hibSession);
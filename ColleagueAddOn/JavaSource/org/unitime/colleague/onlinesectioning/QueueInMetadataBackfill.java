@@ -0,0 +1,102 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.onlinesectioning;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitime.colleague.model.dao.QueueInDAO;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Background job filling in the metadata columns of the QueueIn messages that were saved before the columns existed
+ * (see {@link QueueInDAO#backfillMetadata(Long, int)}). The messages are updated in batches of colleague.queueIn.backfill.batchSize
+ * messages (defaults to 500), each in its own transaction, with a pause of colleague.queueIn.backfill.pause milliseconds (defaults to 1000)
+ * between the batches. The job is started (once per run) by the first purge of old student update messages, which does not wait for it;
+ * the messages that are not updated yet are purged by a later purge.
+ */
+public class QueueInMetadataBackfill extends Thread {
+	protected static Log sLog = LogFactory.getLog(QueueInMetadataBackfill.class);
+	private static QueueInMetadataBackfill sInstance = null;
+	
+	private boolean iActive = true;
+	
+	protected QueueInMetadataBackfill() {
+		super("QueueInMetadataBackfill");
+		setDaemon(true);
+	}
+	
+	/**
+	 * Start the job, unless it has already been started
+	 */
+	public static synchronized void startOnce() {
+		if (sInstance != null) return;
+		sInstance = new QueueInMetadataBackfill();
+		sInstance.start();
+	}
+	
+	/**
+	 * Stop the job if it is running
+	 */
+	public static synchronized void shutdown() {
+		if (sInstance != null && sInstance.isAlive())
+			sInstance.interrupt();
+	}
+	
+	protected int getBatchSize() {
+		return Integer.parseInt(ApplicationProperties.getProperty("colleague.queueIn.backfill.batchSize", "500"));
+	}
+	
+	protected long getPause() {
+		return Long.parseLong(ApplicationProperties.getProperty("colleague.queueIn.backfill.pause", "1000"));
+	}
+	
+	@Override
+	public void interrupt() {
+		iActive = false;
+		super.interrupt();
+		try { join(); } catch (InterruptedException e) {}
+	}
+	
+	public void run() {
+		sLog.info("QueueIn metadata backfill started.");
+		int updated = 0;
+		Long lastId = -1l;
+		try {
+			int batchSize = getBatchSize();
+			while (iActive) {
+				List<Long> ids = QueueInDAO.getInstance().backfillMetadata(lastId, batchSize);
+				if (ids.isEmpty()) break;
+				updated += ids.size();
+				lastId = ids.get(ids.size() - 1);
+				if (ids.size() < batchSize) break;
+				try {
+					sleep(getPause());
+				} catch (InterruptedException e) {}
+			}
+		} catch (Exception e) {
+			sLog.error("Failed to update QueueIn metadata: " + e.getMessage(), e);
+		}
+		if (updated > 0)
+			sLog.info(updated + " QueueIn records updated with session key, message type, and external id.");
+		sLog.info("QueueIn metadata backfill " + (iActive ? "finished." : "stopped."));
+	}
+}
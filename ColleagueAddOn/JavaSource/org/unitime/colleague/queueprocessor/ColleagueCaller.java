@@ -22,21 +22,17 @@ package org.unitime.colleague.queueprocessor;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.sql.Clob;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
-import org.dom4j.io.OutputFormat;
 import org.dom4j.io.SAXReader;
-import org.dom4j.io.XMLWriter;
+import org.unitime.colleague.queueprocessor.file.FileTransport;
 import org.unitime.colleague.queueprocessor.https.HttpsConnector;
 import org.unitime.colleague.queueprocessor.oracle.OracleConnector;
 import org.unitime.colleague.queueprocessor.util.ClobTools;
@@ -277,53 +273,15 @@ public abstract class ColleagueCaller {
 	}
 	
 	protected ArrayList<File> filesToProcess(String directoryName, String fileNameBase) throws Exception {
-	
-		File directory = new File(directoryName);
-		if (!directory.isDirectory()){
-			throw(new Exception("'" + directoryName + "' is not a valid directory."));
-		}
-		if (fileNameBase.isEmpty()){
-			throw(new Exception("Missing base name for files to look for in directory: '" + directoryName + "'."));			
-		}
-		ArrayList<File> files = new ArrayList<File>();
-		for(File f : directory.listFiles()){
-			if (f.getName().contains(fileNameBase)){
-				if (!f.getName().contains(FILE_PROCESS_STATUS.SUCCESS.toString()) && !f.getName().contains(FILE_PROCESS_STATUS.FAILED.toString())){
-					files.add(f);
-				}
-			}
-		}
-				
-		Collections.sort(files, new Comparator<File>(){
-		    public int compare(File f1, File f2)
-		    {
-		        return (f1.getName()).compareTo(f2.getName());
-		    } });
-		return(files);
-	}
-	
-	protected void renameFile(File file, String namePrefix){
-		String path = file.getAbsolutePath().substring(0, file.getAbsolutePath().indexOf(file.getName()));
-		String newName = namePrefix + file.getName();
-		String newFileName = path + File.separator + newName;
-		
-        File newFile = new File(newFileName);
-         
-        boolean status = file.renameTo(newFile) ;
-         
-        if (status)
-            Debug.info("File:  " + newFileName + " - renamed successfully.");
-        else
-            Debug.info("File name:  " + newFileName + " - rename failed.");
-		
+		return new ArrayList<File>(FileTransport.getInstance(directoryName, fileNameBase).takeFiles());
 	}
 	
 	protected void renameFileSuccess(File file) {
-			renameFile(file, FILE_PROCESS_STATUS.SUCCESS.toString());
+		FileTransport.archive(file, FILE_PROCESS_STATUS.SUCCESS);
 	}
 	
 	protected void renameFileError(File file) {
-		renameFile(file, FILE_PROCESS_STATUS.FAILED.toString());
+		FileTransport.archive(file, FILE_PROCESS_STATUS.FAILED);
 	}
 
 	protected Document documentFromFile(File file) {
@@ -368,18 +326,6 @@ public abstract class ColleagueCaller {
 	}
 
 	protected void documentToFile(File file, Document document) throws Exception {
-        FileOutputStream fos = null;
-        try {
-            fos = new FileOutputStream(file);
-            (new XMLWriter(fos,OutputFormat.createPrettyPrint())).write(document);
-            fos.flush();fos.close();fos=null;
-        } finally {
-            try {
-                if (fos!=null) fos.close();
-            } catch (IOException e) {
-                Debug.error("Unable to write file "+file.getName()+", reason:"+e.getMessage(),e);
-                throw e;
-            }
-        }
+		FileTransport.write(file, document);
 	}
 }
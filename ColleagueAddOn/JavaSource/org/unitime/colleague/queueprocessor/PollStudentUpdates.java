@@ -37,6 +37,7 @@ import org.unitime.colleague.model.dao.QueueInDAO;
 import org.unitime.colleague.model.dao.QueueOutDAO;
 import org.unitime.colleague.onlinesectioning.ColleagueStudentUpdates;
 import org.unitime.colleague.queueprocessor.exception.LoggableException;
+import org.unitime.colleague.queueprocessor.file.FileTransport;
 import org.unitime.colleague.queueprocessor.https.HttpsConnector;
 import org.unitime.colleague.queueprocessor.oracle.OracleConnector;
 import org.unitime.commons.Debug;
@@ -77,6 +78,7 @@ public class PollStudentUpdates extends ColleagueCaller {
 			qi.setMatchId(null);
 			qi.setStatus(QueueIn.STATUS_READY);
 			qi.setXml(result);
+			qi.updateMetadata();
 
 			qi.setUniqueId(qid.save(qi));
 			
@@ -114,6 +116,25 @@ public class PollStudentUpdates extends ColleagueCaller {
 
 	}
 	
+	/**
+	 * Wait for the given number of milliseconds. In the FILE connection mode the wait ends as soon as a new file is found in the exchange directory.
+	 * @return true if there are student updates waiting to be picked up
+	 */
+	public boolean waitForUpdates(long timeout) throws InterruptedException {
+		if (pollForStudentUpdates) {
+			try {
+				if (CONNECTION_TYPES.FILE.toString().equals(getColleagueStudentInterfaceConnectionType().toUpperCase()))
+					return FileTransport.getInstance(getColleagueStudentInterfaceConnectionFileDirectory(), getColleagueStudentInterfaceConnectionIncomingFileBaseFilename()).await(timeout);
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				Debug.error("Failed to wait for student update files: " + e.getMessage());
+			}
+		}
+		Thread.sleep(timeout);
+		return false;
+	}
+	
 	public void poll() {
 		if (!pollForStudentUpdates) return;
 		try {
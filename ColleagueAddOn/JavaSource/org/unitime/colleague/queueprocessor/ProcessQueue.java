@@ -28,7 +28,13 @@ import org.cpsolver.ifs.util.ToolBox;
 import org.unitime.colleague.model.QueueOut;
 import org.unitime.colleague.model.dao.QueueInDAO;
 import org.unitime.colleague.model.dao.QueueOutDAO;
+import org.unitime.colleague.onlinesectioning.QueueInMetadataBackfill;
 import org.unitime.colleague.queueprocessor.exception.LoggableException;
+import org.unitime.colleague.queueprocessor.https.HttpsConnector;
+import org.unitime.colleague.queueprocessor.metrics.MetricsEndpoint;
+import org.unitime.colleague.queueprocessor.metrics.QueueLagMonitor;
+import org.unitime.colleague.queueprocessor.metrics.QueueMetrics;
+import org.unitime.colleague.queueprocessor.util.QueueArchiver;
 import org.unitime.commons.Debug;
 import org.unitime.commons.hibernate.util.HibernateUtil;
 import org.unitime.timetable.ApplicationProperties;
@@ -87,6 +93,16 @@ public class ProcessQueue {
 			e1.printStackTrace();
 			System.exit(1);
 		}
+		
+		QueueMetrics.registerMBean();
+		MetricsEndpoint.start();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				HttpsConnector.shutdown();
+				QueueInMetadataBackfill.shutdown();
+			}
+		});
 
 		Debug.info("Error Sleep Interval: " + error_sleep_interval);
 		Debug.info("Sleep Interval: " + sleep_interval);
@@ -108,9 +124,12 @@ public class ProcessQueue {
 				lastRunTime = new Date();
 				processQueue.process();
 				pollStudentUpdates.poll();
+				QueueLagMonitor.getInstance().evaluate();
+				QueueArchiver.getInstance().archiveIfDue();
 			} else {
 				try {
-					Thread.sleep(sleep_interval);
+					if (pollStudentUpdates.waitForUpdates(sleep_interval))
+						pollStudentUpdates.poll();
 				} catch (InterruptedException e) {
 					e.printStackTrace();
 				}
@@ -127,6 +146,10 @@ public class ProcessQueue {
 				done = true;
 			}
 		}
+		
+		MetricsEndpoint.stop();
+		HttpsConnector.shutdown();
+		QueueInMetadataBackfill.shutdown();
 	}
 
 	public static void printUsage() {
@@ -146,7 +169,9 @@ public class ProcessQueue {
 			do {
 			
 				try {
+					long t0 = QueueMetrics.start();
 					outList = qod.findByStatus(QueueOut.STATUS_POSTED);
+					QueueMetrics.stop(QueueMetrics.STAGE_CLAIM, t0);
 					error = false;
 				} catch(Exception ex) {
 					//Sleep for the error_sleep_interval and try again
@@ -156,6 +181,10 @@ public class ProcessQueue {
 				}
 			} while (error); //Try again if an error occurred
 
+			QueueMetrics.gauge(QueueMetrics.GAUGE_DEPTH, outList.size());
+			QueueLagMonitor.getInstance().posted(outList);
+			QueueMetrics.add(QueueMetrics.COUNTER_CLAIMED, outList.size());
+			
 			if (outList.size() == 0) {
 				Debug.info("*** No items in Queue to be processed.");
 				return;
@@ -169,7 +198,11 @@ public class ProcessQueue {
 				Debug.info("Processing ID:"
 						+ ((QueueOut) outList.get(i)).getUniqueId().toString());
 
-				(new QueuedItem((QueueOut) outList.get(i))).processItem();
+				QueueOut item = (QueueOut) outList.get(i);
+				long t0 = System.currentTimeMillis();
+				(new QueuedItem(item)).processItem();
+				if (QueueOut.STATUS_PROCESSED.equals(item.getStatus()))
+					QueueLagMonitor.getInstance().completed(item, System.currentTimeMillis() - t0);
 				
 				
 				} catch(Exception ex) {
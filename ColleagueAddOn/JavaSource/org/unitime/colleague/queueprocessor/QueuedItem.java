@@ -34,6 +34,7 @@ import org.unitime.colleague.model.dao.QueueInDAO;
 import org.unitime.colleague.model.dao.QueueOutDAO;
 import org.unitime.colleague.queueprocessor.exception.LoggableException;
 import org.unitime.colleague.queueprocessor.https.HttpsConnector;
+import org.unitime.colleague.queueprocessor.metrics.QueueMetrics;
 import org.unitime.colleague.queueprocessor.oracle.OracleConnector;
 import org.unitime.commons.Debug;
 
@@ -59,9 +60,12 @@ public class QueuedItem extends ColleagueCaller {
 	
 	public void processItem() throws SQLException, Exception {
 
+		long t0 = QueueMetrics.start();
 		try {
 
 			item.setPickupDate(new Date());
+			if (item.getPostDate() != null)
+				QueueMetrics.recordMillis(QueueMetrics.STAGE_WAIT, item.getPickupDate().getTime() - item.getPostDate().getTime());
 			item.setStatus(QueueOut.STATUS_POSTED);
 			qod.update(item);
 
@@ -84,12 +88,15 @@ public class QueuedItem extends ColleagueCaller {
 				qi.setMatchId(item.getUniqueId());
 				qi.setStatus(QueueIn.STATUS_POSTED);
 				qi.setXml(result);
+				qi.updateMetadata();
 
 				qid.save(qi);
 				
 				// Process in UniTime
 				boolean sync = ("TRUE".equalsIgnoreCase(item.getXml().getRootElement().attributeValue("SYNC")));
+				long t1 = QueueMetrics.start();
 				ReceiveColleagueResponseMessage.receiveResponseDocument(qi, sync);
+				QueueMetrics.stop(QueueMetrics.STAGE_RESPONSE, t1);
 				
 			} catch (Exception ex) {
 				LoggableException le = new LoggableException(ex, qi);
@@ -117,6 +124,9 @@ Debug.info("update item process state, after save");
 			
 			LoggableException le = new LoggableException(ex, item);
 			le.logError();
+		} finally {
+			QueueMetrics.stop(QueueMetrics.STAGE_ITEM, t0);
+			QueueMetrics.increment(QueueOut.STATUS_PROCESSED.equals(item.getStatus()) ? QueueMetrics.COUNTER_PROCESSED : QueueMetrics.COUNTER_FAILED);
 		}
 
 	}
@@ -153,7 +163,9 @@ Debug.info("update item process state, after save");
 		Clob clob = jdbc.processUnitimePacket(xml);
 		Debug.info("\t" + item.getUniqueId() + ": Response received from Colleague.");
 
+		long t0 = QueueMetrics.start();
 		Document outDoc = convertClobToDocument(clob);
+		QueueMetrics.stop(QueueMetrics.STAGE_PARSE, t0);
 		
 		jdbc.cleanup();
 
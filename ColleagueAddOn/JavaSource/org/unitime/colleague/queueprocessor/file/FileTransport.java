@@ -0,0 +1,324 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.queueprocessor.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.dom4j.Document;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.unitime.colleague.queueprocessor.ColleagueCaller.FILE_PROCESS_STATUS;
+import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * File transport of the FILE connection type. The exchange directory is only listed once, when the transport is created;
+ * after that, new files are reported by a {@link WatchService} and kept in an in-memory queue ordered by file name,
+ * so the cost of a pickup does not depend on the number of files in the directory (the directory is listed again only when
+ * the watch service reports an overflow).
+ * A file is only picked up once it is complete, that is when its size and modification time have not changed since the previous poll
+ * and it has not been modified for colleague.interface.connection.file.settleTime milliseconds (defaults to 1000), so that a file that
+ * is still being written is not read as soon as it is created.
+ * Processed files are renamed in place with the status prefix; when colleague.interface.connection.file.archiveDirectory is set,
+ * they are moved into dated subdirectories of the given directory (relative to the exchange directory) instead.
+ * Outgoing files are written to a temporary file first and then renamed, so that a partially written file is never picked up.
+ * Set colleague.interface.connection.file.compact to true to write compact XML instead of pretty-printed XML, and
+ * colleague.interface.connection.file.watch to false to list the directory on each poll.
+ */
+public class FileTransport {
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static Map<String, FileTransport> sTransports = new HashMap<String, FileTransport>();
+	
+	private Path iDirectory;
+	private String iBaseName;
+	private WatchService iWatchService = null;
+	private TreeSet<String> iQueue = new TreeSet<String>();
+	private Map<String, FileState> iStates = new HashMap<String, FileState>();
+	
+	protected FileTransport(Path directory, String baseName) throws IOException {
+		iDirectory = directory;
+		iBaseName = baseName;
+		if (isWatchEnabled()) {
+			try {
+				iWatchService = directory.getFileSystem().newWatchService();
+				directory.register(iWatchService, StandardWatchEventKinds.ENTRY_CREATE);
+			} catch (IOException e) {
+				Debug.error("Unable to watch directory " + directory + ", the directory will be listed on each poll: " + e.getMessage());
+				iWatchService = null;
+			} catch (UnsupportedOperationException e) {
+				Debug.error("Unable to watch directory " + directory + ", the directory will be listed on each poll: " + e.getMessage());
+				iWatchService = null;
+			}
+		}
+		scan();
+	}
+	
+	public static boolean isWatchEnabled() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("colleague.interface.connection.file.watch", "true"));
+	}
+	
+	public static boolean isCompact() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("colleague.interface.connection.file.compact", "false"));
+	}
+	
+	public static String getArchiveDirectory() {
+		return ApplicationProperties.getProperty("colleague.interface.connection.file.archiveDirectory");
+	}
+	
+	public static long getSettleTime() {
+		return Long.parseLong(ApplicationProperties.getProperty("colleague.interface.connection.file.settleTime", "1000"));
+	}
+	
+	/**
+	 * Transport for incoming files of the given base name in the given directory
+	 */
+	public static synchronized FileTransport getInstance(String directoryName, String baseName) throws Exception {
+		File directory = new File(directoryName);
+		if (!directory.isDirectory()){
+			throw(new Exception("'" + directoryName + "' is not a valid directory."));
+		}
+		if (baseName == null || baseName.isEmpty()){
+			throw(new Exception("Missing base name for files to look for in directory: '" + directoryName + "'."));			
+		}
+		String key = directory.getAbsolutePath() + File.separator + baseName;
+		FileTransport transport = sTransports.get(key);
+		if (transport == null) {
+			transport = new FileTransport(directory.toPath().toAbsolutePath(), baseName);
+			sTransports.put(key, transport);
+		}
+		return transport;
+	}
+	
+	protected boolean accept(String name) {
+		return name.contains(iBaseName) && !name.endsWith(TEMP_SUFFIX) &&
+				!name.contains(FILE_PROCESS_STATUS.SUCCESS.toString()) && !name.contains(FILE_PROCESS_STATUS.FAILED.toString());
+	}
+	
+	protected synchronized void scan() throws IOException {
+		DirectoryStream<Path> stream = Files.newDirectoryStream(iDirectory);
+		try {
+			for (Path path: stream) {
+				String name = path.getFileName().toString();
+				if (accept(name) && Files.isRegularFile(path))
+					iQueue.add(name);
+			}
+		} finally {
+			stream.close();
+		}
+	}
+	
+	protected synchronized void drain(WatchKey key) throws IOException {
+		for (WatchEvent<?> event: key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				scan();
+			} else {
+				String name = ((Path)event.context()).getFileName().toString();
+				if (accept(name)) iQueue.add(name);
+			}
+		}
+		if (!key.reset()) {
+			Debug.error("Directory " + iDirectory + " is no longer watched, the directory will be listed on each poll.");
+			iWatchService.close();
+			iWatchService = null;
+		}
+	}
+	
+	/**
+	 * Files that are waiting to be processed and that are complete, ordered by name. A file stays in the queue until it is moved away (see {@link #archive(File, FILE_PROCESS_STATUS)}).
+	 */
+	public synchronized List<File> takeFiles() throws IOException {
+		if (iWatchService == null) {
+			scan();
+		} else {
+			WatchKey key;
+			while (iWatchService != null && (key = iWatchService.poll()) != null)
+				drain(key);
+		}
+		prune();
+		return ready();
+	}
+	
+	/**
+	 * Remove files that are no longer in the directory (processed files are moved away) from the queue
+	 */
+	protected synchronized void prune() {
+		for (Iterator<String> i = iQueue.iterator(); i.hasNext(); ) {
+			if (!Files.isRegularFile(iDirectory.resolve(i.next())))
+				i.remove();
+		}
+		iStates.keySet().retainAll(iQueue);
+	}
+	
+	/**
+	 * Queued files that are complete: the size and the modification time are the same as on the previous call
+	 * and the file has not been modified for the settle time
+	 */
+	protected synchronized List<File> ready() {
+		long settleTime = getSettleTime();
+		long now = System.currentTimeMillis();
+		List<File> files = new ArrayList<File>(iQueue.size());
+		for (String name: iQueue) {
+			Path path = iDirectory.resolve(name);
+			FileState state;
+			try {
+				state = new FileState(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+			} catch (IOException e) {
+				continue;
+			}
+			FileState previous = iStates.put(name, state);
+			if (state.equals(previous) && now - state.getLastModified() >= settleTime)
+				files.add(path.toFile());
+		}
+		return files;
+	}
+	
+	/**
+	 * Wait until there is a complete file to be processed, at most the given number of milliseconds
+	 * @return true if there is a file waiting to be processed
+	 */
+	public boolean await(long timeout) throws IOException, InterruptedException {
+		long settleTime = Math.max(1l, getSettleTime());
+		long end = System.currentTimeMillis() + timeout;
+		long remaining = timeout;
+		while (remaining > 0) {
+			WatchService watchService = null;
+			boolean pending = false;
+			synchronized (this) {
+				prune();
+				if (!ready().isEmpty()) return true;
+				watchService = iWatchService;
+				pending = !iQueue.isEmpty();
+			}
+			// files that are still being written are checked again after the settle time
+			long wait = (pending ? Math.min(remaining, settleTime) : remaining);
+			if (watchService == null) {
+				Thread.sleep(wait);
+				if (!pending) return false;
+			} else {
+				WatchKey key = watchService.poll(wait, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					synchronized (this) {
+						drain(key);
+					}
+				} else if (!pending) {
+					return false;
+				}
+			}
+			remaining = end - System.currentTimeMillis();
+		}
+		return false;
+	}
+	
+	/**
+	 * Move a processed file into the archive (or rename it in place when there is no archive directory), the name is prefixed with the status
+	 */
+	public static void archive(File file, FILE_PROCESS_STATUS status) {
+		Path source = file.toPath();
+		Path target = null;
+		try {
+			String archive = getArchiveDirectory();
+			if (archive == null || archive.isEmpty()) {
+				target = source.resolveSibling(status.toString() + file.getName());
+			} else {
+				Path directory = source.resolveSibling(archive).resolve(LocalDate.now().toString());
+				Files.createDirectories(directory);
+				target = directory.resolve(status.toString() + file.getName());
+			}
+			move(source, target);
+			Debug.info("File:  " + target + " - renamed successfully.");
+		} catch (IOException e) {
+			Debug.info("File name:  " + (target == null ? file.getName() : target) + " - rename failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Write the document into a temporary file in the target directory and rename it to the target file when done
+	 */
+	public static void write(File file, Document document) throws IOException {
+		Path target = file.toPath();
+		Path temp = target.resolveSibling(file.getName() + TEMP_SUFFIX);
+		OutputStream out = Files.newOutputStream(temp);
+		try {
+			XMLWriter writer = new XMLWriter(out, isCompact() ? OutputFormat.createCompactFormat() : OutputFormat.createPrettyPrint());
+			writer.write(document);
+			writer.flush();
+		} catch (IOException e) {
+			Debug.error("Unable to write file " + file.getName() + ", reason:" + e.getMessage(), e);
+			out.close();
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		out.close();
+		move(temp, target);
+	}
+	
+	/**
+	 * Size and modification time of a file, as seen by the last poll
+	 */
+	protected static class FileState {
+		private long iSize, iLastModified;
+		
+		protected FileState(long size, long lastModified) {
+			iSize = size; iLastModified = lastModified;
+		}
+		
+		public long getSize() { return iSize; }
+		public long getLastModified() { return iLastModified; }
+		
+		@Override
+		public boolean equals(Object o) {
+			if (o == null || !(o instanceof FileState)) return false;
+			FileState s = (FileState)o;
+			return getSize() == s.getSize() && getLastModified() == s.getLastModified();
+		}
+		
+		@Override
+		public int hashCode() {
+			return Long.valueOf(31 * getSize() + getLastModified()).hashCode();
+		}
+	}
+	
+	protected static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target);
+		}
+	}
+}
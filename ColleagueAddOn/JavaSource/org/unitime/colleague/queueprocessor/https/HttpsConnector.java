@@ -21,13 +21,14 @@
 package org.unitime.colleague.queueprocessor.https;
 
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
@@ -46,12 +47,13 @@ import org.restlet.data.ChallengeScheme;
 import org.restlet.data.MediaType;
 import org.restlet.data.Protocol;
 import org.restlet.engine.ssl.DefaultSslContextFactory;
-import org.restlet.engine.ssl.SslContextFactory;
+import org.restlet.representation.OutputRepresentation;
 import org.restlet.representation.Representation;
-import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.ClientResource;
 import org.restlet.resource.ResourceException;
+import org.unitime.colleague.queueprocessor.metrics.QueueMetrics;
 import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
 
 /**
  * @author Tomas Muller, Stephanie Schluttenhofer
@@ -84,9 +86,27 @@ class TrustPrivatelySignedCertificates implements X509TrustManager {
 
 }
 
-class TrustPrivatelySignedCertificatesSslContextFactory extends DefaultSslContextFactory {
+/**
+ * SSL context factory that creates the SSL context only once, so that the connections (and the TLS sessions) can be reused between calls
+ */
+class CachedSslContextFactory extends DefaultSslContextFactory {
+	private SSLContext iSslContext = null;
+	
+	@Override
+	public synchronized SSLContext createSslContext() throws Exception {
+		if (iSslContext == null)
+			iSslContext = createNewSslContext();
+		return iSslContext;
+	}
+	
+	protected SSLContext createNewSslContext() throws Exception {
+		return super.createSslContext();
+	}
+}
+
+class TrustPrivatelySignedCertificatesSslContextFactory extends CachedSslContextFactory {
     @Override
-    public SSLContext createSslContext() throws Exception {
+    protected SSLContext createNewSslContext() throws Exception {
         final SSLContext sslContext = SSLContext.getInstance("TLS");
         sslContext.init(null, new TrustManager[] { TrustPrivatelySignedCertificates.INSTANCE }, null);
         return createWrapper(sslContext);
@@ -103,33 +123,74 @@ class PrivatelySignedCertificateHostNameVerifier implements HostnameVerifier {
 	}
 }
 
+/**
+ * HTTP(S) connection to Colleague. The Restlet clients (one for sites with a trusted certificate, one for sites with a self-signed certificate)
+ * are shared by all the connectors, so that the underlying connections are kept alive and the TLS handshake is not repeated on each call.
+ * Each client makes at most colleague.https.maxConnections calls at a time (defaults to 5), further calls wait for a connection.
+ * The request is streamed to the connection as compact XML in chunks of colleague.https.chunkLength bytes (defaults to 8192, -1 to buffer
+ * the request and send it with its content length) and the response is parsed directly from the response stream.
+ * The connect and read timeouts are set by colleague.https.connectTimeout and colleague.https.readTimeout (in milliseconds, 0 for no timeout).
+ * The clients are stopped by {@link #shutdown()} when the queue processor exits.
+ */
 public class HttpsConnector {
-    final static SslContextFactory sslContextFactory = new TrustPrivatelySignedCertificatesSslContextFactory();
-	private Client iClient;
+	private static SharedClient sClient = null, sSelfSignedClient = null;
 
 	public HttpsConnector() throws ClassNotFoundException, SQLException {
-
+	}
+	
+	protected static synchronized SharedClient getClient(boolean siteWithSelfSignedCertificate) throws Exception {
+		if (siteWithSelfSignedCertificate) {
+			if (sSelfSignedClient == null) {
+				Context context = createContext();
+				context.getAttributes().put("sslContextFactory", new TrustPrivatelySignedCertificatesSslContextFactory());
+				context.getAttributes().put("hostnameVerifier", new PrivatelySignedCertificateHostNameVerifier());
+				sSelfSignedClient = createClient(context);
+				Debug.info("Using custom context factory.");
+			}
+			return sSelfSignedClient;
+		} else {
+			if (sClient == null) {
+				Context context = createContext();
+				context.getAttributes().put("sslContextFactory", new CachedSslContextFactory());
+				sClient = createClient(context);
+			}
+			return sClient;
+		}
+	}
+	
+	protected static Context createContext() {
+		Context context = new Context();
+		context.getParameters().add("socketConnectTimeoutMs", ApplicationProperties.getProperty("colleague.https.connectTimeout", "30000"));
+		context.getParameters().add("readTimeout", ApplicationProperties.getProperty("colleague.https.readTimeout", "300000"));
+		context.getParameters().add("chunkLength", ApplicationProperties.getProperty("colleague.https.chunkLength", "8192"));
+		return context;
+	}
+	
+	protected static SharedClient createClient(Context context) throws Exception {
 		List<Protocol> protocols = new ArrayList<Protocol>();
 		protocols.add(Protocol.HTTP);
 		protocols.add(Protocol.HTTPS);
-		iClient = new Client(protocols);
+		Client client = new Client(context, protocols);
+		client.start();
+		return new SharedClient(client, Integer.parseInt(ApplicationProperties.getProperty("colleague.https.maxConnections", "5")));
+	}
 	
+	/**
+	 * Stop the shared clients (closing the connections that are kept alive)
+	 */
+	public static synchronized void shutdown() {
+		for (SharedClient client: new SharedClient[] {sClient, sSelfSignedClient}) {
+			if (client == null) continue;
+			try {
+				client.getClient().stop();
+			} catch (Exception e) {
+				Debug.error("Failed to stop the HTTPS client: " + e.getMessage());
+			}
+		}
+		sClient = null; sSelfSignedClient = null;
 	}
 	
 	protected Document readResponse(Representation response) throws IOException, DocumentException {
-//		if (response == null) return null;
-		
-		
-//		Reader r = response.getReader();
-		Document d = null;
-//		try {
-//			d = (new SAXReader()).read(r);
-//		} finally {
-//			r.close();
-//			response.release();
-//		}
-//		return(d);
-		
 		try {
 			if (response == null) { 
 				Debug.info("Response is null");
@@ -137,74 +198,47 @@ public class HttpsConnector {
 			}
 			if (response.isEmpty()) {
 				Debug.info("Response is empty");
-	            d = null;
-	        } else if (response.isAvailable()) {
-				Debug.info("Response is available");
-	        	String result;
-	            java.io.StringWriter sw = new java.io.StringWriter();
-	            response.write(sw);
-	            sw.flush();
-	            result = sw.toString();
-	            StringReader sr = new StringReader(result);
-	            d = (new SAXReader()).read(sr);
-	        }			
-			return (d);
-		} finally {
-			response.release();
-		}
-	}
-	
-	protected String readResponse2(Representation response) throws IOException, DocumentException {
-		String result = null;
-		try {
-			if (response == null) {
-				Debug.info("Response is null");
 				return null;
 			}
-			if (response.isEmpty()) {
-				Debug.info("Response is empty");
-	            result = "";
-	        } else if (response.isAvailable()) {
-				Debug.info("Response is available");
-	            java.io.StringWriter sw = new java.io.StringWriter();
-	            response.write(sw);
-	            sw.flush();
-	            result = sw.toString();
-	        }			
-			return (result);
+			if (!response.isAvailable()) return null;
+			Debug.info("Response is available");
+			InputStream in = response.getStream();
+			try {
+				return (new SAXReader()).read(in);
+			} finally {
+				in.close();
+			}
 		} finally {
-			response.release();
+			if (response != null)
+				response.release();
 		}
-		
 	}
-
+	
 	public Document processUniTimePacket(String site, String user,
 			String password, boolean siteWithSelfSignedCertificate, Document xml) throws Exception{
 
 		ClientResource resource = null;
 		Document response = null;
+		SharedClient client = null;
+		boolean acquired = false;
 		try {
-			// First, check student registration status
-			if(siteWithSelfSignedCertificate){
-		        Context clientContext = new Context();
-		        clientContext.getAttributes().put("sslContextFactory", sslContextFactory);
-		        clientContext.getAttributes().put("hostnameVerifier", new PrivatelySignedCertificateHostNameVerifier());
-		        resource = new ClientResource(clientContext, site);
-		        Debug.info("Using custom context factory.");
-			} else {
-		        Debug.info("Not using custom context factory.");
-				resource = new ClientResource(site);
-			}
-			resource.setNext(iClient);				
+			client = getClient(siteWithSelfSignedCertificate);
+			resource = new ClientResource(site);
+			resource.setNext(client.getClient());
 			if (user != null){
 				resource.setChallengeResponse(ChallengeScheme.HTTP_BASIC, user, password);
 			}
+			client.acquire();
+			acquired = true;
 			try {
 				Debug.info("\tBefore post call to Colleague...");		
-				resource.setResponseEntityBuffering(true);
-				Representation result = resource.post(new StringRepresentation(xmlToString(xml), MediaType.APPLICATION_XML));
+				long t0 = QueueMetrics.start();
+				Representation result = resource.post(new XmlRepresentation(xml));
+				QueueMetrics.stop(QueueMetrics.STAGE_CALL, t0);
 				Debug.info("\tAfter post call to Colleague...");	
+				long t1 = QueueMetrics.start();
 				response = readResponse(result);
+				QueueMetrics.stop(QueueMetrics.STAGE_PARSE, t1);
 			} catch (ResourceException exception) {
 				exception.printStackTrace();
 				try {
@@ -227,16 +261,56 @@ public class HttpsConnector {
 				if (resource.getResponse() != null) resource.getResponse().release();
 				resource.release();
 			}
+			if (acquired) client.release();
 		}
 		return(response);
 	}
 	
-	private String xmlToString(Document xml) throws IOException{
-		StringWriter w = new StringWriter();
-		new XMLWriter(w, OutputFormat.createPrettyPrint()).write(xml);
-		w.flush(); w.close();
-		return(w.toString());
+	/**
+	 * Restlet client shared by all the connectors, with a limit on the number of calls that are made at the same time
+	 */
+	protected static class SharedClient {
+		private Client iClient;
+		private Semaphore iConnections;
+		
+		protected SharedClient(Client client, int maxConnections) {
+			iClient = client;
+			iConnections = new Semaphore(Math.max(1, maxConnections), true);
+		}
+		
+		public Client getClient() { return iClient; }
+		
+		/**
+		 * Wait for a free connection
+		 */
+		public void acquire() throws InterruptedException {
+			iConnections.acquire();
+		}
+		
+		/**
+		 * Free a connection taken by {@link #acquire()}
+		 */
+		public void release() {
+			iConnections.release();
+		}
 	}
+	
+	/**
+	 * XML document written directly to the request stream (compact format)
+	 */
+	protected static class XmlRepresentation extends OutputRepresentation {
+		private Document iDocument;
+		
+		public XmlRepresentation(Document document) {
+			super(MediaType.APPLICATION_XML);
+			iDocument = document;
+		}
 
-
+		@Override
+		public void write(OutputStream out) throws IOException {
+			XMLWriter writer = new XMLWriter(out, OutputFormat.createCompactFormat());
+			writer.write(iDocument);
+			writer.flush();
+		}
+	}
 }
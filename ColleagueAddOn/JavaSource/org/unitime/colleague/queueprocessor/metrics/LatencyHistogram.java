@@ -0,0 +1,118 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.queueprocessor.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets (in the style of an HDR histogram).
+ * Values are recorded in microseconds, values below 32 are kept exactly and each following power of two
+ * is split into 16 buckets, so that the reported percentiles are within about 6% of the recorded values.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR = 2 * SUB_BUCKETS;
+	private static final int NR_BUCKETS = LINEAR + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+	
+	private final AtomicLongArray iCounts = new AtomicLongArray(NR_BUCKETS);
+	private final AtomicLong iCount = new AtomicLong(0);
+	private final AtomicLong iSum = new AtomicLong(0);
+	private final AtomicLong iMax = new AtomicLong(0);
+	
+	/**
+	 * Record a value (in microseconds), negative values are recorded as zero
+	 */
+	public void record(long micros) {
+		long value = Math.max(0l, micros);
+		iCounts.incrementAndGet(bucket(value));
+		iCount.incrementAndGet();
+		iSum.addAndGet(value);
+		long max = iMax.get();
+		while (value > max && !iMax.compareAndSet(max, value))
+			max = iMax.get();
+	}
+	
+	/**
+	 * Record the time elapsed since the given {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record((System.nanoTime() - startNanos) / 1000l);
+	}
+	
+	public long getCount() { return iCount.get(); }
+	
+	/** Sum of all recorded values in microseconds */
+	public long getSum() { return iSum.get(); }
+	
+	/** Largest recorded value in microseconds */
+	public long getMax() { return iMax.get(); }
+	
+	/** Average recorded value in microseconds */
+	public double getMean() {
+		long count = iCount.get();
+		return (count == 0 ? 0.0 : ((double)iSum.get()) / count);
+	}
+	
+	/**
+	 * Value at the given percentile (0.0 - 1.0) in microseconds, that is the highest value of the bucket that contains it
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		long[] counts = new long[NR_BUCKETS];
+		for (int i = 0; i < NR_BUCKETS; i++) {
+			counts[i] = iCounts.get(i); total += counts[i];
+		}
+		if (total == 0) return 0;
+		long rank = (long)Math.ceil(Math.max(0.0, Math.min(1.0, percentile)) * total);
+		if (rank < 1) rank = 1;
+		long seen = 0;
+		for (int i = 0; i < NR_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(highestValue(i), getMax());
+		}
+		return getMax();
+	}
+	
+	/**
+	 * Clear all the recorded values
+	 */
+	public void reset() {
+		for (int i = 0; i < NR_BUCKETS; i++)
+			iCounts.set(i, 0);
+		iCount.set(0); iSum.set(0); iMax.set(0);
+	}
+	
+	static int bucket(long value) {
+		if (value < LINEAR) return (int)value;
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		return LINEAR + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (int)((value >> shift) - SUB_BUCKETS);
+	}
+	
+	static long highestValue(int bucket) {
+		if (bucket < LINEAR) return bucket;
+		int magnitude = (bucket - LINEAR) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+		int shift = magnitude - SUB_BUCKET_BITS;
+		long sub = SUB_BUCKETS + (bucket - LINEAR) % SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+}
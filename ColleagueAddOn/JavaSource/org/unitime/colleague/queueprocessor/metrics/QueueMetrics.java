@@ -0,0 +1,300 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.queueprocessor.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.unitime.commons.Debug;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Counters, gauges, and latency histograms of the queue processor.
+ * Each processed queue item goes through the following stages, each having its own {@link LatencyHistogram}:
+ * <ul>
+ * <li>wait: time the item spent in the queue (from its post date to its pickup)</li>
+ * <li>claim: query that finds or leases the posted items</li>
+ * <li>build: conversion of the outgoing message into the request (the HTTPS request is streamed while it is sent, so it is a part of the call)</li>
+ * <li>call: the call to Colleague</li>
+ * <li>parse: conversion of the response into an XML document</li>
+ * <li>response: processing of the response in UniTime (including the parsing when the responses are streamed)</li>
+ * <li>sync: parsing and re-enqueuing of the sync message returned by Colleague</li>
+ * <li>item: the whole processing of an item</li>
+ * </ul>
+ * The metrics are exposed through JMX (as org.unitime.colleague:type=QueueProcessor, see {@link #registerMBean()})
+ * and optionally on a local HTTP endpoint (see {@link MetricsEndpoint}). Recording can be disabled by setting
+ * queueprocessor.metrics.enabled to false.
+ */
+public class QueueMetrics implements DynamicMBean {
+	public static final String PREFIX = "colleague_queue";
+	public static final String OBJECT_NAME = "org.unitime.colleague:type=QueueProcessor";
+	
+	public static final String STAGE_WAIT = "wait";
+	public static final String STAGE_CLAIM = "claim";
+	public static final String STAGE_BUILD = "build";
+	public static final String STAGE_CALL = "call";
+	public static final String STAGE_PARSE = "parse";
+	public static final String STAGE_RESPONSE = "response";
+	public static final String STAGE_SYNC = "sync";
+	public static final String STAGE_ITEM = "item";
+	public static final String[] STAGES = new String[] { STAGE_WAIT, STAGE_CLAIM, STAGE_BUILD, STAGE_CALL, STAGE_PARSE, STAGE_RESPONSE, STAGE_SYNC, STAGE_ITEM };
+	
+	public static final String COUNTER_CLAIMED = "claimed";
+	public static final String COUNTER_PROCESSED = "processed";
+	public static final String COUNTER_FAILED = "failed";
+	public static final String COUNTER_RETRIED = "retried";
+	public static final String COUNTER_SYNC_MESSAGES = "sync_messages";
+	
+	public static final String GAUGE_DEPTH = "depth";
+	public static final String GAUGE_IN_PROGRESS = "in_progress";
+	public static final String GAUGE_WAITING = "waiting_for_retry";
+	
+	private static final double[] PERCENTILES = new double[] { 0.5, 0.9, 0.99, 0.999 };
+	private static QueueMetrics sInstance = new QueueMetrics();
+	
+	private final boolean iEnabled;
+	private final ConcurrentMap<String, LatencyHistogram> iHistograms = new ConcurrentSkipListMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, AtomicLong> iCounters = new ConcurrentSkipListMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> iGauges = new ConcurrentSkipListMap<String, AtomicLong>();
+	
+	protected QueueMetrics() {
+		iEnabled = "true".equalsIgnoreCase(ApplicationProperties.getProperty("queueprocessor.metrics.enabled", "true"));
+		for (String stage: STAGES)
+			iHistograms.put(stage, new LatencyHistogram());
+	}
+	
+	public static QueueMetrics getInstance() { return sInstance; }
+	
+	public boolean isEnabled() { return iEnabled; }
+	
+	/**
+	 * Start of a measured stage, to be passed to {@link #stop(String, long)}
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Record the time elapsed since the given {@link #start()} into the histogram of the given stage
+	 */
+	public static void stop(String stage, long start) {
+		if (sInstance.isEnabled())
+			sInstance.getHistogram(stage).recordSince(start);
+	}
+	
+	/**
+	 * Record a duration in milliseconds into the histogram of the given stage
+	 */
+	public static void recordMillis(String stage, long millis) {
+		if (sInstance.isEnabled())
+			sInstance.getHistogram(stage).record(1000l * millis);
+	}
+	
+	public static void increment(String counter) {
+		add(counter, 1);
+	}
+	
+	public static void add(String counter, long value) {
+		if (sInstance.isEnabled())
+			sInstance.getCounter(counter).addAndGet(value);
+	}
+	
+	public static void gauge(String gauge, long value) {
+		if (sInstance.isEnabled())
+			sInstance.getGauge(gauge).set(value);
+	}
+	
+	public LatencyHistogram getHistogram(String stage) {
+		LatencyHistogram histogram = iHistograms.get(stage);
+		if (histogram == null) {
+			LatencyHistogram old = iHistograms.putIfAbsent(stage, histogram = new LatencyHistogram());
+			if (old != null) histogram = old;
+		}
+		return histogram;
+	}
+	
+	public AtomicLong getCounter(String counter) {
+		return get(iCounters, counter);
+	}
+	
+	public AtomicLong getGauge(String gauge) {
+		return get(iGauges, gauge);
+	}
+	
+	private static AtomicLong get(ConcurrentMap<String, AtomicLong> values, String name) {
+		AtomicLong value = values.get(name);
+		if (value == null) {
+			AtomicLong old = values.putIfAbsent(name, value = new AtomicLong(0));
+			if (old != null) value = old;
+		}
+		return value;
+	}
+	
+	/**
+	 * Clear all counters and histograms (gauges keep their last values)
+	 */
+	public void reset() {
+		for (LatencyHistogram histogram: iHistograms.values())
+			histogram.reset();
+		for (AtomicLong counter: iCounters.values())
+			counter.set(0);
+	}
+	
+	/**
+	 * Current values of all metrics by attribute name, the histograms are in milliseconds
+	 */
+	public Map<String, Object> getValues() {
+		Map<String, Object> values = new TreeMap<String, Object>();
+		for (Map.Entry<String, AtomicLong> e: iCounters.entrySet())
+			values.put(e.getKey(), e.getValue().get());
+		for (Map.Entry<String, AtomicLong> e: iGauges.entrySet())
+			values.put(e.getKey(), e.getValue().get());
+		for (Map.Entry<String, LatencyHistogram> e: iHistograms.entrySet()) {
+			LatencyHistogram h = e.getValue();
+			values.put(e.getKey() + "_count", h.getCount());
+			values.put(e.getKey() + "_mean_ms", h.getMean() / 1000.0);
+			values.put(e.getKey() + "_max_ms", h.getMax() / 1000.0);
+			for (double p: PERCENTILES)
+				values.put(e.getKey() + "_p" + percentileLabel(p) + "_ms", h.getPercentile(p) / 1000.0);
+		}
+		return values;
+	}
+	
+	private static String percentileLabel(double p) {
+		String label = String.valueOf(100.0 * p);
+		if (label.endsWith(".0")) label = label.substring(0, label.length() - 2);
+		return label.replace('.', '_');
+	}
+	
+	/**
+	 * Write all metrics in the Prometheus text exposition format, histograms are exposed as summaries in seconds
+	 */
+	public void writePrometheus(Writer writer) throws IOException {
+		PrintWriter out = new PrintWriter(writer);
+		for (Map.Entry<String, AtomicLong> e: iCounters.entrySet()) {
+			out.println("# TYPE " + PREFIX + "_" + e.getKey() + "_total counter");
+			out.println(PREFIX + "_" + e.getKey() + "_total " + e.getValue().get());
+		}
+		for (Map.Entry<String, AtomicLong> e: iGauges.entrySet()) {
+			out.println("# TYPE " + PREFIX + "_" + e.getKey() + " gauge");
+			out.println(PREFIX + "_" + e.getKey() + " " + e.getValue().get());
+		}
+		for (Map.Entry<String, LatencyHistogram> e: iHistograms.entrySet()) {
+			LatencyHistogram h = e.getValue();
+			String name = PREFIX + "_" + e.getKey() + "_seconds";
+			out.println("# TYPE " + name + " summary");
+			for (double p: PERCENTILES)
+				out.println(name + "{quantile=\"" + p + "\"} " + seconds(h.getPercentile(p)));
+			out.println(name + "_sum " + seconds(h.getSum()));
+			out.println(name + "_count " + h.getCount());
+			out.println("# TYPE " + name + "_max gauge");
+			out.println(name + "_max " + seconds(h.getMax()));
+		}
+		out.flush();
+	}
+	
+	private static String seconds(long micros) {
+		return String.format(Locale.US, "%.6f", micros / 1000000.0);
+	}
+	
+	/**
+	 * Register the metrics with the platform MBean server
+	 */
+	public static void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name))
+				server.registerMBean(sInstance, name);
+		} catch (Exception e) {
+			Debug.error("Failed to register queue processor metrics: " + e.getMessage());
+		}
+	}
+	
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		Object value = getValues().get(attribute);
+		if (value == null) throw new AttributeNotFoundException(attribute);
+		return value;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Queue processor metrics are read-only.");
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		Map<String, Object> values = getValues();
+		AttributeList list = new AttributeList();
+		for (String attribute: attributes) {
+			Object value = values.get(attribute);
+			if (value != null) list.add(new Attribute(attribute, value));
+		}
+		return list;
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		if ("reset".equals(actionName)) {
+			reset();
+			return null;
+		}
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+		for (Map.Entry<String, Object> e: getValues().entrySet())
+			attributes.add(new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(), e.getKey().replace('_', ' '), true, false, false));
+		return new MBeanInfo(getClass().getName(), "Queue processor metrics",
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+				new MBeanOperationInfo[] { new MBeanOperationInfo("reset", "Clear all counters and histograms", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION) },
+				null);
+	}
+}
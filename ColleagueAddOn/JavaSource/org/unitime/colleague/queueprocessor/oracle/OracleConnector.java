@@ -30,6 +30,7 @@ import java.sql.SQLException;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.unitime.colleague.dataexchange.SendColleagueMessage;
+import org.unitime.colleague.queueprocessor.metrics.QueueMetrics;
 import org.unitime.colleague.queueprocessor.util.ClobTools;
 import org.unitime.commons.Debug;
 import org.unitime.timetable.ApplicationProperties;
@@ -137,11 +138,13 @@ public class OracleConnector {
 			outputStandardDebugInfo(e1);
 		}
 
+		long t0 = QueueMetrics.start();
 		try {
 		stmt.setClob(1, ClobTools.documentToCLOB(in_clob, conn));
 		} catch(Exception ex) {
 			outputStandardDebugInfo(ex);
 		}
+		QueueMetrics.stop(QueueMetrics.STAGE_BUILD, t0);
 		try {
 			stmt.registerOutParameter(2, java.sql.Types.CLOB);
 			stmt.registerOutParameter(3, java.sql.Types.CLOB);			
@@ -149,11 +152,13 @@ public class OracleConnector {
 			outputStandardDebugInfo(e);
 		}
 
+		long t1 = QueueMetrics.start();
 		try {
 			stmt.execute();			
 		} catch (Exception e) {
 			outputStandardDebugInfo(e);
 		}
+		QueueMetrics.stop(QueueMetrics.STAGE_CALL, t1);
 
 		Clob out_clob = stmt.getClob(2);
 		Clob out_sync_clob = stmt.getClob(3);
@@ -162,8 +167,11 @@ public class OracleConnector {
 
 		if(out_sync_clob != null) {
 			//Put the "Sync" XML into the IntegrationQueueOut table
+	        long t2 = QueueMetrics.start();
 	        try {
 		        SendColleagueMessage.writeOutMessage(ClobTools.clobToDocument(out_sync_clob));
+		        QueueMetrics.stop(QueueMetrics.STAGE_SYNC, t2);
+		        QueueMetrics.increment(QueueMetrics.COUNTER_SYNC_MESSAGES);
 			} catch (DocumentException e) {
 				Debug.info("******************************************************************************************************");
 				Debug.info("** Error in SendColleagueMessage: sending sync CLOB *");
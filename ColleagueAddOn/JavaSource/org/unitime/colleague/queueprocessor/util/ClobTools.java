@@ -21,10 +21,13 @@
 package org.unitime.colleague.queueprocessor.util;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import javax.sql.rowset.serial.SerialClob;
+
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.io.OutputFormat;
@@ -44,6 +47,17 @@ public class ClobTools {
 		return clob;
 	}
 	
+	/**
+	 * CLOB that is not bound to a database connection
+	 */
+	public static Clob documentToCLOB(Document document) throws IOException, SQLException {
+		StringWriter buffer = new StringWriter();
+		XMLWriter writer = new XMLWriter(buffer, OutputFormat.createCompactFormat());
+		writer.write(document);
+		writer.flush(); writer.close();
+		return new SerialClob(buffer.toString().toCharArray());
+	}
+	
 	public static Document clobToDocument(Clob clob) throws DocumentException, SQLException{
 		SAXReader reader = new SAXReader();
 		Document document = reader.read(clob.getCharacterStream());
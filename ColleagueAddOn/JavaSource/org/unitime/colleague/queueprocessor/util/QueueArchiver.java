@@ -0,0 +1,523 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.queueprocessor.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.Work;
+import org.unitime.colleague.model.Queue;
+import org.unitime.colleague.model.QueueError;
+import org.unitime.colleague.model.QueueIn;
+import org.unitime.colleague.model.QueueOut;
+import org.unitime.colleague.model.dao.QueueOutDAO;
+import org.unitime.commons.Debug;
+import org.unitime.commons.hibernate.util.HibernateUtil;
+import org.unitime.timetable.ApplicationProperties;
+
+/**
+ * Archival of the integration queue tables. Items in a terminal status (colleague.queue.archive.statuses, defaults to PROCESSED, FAILED, INVALID, and STALE)
+ * that were posted more than colleague.queue.archive.retention days ago (defaults to 90) are moved into the integrationqueueout_arch and integrationqueuein_arch
+ * tables with the XML message compressed (colleague.queue.archive.mode=archive, the default), or deleted (colleague.queue.archive.mode=delete).
+ * Their integrationqueueerror records are moved into integrationqueueerror_arch (or deleted) together with them.<br>
+ * The items are processed in batches of at most colleague.queue.archive.batchSize items (defaults to 500), each batch in its own transaction,
+ * so that the live queue tables are never locked for long. Outgoing items that are referenced by a colleague_response are always archived
+ * (never just deleted), so that the message of a response can still be found.<br>
+ * Archived items are deleted from the archive tables after colleague.queue.archive.keep days (defaults to 0, archived items are kept).
+ * When the archive tables are partitioned by the archive date (see the optional partitioning scripts in the documentation), old partitions can be dropped instead.<br>
+ * The archival runs from the queue processor every colleague.queue.archive.interval hours (defaults to 24) when colleague.queue.archive.enabled is true,
+ * at most colleague.queue.archive.maxBatches batches at a time (defaults to 20; the rest is picked up in the following iterations of the queue processor),
+ * or it can be started using the main method of this class (e.g., from cron), which archives all the eligible items.
+ */
+public class QueueArchiver {
+	private static QueueArchiver sInstance = null;
+	
+	/**
+	 * Archived queue tables
+	 */
+	public static enum QueueTable {
+		OUT("integrationqueueout", "integrationqueueout_arch", "status, postdate, pickupdate, processdate", "colleague_response", QueueOut.class),
+		IN("integrationqueuein", "integrationqueuein_arch", "matchid, status, postdate, processdate, session_key, message_type, external_id", null, QueueIn.class),
+		;
+		
+		private String iTable, iArchive, iColumns, iReferencedBy;
+		private Class<? extends Queue> iEntity;
+		QueueTable(String table, String archive, String columns, String referencedBy, Class<? extends Queue> entity) {
+			iTable = table; iArchive = archive; iColumns = columns; iReferencedBy = referencedBy; iEntity = entity;
+		}
+		
+		/** Live queue table */
+		public String getTable() { return iTable; }
+		/** Archive table */
+		public String getArchive() { return iArchive; }
+		/** Columns (other than uniqueid and xml) that are copied into the archive table */
+		public String getColumns() { return iColumns; }
+		/** Table with a queue_id column referencing the items (items that are referenced are always archived), null if none */
+		public String getReferencedBy() { return iReferencedBy; }
+		public Class<? extends Queue> getEntity() { return iEntity; }
+	}
+	
+	/**
+	 * Number of archived and deleted items
+	 */
+	public static class Stats {
+		private int iArchived = 0, iDeleted = 0, iErrors = 0, iPurged = 0, iBatches = 0;
+		
+		public int getArchived() { return iArchived; }
+		public int getDeleted() { return iDeleted; }
+		public int getErrors() { return iErrors; }
+		public int getPurged() { return iPurged; }
+		public int getBatches() { return iBatches; }
+		
+		public void add(Stats stats) {
+			iArchived += stats.iArchived; iDeleted += stats.iDeleted; iErrors += stats.iErrors; iPurged += stats.iPurged; iBatches += stats.iBatches;
+		}
+		
+		@Override
+		public String toString() {
+			return iArchived + " archived, " + iDeleted + " deleted, " + iErrors + " errors, " + iPurged + " purged from the archive (" + iBatches + " batches)";
+		}
+	}
+	
+	private final boolean iEnabled, iDelete;
+	private final int iRetention, iKeep, iBatchSize, iMaxBatches;
+	private final long iInterval;
+	private final String[] iStatuses;
+	private long iLastRun = -1;
+	private boolean iMore = false;
+	
+	public QueueArchiver(boolean enabled, boolean delete, int retention, int keep, int batchSize, int maxBatches, long interval, String[] statuses) {
+		iEnabled = enabled;
+		iDelete = delete;
+		iRetention = retention;
+		iKeep = keep;
+		// the item ids are listed in an in (...) condition, Oracle allows at most 1000 of them
+		iBatchSize = Math.max(1, Math.min(1000, batchSize));
+		iMaxBatches = maxBatches;
+		iInterval = interval;
+		iStatuses = statuses;
+	}
+	
+	/**
+	 * Archiver configured from the colleague.queue.archive.* properties
+	 */
+	public static synchronized QueueArchiver getInstance() {
+		if (sInstance == null) {
+			List<String> statuses = new ArrayList<String>();
+			for (String status: ApplicationProperties.getProperty("colleague.queue.archive.statuses",
+					Queue.STATUS_PROCESSED + "," + Queue.STATUS_FAILED + "," + Queue.STATUS_INVALID + "," + Queue.STATUS_STALE).split(",")) {
+				if (!status.trim().isEmpty()) statuses.add(status.trim());
+			}
+			sInstance = new QueueArchiver(
+					"true".equalsIgnoreCase(ApplicationProperties.getProperty("colleague.queue.archive.enabled", "false")),
+					"delete".equalsIgnoreCase(ApplicationProperties.getProperty("colleague.queue.archive.mode", "archive")),
+					Integer.parseInt(ApplicationProperties.getProperty("colleague.queue.archive.retention", "90")),
+					Integer.parseInt(ApplicationProperties.getProperty("colleague.queue.archive.keep", "0")),
+					Integer.parseInt(ApplicationProperties.getProperty("colleague.queue.archive.batchSize", "500")),
+					Integer.parseInt(ApplicationProperties.getProperty("colleague.queue.archive.maxBatches", "20")),
+					3600000l * Long.parseLong(ApplicationProperties.getProperty("colleague.queue.archive.interval", "24")),
+					statuses.toArray(new String[statuses.size()]));
+		}
+		return sInstance;
+	}
+	
+	public boolean isEnabled() { return iEnabled; }
+	
+	/**
+	 * Called from the queue processor loop: archive when enabled and the archival interval has passed since the last run,
+	 * or when the last run has stopped after colleague.queue.archive.maxBatches batches. Errors are logged, not thrown.
+	 */
+	public synchronized void archiveIfDue() {
+		if (!iEnabled || iRetention <= 0 || iStatuses.length == 0) return;
+		long now = System.currentTimeMillis();
+		if (!iMore && iLastRun >= 0 && now - iLastRun < iInterval) return;
+		iLastRun = now;
+		try {
+			Stats stats = new Stats();
+			iMore = archive(iMaxBatches, stats);
+			if (stats.getBatches() > 0)
+				Debug.info("Queue archival: " + stats + (iMore ? ", more items to archive" : ""));
+		} catch (Exception e) {
+			iMore = false;
+			Debug.error("Queue archival failed: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Archive (or delete) the eligible items of both queue tables, then purge the archive tables.
+	 * @param maxBatches maximal number of batches (zero or less for no limit)
+	 * @param stats statistics to update
+	 * @return true if the limit on the number of batches has been reached before all the eligible items were processed
+	 */
+	public boolean archive(int maxBatches, Stats stats) {
+		Date cutoff = new Date(System.currentTimeMillis() - 86400000l * iRetention);
+		for (QueueTable table: QueueTable.values()) {
+			while (true) {
+				if (maxBatches > 0 && stats.getBatches() >= maxBatches) return true;
+				int items = archiveBatch(table, cutoff, stats);
+				if (items < iBatchSize) break;
+			}
+		}
+		if (iKeep > 0) {
+			Date keepCutoff = new Date(System.currentTimeMillis() - 86400000l * iKeep);
+			for (QueueTable table: QueueTable.values()) {
+				while (true) {
+					if (maxBatches > 0 && stats.getBatches() >= maxBatches) return true;
+					int items = purgeBatch(table, keepCutoff, stats);
+					if (items < iBatchSize) break;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Archive (or delete) one batch of items of the given table that were posted before the cutoff date
+	 * @return number of items that were found (when less than the batch size, there are no more items to archive)
+	 */
+	protected int archiveBatch(final QueueTable table, final Date cutoff, final Stats stats) {
+		final int[] found = new int[] { 0 };
+		org.hibernate.Session hibSession = QueueOutDAO.getInstance().createNewSession();
+		Transaction tx = null;
+		try {
+			tx = hibSession.beginTransaction();
+			hibSession.doWork(new Work() {
+				@Override
+				public void execute(Connection connection) throws SQLException {
+					List<Long> candidates = new ArrayList<Long>(iBatchSize);
+					PreparedStatement ps = connection.prepareStatement(
+							"select uniqueid from " + table.getTable() + " where status in (" + params(iStatuses.length) + ") and postdate < ?");
+					try {
+						int idx = 1;
+						for (String status: iStatuses) ps.setString(idx++, status);
+						ps.setTimestamp(idx++, new Timestamp(cutoff.getTime()));
+						ps.setMaxRows(iBatchSize);
+						ps.setFetchSize(iBatchSize);
+						ResultSet rs = ps.executeQuery();
+						while (rs.next() && candidates.size() < iBatchSize)
+							candidates.add(rs.getLong(1));
+						rs.close();
+					} finally {
+						ps.close();
+					}
+					found[0] = candidates.size();
+					if (candidates.isEmpty()) return;
+					
+					// lock the batch by the primary key (a for update on the status and date range would lock all the eligible items),
+					// checking the status again, so that an item that has been requeued in the meantime is not archived
+					List<Long> ids = new ArrayList<Long>(candidates.size());
+					ps = connection.prepareStatement(
+							"select uniqueid from " + table.getTable() + " where uniqueid in (" + params(candidates.size()) + ") and status in (" + params(iStatuses.length) + ") for update");
+					try {
+						setIds(ps, 1, candidates);
+						int idx = 1 + candidates.size();
+						for (String status: iStatuses) ps.setString(idx++, status);
+						ResultSet rs = ps.executeQuery();
+						while (rs.next())
+							ids.add(rs.getLong(1));
+						rs.close();
+					} finally {
+						ps.close();
+					}
+					if (ids.isEmpty()) return;
+					
+					// items that are to be archived
+					Set<Long> archive = new HashSet<Long>();
+					if (!iDelete) {
+						archive.addAll(ids);
+					} else if (table.getReferencedBy() != null) {
+						ps = connection.prepareStatement(
+								"select distinct queue_id from " + table.getReferencedBy() + " where queue_id in (" + params(ids.size()) + ")");
+						try {
+							setIds(ps, 1, ids);
+							ResultSet rs = ps.executeQuery();
+							while (rs.next())
+								archive.add(rs.getLong(1));
+							rs.close();
+						} finally {
+							ps.close();
+						}
+					}
+					
+					Timestamp archiveDate = new Timestamp(System.currentTimeMillis());
+					if (!archive.isEmpty()) {
+						List<Long> archiveIds = new ArrayList<Long>(archive);
+						PreparedStatement insert = connection.prepareStatement(
+								"insert into " + table.getArchive() + " (uniqueid, " + table.getColumns() + ", archivedate, xml_gz) " +
+								"values (?, " + params(table.getColumns().split(",").length) + ", ?, ?)");
+						ps = connection.prepareStatement(
+								"select uniqueid, " + table.getColumns() + ", xml from " + table.getTable() + " where uniqueid in (" + params(archiveIds.size()) + ")");
+						try {
+							setIds(ps, 1, archiveIds);
+							ResultSet rs = ps.executeQuery();
+							int columns = rs.getMetaData().getColumnCount();
+							while (rs.next()) {
+								for (int i = 1; i < columns; i++)
+									insert.setObject(i, rs.getObject(i));
+								insert.setTimestamp(columns, archiveDate);
+								byte[] xml = compress(rs.getCharacterStream(columns));
+								if (xml == null)
+									insert.setNull(columns + 1, java.sql.Types.BLOB);
+								else
+									insert.setBinaryStream(columns + 1, new ByteArrayInputStream(xml), xml.length);
+								insert.addBatch();
+							}
+							rs.close();
+							for (int count: insert.executeBatch())
+								stats.iArchived += Math.max(count, 0);
+						} finally {
+							ps.close();
+							insert.close();
+						}
+						
+						ps = connection.prepareStatement(
+								"insert into integrationqueueerror_arch (queueid, errortype, errordate, errortext, archivedate) " +
+								"select queueid, errortype, errordate, errortext, ? from integrationqueueerror where queueid in (" + params(archiveIds.size()) + ")");
+						try {
+							ps.setTimestamp(1, archiveDate);
+							setIds(ps, 2, archiveIds);
+							stats.iErrors += ps.executeUpdate();
+						} finally {
+							ps.close();
+						}
+					}
+					
+					ps = connection.prepareStatement("delete from integrationqueueerror where queueid in (" + params(ids.size()) + ")");
+					try {
+						setIds(ps, 1, ids);
+						ps.executeUpdate();
+					} finally {
+						ps.close();
+					}
+					
+					ps = connection.prepareStatement("delete from " + table.getTable() + " where uniqueid in (" + params(ids.size()) + ")");
+					try {
+						setIds(ps, 1, ids);
+						stats.iDeleted += ps.executeUpdate() - archive.size();
+					} finally {
+						ps.close();
+					}
+				}
+			});
+			tx.commit();
+			stats.iBatches ++;
+		} catch (RuntimeException e) {
+			if (tx != null && tx.isActive()) tx.rollback();
+			throw e;
+		} finally {
+			hibSession.close();
+		}
+		if (found[0] > 0) {
+			hibSession.getSessionFactory().getCache().evictEntityRegion(table.getEntity());
+			hibSession.getSessionFactory().getCache().evictEntityRegion(QueueError.class);
+		}
+		return found[0];
+	}
+	
+	/**
+	 * Delete one batch of archived items of the given table that were archived before the cutoff date
+	 * @return number of deleted items (when less than the batch size, there are no more items to delete)
+	 */
+	protected int purgeBatch(final QueueTable table, final Date cutoff, final Stats stats) {
+		final int[] found = new int[] { 0 };
+		org.hibernate.Session hibSession = QueueOutDAO.getInstance().createNewSession();
+		Transaction tx = null;
+		try {
+			tx = hibSession.beginTransaction();
+			hibSession.doWork(new Work() {
+				@Override
+				public void execute(Connection connection) throws SQLException {
+					List<Long> ids = new ArrayList<Long>(iBatchSize);
+					PreparedStatement ps = connection.prepareStatement("select uniqueid from " + table.getArchive() + " where archivedate < ?");
+					try {
+						ps.setTimestamp(1, new Timestamp(cutoff.getTime()));
+						ps.setMaxRows(iBatchSize);
+						ps.setFetchSize(iBatchSize);
+						ResultSet rs = ps.executeQuery();
+						while (rs.next() && ids.size() < iBatchSize)
+							ids.add(rs.getLong(1));
+						rs.close();
+					} finally {
+						ps.close();
+					}
+					found[0] = ids.size();
+					if (ids.isEmpty()) return;
+					
+					ps = connection.prepareStatement("delete from integrationqueueerror_arch where queueid in (" + params(ids.size()) + ")");
+					try {
+						setIds(ps, 1, ids);
+						ps.executeUpdate();
+					} finally {
+						ps.close();
+					}
+					
+					ps = connection.prepareStatement("delete from " + table.getArchive() + " where uniqueid in (" + params(ids.size()) + ")");
+					try {
+						setIds(ps, 1, ids);
+						stats.iPurged += ps.executeUpdate();
+					} finally {
+						ps.close();
+					}
+				}
+			});
+			tx.commit();
+			stats.iBatches ++;
+		} catch (RuntimeException e) {
+			if (tx != null && tx.isActive()) tx.rollback();
+			throw e;
+		} finally {
+			hibSession.close();
+		}
+		return found[0];
+	}
+	
+	/**
+	 * XML message of an archived item, null if there is no such item in the archive
+	 */
+	public static String getArchivedXml(final QueueTable table, final Long uniqueId) {
+		final String[] xml = new String[] { null };
+		org.hibernate.Session hibSession = QueueOutDAO.getInstance().createNewSession();
+		try {
+			hibSession.doWork(new Work() {
+				@Override
+				public void execute(Connection connection) throws SQLException {
+					PreparedStatement ps = connection.prepareStatement("select xml_gz from " + table.getArchive() + " where uniqueid = ?");
+					try {
+						ps.setLong(1, uniqueId);
+						ResultSet rs = ps.executeQuery();
+						if (rs.next())
+							xml[0] = decompress(rs.getBinaryStream(1));
+						rs.close();
+					} finally {
+						ps.close();
+					}
+				}
+			});
+		} finally {
+			hibSession.close();
+		}
+		return xml[0];
+	}
+	
+	private static String params(int count) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < count; i++)
+			sb.append(i == 0 ? "?" : ", ?");
+		return sb.toString();
+	}
+	
+	private static void setIds(PreparedStatement ps, int first, List<Long> ids) throws SQLException {
+		for (int i = 0; i < ids.size(); i++)
+			ps.setLong(first + i, ids.get(i));
+	}
+	
+	/**
+	 * GZip compressed UTF-8 text, null when there is no text
+	 */
+	protected static byte[] compress(Reader reader) throws SQLException {
+		if (reader == null) return null;
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8);
+			try {
+				char[] buffer = new char[8192];
+				int read;
+				while ((read = reader.read(buffer)) >= 0)
+					writer.write(buffer, 0, read);
+			} finally {
+				writer.close();
+				reader.close();
+			}
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new SQLException("Failed to compress the message: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Text of GZip compressed UTF-8 bytes, null when there are no bytes
+	 */
+	protected static String decompress(InputStream stream) throws SQLException {
+		if (stream == null) return null;
+		try {
+			Reader reader = new InputStreamReader(new GZIPInputStream(stream), StandardCharsets.UTF_8);
+			try {
+				StringBuffer sb = new StringBuffer();
+				char[] buffer = new char[8192];
+				int read;
+				while ((read = reader.read(buffer)) >= 0)
+					sb.append(buffer, 0, read);
+				return sb.toString();
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new SQLException("Failed to decompress the message: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Archive all the eligible items (java org.unitime.colleague.queueprocessor.util.QueueArchiver),
+	 * or print the XML message of an archived item (java org.unitime.colleague.queueprocessor.util.QueueArchiver show out|in [uniqueid]).
+	 */
+	public static void main(String[] args) throws Exception {
+		HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
+		
+		if (args.length == 3 && "show".equals(args[0])) {
+			String xml = getArchivedXml(QueueTable.valueOf(args[1].toUpperCase()), Long.valueOf(args[2]));
+			if (xml == null) {
+				System.err.println("Item " + args[2] + " is not archived.");
+				System.exit(1);
+			}
+			System.out.println(xml);
+			return;
+		}
+		
+		QueueArchiver archiver = getInstance();
+		if (archiver.iRetention <= 0 || archiver.iStatuses.length == 0) {
+			System.err.println("Queue archival is not configured (colleague.queue.archive.retention must be positive).");
+			System.exit(1);
+		}
+		Stats stats = new Stats();
+		archiver.archive(0, stats);
+		Debug.info("Queue archival: " + stats);
+		HibernateUtil.closeHibernate();
+	}
+}
@@ -20,6 +20,11 @@
 
 package org.unitime.colleague.queueprocessor.util;
 
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Properties;
+
 import org.hibernate.Query;
 import org.unitime.colleague.queueprocessor.ColleagueCaller;
 import org.unitime.colleague.queueprocessor.oracle.OracleConnector;
@@ -35,6 +40,8 @@ import org.unitime.timetable.model.dao.SessionDAO;
 public class QueueProcessorCheck {
 
 	/**
+	 * When the queue processor exposes its metrics endpoint (queueprocessor.metrics.port is set), its lag monitor
+	 * is asked for the status (no query on the queue is made), otherwise the queue is checked for old unprocessed items.
 	 * @param args
 	 * @throws Exception 
 	 */
@@ -42,6 +49,41 @@ public class QueueProcessorCheck {
 		// UniTime connection
 		HibernateUtil.configureHibernate(ApplicationProperties.getProperties());
 
+		String port = ApplicationProperties.getProperty("queueprocessor.metrics.port");
+		if (port != null && !port.trim().isEmpty()) {
+			checkStatus(ApplicationProperties.getProperty("queueprocessor.metrics.host", "localhost"), port.trim());
+		} else {
+			checkQueue();
+		}
+	}
+	
+	static void checkStatus(String host, String port) {
+		Properties status = new Properties();
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL("http://" + host + ":" + port + "/status").openConnection();
+			connection.setConnectTimeout(10000);
+			connection.setReadTimeout(30000);
+			InputStream in = connection.getInputStream();
+			try {
+				status.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			mailMessage("UniTime Queue Processor for database " + HibernateUtil.getDatabaseName() + " is not responding on " + host + ":" + port + ". " + e.getMessage());
+			System.exit(33);
+		} finally {
+			if (connection != null) connection.disconnect();
+		}
+		String state = status.getProperty("state");
+		if ("BACKLOG".equals(state) || "SLOW".equals(state) || "STALLED".equals(state)) {
+			mailMessage("UniTime Queue Processor for database " + HibernateUtil.getDatabaseName() + " is lagging behind: " + status.getProperty("message"));
+			System.exit(33);
+		}
+	}
+	
+	static void checkQueue() throws Exception {
 		// See if there are unprocessed items in the queue
 		String qs = 
 			"select count(*)" +
@@ -26,6 +26,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.unitime.colleague.model.ColleagueSession;
 import org.unitime.colleague.model.dao.ColleagueSessionDAO;
+import org.unitime.colleague.onlinesectioning.ColleagueTermCache;
 import org.unitime.localization.impl.Localization;
 import org.unitime.timetable.gwt.resources.ColleagueGwtMessages;
 import org.unitime.timetable.gwt.shared.SimpleEditInterface;
@@ -105,6 +106,7 @@ public class ColleagueSessions implements AdminTable {
 		org.unitime.timetable.model.Session session = SessionDAO.getInstance().get(context.getUser().getCurrentAcademicSessionId(), hibSession);
 		colleagueSession.setSession(session);
 		record.setUniqueId((Long)hibSession.save(colleagueSession));
+		ColleagueTermCache.invalidateOnCommit(hibSession);
 		ChangeLog.addChange(hibSession,
 				context,
 				colleagueSession,
@@ -143,6 +145,7 @@ public class ColleagueSessions implements AdminTable {
 		
 		colleagueSession.setLoadingOfferingsFile(new Boolean(record.getField(4)));
 		hibSession.saveOrUpdate(colleagueSession);
+		ColleagueTermCache.invalidateOnCommit(hibSession);
 		ChangeLog.addChange(hibSession,
 				context,
 				colleagueSession,
@@ -182,6 +185,7 @@ public class ColleagueSessions implements AdminTable {
 				null,
 				null);
 		hibSession.delete(collSession);
+		ColleagueTermCache.invalidateOnCommit(hibSession);
 	}
 
 	@Override
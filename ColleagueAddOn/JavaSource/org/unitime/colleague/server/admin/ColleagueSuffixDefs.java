@@ -28,6 +28,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.unitime.colleague.model.ColleagueSession;
 import org.unitime.colleague.model.ColleagueSuffixDef;
+import org.unitime.colleague.model.ColleagueSuffixDefResolver;
 import org.unitime.colleague.model.dao.ColleagueSuffixDefDAO;
 import org.unitime.localization.impl.Localization;
 import org.unitime.timetable.gwt.resources.ColleagueGwtMessages;
@@ -133,6 +134,7 @@ public class ColleagueSuffixDefs implements AdminTable {
 		ColleagueSession collSession = ColleagueSession.findColleagueSessionForSession(context.getUser().getCurrentAcademicSessionId(), hibSession);
 		suffix.setTermCode(collSession.getColleagueTermCode());
 		record.setUniqueId((Long)hibSession.save(suffix));
+		ColleagueSuffixDefResolver.invalidateOnCommit(hibSession);
 		ChangeLog.addChange(hibSession,
 				context,
 				suffix,
@@ -168,6 +170,7 @@ public class ColleagueSuffixDefs implements AdminTable {
 			suffix.setCampusCode(record.getField(8));
 			suffix.setNote(record.getField(9));
 			hibSession.saveOrUpdate(suffix);
+			ColleagueSuffixDefResolver.invalidateOnCommit(hibSession);
 			if (changed)
 				ChangeLog.addChange(hibSession,
 						context,
@@ -195,7 +198,8 @@ public class ColleagueSuffixDefs implements AdminTable {
 				Operation.DELETE,
 				null,
 				null);
-		hibSession.delete(suffix);		
+		hibSession.delete(suffix);
+		ColleagueSuffixDefResolver.invalidateOnCommit(hibSession);
 	}
 
 	@Override
@@ -0,0 +1,495 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.jdbc.Work;
+import org.unitime.colleague.model.ColleagueSection;
+import org.unitime.colleague.model.ColleagueSession;
+import org.unitime.colleague.model.ColleagueSuffixDef;
+import org.unitime.colleague.model.ColleagueSuffixDefResolver;
+import org.unitime.timetable.ApplicationProperties;
+import org.unitime.timetable.model.Class_;
+import org.unitime.timetable.model.CourseOffering;
+import org.unitime.timetable.model.ItypeDesc;
+import org.unitime.timetable.model.comparators.ClassComparator;
+import org.unitime.timetable.model.dao._RootDAO;
+
+/**
+ * Set-based generation of the Colleague sections of an academic session, used by
+ * {@link ColleagueSession#generateColleagueSectionsForSession()} and {@link ColleagueSession#assignSectionNumbersToAllSectionsForSession()}.
+ * The classes, course offerings, existing sections, used section indexes and suffix definitions of the session are loaded with a few queries,
+ * the missing sections and their section indexes are computed in memory (keeping a bit set of the used section numbers for each course and
+ * section index pattern), and the new rows are written using JDBC batches of colleague.sectionGenerator.batchSize statements (defaults to 1000).
+ * The unique ids of the new rows are allocated in blocks of colleague.sectionGenerator.idBlockSize ids (defaults to 100, one query on Oracle).
+ * The rules are the same as for {@link ColleagueSection#addColleagueSectionFor(CourseOffering, Class_, Session)} and
+ * {@link ColleagueSection#assignNewSectionIndex(Session)}.
+ */
+public class ColleagueSectionGenerator {
+	protected static Log sLog = LogFactory.getLog(ColleagueSectionGenerator.class);
+	protected static String sSequence = "pref_group_seq";
+	
+	private ColleagueSession iColleagueSession;
+	private Session iHibSession;
+	private int iBatchSize, iIdBlockSize;
+	private ColleagueSuffixDef.Lookup iSuffixDefs;
+	private IdentifierGenerator iIdGenerator;
+	private LinkedList<Long> iIds = new LinkedList<Long>();
+	
+	private Map<Long, Class_> iClasses = new HashMap<Long, Class_>();
+	private Map<Long, List<Class_>> iConfigClasses = new TreeMap<Long, List<Class_>>();
+	private Map<Long, List<CourseOffering>> iOfferingCourses = new HashMap<Long, List<CourseOffering>>();
+	private Map<Long, CourseOffering> iCourses = new HashMap<Long, CourseOffering>();
+	private Map<Long, Map<Long, Long>> iSections = new HashMap<Long, Map<Long, Long>>();
+	private Map<String, UsedIndexes> iUsedIndexes = new HashMap<String, UsedIndexes>();
+	
+	private List<Object[]> iSectionInserts = new ArrayList<Object[]>();
+	private List<Object[]> iClassInserts = new ArrayList<Object[]>();
+	private List<Object[]> iIndexUpdates = new ArrayList<Object[]>();
+	
+	public ColleagueSectionGenerator(ColleagueSession colleagueSession, Session hibSession) {
+		iColleagueSession = colleagueSession;
+		iHibSession = hibSession;
+		iBatchSize = getBatchSize();
+		iIdBlockSize = Integer.parseInt(ApplicationProperties.getProperty("colleague.sectionGenerator.idBlockSize", "100"));
+	}
+	
+	public static boolean isEnabled() {
+		return "true".equalsIgnoreCase(ApplicationProperties.getProperty("colleague.sectionGenerator.enabled", "true"));
+	}
+	
+	public static int getBatchSize() {
+		return Integer.parseInt(ApplicationProperties.getProperty("colleague.sectionGenerator.batchSize", "1000"));
+	}
+	
+	/**
+	 * Create the missing Colleague sections for all classes and course offerings of the session
+	 * @return number of sections created
+	 */
+	public int generateSections() {
+		long t0 = System.currentTimeMillis();
+		loadClasses();
+		loadSections();
+		if (iColleagueSession.isSendDataToColleague()) loadUsedIndexes();
+		
+		int created = 0, joined = 0;
+		for (List<Class_> classes: iConfigClasses.values()) {
+			for (Class_ clazz: classes) {
+				List<CourseOffering> courses = iOfferingCourses.get(clazz.getSchedulingSubpart().getInstrOfferingConfig().getInstructionalOffering().getUniqueId());
+				if (courses == null) continue;
+				for (CourseOffering course: courses) {
+					if (getSectionId(course, clazz) != null) continue;
+					Long parentSectionId = (clazz.getParentClass() == null ? null : getSectionId(course, clazz.getParentClass()));
+					if (parentSectionId != null) {
+						addClass(parentSectionId, course, clazz);
+						joined ++;
+					} else {
+						Long sectionId = nextId();
+						String sectionIndex = (iColleagueSession.isSendDataToColleague() ? nextSectionIndex(course, clazz.getSchedulingSubpart().getItype()) : null);
+						iSectionInserts.add(new Object[] {
+								sectionId, course.getUniqueId(), course.getSubjectArea().getUniqueId(),
+								ColleagueSection.calculateColleagueCourseNumber(course, clazz), sectionIndex });
+						addClass(sectionId, course, clazz);
+						created ++;
+					}
+					if (iSectionInserts.size() + iClassInserts.size() >= iBatchSize) flush();
+				}
+			}
+		}
+		flush();
+		if (created + joined > 0) evictCaches();
+		sLog.info("Generated " + created + " Colleague sections (" + joined + " classes added to parent sections) for " + iColleagueSession.getSession().getLabel() +
+				" in " + (System.currentTimeMillis() - t0) + " ms.");
+		return created;
+	}
+	
+	/**
+	 * Assign section indexes to all Colleague sections of the session that do not have one, updating the class suffixes of the control courses
+	 * @return number of sections updated
+	 */
+	@SuppressWarnings("unchecked")
+	public int assignSectionNumbers() {
+		if (!iColleagueSession.isSendDataToColleague()) return 0;
+		long t0 = System.currentTimeMillis();
+		loadClasses();
+		loadUsedIndexes();
+		
+		Map<Long, Object[]> sections = new LinkedHashMap<Long, Object[]>();
+		Map<Long, List<Class_>> sectionClasses = new HashMap<Long, List<Class_>>();
+		for (Object[] o: (List<Object[]>)iHibSession.createQuery(
+				"select cs.uniqueId, cs.courseOfferingId, cs.colleagueId, cs.deleted, csc.classId " +
+				"from ColleagueSection cs inner join cs.colleagueSectionToClasses csc " +
+				"where cs.session.uniqueId = :sessionId and cs.sectionIndex is null order by cs.uniqueId")
+				.setLong("sessionId", iColleagueSession.getSession().getUniqueId()).list()) {
+			Long sectionId = (Long)o[0];
+			Class_ clazz = iClasses.get((Long)o[4]);
+			if (clazz == null) continue;
+			sections.put(sectionId, o);
+			List<Class_> classes = sectionClasses.get(sectionId);
+			if (classes == null) {
+				classes = new ArrayList<Class_>();
+				sectionClasses.put(sectionId, classes);
+			}
+			classes.add(clazz);
+		}
+		
+		int updated = 0;
+		for (Map.Entry<Long, Object[]> e: sections.entrySet()) {
+			CourseOffering course = iCourses.get((Long)e.getValue()[1]);
+			if (course == null) continue;
+			List<Class_> classes = sectionClasses.get(e.getKey());
+			ItypeDesc itype = null;
+			for (Class_ c: classes) {
+				if (itype == null || itype.getItype().intValue() > c.getSchedulingSubpart().getItype().getItype().intValue())
+					itype = c.getSchedulingSubpart().getItype();
+			}
+			String sectionIndex = nextSectionIndex(course, itype);
+			if (sectionIndex == null) continue;
+			iIndexUpdates.add(new Object[] { sectionIndex, e.getKey() });
+			updated ++;
+			String colleagueId = (String)e.getValue()[2];
+			Boolean deleted = (Boolean)e.getValue()[3];
+			if (course.isIsControl() && !deleted) {
+				boolean crosslisted = iOfferingCourses.get(course.getInstructionalOffering().getUniqueId()).size() > 1;
+				for (Class_ clazz: classes) {
+					String classSuffix = ColleagueSection.classSuffixFor(colleagueId, sectionIndex, crosslisted, clazz);
+					if (clazz.getClassSuffix() == null || !clazz.getClassSuffix().equals(classSuffix)) {
+						clazz.setClassSuffix(classSuffix);
+						clazz.setExternalUniqueId(ColleagueSection.externalUniqueIdFor(colleagueId, clazz));
+						iHibSession.update(clazz);
+					}
+				}
+			}
+			if (iIndexUpdates.size() >= iBatchSize) flush();
+		}
+		flush();
+		iHibSession.flush();
+		if (updated > 0) evictCaches();
+		sLog.info("Assigned section indexes to " + updated + " of " + sections.size() + " Colleague sections of " + iColleagueSession.getSession().getLabel() +
+				" in " + (System.currentTimeMillis() - t0) + " ms.");
+		return updated;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected void loadClasses() {
+		if (!iClasses.isEmpty()) return;
+		Long sessionId = iColleagueSession.getSession().getUniqueId();
+		for (CourseOffering course: (List<CourseOffering>)iHibSession.createQuery(
+				"select co from CourseOffering co inner join fetch co.subjectArea inner join fetch co.instructionalOffering io " +
+				"where io.session.uniqueId = :sessionId order by co.isControl desc, co.uniqueId")
+				.setLong("sessionId", sessionId).list()) {
+			iCourses.put(course.getUniqueId(), course);
+			List<CourseOffering> courses = iOfferingCourses.get(course.getInstructionalOffering().getUniqueId());
+			if (courses == null) {
+				courses = new ArrayList<CourseOffering>();
+				iOfferingCourses.put(course.getInstructionalOffering().getUniqueId(), courses);
+			}
+			courses.add(course);
+		}
+		for (Class_ clazz: (List<Class_>)iHibSession.createQuery(
+				"select distinct c from Class_ c inner join fetch c.schedulingSubpart ss inner join fetch ss.itype " +
+				"inner join fetch ss.instrOfferingConfig ioc inner join fetch ioc.instructionalOffering io " +
+				"where io.session.uniqueId = :sessionId")
+				.setLong("sessionId", sessionId).list()) {
+			iClasses.put(clazz.getUniqueId(), clazz);
+			Long configId = clazz.getSchedulingSubpart().getInstrOfferingConfig().getUniqueId();
+			List<Class_> classes = iConfigClasses.get(configId);
+			if (classes == null) {
+				classes = new ArrayList<Class_>();
+				iConfigClasses.put(configId, classes);
+			}
+			classes.add(clazz);
+		}
+		// parent classes first, so that a child class can be added to the section of its parent
+		ClassComparator cc = new ClassComparator(ClassComparator.COMPARE_BY_HIERARCHY);
+		for (List<Class_> classes: iConfigClasses.values())
+			Collections.sort(classes, cc);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected void loadSections() {
+		for (Object[] o: (List<Object[]>)iHibSession.createQuery(
+				"select cs.courseOfferingId, csc.classId, cs.uniqueId from ColleagueSectionToClass csc inner join csc.colleagueSection cs " +
+				"where cs.session.uniqueId = :sessionId and cs.deleted = false")
+				.setLong("sessionId", iColleagueSession.getSession().getUniqueId()).list()) {
+			putSectionId((Long)o[0], (Long)o[1], (Long)o[2]);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected void loadUsedIndexes() {
+		if (iSuffixDefs != null) return;
+		final String termCode = iColleagueSession.getColleagueTermCode();
+		if (ColleagueSuffixDefResolver.isEnabled()) {
+			iSuffixDefs = ColleagueSuffixDefResolver.getTable(termCode);
+		} else {
+			iSuffixDefs = new ColleagueSuffixDef.Lookup() {
+				@Override
+				public ColleagueSuffixDef find(Long subjectAreaId, Integer itypeId, String suffix) {
+					return ColleagueSuffixDef.findColleagueSuffixDefForTermCodeItypeSuffix(termCode, subjectAreaId, itypeId, suffix);
+				}
+			};
+		}
+		for (Object[] o: (List<Object[]>)iHibSession.createQuery(
+				"select sa.subjectAreaAbbreviation, cs.colleagueCourseNumber, cs.sectionIndex " +
+				"from ColleagueSection cs, ColleagueSession cSes, SubjectArea sa " +
+				"where cSes.colleagueTermCode = :termCode and cs.session.uniqueId = cSes.session.uniqueId " +
+				"and cs.subjectAreaId = sa.uniqueId and cs.sectionIndex is not null")
+				.setString("termCode", iColleagueSession.getColleagueTermCode()).list()) {
+			getUsedIndexes((String)o[0], (String)o[1]).add((String)o[2]);
+		}
+	}
+	
+	protected Long getSectionId(CourseOffering course, Class_ clazz) {
+		Map<Long, Long> sections = iSections.get(course.getUniqueId());
+		return (sections == null ? null : sections.get(clazz.getUniqueId()));
+	}
+	
+	protected void putSectionId(Long courseId, Long classId, Long sectionId) {
+		Map<Long, Long> sections = iSections.get(courseId);
+		if (sections == null) {
+			sections = new HashMap<Long, Long>();
+			iSections.put(courseId, sections);
+		}
+		sections.put(classId, sectionId);
+	}
+	
+	protected void addClass(Long sectionId, CourseOffering course, Class_ clazz) {
+		iClassInserts.add(new Object[] { nextId(), clazz.getUniqueId(), sectionId });
+		putSectionId(course.getUniqueId(), clazz.getUniqueId(), sectionId);
+	}
+	
+	protected UsedIndexes getUsedIndexes(String subjectAreaAbbv, String colleagueCourseNumber) {
+		String key = subjectAreaAbbv + " " + colleagueCourseNumber;
+		UsedIndexes used = iUsedIndexes.get(key);
+		if (used == null) {
+			used = new UsedIndexes();
+			iUsedIndexes.put(key, used);
+		}
+		return used;
+	}
+	
+	/**
+	 * First section index of the suffix definition of the course and instructional type that is not used by the course in the term,
+	 * the same index as {@link ColleagueSection#findNextUnusedActiveSectionIndexFor(org.unitime.timetable.model.Session, CourseOffering, ItypeDesc, Session)} returns
+	 */
+	protected String nextSectionIndex(CourseOffering course, ItypeDesc itype) {
+		ColleagueSuffixDef suffix = ColleagueSuffixDef.findColleagueSuffixDef(itype, course, iSuffixDefs);
+		UsedIndexes used = getUsedIndexes(course.getSubjectArea().getSubjectAreaAbbreviation(), ColleagueSuffixDef.findColleagueCourseNumber(course));
+		String sectionIndex = used.next(suffix);
+		if (sectionIndex == null)
+			sLog.warn("All possible section numbers have been used for " + course.getCourseName() + " " + (itype == null ? "Any Instr Type" : itype.getDesc()) + ".");
+		return sectionIndex;
+	}
+	
+	/**
+	 * Next unique id of a section or a section to class relation, taken from the pre-allocated block
+	 * (a new block is allocated when the current one is used up; ids that are left over at the end are not used)
+	 */
+	protected Long nextId() {
+		if (iIds.isEmpty())
+			iIds.addAll(generateBlock(iIdBlockSize));
+		return iIds.poll();
+	}
+	
+	/**
+	 * Allocate a block of unique ids (sequence of the ColleagueSection and ColleagueSectionToClass mappings). On Oracle, the whole block
+	 * is fetched from the sequence in one query, otherwise the ids are generated one by one.
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<Long> generateBlock(int size) {
+		SessionFactoryImplementor factory = (SessionFactoryImplementor)iHibSession.getSessionFactory();
+		List<Long> ids = new ArrayList<Long>(Math.max(size, 1));
+		if (size > 1 && factory.getDialect() instanceof Oracle8iDialect) {
+			for (Number id: (List<Number>)iHibSession.createSQLQuery("select " + qualify(sSequence) + ".nextval from dual connect by level <= :size").setInteger("size", size).list())
+				ids.add(id.longValue());
+			Collections.sort(ids);
+		} else {
+			if (iIdGenerator == null)
+				iIdGenerator = factory.getIdentifierGenerator(ColleagueSection.class.getName());
+			for (int i = 0; i < Math.max(size, 1); i++)
+				ids.add(((Number)iIdGenerator.generate((SessionImplementor)iHibSession, null)).longValue());
+		}
+		return ids;
+	}
+	
+	/**
+	 * Table or sequence name prefixed with the default schema (if set)
+	 */
+	protected static String qualify(String name) {
+		String schema = _RootDAO.getConfiguration().getProperty("default_schema");
+		return (schema == null || schema.isEmpty() ? name : schema + "." + name);
+	}
+	
+	/**
+	 * Write the pending inserts and updates using JDBC batches
+	 */
+	protected void flush() {
+		if (iSectionInserts.isEmpty() && iClassInserts.isEmpty() && iIndexUpdates.isEmpty()) return;
+		final Long sessionId = iColleagueSession.getSession().getUniqueId();
+		iHibSession.doWork(new Work() {
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				if (!iSectionInserts.isEmpty()) {
+					PreparedStatement ps = connection.prepareStatement(
+							"insert into " + qualify("colleague_section") + " (uniqueid, course_offering_id, subject_area_id, colleague_crs_nbr, section_index, deleted, session_id) " +
+							"values (?, ?, ?, ?, ?, ?, ?)");
+					try {
+						for (Object[] o: iSectionInserts) {
+							ps.setLong(1, (Long)o[0]);
+							ps.setLong(2, (Long)o[1]);
+							ps.setLong(3, (Long)o[2]);
+							ps.setString(4, (String)o[3]);
+							if (o[4] == null)
+								ps.setNull(5, Types.VARCHAR);
+							else
+								ps.setString(5, (String)o[4]);
+							ps.setBoolean(6, false);
+							ps.setLong(7, sessionId);
+							ps.addBatch();
+						}
+						ps.executeBatch();
+					} finally {
+						ps.close();
+					}
+				}
+				if (!iClassInserts.isEmpty()) {
+					PreparedStatement ps = connection.prepareStatement(
+							"insert into " + qualify("colleague_section_join_class") + " (uniqueid, class_id, colleague_section_id) values (?, ?, ?)");
+					try {
+						for (Object[] o: iClassInserts) {
+							ps.setLong(1, (Long)o[0]);
+							ps.setLong(2, (Long)o[1]);
+							ps.setLong(3, (Long)o[2]);
+							ps.addBatch();
+						}
+						ps.executeBatch();
+					} finally {
+						ps.close();
+					}
+				}
+				if (!iIndexUpdates.isEmpty()) {
+					PreparedStatement ps = connection.prepareStatement(
+							"update " + qualify("colleague_section") + " set section_index = ? where uniqueid = ?");
+					try {
+						for (Object[] o: iIndexUpdates) {
+							ps.setString(1, (String)o[0]);
+							ps.setLong(2, (Long)o[1]);
+							ps.addBatch();
+						}
+						ps.executeBatch();
+					} finally {
+						ps.close();
+					}
+				}
+			}
+		});
+		iSectionInserts.clear();
+		iClassInserts.clear();
+		iIndexUpdates.clear();
+	}
+	
+	/**
+	 * The rows were written directly, drop the cached sections and queries
+	 */
+	protected void evictCaches() {
+		iHibSession.getSessionFactory().getCache().evictEntityRegion(ColleagueSection.class);
+		iHibSession.getSessionFactory().getCache().evictCollectionRegion(ColleagueSection.class.getName() + ".colleagueSectionToClasses");
+		iHibSession.getSessionFactory().getCache().evictQueryRegions();
+	}
+	
+	/**
+	 * Section indexes used by a course in the term, with a bit set of the used section numbers for each section index pattern
+	 */
+	protected static class UsedIndexes {
+		private Set<String> iIndexes = new HashSet<String>();
+		private Map<String, BitSet> iNumbers = new HashMap<String, BitSet>();
+		
+		public void add(String sectionIndex) {
+			if (!iIndexes.add(sectionIndex)) return;
+			for (Map.Entry<String, BitSet> e: iNumbers.entrySet()) {
+				int num = parse(e.getKey(), sectionIndex);
+				if (num >= 0) e.getValue().set(num);
+			}
+		}
+		
+		/**
+		 * Use and return the first section index of the suffix definition that is not used, null when all of them are used
+		 */
+		public String next(ColleagueSuffixDef suffix) {
+			String pattern = (suffix.isAllNumbers() ? "0" : "") + suffix.getSectionIndexPrefix() + "#" + suffix.getSectionIndexSuffix();
+			BitSet numbers = iNumbers.get(pattern);
+			if (numbers == null) {
+				numbers = new BitSet();
+				for (String sectionIndex: iIndexes) {
+					int num = parse(pattern, sectionIndex);
+					if (num >= 0) numbers.set(num);
+				}
+				iNumbers.put(pattern, numbers);
+			}
+			int min = suffix.getMinSectionNum().intValue();
+			int num = numbers.nextClearBit(Math.max(0, min));
+			if (num > Math.max(min, suffix.getMaxSectionNum().intValue())) return null;
+			String sectionIndex = suffix.sectionIndexFor(num);
+			add(sectionIndex);
+			return sectionIndex;
+		}
+		
+		/**
+		 * Section number of the section index, -1 if the index does not match the pattern
+		 */
+		protected static int parse(String pattern, String sectionIndex) {
+			boolean padded = pattern.startsWith("0");
+			int idx = pattern.indexOf('#');
+			String prefix = pattern.substring(padded ? 1 : 0, idx), suffix = pattern.substring(idx + 1);
+			if (sectionIndex.length() <= prefix.length() + suffix.length() || !sectionIndex.startsWith(prefix) || !sectionIndex.endsWith(suffix)) return -1;
+			String number = sectionIndex.substring(prefix.length(), sectionIndex.length() - suffix.length());
+			for (int i = 0; i < number.length(); i++)
+				if (!Character.isDigit(number.charAt(i))) return -1;
+			if (number.length() > 9) return -1;
+			int num = Integer.parseInt(number);
+			String expected = Integer.toString(num);
+			if (padded && expected.length() == 1) expected = "0" + expected;
+			return (expected.equals(number) ? num : -1);
+		}
+	}
+}
@@ -35,10 +35,12 @@ import org.unitime.colleague.model.ColleagueSection;
 import org.unitime.colleague.model.ColleagueSectionToClass;
 import org.unitime.colleague.model.ColleagueSession;
 import org.unitime.colleague.model.ColleagueSuffixDef;
+import org.unitime.colleague.model.ColleagueSuffixDefResolver;
 import org.unitime.colleague.model.dao.ColleagueRestrictionDAO;
 import org.unitime.colleague.model.dao.ColleagueSectionDAO;
 import org.unitime.colleague.model.dao.ColleagueSessionDAO;
 import org.unitime.colleague.model.dao.ColleagueSuffixDefDAO;
+import org.unitime.colleague.onlinesectioning.ColleagueTermCache;
 import org.unitime.timetable.ApplicationProperties;
 import org.unitime.timetable.model.Class_;
 import org.unitime.timetable.model.CourseOffering;
@@ -235,6 +237,7 @@ public class ColleagueSessionRollForward extends SessionRollForward {
 				ColleagueSuffixDefDAO.getInstance().save(toDef);
 			}
 		}
+		ColleagueSuffixDefResolver.invalidate();
 	}
 
 	private void rollForwardColleagueRestrictionData(Session toSession,
@@ -266,6 +269,7 @@ public class ColleagueSessionRollForward extends SessionRollForward {
 			toCs.setSession(toSession);
 			toCs.setUniqueIdRolledForwardFrom(fromSession.getUniqueId());
 			ColleagueSessionDAO.getInstance().save(toCs);
+			ColleagueTermCache.invalidateOnCommit(ColleagueSessionDAO.getInstance().getSession());
 		}
 	}
 
@@ -25,6 +25,7 @@ import org.apache.log4j.Logger;
 import org.dom4j.Document;
 import org.dom4j.io.SAXReader;
 import org.unitime.colleague.queueprocessor.QueuedItem;
+import org.unitime.colleague.queueprocessor.https.HttpsConnector;
 import org.unitime.commons.hibernate.util.HibernateUtil;
 import org.unitime.timetable.ApplicationProperties;
 
@@ -59,6 +60,9 @@ public class SendXmlFileToColleague {
 	       System.out.print("beginText: '" + outDocument.asXML() + "' : endText\n");
 	      
 	        
+	       // Close the connections to Colleague
+	       HttpsConnector.shutdown();
+
 	       // Close hibernate
 	       HibernateUtil.closeHibernate();
 		} catch (Exception e) {
@@ -0,0 +1,284 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.hibernate.NonUniqueResultException;
+import org.junit.Test;
+import org.unitime.timetable.model.CourseOffering;
+import org.unitime.timetable.model.ItypeDesc;
+import org.unitime.timetable.model.SubjectArea;
+
+/**
+ * The cached decision table ({@link ColleagueSuffixDefResolver.Table}) must resolve the same suffix definitions
+ * as the query cascade of {@link ColleagueSuffixDef#findColleagueSuffixDefForTermCodeNoCache(ItypeDesc, CourseOffering, String)},
+ * which is simulated by {@link QueryLookup} (the same exact match conditions, evaluated over a list instead of the database).
+ * The HQL query itself is not executed, the matching of a course suffix that is not set (null) or empty is also checked explicitly.
+ */
+public class ColleagueSuffixDefResolverTest {
+	private static final Long[] sSubjectAreaIds = new Long[] { 1l, 2l, 3l };
+	private static final Integer[] sItypes = new Integer[] { 10, 20, 30 };
+	private static final String[] sCourseSuffixes = new String[] { "H", "L", "X", "" };
+	private static final String[] sCourseNumbers = new String[] { "101", "101-", "101-H", "101-L", "101-X", "101-Z" };
+	private static final String[] sCampusCodes = new String[] { null, "MAIN", "NORTH" };
+	private static final String[] sPrefixes = new String[] { null, "", "A", "B" };
+	
+	@Test
+	public void testEquivalence() {
+		Random random = new Random(1);
+		int resolved = 0;
+		for (int t = 0; t < 500; t++) {
+			List<ColleagueSuffixDef> definitions = createDefinitions(random, false);
+			ColleagueSuffixDefResolver.Table table = ColleagueSuffixDefResolver.createTable(0l, "202010", definitions);
+			QueryLookup query = new QueryLookup(definitions);
+			for (Long subjectAreaId: new Long[] { 1l, 2l, 3l, 4l }) {
+				for (Integer itype: withNull(sItypes, 40)) {
+					for (String courseNbr: sCourseNumbers) {
+						CourseOffering course = createCourse(subjectAreaId, courseNbr);
+						ItypeDesc itypeDesc = createItype(itype);
+						String expected = toString(ColleagueSuffixDef.findColleagueSuffixDef(itypeDesc, course, query));
+						String actual = toString(ColleagueSuffixDef.findColleagueSuffixDef(itypeDesc, course, table));
+						assertEquals("table " + t + ", subject area " + subjectAreaId + ", itype " + itype + ", course " + courseNbr, expected, actual);
+						resolved ++;
+					}
+				}
+			}
+		}
+		assertTrue(resolved > 0);
+	}
+	
+	@Test
+	public void testNonUnique() {
+		Random random = new Random(2);
+		int failures = 0;
+		for (int t = 0; t < 200; t++) {
+			List<ColleagueSuffixDef> definitions = createDefinitions(random, true);
+			ColleagueSuffixDefResolver.Table table = ColleagueSuffixDefResolver.createTable(0l, "202010", definitions);
+			QueryLookup query = new QueryLookup(definitions);
+			for (Long subjectAreaId: sSubjectAreaIds) {
+				for (Integer itype: withNull(sItypes, 40)) {
+					for (String courseNbr: sCourseNumbers) {
+						CourseOffering course = createCourse(subjectAreaId, courseNbr);
+						ItypeDesc itypeDesc = createItype(itype);
+						String expected = null;
+						try {
+							expected = toString(ColleagueSuffixDef.findColleagueSuffixDef(itypeDesc, course, query));
+						} catch (NonUniqueResultException e) {
+							expected = "NonUniqueResultException";
+						}
+						String actual = null;
+						try {
+							actual = toString(ColleagueSuffixDef.findColleagueSuffixDef(itypeDesc, course, table));
+						} catch (NonUniqueResultException e) {
+							actual = "NonUniqueResultException";
+						}
+						assertEquals("table " + t + ", subject area " + subjectAreaId + ", itype " + itype + ", course " + courseNbr, expected, actual);
+						if ("NonUniqueResultException".equals(actual)) failures ++;
+					}
+				}
+			}
+		}
+		assertTrue(failures > 0);
+	}
+	
+	/**
+	 * A course number without a dash has no course suffix (null), which only matches definitions without a course suffix
+	 * (csd.courseSuffix is null); a course number ending with a dash has an empty course suffix, which only matches
+	 * definitions with an empty course suffix (csd.courseSuffix = '')
+	 */
+	@Test
+	public void testNullAndEmptySuffix() {
+		List<ColleagueSuffixDef> definitions = new ArrayList<ColleagueSuffixDef>();
+		ColleagueSuffixDef noSuffix = createDefinition(1l, 10, null, "MAIN", 1, 99, null, "A", null);
+		ColleagueSuffixDef emptySuffix = createDefinition(1l, 10, "", "MAIN", 1, 99, null, "B", null);
+		definitions.add(noSuffix);
+		definitions.add(emptySuffix);
+		ColleagueSuffixDefResolver.Table table = ColleagueSuffixDefResolver.createTable(0l, "202010", definitions);
+		QueryLookup query = new QueryLookup(definitions);
+		
+		assertNull(ColleagueSuffixDef.findCourseSuffix(createCourse(1l, "101")));
+		assertEquals("", ColleagueSuffixDef.findCourseSuffix(createCourse(1l, "101-")));
+		
+		assertEquals(noSuffix.getUniqueId(), table.find(1l, 10, null).getUniqueId());
+		assertEquals(emptySuffix.getUniqueId(), table.find(1l, 10, "").getUniqueId());
+		assertNull(table.find(1l, 10, "H"));
+		assertNull(table.find(null, 10, ""));
+		
+		for (String courseNbr: new String[] { "101", "101-", "101-H" }) {
+			CourseOffering course = createCourse(1l, courseNbr);
+			assertEquals(courseNbr, toString(ColleagueSuffixDef.findColleagueSuffixDef(createItype(10), course, query)),
+					toString(ColleagueSuffixDef.findColleagueSuffixDef(createItype(10), course, table)));
+		}
+		assertEquals("A", ColleagueSuffixDef.findColleagueSuffixDef(createItype(10), createCourse(1l, "101"), table).getPrefix());
+		assertEquals("B", ColleagueSuffixDef.findColleagueSuffixDef(createItype(10), createCourse(1l, "101-"), table).getPrefix());
+		
+		// only the definition with the empty suffix: a course without a suffix does not match it
+		definitions.remove(noSuffix);
+		table = ColleagueSuffixDefResolver.createTable(0l, "202010", definitions);
+		assertNull(table.find(1l, 10, null));
+		assertEquals(emptySuffix.getUniqueId(), table.find(1l, 10, "").getUniqueId());
+		
+		// only the definition without a suffix: a course with an empty suffix does not match it
+		definitions.clear();
+		definitions.add(noSuffix);
+		table = ColleagueSuffixDefResolver.createTable(0l, "202010", definitions);
+		assertNull(table.find(1l, 10, ""));
+		assertEquals(noSuffix.getUniqueId(), table.find(1l, 10, null).getUniqueId());
+	}
+	
+	@Test
+	public void testCachedDefinitionsAreCopied() {
+		List<ColleagueSuffixDef> definitions = new ArrayList<ColleagueSuffixDef>();
+		definitions.add(createDefinition(1l, 10, null, "MAIN", 1, 99, "L", null, null));
+		ColleagueSuffixDefResolver.Table table = ColleagueSuffixDefResolver.createTable(0l, "202010", definitions);
+		ColleagueSuffixDef first = table.find(1l, 10, null);
+		assertNotNull(first);
+		first.setCampusCode("NORTH");
+		first.setMaxSectionNum(5);
+		ColleagueSuffixDef second = table.find(1l, 10, null);
+		assertFalse(first == second);
+		assertEquals("MAIN", second.getCampusCode());
+		assertEquals(99, second.getMaxSectionNum().intValue());
+		assertEquals(definitions.get(0).getUniqueId(), second.getUniqueId());
+	}
+	
+	@Test
+	public void testInvalidate() {
+		ColleagueSuffixDefResolver.Table table = ColleagueSuffixDefResolver.createTable(ColleagueSuffixDefResolver.getVersion(), "202010", new ArrayList<ColleagueSuffixDef>());
+		assertTrue(table.isValid());
+		ColleagueSuffixDefResolver.invalidate();
+		assertFalse(table.isValid());
+	}
+	
+	/**
+	 * Random suffix definitions of a term: each combination of subject area, itype, and course suffix (each of them possibly not set)
+	 * has a definition with a probability of 1/3, and with allowDuplicates also a second definition with a probability of 1/10
+	 */
+	protected List<ColleagueSuffixDef> createDefinitions(Random random, boolean allowDuplicates) {
+		List<ColleagueSuffixDef> definitions = new ArrayList<ColleagueSuffixDef>();
+		for (Long subjectAreaId: withNull(sSubjectAreaIds)) {
+			for (Integer itype: withNull(sItypes)) {
+				for (String courseSuffix: withNull(sCourseSuffixes)) {
+					int count = (random.nextInt(3) == 0 ? 1 : 0);
+					if (allowDuplicates && count == 1 && random.nextInt(10) == 0) count ++;
+					for (int i = 0; i < count; i++) {
+						int min = 1 + random.nextInt(20);
+						definitions.add(createDefinition(subjectAreaId, itype, courseSuffix,
+								sCampusCodes[random.nextInt(sCampusCodes.length)],
+								min, min + random.nextInt(90),
+								sPrefixes[random.nextInt(sPrefixes.length)],
+								sPrefixes[random.nextInt(sPrefixes.length)],
+								sPrefixes[random.nextInt(sPrefixes.length)]));
+					}
+				}
+			}
+		}
+		return definitions;
+	}
+	
+	private static long sUniqueId = 0;
+	protected static ColleagueSuffixDef createDefinition(Long subjectAreaId, Integer itypeId, String courseSuffix, String campusCode,
+			Integer minSectionNum, Integer maxSectionNum, String itypePrefix, String prefix, String suffix) {
+		ColleagueSuffixDef csd = new ColleagueSuffixDef();
+		csd.setUniqueId(++sUniqueId);
+		csd.setTermCode("202010");
+		csd.setSubjectAreaId(subjectAreaId);
+		csd.setItypeId(itypeId);
+		csd.setCourseSuffix(courseSuffix);
+		csd.setCampusCode(campusCode);
+		csd.setMinSectionNum(minSectionNum);
+		csd.setMaxSectionNum(maxSectionNum);
+		csd.setItypePrefix(itypePrefix);
+		csd.setPrefix(prefix);
+		csd.setSuffix(suffix);
+		return csd;
+	}
+	
+	protected static CourseOffering createCourse(Long subjectAreaId, String courseNbr) {
+		SubjectArea subjectArea = new SubjectArea();
+		subjectArea.setUniqueId(subjectAreaId);
+		CourseOffering course = new CourseOffering();
+		course.setSubjectArea(subjectArea);
+		course.setCourseNbr(courseNbr);
+		return course;
+	}
+	
+	protected static ItypeDesc createItype(Integer itype) {
+		if (itype == null) return null;
+		ItypeDesc itypeDesc = new ItypeDesc();
+		itypeDesc.setItype(itype);
+		return itypeDesc;
+	}
+	
+	protected static String toString(ColleagueSuffixDef csd) {
+		if (csd == null) return null;
+		return "id=" + csd.getUniqueId() + ", subjectArea=" + csd.getSubjectAreaId() + ", itype=" + csd.getItypeId() +
+				", courseSuffix=" + csd.getCourseSuffix() + ", campus=" + csd.getCampusCode() +
+				", min=" + csd.getMinSectionNum() + ", max=" + csd.getMaxSectionNum() +
+				", itypePrefix=" + csd.getItypePrefix() + ", prefix=" + csd.getPrefix() + ", suffix=" + csd.getSuffix() +
+				", note=" + csd.getNote();
+	}
+	
+	@SafeVarargs
+	protected static <T> List<T> withNull(T[] values, T... more) {
+		List<T> ret = new ArrayList<T>();
+		ret.add(null);
+		for (T value: values) ret.add(value);
+		for (T value: more) ret.add(value);
+		return ret;
+	}
+	
+	/**
+	 * The conditions of {@link ColleagueSuffixDef#findColleagueSuffixDefForTermCodeItypeSuffix(String, Long, Integer, String)}
+	 * evaluated over a list of definitions: null parameters only match definitions where the property is null,
+	 * more than one match fails like Query.uniqueResult() does
+	 */
+	public static class QueryLookup implements ColleagueSuffixDef.Lookup {
+		private List<ColleagueSuffixDef> iDefinitions;
+		
+		public QueryLookup(List<ColleagueSuffixDef> definitions) {
+			iDefinitions = definitions;
+		}
+		
+		@Override
+		public ColleagueSuffixDef find(Long subjectAreaId, Integer itypeId, String suffix) {
+			List<ColleagueSuffixDef> matches = new ArrayList<ColleagueSuffixDef>();
+			for (ColleagueSuffixDef csd: iDefinitions) {
+				if (equals(subjectAreaId, csd.getSubjectAreaId()) && equals(itypeId, csd.getItypeId()) && equals(suffix, csd.getCourseSuffix()))
+					matches.add(csd);
+			}
+			if (matches.size() > 1) throw new NonUniqueResultException(matches.size());
+			return (matches.isEmpty() ? null : matches.get(0));
+		}
+		
+		private static boolean equals(Object o1, Object o2) {
+			return (o1 == null ? o2 == null : o1.equals(o2));
+		}
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.queueprocessor.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.unitime.colleague.model.QueueOut;
+import org.unitime.colleague.queueprocessor.metrics.QueueLagMonitor.State;
+import org.unitime.colleague.queueprocessor.metrics.QueueLagMonitor.Status;
+
+/**
+ * {@link QueueLagMonitor} driven by a simulated clock, with the default limits: 30 minutes to drain the backlog,
+ * 15 minutes without progress, 30 seconds per item, a one minute drain rate window, and one alert per hour.
+ */
+public class QueueLagMonitorTest {
+	private static final long SECOND = 1000l, MINUTE = 60000l;
+	
+	private SimulatedClock iClock;
+	private TestMonitor iMonitor;
+	private long iNextId = 0;
+	
+	@Before
+	public void setUp() {
+		iClock = new SimulatedClock(1600000000000l);
+		iMonitor = new TestMonitor(iClock);
+	}
+	
+	@Test
+	public void testIdle() {
+		Status status = iMonitor.evaluate();
+		assertEquals(State.IDLE, status.getState());
+		assertEquals(0, status.getBacklog());
+		assertEquals(0, status.getOldestAge());
+		assertEquals(0, status.getNoProgressTime());
+		assertEquals(0, iMonitor.getAlerts().size());
+		
+		iClock.advance(10 * MINUTE);
+		assertEquals(State.IDLE, iMonitor.evaluate().getState());
+		assertEquals(0, iMonitor.getAlerts().size());
+	}
+	
+	@Test
+	public void testOldestAge() {
+		QueueOut older = createItem(-2 * MINUTE), newer = createItem(-1 * MINUTE);
+		iMonitor.posted(list(older, newer));
+		assertEquals(2 * MINUTE, iMonitor.getStatus().getOldestAge());
+		
+		iClock.advance(30 * SECOND);
+		assertEquals(2 * MINUTE + 30 * SECOND, iMonitor.getStatus().getOldestAge());
+		
+		iMonitor.completed(older, 100);
+		assertEquals(1, iMonitor.getStatus().getBacklog());
+		assertEquals(1 * MINUTE + 30 * SECOND, iMonitor.getStatus().getOldestAge());
+		
+		iMonitor.released(newer);
+		assertEquals(State.IDLE, iMonitor.getStatus().getState());
+		assertEquals(0, iMonitor.getStatus().getOldestAge());
+	}
+	
+	@Test
+	public void testLeasedAndPosted() {
+		QueueOut a = createItem(0), b = createItem(0);
+		iMonitor.leased(list(a, b), true);
+		Status status = iMonitor.getStatus();
+		assertEquals(2, status.getBacklog());
+		assertTrue(status.hasMore());
+		
+		// leasing the same item again does not count it twice
+		iMonitor.leased(list(b), true);
+		assertEquals(2, iMonitor.getStatus().getBacklog());
+		
+		// all posted items have been read: b is the only outstanding item
+		iMonitor.posted(list(b));
+		status = iMonitor.getStatus();
+		assertEquals(1, status.getBacklog());
+		assertFalse(status.hasMore());
+	}
+	
+	@Test
+	public void testDrainRateOk() {
+		List<QueueOut> items = createItems(10);
+		iMonitor.posted(items);
+		drain(items, 6, 10 * SECOND, 100);
+		
+		Status status = iMonitor.evaluate();
+		assertEquals(4, status.getBacklog());
+		assertEquals(0.1, status.getDrainRate(), 1e-9);
+		assertEquals(100.0, status.getItemTime(), 1e-9);
+		assertEquals(40 * SECOND, status.getProjectedDrainTime());
+		assertEquals(State.OK, status.getState());
+		assertEquals(6, status.getProcessed());
+		assertEquals(0, iMonitor.getAlerts().size());
+	}
+	
+	@Test
+	public void testDrainRateOnlyMeasuredWithBacklog() {
+		// idle windows do not give a drain rate
+		for (int i = 0; i < 10; i++) {
+			iClock.advance(1 * MINUTE);
+			iMonitor.evaluate();
+		}
+		assertEquals(-1.0, iMonitor.getStatus().getDrainRate(), 1e-9);
+		
+		// a burst of three items drained within the window
+		List<QueueOut> items = createItems(3);
+		iMonitor.posted(items);
+		iClock.advance(10 * SECOND);
+		for (QueueOut item: items) iMonitor.completed(item, 100);
+		iMonitor.posted(new ArrayList<QueueOut>());
+		iClock.advance(50 * SECOND);
+		iMonitor.evaluate();
+		double rate = iMonitor.getStatus().getDrainRate();
+		assertTrue("drain rate " + rate, rate > 0.0);
+		
+		// the following idle window does not change it
+		iClock.advance(1 * MINUTE);
+		iMonitor.evaluate();
+		assertEquals(rate, iMonitor.getStatus().getDrainRate(), 1e-9);
+		assertEquals(State.IDLE, iMonitor.getStatus().getState());
+	}
+	
+	@Test
+	public void testBacklog() {
+		List<QueueOut> items = createItems(1000);
+		iMonitor.posted(items);
+		drain(items, 6, 10 * SECOND, 100);
+		
+		Status status = iMonitor.evaluate();
+		assertEquals(State.BACKLOG, status.getState());
+		assertEquals(994, status.getBacklog());
+		assertEquals(9940 * SECOND, status.getProjectedDrainTime());
+		assertEquals(1, iMonitor.getAlerts().size());
+		assertEquals(State.BACKLOG, iMonitor.getAlerts().get(0).getState());
+		assertEquals(status.getState(), iMonitor.getLastStatus().getState());
+	}
+	
+	@Test
+	public void testSlow() {
+		List<QueueOut> items = createItems(1000);
+		iMonitor.posted(items);
+		drain(items, 6, 10 * SECOND, 60 * SECOND);
+		
+		Status status = iMonitor.evaluate();
+		assertEquals(State.SLOW, status.getState());
+		assertEquals(60.0 * SECOND, status.getItemTime(), 1e-9);
+		assertEquals(1, iMonitor.getAlerts().size());
+		assertEquals(State.SLOW, iMonitor.getAlerts().get(0).getState());
+	}
+	
+	@Test
+	public void testStalled() {
+		List<QueueOut> items = createItems(5);
+		iMonitor.posted(items);
+		assertEquals(State.OK, iMonitor.evaluate().getState());
+		
+		iClock.advance(15 * MINUTE - 1);
+		assertEquals(State.OK, iMonitor.evaluate().getState());
+		assertEquals(0, iMonitor.getAlerts().size());
+		
+		iClock.advance(1);
+		Status status = iMonitor.evaluate();
+		assertEquals(State.STALLED, status.getState());
+		assertEquals(15 * MINUTE, status.getNoProgressTime());
+		assertEquals(1, iMonitor.getAlerts().size());
+		
+		// progress ends the stall
+		iMonitor.completed(items.get(0), 100);
+		status = iMonitor.evaluate();
+		assertEquals(State.OK, status.getState());
+		assertEquals(0, status.getNoProgressTime());
+	}
+	
+	@Test
+	public void testAlertInterval() {
+		iMonitor.posted(createItems(5));
+		iClock.advance(15 * MINUTE);
+		assertEquals(State.STALLED, iMonitor.evaluate().getState());
+		assertEquals(1, iMonitor.getAlerts().size());
+		
+		// still stalled, but the alert is not repeated within the hour
+		for (int i = 0; i < 59; i++) {
+			iClock.advance(1 * MINUTE);
+			assertEquals(State.STALLED, iMonitor.evaluate().getState());
+		}
+		assertEquals(1, iMonitor.getAlerts().size());
+		
+		iClock.advance(1 * MINUTE);
+		iMonitor.evaluate();
+		assertEquals(2, iMonitor.getAlerts().size());
+	}
+	
+	@Test
+	public void testAlertAgainAfterRecovery() {
+		List<QueueOut> items = createItems(5);
+		iMonitor.posted(items);
+		iClock.advance(15 * MINUTE);
+		iMonitor.evaluate();
+		assertEquals(1, iMonitor.getAlerts().size());
+		
+		// recovered, a new stall is reported right away
+		iMonitor.completed(items.get(0), 100);
+		assertEquals(State.OK, iMonitor.evaluate().getState());
+		iClock.advance(15 * MINUTE);
+		assertEquals(State.STALLED, iMonitor.evaluate().getState());
+		assertEquals(2, iMonitor.getAlerts().size());
+	}
+	
+	@Test
+	public void testHeartbeatAge() {
+		assertEquals(-1, iMonitor.getStatus().getHeartbeatAge());
+		iMonitor.evaluate();
+		iClock.advance(5 * SECOND);
+		assertEquals(5 * SECOND, iMonitor.getStatus().getHeartbeatAge());
+	}
+	
+	/**
+	 * Process the given number of items, one every interval milliseconds, each taking itemTime milliseconds, evaluating after each of them
+	 */
+	protected void drain(List<QueueOut> items, int count, long interval, long itemTime) {
+		for (int i = 0; i < count; i++) {
+			iClock.advance(interval);
+			iMonitor.completed(items.get(i), itemTime);
+			iMonitor.evaluate();
+		}
+	}
+	
+	protected QueueOut createItem(long postedAgo) {
+		QueueOut item = new QueueOut();
+		item.setUniqueId(++iNextId);
+		item.setPostDate(new Date(iClock.millis() + postedAgo));
+		return item;
+	}
+	
+	protected List<QueueOut> createItems(int count) {
+		List<QueueOut> items = new ArrayList<QueueOut>(count);
+		for (int i = 0; i < count; i++)
+			items.add(createItem(0));
+		return items;
+	}
+	
+	protected static List<QueueOut> list(QueueOut... items) {
+		List<QueueOut> ret = new ArrayList<QueueOut>();
+		Collections.addAll(ret, items);
+		return ret;
+	}
+	
+	/**
+	 * Clock that only moves when told to
+	 */
+	public static class SimulatedClock extends Clock {
+		private long iMillis;
+		
+		public SimulatedClock(long millis) { iMillis = millis; }
+		
+		public synchronized void advance(long millis) { iMillis += millis; }
+		
+		@Override
+		public synchronized long millis() { return iMillis; }
+		
+		@Override
+		public Instant instant() { return Instant.ofEpochMilli(millis()); }
+		
+		@Override
+		public ZoneId getZone() { return ZoneOffset.UTC; }
+		
+		@Override
+		public Clock withZone(ZoneId zone) { return this; }
+	}
+	
+	/**
+	 * Monitor with the default limits that records the alerts instead of logging and emailing them
+	 */
+	public static class TestMonitor extends QueueLagMonitor {
+		private List<Status> iAlerts = new ArrayList<Status>();
+		
+		public TestMonitor(Clock clock) {
+			super(clock, 30 * MINUTE, 15 * MINUTE, 30 * SECOND, 1 * MINUTE, 60 * MINUTE);
+		}
+		
+		@Override
+		protected void alert(Status status) {
+			iAlerts.add(status);
+		}
+		
+		public List<Status> getAlerts() { return iAlerts; }
+	}
+}
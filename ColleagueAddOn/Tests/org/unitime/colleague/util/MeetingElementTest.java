@@ -0,0 +1,175 @@
+/*
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * The Apereo Foundation licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+*/
+package org.unitime.colleague.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * {@link MeetingElement#mergeMeetings(Collection)} must give the same result as the pairwise merge it replaced,
+ * including which of the mergeable meetings is kept and the days it ends up with.
+ */
+public class MeetingElementTest {
+	private static final long DAY = 24l * 3600l * 1000l;
+	private static final String[] sTimes = new String[] { "0730", "0830", "1030", "1320", null };
+	private static final String[] sBuildings = new String[] { "EDUC", "MATH", "OFFCMP", null };
+	private static final String[] sRooms = new String[] { "101", "B12", null };
+	private static final Integer[] sItypes = new Integer[] { 10, 20, null };
+	
+	/**
+	 * Random meetings of a section: only a few different date ranges, times and rooms are used so that many meetings
+	 * share their dates but differ in instructional type, time, room, or days of week (and some can be merged); about one in ten fields is left empty.
+	 */
+	private static List<MeetingElement> createMeetings(long seed) {
+		Random random = new Random(seed);
+		List<MeetingElement> meetings = new ArrayList<MeetingElement>();
+		int count = 1 + random.nextInt(40);
+		for (int i = 0; i < count; i++) {
+			MeetingElement me = new MeetingElement();
+			me.setMeetingId(String.valueOf(i));
+			me.setItypeId(sItypes[random.nextInt(sItypes.length)]);
+			int start = random.nextInt(3);
+			if (random.nextInt(10) > 0) me.setStartDate(new Date(1598918400000l + start * 7 * DAY));
+			if (random.nextInt(10) > 0) me.setEndDate(new Date(1607904000000l + (start + random.nextInt(2)) * 7 * DAY));
+			int time = random.nextInt(sTimes.length);
+			me.setBeginTime(sTimes[time]);
+			me.setEndTime(sTimes[random.nextInt(5) == 0 ? random.nextInt(sTimes.length) : time]);
+			me.setBldgCode(sBuildings[random.nextInt(sBuildings.length)]);
+			me.setRoomCode(sRooms[random.nextInt(sRooms.length)]);
+			me.setMonday(random.nextInt(3) == 0);
+			me.setTuesday(random.nextInt(3) == 0);
+			me.setWednesday(random.nextInt(3) == 0);
+			me.setThursday(random.nextInt(3) == 0);
+			me.setFriday(random.nextInt(3) == 0);
+			me.setSaturday(random.nextInt(10) == 0);
+			me.setSunday(random.nextInt(20) == 0);
+			if (random.nextInt(10) == 0) me.setHoursToArrange(String.valueOf(random.nextInt(4)));
+			meetings.add(me);
+		}
+		return meetings;
+	}
+	
+	/**
+	 * The merge that was used before {@link MeetingElement#mergeMeetings(Collection)}: every meeting is compared with all the remaining meetings
+	 * using {@link MeetingElement#canBeMerged(MeetingElement)}.
+	 */
+	private static TreeSet<MeetingElement> pairwiseMerge(Collection<MeetingElement> meetings) {
+		TreeSet<MeetingElement> mergedMeetings = new TreeSet<MeetingElement>();
+		HashSet<MeetingElement> unmergedMeetings = new HashSet<MeetingElement>(meetings);
+		HashSet<MeetingElement> iterateSet = new HashSet<MeetingElement>(meetings);
+		for (Iterator<MeetingElement> meetingIt = meetings.iterator(); meetingIt.hasNext();) {
+			MeetingElement me = meetingIt.next();
+			iterateSet.remove(me);
+			if (unmergedMeetings.contains(me)) {
+				for (Iterator<MeetingElement> checkMeetingIt = iterateSet.iterator(); checkMeetingIt.hasNext();) {
+					MeetingElement checkMeeting = checkMeetingIt.next();
+					if (me.canBeMerged(checkMeeting)) {
+						me.merge(checkMeeting);
+						unmergedMeetings.remove(checkMeeting);
+					}
+				}
+				mergedMeetings.add(me);
+			}
+		}
+		return mergedMeetings;
+	}
+	
+	private static String toString(MeetingElement me) {
+		return me.getMeetingId() + ": " + me.getItypeId() + " " +
+				(me.getStartDate() == null ? null : me.getStartDate().getTime()) + " - " + (me.getEndDate() == null ? null : me.getEndDate().getTime()) + " " +
+				(me.isMonday() ? "M" : "") + (me.isTuesday() ? "T" : "") + (me.isWednesday() ? "W" : "") + (me.isThursday() ? "R" : "") +
+				(me.isFriday() ? "F" : "") + (me.isSaturday() ? "S" : "") + (me.isSunday() ? "U" : "") + " " +
+				me.getBeginTime() + " - " + me.getEndTime() + " " + me.getBldgCode() + " " + me.getRoomCode() + " " + me.getHoursToArrange();
+	}
+	
+	private static List<String> toStrings(Collection<MeetingElement> meetings) {
+		List<String> ret = new ArrayList<String>(meetings.size());
+		for (MeetingElement me: meetings)
+			ret.add(toString(me));
+		return ret;
+	}
+	
+	@Test
+	public void testMergeMeetingsSameAsPairwise() {
+		for (long seed = 0; seed < 2000; seed++) {
+			// both merges change the meetings, each gets its own (identical) copy
+			List<String> expected = toStrings(pairwiseMerge(createMeetings(seed)));
+			List<String> actual = toStrings(MeetingElement.mergeMeetings(createMeetings(seed)));
+			assertEquals("seed " + seed, expected, actual);
+		}
+	}
+	
+	private static final String[][] sSameDates = new String[][] {
+		// begin, end, building, room, days (, instructional type)
+		{ "0830", "0920", "EDUC", "101", "M" },
+		{ "0830", "0920", "EDUC", "101", "W" },
+		{ "0830", "0920", "EDUC", "101", "T", "20" },	// different instructional type
+		{ "0930", "1020", "EDUC", "101", "F" },		// different time
+		{ "0830", "0920", "EDUC", "102", "F" },		// different room
+		{ "0830", "0920", "MATH", "101", "F" },		// different building
+		{ "0830", "0920", "EDUC", "101", "MF" },
+		{ "0830", "0920", "EDUC", null, "T" },		// no room, never merged
+		{ "0830", "0920", "EDUC", null, "R" },
+	};
+	
+	private static List<MeetingElement> createSameDatesMeetings() {
+		List<MeetingElement> meetings = new ArrayList<MeetingElement>();
+		for (int i = 0; i < sSameDates.length; i++) {
+			MeetingElement me = new MeetingElement();
+			me.setMeetingId(String.valueOf(i));
+			me.setItypeId(sSameDates[i].length > 5 ? Integer.valueOf(sSameDates[i][5]) : 10);
+			me.setStartDate(new Date(1598918400000l));
+			me.setEndDate(new Date(1607904000000l));
+			me.setBeginTime(sSameDates[i][0]);
+			me.setEndTime(sSameDates[i][1]);
+			me.setBldgCode(sSameDates[i][2]);
+			me.setRoomCode(sSameDates[i][3]);
+			me.setMonday(sSameDates[i][4].contains("M"));
+			me.setTuesday(sSameDates[i][4].contains("T"));
+			me.setWednesday(sSameDates[i][4].contains("W"));
+			me.setThursday(sSameDates[i][4].contains("R"));
+			me.setFriday(sSameDates[i][4].contains("F"));
+			meetings.add(me);
+		}
+		return meetings;
+	}
+	
+	@Test
+	public void testMergeMeetingsSameDates() {
+		TreeSet<MeetingElement> merged = MeetingElement.mergeMeetings(createSameDatesMeetings());
+		assertEquals(toStrings(pairwiseMerge(createSameDatesMeetings())), toStrings(merged));
+		// the two meetings without a room are not merged, but they compare as equal and the sorted set only keeps the first one
+		assertEquals(6, merged.size());
+		List<String> meetings = toStrings(merged);
+		assertTrue(meetings.contains("0: 10 1598918400000 - 1607904000000 MWF 0830 - 0920 EDUC 101 null"));
+		assertTrue(meetings.contains("7: 10 1598918400000 - 1607904000000 T 0830 - 0920 EDUC null null"));
+	}
+}